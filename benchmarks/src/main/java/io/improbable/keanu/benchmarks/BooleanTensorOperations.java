@@ -0,0 +1,84 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.bool.PackedBooleanTensor;
+import io.improbable.keanu.tensor.bool.SimpleBooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the bit packed and the boolean array tensors on the logical operations and counts that masks and
+ * Bernoulli observations go through.
+ */
+@State(Scope.Benchmark)
+public class BooleanTensorOperations {
+
+    public enum Implementation {
+        PACKED {
+            public BooleanTensor create(boolean[] values, long... shape) {
+                return PackedBooleanTensor.create(values, shape);
+            }
+        },
+        SIMPLE {
+            public BooleanTensor create(boolean[] values, long... shape) {
+                return new SimpleBooleanTensor(values, shape);
+            }
+        };
+
+        public abstract BooleanTensor create(boolean[] values, long... shape);
+    }
+
+    @Param({"PACKED", "SIMPLE"})
+    public Implementation implementation;
+
+    @Param({"1024", "1048576"})
+    public int tensorLength;
+
+    public BooleanTensor left;
+    public BooleanTensor right;
+    public DoubleTensor probabilities;
+
+    @Setup
+    public void createTensors() {
+        left = implementation.create(pattern(tensorLength, 3), tensorLength);
+        right = implementation.create(pattern(tensorLength, 5), tensorLength);
+        probabilities = DoubleTensor.create(0.25, new long[]{tensorLength});
+    }
+
+    private static boolean[] pattern(int length, int period) {
+        boolean[] values = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = i % period == 0;
+        }
+        return values;
+    }
+
+    @Benchmark
+    public BooleanTensor and() {
+        return left.and(right);
+    }
+
+    @Benchmark
+    public BooleanTensor xor() {
+        return left.xor(right);
+    }
+
+    @Benchmark
+    public BooleanTensor not() {
+        return left.not();
+    }
+
+    @Benchmark
+    public long countTrue() {
+        return left.countTrue();
+    }
+
+    @Benchmark
+    public DoubleTensor doubleWhere() {
+        return left.doubleWhere(probabilities, DoubleTensor.ZERO_SCALAR);
+    }
+}
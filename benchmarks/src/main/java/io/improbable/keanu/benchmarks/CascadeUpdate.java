@@ -0,0 +1,96 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.vertices.NonProbabilistic;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+
+@State(Scope.Benchmark)
+public class CascadeUpdate {
+
+    public enum GraphShape {
+        CHAIN, FAN_OUT
+    }
+
+    @Param({"CHAIN", "FAN_OUT"})
+    public GraphShape graphShape;
+
+    @Param({"10000"})
+    public int vertexCount;
+
+    public DoubleVertex latent;
+
+    @Setup
+    public void createGraph() {
+        latent = new GaussianVertex(0.0, 1.0);
+
+        if (graphShape == GraphShape.CHAIN) {
+            DoubleVertex previous = latent;
+            for (int i = 0; i < vertexCount; i++) {
+                previous = previous.plus(1.0);
+            }
+        } else {
+            for (int i = 0; i < vertexCount; i++) {
+                latent.times(i);
+            }
+        }
+
+        latent.setValue(1.0);
+        VertexValuePropagation.cascadeUpdate(latent);
+    }
+
+    @Benchmark
+    public int baseline() {
+        return priorityQueueCascade(latent);
+    }
+
+    @Benchmark
+    public double precompiledPlan() {
+        VertexValuePropagation.cascadeUpdate(latent);
+        return latent.getValue().scalar();
+    }
+
+    /**
+     * The cascade as it was before plans were precompiled: a priority queue ordered by vertex id
+     * and a set of already queued vertices, both built on every call.
+     */
+    private static int priorityQueueCascade(Vertex<?> cascadeFrom) {
+        PriorityQueue<Vertex> priorityQueue = new PriorityQueue<>(Comparator.comparing(Vertex::getId, Comparator.naturalOrder()));
+        priorityQueue.add(cascadeFrom);
+
+        HashSet<Vertex> alreadyQueued = new HashSet<>();
+        alreadyQueued.add(cascadeFrom);
+
+        int updated = 0;
+        while (!priorityQueue.isEmpty()) {
+            Vertex<?> visiting = priorityQueue.poll();
+
+            if (!visiting.isProbabilistic()) {
+                updateValue(visiting);
+            }
+            updated++;
+
+            for (Vertex<?> child : visiting.getChildren()) {
+                if (!child.isProbabilistic() && !alreadyQueued.contains(child)) {
+                    priorityQueue.offer(child);
+                    alreadyQueued.add(child);
+                }
+            }
+        }
+        return updated;
+    }
+
+    private static <T> void updateValue(Vertex<T> vertex) {
+        vertex.setValue(((NonProbabilistic<T>) vertex).calculate());
+    }
+}
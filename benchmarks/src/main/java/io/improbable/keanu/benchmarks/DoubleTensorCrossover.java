@@ -0,0 +1,85 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.dbl.JvmDoubleTensor;
+import io.improbable.keanu.tensor.dbl.Nd4jDoubleTensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the JVM and ND4J double tensors across tensor lengths, to find the length at which ND4J overtakes the
+ * JVM implementation. This is used to choose a value for {@link JvmDoubleTensor#setMaxLength(int)}.
+ */
+@State(Scope.Benchmark)
+public class DoubleTensorCrossover {
+
+    public enum Implementation {
+        JVM {
+            public DoubleTensor create(double[] values, long... shape) {
+                return JvmDoubleTensor.create(values, shape);
+            }
+        },
+        ND4J {
+            public DoubleTensor create(double[] values, long... shape) {
+                return Nd4jDoubleTensor.create(values, shape);
+            }
+        };
+
+        public abstract DoubleTensor create(double[] values, long... shape);
+    }
+
+    @Param({"JVM", "ND4J"})
+    public Implementation implementation;
+
+    @Param({"4", "16", "64", "256", "1024", "4096"})
+    public int tensorLength;
+
+    public DoubleTensor left;
+    public DoubleTensor right;
+    public DoubleTensor matrix;
+
+    @Setup
+    public void createTensors() {
+        left = implementation.create(values(tensorLength, 1.0), tensorLength);
+        right = implementation.create(values(tensorLength, 2.0), tensorLength);
+
+        int size = (int) Math.sqrt(tensorLength);
+        matrix = implementation.create(values(size * size, 0.5), size, size);
+    }
+
+    private static double[] values(int length, double offset) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = offset + i * 0.01;
+        }
+        return values;
+    }
+
+    @Benchmark
+    public DoubleTensor plus() {
+        return left.plus(right);
+    }
+
+    @Benchmark
+    public DoubleTensor times() {
+        return left.times(right);
+    }
+
+    @Benchmark
+    public DoubleTensor exp() {
+        return left.exp();
+    }
+
+    @Benchmark
+    public double sum() {
+        return left.sum();
+    }
+
+    @Benchmark
+    public DoubleTensor matrixMultiply() {
+        return matrix.matrixMultiply(matrix);
+    }
+}
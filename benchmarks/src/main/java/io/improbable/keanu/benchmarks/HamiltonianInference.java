@@ -0,0 +1,52 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.mcmc.Hamiltonian;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.util.ProgressBar;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples per second of Hamiltonian on the models with only continuous latent vertices. Run with -prof gc to also report the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HamiltonianInference {
+
+    private static final int SAMPLE_COUNT = 100;
+
+    @Param({"LINEAR_REGRESSION", "HIERARCHICAL"})
+    public InferenceModel model;
+
+    @Param({"10", "100", "1000"})
+    public int modelSize;
+
+    private BayesianNetwork network;
+    private Hamiltonian algorithm;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        ProgressBar.disable();
+        network = model.build(modelSize);
+        algorithm = Hamiltonian.withDefaultConfig(new KeanuRandom(1));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_COUNT)
+    public NetworkSamples sample() {
+        return algorithm.getPosteriorSamples(network, network.getLatentVertices(), SAMPLE_COUNT);
+    }
+}
@@ -0,0 +1,118 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.bool.nonprobabilistic.operators.binary.compare.GreaterThanVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.probabilistic.ExponentialVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.generic.nonprobabilistic.If;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.UniformIntVertex;
+
+/**
+ * The models the inference benchmarks are run on. Each is built with synthetic observations from a fixed seed,
+ * so every run of a benchmark sees the same network for a given size.
+ */
+public enum InferenceModel {
+
+    /**
+     * y = weight * x + bias with Gaussian noise, observed for size data points as a single vector vertex
+     */
+    LINEAR_REGRESSION(true) {
+        @Override
+        public BayesianNetwork build(int size, KeanuRandom random) {
+            DoubleTensor x = random.nextGaussian(new long[]{1, size});
+            DoubleTensor y = x.times(2.0).plusInPlace(20.0).plusInPlace(random.nextGaussian(new long[]{1, size}));
+
+            DoubleVertex weight = new GaussianVertex(0.0, 10.0);
+            DoubleVertex bias = new GaussianVertex(0.0, 10.0);
+            weight.setValue(0.0);
+            bias.setValue(0.0);
+
+            DoubleVertex yVertex = new GaussianVertex(ConstantVertex.of(x).times(weight).plus(bias), 1.0);
+            yVertex.observe(y);
+
+            return new BayesianNetwork(yVertex.getConnectedGraph());
+        }
+    },
+
+    /**
+     * size groups, each with its own scalar mean drawn from a shared population mean and observed once
+     */
+    HIERARCHICAL(true) {
+        @Override
+        public BayesianNetwork build(int size, KeanuRandom random) {
+            DoubleVertex populationMean = new GaussianVertex(0.0, 10.0);
+            DoubleVertex logPopulationSigma = new GaussianVertex(0.0, 1.0);
+            populationMean.setValue(0.0);
+            logPopulationSigma.setValue(0.0);
+            DoubleVertex populationSigma = logPopulationSigma.exp();
+
+            for (int i = 0; i < size; i++) {
+                DoubleVertex groupMean = new GaussianVertex(populationMean, populationSigma);
+                groupMean.setValue(0.0);
+                DoubleVertex observation = new GaussianVertex(groupMean, 1.0);
+                observation.observe(5.0 + 2.0 * random.nextGaussian());
+            }
+
+            return new BayesianNetwork(populationMean.getConnectedGraph());
+        }
+    },
+
+    /**
+     * The coal mining disasters changepoint model from keanu-examples, over size years of synthetic disaster counts
+     * that switch from a high to a low rate half way through
+     */
+    COAL_MINING(false) {
+        @Override
+        public BayesianNetwork build(int size, KeanuRandom random) {
+            int[] years = new int[size];
+            int[] disasters = new int[size];
+            for (int i = 0; i < size; i++) {
+                years[i] = START_YEAR + i;
+                disasters[i] = new PoissonVertex(i < size / 2 ? 3.0 : 1.0).sample(random).scalar();
+            }
+
+            UniformIntVertex switchpoint = new UniformIntVertex(START_YEAR, START_YEAR + size);
+            DoubleVertex earlyRate = new ExponentialVertex(1.0);
+            DoubleVertex lateRate = new ExponentialVertex(1.0);
+            switchpoint.setValue(START_YEAR + size / 3);
+            earlyRate.setValue(1.0);
+            lateRate.setValue(1.0);
+
+            DoubleVertex rateForYear = If.isTrue(new GreaterThanVertex<>(switchpoint, ConstantVertex.of(IntegerTensor.create(years))))
+                .then(earlyRate)
+                .orElse(lateRate);
+
+            PoissonVertex disastersForYear = new PoissonVertex(rateForYear);
+            disastersForYear.observe(IntegerTensor.create(disasters));
+
+            return new BayesianNetwork(switchpoint.getConnectedGraph());
+        }
+    };
+
+    private static final int START_YEAR = 1851;
+
+    private final boolean continuous;
+
+    InferenceModel(boolean continuous) {
+        this.continuous = continuous;
+    }
+
+    /**
+     * @return true if every latent vertex is continuous, which gradient based algorithms require
+     */
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    public BayesianNetwork build(int size) {
+        return build(size, new KeanuRandom(1));
+    }
+
+    public abstract BayesianNetwork build(int size, KeanuRandom random);
+}
@@ -0,0 +1,87 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.tensor.intgr.JvmIntegerTensor;
+import io.improbable.keanu.tensor.intgr.Nd4jIntegerTensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the JVM and ND4J integer tensors on the elementwise, comparison and sum operations that count data,
+ * e.g. the observations of a Poisson or binomial vertex, mostly goes through.
+ */
+@State(Scope.Benchmark)
+public class IntegerTensorOperations {
+
+    public enum Implementation {
+        JVM {
+            public IntegerTensor create(int[] values, long... shape) {
+                return JvmIntegerTensor.create(values, shape);
+            }
+        },
+        ND4J {
+            public IntegerTensor create(int[] values, long... shape) {
+                return Nd4jIntegerTensor.create(values, shape);
+            }
+        };
+
+        public abstract IntegerTensor create(int[] values, long... shape);
+    }
+
+    @Param({"JVM", "ND4J"})
+    public Implementation implementation;
+
+    @Param({"16", "1024", "65536", "1048576"})
+    public int tensorLength;
+
+    public IntegerTensor left;
+    public IntegerTensor right;
+
+    @Setup
+    public void createTensors() {
+        left = implementation.create(counts(tensorLength, 7), tensorLength);
+        right = implementation.create(counts(tensorLength, 5), tensorLength);
+    }
+
+    private static int[] counts(int length, int modulus) {
+        int[] counts = new int[length];
+        for (int i = 0; i < length; i++) {
+            counts[i] = i % modulus;
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public IntegerTensor plus() {
+        return left.plus(right);
+    }
+
+    @Benchmark
+    public IntegerTensor times() {
+        return left.times(right);
+    }
+
+    @Benchmark
+    public IntegerTensor plusScalar() {
+        return left.plus(1);
+    }
+
+    @Benchmark
+    public BooleanTensor greaterThanOrEqual() {
+        return left.greaterThanOrEqual(right);
+    }
+
+    @Benchmark
+    public BooleanTensor greaterThanOrEqualScalar() {
+        return left.greaterThanOrEqual(0);
+    }
+
+    @Benchmark
+    public int sum() {
+        return left.sum();
+    }
+}
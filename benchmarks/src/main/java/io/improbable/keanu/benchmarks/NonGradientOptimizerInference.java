@@ -0,0 +1,44 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.algorithms.variational.optimizer.KeanuOptimizer;
+import io.improbable.keanu.algorithms.variational.optimizer.nongradient.NonGradientOptimizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optimisations per second of the NonGradientOptimizer on the models with only continuous latent vertices.
+ * The network is rebuilt before each optimisation so that every one starts from the same point.
+ * Run with -prof gc to also report the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NonGradientOptimizerInference {
+
+    @Param({"LINEAR_REGRESSION", "HIERARCHICAL"})
+    public InferenceModel model;
+
+    @Param({"10", "100"})
+    public int modelSize;
+
+    private NonGradientOptimizer optimizer;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        optimizer = KeanuOptimizer.NonGradient.of(model.build(modelSize));
+    }
+
+    @Benchmark
+    public double maxAPosteriori() {
+        return optimizer.maxAPosteriori();
+    }
+}
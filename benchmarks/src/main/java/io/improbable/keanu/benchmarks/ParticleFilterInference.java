@@ -0,0 +1,53 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.algorithms.particlefiltering.ParticleFilter;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Particles per second of the ParticleFilter. The network is rebuilt before each run so that every one
+ * starts from the same point. Run with -prof gc to also report the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParticleFilterInference {
+
+    private static final int PARTICLE_COUNT = 100;
+
+    @Param({"LINEAR_REGRESSION", "HIERARCHICAL", "COAL_MINING"})
+    public InferenceModel model;
+
+    @Param({"10", "100"})
+    public int modelSize;
+
+    private BayesianNetwork network;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        network = model.build(modelSize);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PARTICLE_COUNT)
+    public double filter() {
+        return ParticleFilter.ofGraph(network.getAllVertices())
+            .withNumParticles(PARTICLE_COUNT)
+            .withRandom(new KeanuRandom(1))
+            .build()
+            .getMostProbableParticle()
+            .logProb();
+    }
+}
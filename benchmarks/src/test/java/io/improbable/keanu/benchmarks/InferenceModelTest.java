@@ -0,0 +1,38 @@
+package io.improbable.keanu.benchmarks;
+
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.Vertex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InferenceModelTest {
+
+    @Test
+    public void theModelsHaveTheExpectedNumberOfLatentVertices() {
+        assertEquals(2, InferenceModel.LINEAR_REGRESSION.build(10).getLatentVertices().size());
+        assertEquals(12, InferenceModel.HIERARCHICAL.build(10).getLatentVertices().size());
+        assertEquals(3, InferenceModel.COAL_MINING.build(10).getLatentVertices().size());
+    }
+
+    @Test
+    public void theContinuousModelsOnlyHaveContinuousLatentVertices() {
+        for (InferenceModel model : InferenceModel.values()) {
+            BayesianNetwork network = model.build(10);
+            assertEquals(model.isContinuous(), network.getDiscreteLatentVertices().isEmpty());
+        }
+    }
+
+    @Test
+    public void theModelsStartInAPossibleState() {
+        for (InferenceModel model : InferenceModel.values()) {
+            BayesianNetwork network = model.build(10);
+            assertFalse(Double.isInfinite(network.getLogOfMasterP()));
+            for (Vertex<?> vertex : network.getLatentVertices()) {
+                assertTrue(vertex.hasValue());
+            }
+        }
+    }
+}
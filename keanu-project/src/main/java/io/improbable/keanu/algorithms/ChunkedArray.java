@@ -0,0 +1,72 @@
+package io.improbable.keanu.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only store of fixed length rows of primitives, held in arrays of type A. Rows are packed into chunks so
+ * that growing the store never copies rows that have already been added and a row never spans two chunks.
+ *
+ * @param <A> the primitive array type of a chunk
+ */
+abstract class ChunkedArray<A> {
+
+    private static final int TARGET_CHUNK_LENGTH = 1 << 14;
+
+    private final int rowLength;
+    private final int rowsPerChunk;
+    private final List<A> chunks = new ArrayList<>();
+    private int rowCount = 0;
+
+    ChunkedArray(int rowLength) {
+        this.rowLength = rowLength;
+        this.rowsPerChunk = Math.max(1, TARGET_CHUNK_LENGTH / Math.max(1, rowLength));
+    }
+
+    abstract A newArray(int length);
+
+    int getRowLength() {
+        return rowLength;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    void appendRow(A row) {
+        System.arraycopy(row, 0, nextChunk(), offsetInChunk(rowCount), rowLength);
+        rowCount++;
+    }
+
+    A copyRow(int row) {
+        A copy = newArray(rowLength);
+        System.arraycopy(chunkOf(row), offsetInChunk(row), copy, 0, rowLength);
+        return copy;
+    }
+
+    /**
+     * @return the chunk that the next row should be written to, which is added if the last chunk is full
+     */
+    A nextChunk() {
+        int chunk = rowCount / rowsPerChunk;
+        if (chunk == chunks.size()) {
+            chunks.add(newArray(rowsPerChunk * rowLength));
+        }
+        return chunks.get(chunk);
+    }
+
+    /**
+     * Marks the row that was written to {@link #nextChunk()} as added.
+     */
+    void incrementRowCount() {
+        rowCount++;
+    }
+
+    A chunkOf(int row) {
+        return chunks.get(row / rowsPerChunk);
+    }
+
+    int offsetInChunk(int row) {
+        return (row % rowsPerChunk) * rowLength;
+    }
+}
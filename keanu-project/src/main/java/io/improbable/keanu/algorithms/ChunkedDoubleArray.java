@@ -0,0 +1,37 @@
+package io.improbable.keanu.algorithms;
+
+/**
+ * A {@link ChunkedArray} of primitive doubles.
+ */
+class ChunkedDoubleArray extends ChunkedArray<double[]> {
+
+    ChunkedDoubleArray(int rowLength) {
+        super(rowLength);
+    }
+
+    @Override
+    double[] newArray(int length) {
+        return new double[length];
+    }
+
+    void append(double value) {
+        nextChunk()[offsetInChunk(getRowCount())] = value;
+        incrementRowCount();
+    }
+
+    void append(double[] row) {
+        appendRow(row);
+    }
+
+    double get(int row) {
+        return chunkOf(row)[offsetInChunk(row)];
+    }
+
+    double get(int row, int column) {
+        return chunkOf(row)[offsetInChunk(row) + column];
+    }
+
+    double[] getRow(int row) {
+        return copyRow(row);
+    }
+}
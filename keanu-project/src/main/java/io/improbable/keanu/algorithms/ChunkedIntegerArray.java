@@ -0,0 +1,37 @@
+package io.improbable.keanu.algorithms;
+
+/**
+ * A {@link ChunkedArray} of primitive ints.
+ */
+class ChunkedIntegerArray extends ChunkedArray<int[]> {
+
+    ChunkedIntegerArray(int rowLength) {
+        super(rowLength);
+    }
+
+    @Override
+    int[] newArray(int length) {
+        return new int[length];
+    }
+
+    void append(int value) {
+        nextChunk()[offsetInChunk(getRowCount())] = value;
+        incrementRowCount();
+    }
+
+    void append(int[] row) {
+        appendRow(row);
+    }
+
+    int get(int row) {
+        return chunkOf(row)[offsetInChunk(row)];
+    }
+
+    int get(int row, int column) {
+        return chunkOf(row)[offsetInChunk(row) + column];
+    }
+
+    int[] getRow(int row) {
+        return copyRow(row);
+    }
+}
@@ -0,0 +1,194 @@
+package io.improbable.keanu.algorithms;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The samples of a vertex flattened one after another into a single little-endian buffer, so that they can be
+ * handed to another runtime (e.g. to numpy from Python) in one call rather than one call per sample.
+ * <p>
+ * Doubles are written as 8 byte IEEE 754 values, integers as 4 byte two's complement values and booleans as a
+ * byte each. {@link #getDType()} describes this layout as a numpy dtype string and {@link #getShape()} is the
+ * number of samples followed by the shape of a sample.
+ */
+public class FlattenedSamples {
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private enum ElementType {
+        DOUBLE("<f8", Double.BYTES),
+        INTEGER("<i4", Integer.BYTES),
+        BOOLEAN("|b1", 1);
+
+        private final String dType;
+        private final int bytes;
+
+        ElementType(String dType, int bytes) {
+            this.dType = dType;
+            this.bytes = bytes;
+        }
+    }
+
+    private final List<? extends Tensor> samples;
+    private final ElementType type;
+    private final long[] sampleShape;
+    private final int sampleLength;
+
+    private FlattenedSamples(List<? extends Tensor> samples, ElementType type, long[] sampleShape) {
+        this.samples = samples;
+        this.type = type;
+        this.sampleShape = sampleShape;
+        this.sampleLength = TensorShape.getLengthAsInt(sampleShape);
+    }
+
+    /**
+     * @param samples the samples to flatten. They must all be double, integer or boolean tensors of the same shape.
+     * @return the flattened samples. Nothing is copied until the bytes are asked for.
+     */
+    public static FlattenedSamples of(List<?> samples) {
+        Preconditions.checkArgument(!samples.isEmpty(), "No samples provided.");
+        return of(samples.get(0), samples);
+    }
+
+    /**
+     * @param value   a value of the vertex, which gives the type and shape of the samples even if there are none
+     * @param samples the samples to flatten. They must all have the same type and shape as the value.
+     * @return the flattened samples. Nothing is copied until the bytes are asked for.
+     */
+    public static FlattenedSamples of(Object value, List<?> samples) {
+        ElementType type = typeOf(value);
+        long[] sampleShape = ((Tensor) value).getShape();
+
+        for (Object sample : samples) {
+            Preconditions.checkArgument(typeOf(sample) == type && Arrays.equals(sampleShape, ((Tensor) sample).getShape()),
+                "Cannot flatten samples of different types or shapes. Expected %s of shape %s",
+                type, Arrays.toString(sampleShape)
+            );
+        }
+
+        return new FlattenedSamples((List<? extends Tensor>) samples, type, sampleShape);
+    }
+
+    private static ElementType typeOf(Object sample) {
+        if (sample instanceof DoubleTensor) {
+            return ElementType.DOUBLE;
+        } else if (sample instanceof IntegerTensor) {
+            return ElementType.INTEGER;
+        } else if (sample instanceof BooleanTensor) {
+            return ElementType.BOOLEAN;
+        }
+        throw new IllegalArgumentException("Cannot flatten samples of type " + sample.getClass().getSimpleName());
+    }
+
+    /**
+     * @return the numpy dtype of the flattened values, i.e. "&lt;f8", "&lt;i4" or "|b1"
+     */
+    public String getDType() {
+        return type.dType;
+    }
+
+    /**
+     * @return the number of samples followed by the shape of each sample
+     */
+    public long[] getShape() {
+        return TensorShape.concat(new long[]{samples.size()}, sampleShape);
+    }
+
+    public long getByteLength() {
+        return (long) samples.size() * sampleLength * type.bytes;
+    }
+
+    /**
+     * @return every sample's values in order, in the layout described by {@link #getDType()}
+     * @throws IllegalStateException if the samples do not fit into a single array
+     */
+    public byte[] toByteArray() {
+        long byteLength = getByteLength();
+        Preconditions.checkState(byteLength <= Integer.MAX_VALUE,
+            "%s bytes of samples is too many for an array. Use toTempFile instead.", byteLength
+        );
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) byteLength).order(ByteOrder.LITTLE_ENDIAN);
+        for (Tensor sample : samples) {
+            put(sample, buffer);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Writes the bytes of {@link #toByteArray()} to a new temporary file instead, which allows more samples than
+     * fit into an array and lets the reader memory map them. Deleting the file is left to the caller.
+     *
+     * @return the temporary file
+     */
+    public File toTempFile() {
+        try {
+            File file = File.createTempFile("keanu-samples", ".bin");
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                writeTo(channel);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the bytes of {@link #toByteArray()} to a channel a block of samples at a time, so that they never all
+     * have to be held in memory.
+     *
+     * @param channel the channel to write to, from its current position
+     * @throws IOException if the channel fails to write
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        int sampleBytes = sampleLength * type.bytes;
+        int samplesPerWrite = Math.max(1, WRITE_BUFFER_SIZE / Math.max(1, sampleBytes));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(samplesPerWrite * sampleBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < samples.size(); i++) {
+            put(samples.get(i), buffer);
+            if (!buffer.hasRemaining() || i == samples.size() - 1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    private void put(Tensor sample, ByteBuffer buffer) {
+        switch (type) {
+            case DOUBLE:
+                double[] doubles = ((DoubleTensor) sample).asFlatDoubleArray();
+                buffer.asDoubleBuffer().put(doubles);
+                buffer.position(buffer.position() + doubles.length * Double.BYTES);
+                break;
+            case INTEGER:
+                int[] integers = ((IntegerTensor) sample).asFlatIntegerArray();
+                buffer.asIntBuffer().put(integers);
+                buffer.position(buffer.position() + integers.length * Integer.BYTES);
+                break;
+            case BOOLEAN:
+                for (Boolean value : ((BooleanTensor) sample).asFlatArray()) {
+                    buffer.put(value ? (byte) 1 : (byte) 0);
+                }
+                break;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.improbable.keanu.algorithms;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexLabel;
+import io.improbable.keanu.vertices.dbl.DoubleVertexSamples;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The samples of several independent chains, each of which was run against its own copy of a network.
+ * Because every chain owns a different set of vertices, samples for a particular vertex are looked up
+ * per chain or, across all chains, by the vertex's label.
+ */
+public class MultiChainSamples {
+
+    private final List<BayesianNetwork> networks;
+    private final List<NetworkSamples> chains;
+
+    public MultiChainSamples(List<BayesianNetwork> networks, List<NetworkSamples> chains) {
+        Preconditions.checkArgument(networks.size() == chains.size(),
+            "Expected a network for each chain but got %s networks and %s chains", networks.size(), chains.size()
+        );
+        this.networks = Collections.unmodifiableList(networks);
+        this.chains = Collections.unmodifiableList(chains);
+    }
+
+    public int getChainCount() {
+        return chains.size();
+    }
+
+    /**
+     * @param chain index of the chain
+     * @return the samples taken by the chain
+     */
+    public NetworkSamples getChain(int chain) {
+        return chains.get(chain);
+    }
+
+    /**
+     * @param chain index of the chain
+     * @return the network the chain was run against
+     */
+    public BayesianNetwork getNetwork(int chain) {
+        return networks.get(chain);
+    }
+
+    public List<NetworkSamples> getChains() {
+        return chains;
+    }
+
+    /**
+     * @param label the label of a vertex that is present in every chain's network
+     * @param <T>   the type of the values that the vertex contains
+     * @return the samples for the labelled vertex of each chain, in chain order
+     */
+    public <T> List<VertexSamples<T>> get(VertexLabel label) {
+        List<VertexSamples<T>> samplesByChain = new ArrayList<>(chains.size());
+        for (int i = 0; i < chains.size(); i++) {
+            samplesByChain.add(chains.get(i).get(getLabelledVertex(i, label)));
+        }
+        return samplesByChain;
+    }
+
+    /**
+     * @param label the label of a vertex that is present in every chain's network
+     * @return the samples for the labelled vertex from every chain, concatenated in chain order
+     */
+    public DoubleVertexSamples getPooledDoubleTensorSamples(VertexLabel label) {
+        List<DoubleTensor> pooled = new ArrayList<>();
+        for (int i = 0; i < chains.size(); i++) {
+            Vertex<DoubleTensor> vertex = getLabelledVertex(i, label);
+            pooled.addAll(chains.get(i).getDoubleTensorSamples(vertex).asList());
+        }
+        return new DoubleVertexSamples(pooled);
+    }
+
+    private <T> Vertex<T> getLabelledVertex(int chain, VertexLabel label) {
+        Vertex<T> vertex = networks.get(chain).getVertexByLabel(label);
+        if (vertex == null) {
+            throw new IllegalArgumentException("No vertex labelled " + label + " in the network of chain " + chain);
+        }
+        return vertex;
+    }
+}
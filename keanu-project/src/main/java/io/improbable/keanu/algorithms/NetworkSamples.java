@@ -11,20 +11,20 @@ import io.improbable.keanu.vertices.intgr.IntegerVertexSamples;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
-import java.util.stream.IntStream;
 
 import static java.util.stream.Collectors.toMap;
 
 /**
  * An immutable collection of network samples. A network sample is a collection
  * of values from vertices in a network at a given point in time.
+ * <p>
+ * Dropping and down-sampling return views onto the same underlying samples rather than copies.
  */
 @Slf4j
 public class NetworkSamples {
@@ -41,7 +41,7 @@ public class NetworkSamples {
 
     public static NetworkSamples from(List<NetworkSample> networkSamples) {
         Map<VertexId, List<?>> samplesByVertex = new HashMap<>();
-        List<Double> logOfMasterPForEachSample = new ArrayList<>();
+        List<Double> logOfMasterPForEachSample = SampleLists.newLogProbList();
 
         networkSamples.forEach(networkSample -> addSamplesForNetworkSample(networkSample, samplesByVertex));
         networkSamples.forEach(networkSample -> logOfMasterPForEachSample.add(networkSample.getLogOfMasterP()));
@@ -55,7 +55,7 @@ public class NetworkSamples {
     }
 
     private static <T> void addSampleForVertex(VertexId vertexId, T value, Map<VertexId, List<?>> samples) {
-        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(vertexId, v -> new ArrayList<T>());
+        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(vertexId, v -> SampleLists.newSampleList(value));
         samplesForVertex.add(value);
     }
 
@@ -93,12 +93,12 @@ public class NetworkSamples {
             return this;
         }
 
-        final Map<VertexId, List<?>> withSamplesDropped = samplesByVertex.entrySet().parallelStream()
+        final Map<VertexId, List<?>> withSamplesDropped = samplesByVertex.entrySet().stream()
             .collect(toMap(
                 Map.Entry::getKey,
-                e -> e.getValue().subList(dropCount, size))
+                e -> SampleLists.view((List<?>) e.getValue(), dropCount, 1))
             );
-        final List<Double> withLogProbsDropped = logOfMasterPForEachSample.subList(dropCount, size);
+        final List<Double> withLogProbsDropped = SampleLists.view(logOfMasterPForEachSample, dropCount, 1);
 
         return new NetworkSamples(withSamplesDropped, withLogProbsDropped, size - dropCount);
     }
@@ -106,32 +106,17 @@ public class NetworkSamples {
     public NetworkSamples downSample(final int downSampleInterval) {
         Preconditions.checkArgument(downSampleInterval > 0, "Down sample interval of %s is invalid. Sample interval must be positive.", downSampleInterval);
 
-        final Map<VertexId, List<?>> withSamplesDownSampled = samplesByVertex.entrySet().parallelStream()
+        final Map<VertexId, List<?>> withSamplesDownSampled = samplesByVertex.entrySet().stream()
             .collect(toMap(
                 Map.Entry::getKey,
-                e -> downSample((List<?>) e.getValue(), downSampleInterval)
+                e -> SampleLists.view((List<?>) e.getValue(), 0, downSampleInterval)
                 )
             );
-        final List<Double> withLogProbsDownSampled = downSample(logOfMasterPForEachSample, downSampleInterval);
+        final List<Double> withLogProbsDownSampled = SampleLists.view(logOfMasterPForEachSample, 0, downSampleInterval);
 
         return new NetworkSamples(withSamplesDownSampled, withLogProbsDownSampled, size / downSampleInterval);
     }
 
-    private static <T> List<T> downSample(final List<T> samples, final int downSampleInterval) {
-
-        List<T> downSampled = new ArrayList<>();
-        int i = 0;
-
-        for (T sample : samples) {
-            if (i % downSampleInterval == 0) {
-                downSampled.add(sample);
-            }
-            i++;
-        }
-
-        return downSampled;
-    }
-
     public double probability(Function<NetworkState, Boolean> predicate) {
         List<NetworkState> networkStates = toNetworkStates();
         long trueCount = networkStates.parallelStream()
@@ -158,9 +143,15 @@ public class NetworkSamples {
     }
 
     public NetworkState getMostProbableState() {
-        Integer sampleNumberWithMostProbableState = IntStream.range(0, logOfMasterPForEachSample.size())
-            .boxed().max(Comparator.comparing(i -> logOfMasterPForEachSample.get(i).doubleValue()))
-            .orElse(0);
+        int sampleNumberWithMostProbableState = 0;
+        double maxLogOfMasterP = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < logOfMasterPForEachSample.size(); i++) {
+            double logOfMasterP = logOfMasterPForEachSample.get(i);
+            if (logOfMasterP > maxLogOfMasterP) {
+                maxLogOfMasterP = logOfMasterP;
+                sampleNumberWithMostProbableState = i;
+            }
+        }
         log.debug(String.format("Most probable state is %d: %.4f",
             sampleNumberWithMostProbableState,
             logOfMasterPForEachSample.get(sampleNumberWithMostProbableState)));
@@ -0,0 +1,47 @@
+package io.improbable.keanu.algorithms;
+
+import io.improbable.keanu.network.NetworkState;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sink that collects the samples of a set of vertices into {@link NetworkSamples}, e.g. to read back the samples
+ * written out by another sink.
+ */
+public class NetworkSamplesSink implements SampleSink {
+
+    private final List<? extends Vertex> vertices;
+    private final Map<VertexId, List<?>> samplesByVertex = new HashMap<>();
+    private final List<Double> logOfMasterPForEachSample = SampleLists.newLogProbList();
+
+    /**
+     * @param vertices the vertices to collect the samples of
+     */
+    public NetworkSamplesSink(List<? extends Vertex> vertices) {
+        this.vertices = vertices;
+    }
+
+    @Override
+    public void accept(NetworkState sample, double logOfMasterP) {
+        for (Vertex<?> vertex : vertices) {
+            addSample(vertex.getId(), sample.get(vertex.getId()));
+        }
+        logOfMasterPForEachSample.add(logOfMasterP);
+    }
+
+    private <T> void addSample(VertexId vertexId, T value) {
+        List<T> samplesForVertex = (List<T>) samplesByVertex.computeIfAbsent(vertexId, v -> SampleLists.newSampleList(value));
+        samplesForVertex.add(value);
+    }
+
+    /**
+     * @return the samples collected so far
+     */
+    public NetworkSamples getSamples() {
+        return new NetworkSamples(samplesByVertex, logOfMasterPForEachSample, logOfMasterPForEachSample.size());
+    }
+}
@@ -0,0 +1,250 @@
+package io.improbable.keanu.algorithms;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Lists for storing samples column by column, i.e. one list per vertex.
+ * <p>
+ * Samples of double and integer tensors are stored as primitives in chunked arrays rather than as tensor objects,
+ * which keeps long runs compact and cheap to garbage collect. A tensor is rebuilt from the primitives each time
+ * a sample is read. Should a vertex ever produce a sample with a different shape to the first one, its list falls
+ * back to holding the sample objects.
+ */
+public class SampleLists {
+
+    private SampleLists() {
+    }
+
+    /**
+     * @param firstSample the first sample that will be added to the list, used to choose the storage
+     * @param <T>         the type of the samples
+     * @return an empty list suited to storing samples like firstSample
+     */
+    public static <T> List<T> newSampleList(T firstSample) {
+        if (firstSample instanceof DoubleTensor) {
+            return (List<T>) new DoubleTensorSampleList(((DoubleTensor) firstSample).getShape());
+        } else if (firstSample instanceof IntegerTensor) {
+            return (List<T>) new IntegerTensorSampleList(((IntegerTensor) firstSample).getShape());
+        } else {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * @return an empty list of log probabilities that stores them as primitives
+     */
+    public static List<Double> newLogProbList() {
+        return new DoubleSampleList();
+    }
+
+    /**
+     * @param samples the list to take a view of
+     * @param start   index in samples of the first element of the view
+     * @param stride  distance in samples between consecutive elements of the view
+     * @param <T>     the type of the samples
+     * @return a read only view of every stride'th sample from start onwards. No samples are copied.
+     */
+    public static <T> List<T> view(List<T> samples, int start, int stride) {
+        Preconditions.checkArgument(start >= 0 && stride > 0, "Invalid view with start %s and stride %s", start, stride);
+
+        int size = Math.max(0, (samples.size() - start + stride - 1) / stride);
+
+        if (samples instanceof IndexedView) {
+            IndexedView<T> view = (IndexedView<T>) samples;
+            return new IndexedView<>(view.backing, view.start + start * view.stride, view.stride * stride, size);
+        }
+
+        if (!(samples instanceof RandomAccess)) {
+            samples = new ArrayList<>(samples);
+        }
+        return new IndexedView<>(samples, start, stride, size);
+    }
+
+    private static class IndexedView<T> extends AbstractList<T> implements RandomAccess {
+
+        private final List<T> backing;
+        private final int start;
+        private final int stride;
+        private final int size;
+
+        IndexedView(List<T> backing, int start, int stride, int size) {
+            this.backing = backing;
+            this.start = start;
+            this.stride = stride;
+            this.size = size;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+            return backing.get(start + index * stride);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A list whose samples are stored as primitives until a sample arrives that cannot be, after which the
+     * samples are held as objects.
+     */
+    private abstract static class ColumnarSampleList<T> extends AbstractList<T> implements RandomAccess {
+
+        private List<T> boxed = null;
+
+        abstract boolean canStore(T sample);
+
+        abstract void store(T sample);
+
+        abstract T read(int index);
+
+        abstract int storedCount();
+
+        @Override
+        public boolean add(T sample) {
+            if (boxed == null && !canStore(sample)) {
+                boxed = new ArrayList<>(this);
+            }
+
+            if (boxed == null) {
+                store(sample);
+            } else {
+                boxed.add(sample);
+            }
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public T get(int index) {
+            if (boxed != null) {
+                return boxed.get(index);
+            }
+            if (index < 0 || index >= storedCount()) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + storedCount());
+            }
+            return read(index);
+        }
+
+        @Override
+        public int size() {
+            return boxed == null ? storedCount() : boxed.size();
+        }
+    }
+
+    private static class DoubleTensorSampleList extends ColumnarSampleList<DoubleTensor> {
+
+        private final long[] shape;
+        private final ChunkedDoubleArray values;
+
+        DoubleTensorSampleList(long[] shape) {
+            this.shape = shape;
+            this.values = new ChunkedDoubleArray(TensorShape.getLengthAsInt(shape));
+        }
+
+        @Override
+        boolean canStore(DoubleTensor sample) {
+            return Arrays.equals(shape, sample.getShape());
+        }
+
+        @Override
+        void store(DoubleTensor sample) {
+            if (values.getRowLength() == 1) {
+                values.append(sample.scalar());
+            } else {
+                values.append(sample.asFlatDoubleArray());
+            }
+        }
+
+        @Override
+        DoubleTensor read(int index) {
+            if (values.getRowLength() == 1) {
+                return DoubleTensor.create(values.get(index), shape);
+            } else {
+                return DoubleTensor.create(values.getRow(index), shape);
+            }
+        }
+
+        @Override
+        int storedCount() {
+            return values.getRowCount();
+        }
+    }
+
+    private static class IntegerTensorSampleList extends ColumnarSampleList<IntegerTensor> {
+
+        private final long[] shape;
+        private final ChunkedIntegerArray values;
+
+        IntegerTensorSampleList(long[] shape) {
+            this.shape = shape;
+            this.values = new ChunkedIntegerArray(TensorShape.getLengthAsInt(shape));
+        }
+
+        @Override
+        boolean canStore(IntegerTensor sample) {
+            return Arrays.equals(shape, sample.getShape());
+        }
+
+        @Override
+        void store(IntegerTensor sample) {
+            if (values.getRowLength() == 1) {
+                values.append(sample.scalar());
+            } else {
+                values.append(sample.asFlatIntegerArray());
+            }
+        }
+
+        @Override
+        IntegerTensor read(int index) {
+            if (values.getRowLength() == 1) {
+                return IntegerTensor.create(values.get(index), shape);
+            } else {
+                return IntegerTensor.create(values.getRow(index), shape);
+            }
+        }
+
+        @Override
+        int storedCount() {
+            return values.getRowCount();
+        }
+    }
+
+    private static class DoubleSampleList extends ColumnarSampleList<Double> {
+
+        private final ChunkedDoubleArray values = new ChunkedDoubleArray(1);
+
+        @Override
+        boolean canStore(Double sample) {
+            return sample != null;
+        }
+
+        @Override
+        void store(Double sample) {
+            values.append(sample);
+        }
+
+        @Override
+        Double read(int index) {
+            return values.get(index);
+        }
+
+        @Override
+        int storedCount() {
+            return values.getRowCount();
+        }
+    }
+}
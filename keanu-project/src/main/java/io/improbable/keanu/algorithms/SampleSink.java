@@ -0,0 +1,26 @@
+package io.improbable.keanu.algorithms;
+
+import io.improbable.keanu.network.NetworkState;
+
+/**
+ * A destination for samples that is written to one sample at a time, e.g. by
+ * {@link io.improbable.keanu.algorithms.mcmc.NetworkSamplesGenerator#generate(int, SampleSink)}. Unlike
+ * {@link NetworkSamples} a sink doesn't have to hold on to the samples, so a sink that writes them out keeps the
+ * memory used by a sampling run flat however long it runs for.
+ */
+public interface SampleSink extends AutoCloseable {
+
+    /**
+     * @param sample       the state of the network at this sample. This may be a view of the network that changes
+     *                     after this returns, so the values must be copied out of it rather than the state kept.
+     * @param logOfMasterP the log of the master probability of the sample
+     */
+    void accept(NetworkState sample, double logOfMasterP);
+
+    /**
+     * Flushes anything buffered and releases any resources held by the sink.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -52,4 +52,13 @@ public class VertexSamples<T> {
     public List<T> asList() {
         return new ArrayList<>(samples);
     }
+
+    /**
+     * @return the samples flattened into one contiguous buffer, which is far cheaper to hand across to another
+     * runtime than the list of samples
+     * @throws IllegalArgumentException if the samples are not double, integer or boolean tensors of a single shape
+     */
+    public FlattenedSamples flatten() {
+        return FlattenedSamples.of(samples);
+    }
 }
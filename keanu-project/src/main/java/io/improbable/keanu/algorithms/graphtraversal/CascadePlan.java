@@ -0,0 +1,199 @@
+package io.improbable.keanu.algorithms.graphtraversal;
+
+import io.improbable.keanu.vertices.Vertex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A precompiled cascade: the vertices whose values need updating after a change to the value of one or more
+ * vertices, flattened into an array in topological order. Applying a plan is then a walk over that array.
+ * <p>
+ * A plan only depends on the structure of the graph, so it remains valid until a vertex in the same graph gains a
+ * parent or child, at which point it will be recompiled the next time it's needed.
+ */
+public class CascadePlan {
+
+    private static final Comparator<Vertex> BY_ID = Comparator.comparing(Vertex::getId, Comparator.naturalOrder());
+
+    /**
+     * @param cascadeFrom the vertex that will have its value changed
+     * @return a plan containing cascadeFrom followed by every non-probabilistic vertex downstream of it,
+     * stopping at probabilistic vertices.
+     */
+    public static CascadePlan compile(Vertex<?> cascadeFrom) {
+        GraphStructureVersion structure = cascadeFrom.getGraphStructureVersion();
+        long version = structure.get();
+
+        List<Vertex> downstream = new ArrayList<>();
+        Set<Vertex> alreadyQueued = new HashSet<>();
+        Deque<Vertex<?>> stack = new ArrayDeque<>();
+        alreadyQueued.add(cascadeFrom);
+        stack.push(cascadeFrom);
+
+        while (!stack.isEmpty()) {
+            Vertex<?> visiting = stack.pop();
+            for (Vertex<?> child : visiting.getChildren()) {
+                if (!child.isProbabilistic() && alreadyQueued.add(child)) {
+                    downstream.add(child);
+                    stack.push(child);
+                }
+            }
+        }
+
+        downstream.sort(BY_ID);
+
+        Vertex[] vertices = new Vertex[downstream.size() + 1];
+        vertices[0] = cascadeFrom;
+        for (int i = 0; i < downstream.size(); i++) {
+            vertices[i + 1] = downstream.get(i);
+        }
+
+        return new CascadePlan(vertices, structure, version);
+    }
+
+    /**
+     * The plan for several vertices is cached on the plan of the first of them and reused for as long as the plan
+     * of each of them is valid, so repeatedly cascading from the same vertices only compiles it once.
+     *
+     * @param cascadeFrom the vertices that will have their values changed
+     * @return a plan containing every vertex in cascadeFrom and every non-probabilistic vertex downstream of them,
+     * stopping at probabilistic vertices.
+     */
+    public static CascadePlan compile(Collection<? extends Vertex> cascadeFrom) {
+        if (cascadeFrom.isEmpty()) {
+            return new CascadePlan(new Vertex[0], new CascadePlan[0]);
+        } else if (cascadeFrom.size() == 1) {
+            return cascadeFrom.iterator().next().getCascadePlan();
+        }
+
+        CascadePlan first = cascadeFrom.iterator().next().getCascadePlan();
+        CascadePlan cached = first.mergedPlan;
+        if (cached != null && cached.isMergeOf(cascadeFrom)) {
+            return cached;
+        }
+
+        CascadePlan[] parts = new CascadePlan[cascadeFrom.size()];
+        int part = 0;
+        for (Vertex<?> vertex : cascadeFrom) {
+            parts[part++] = vertex.getCascadePlan();
+        }
+
+        CascadePlan merged = merge(parts);
+        first.mergedPlan = merged;
+        return merged;
+    }
+
+    private static CascadePlan merge(CascadePlan[] parts) {
+        int length = 0;
+        for (CascadePlan part : parts) {
+            length += part.vertices.length;
+        }
+
+        Vertex[] merged = new Vertex[length];
+        int position = 0;
+        for (CascadePlan part : parts) {
+            System.arraycopy(part.vertices, 0, merged, position, part.vertices.length);
+            position += part.vertices.length;
+        }
+
+        Arrays.sort(merged, BY_ID);
+
+        int distinct = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (distinct == 0 || merged[distinct - 1] != merged[i]) {
+                merged[distinct++] = merged[i];
+            }
+        }
+
+        return new CascadePlan(Arrays.copyOf(merged, distinct), parts);
+    }
+
+    private final Vertex[] vertices;
+    private final GraphStructureVersion structure;
+    private final long version;
+
+    /**
+     * The plans of the vertices this plan cascades from, if it was merged from several of them.
+     */
+    private final CascadePlan[] parts;
+
+    /**
+     * The last plan merged from the vertices of several plans, the first of which was this one.
+     */
+    private CascadePlan mergedPlan = null;
+
+    private CascadePlan(Vertex[] vertices, GraphStructureVersion structure, long version) {
+        this.vertices = vertices;
+        this.structure = structure;
+        this.version = version;
+        this.parts = null;
+    }
+
+    private CascadePlan(Vertex[] vertices, CascadePlan[] parts) {
+        this.vertices = vertices;
+        this.structure = null;
+        this.version = 0L;
+        this.parts = parts;
+    }
+
+    /**
+     * @return false if the structure of the graph has changed since this plan was compiled
+     */
+    public boolean isValid() {
+        if (parts == null) {
+            return version == structure.get();
+        }
+
+        for (CascadePlan part : parts) {
+            if (!part.isValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A vertex's plan is recompiled if it's no longer valid, so the parts of this plan are all still valid if they
+     * are still the plans of the vertices.
+     *
+     * @return true if this plan was merged from the current plans of exactly these vertices, in this order
+     */
+    private boolean isMergeOf(Collection<? extends Vertex> cascadeFrom) {
+        if (cascadeFrom.size() != parts.length) {
+            return false;
+        }
+
+        int part = 0;
+        for (Vertex<?> vertex : cascadeFrom) {
+            if (vertex.getCascadePlan() != parts[part++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Updates the value of every vertex in the plan, in order.
+     */
+    public void cascade() {
+        for (Vertex<?> vertex : vertices) {
+            VertexValuePropagation.updateVertexValue(vertex);
+        }
+    }
+
+    /**
+     * @return the vertices in the plan in the order they are updated
+     */
+    public List<Vertex> getVertices() {
+        return Collections.unmodifiableList(Arrays.asList(vertices));
+    }
+}
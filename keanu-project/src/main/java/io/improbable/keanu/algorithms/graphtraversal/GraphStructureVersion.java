@@ -0,0 +1,66 @@
+package io.improbable.keanu.algorithms.graphtraversal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The version of the structure of the connected graph that a vertex belongs to. Every vertex starts with a version
+ * of its own and versions are merged as edges join graphs together, so a change to the structure of one graph
+ * doesn't affect the version of any other.
+ * <p>
+ * Merged versions form a tree that is searched from any vertex's version to the version of its whole graph.
+ */
+public class GraphStructureVersion {
+
+    private static final AtomicLong NEXT_VERSION = new AtomicLong(0L);
+
+    private GraphStructureVersion mergedInto = null;
+    private int size = 1;
+    private long version = NEXT_VERSION.incrementAndGet();
+
+    /**
+     * @return the current version of the graph's structure
+     */
+    public long get() {
+        return root().version;
+    }
+
+    /**
+     * Marks the structure of the graph as changed.
+     */
+    public void increment() {
+        root().version = NEXT_VERSION.incrementAndGet();
+    }
+
+    /**
+     * Marks the structure of both graphs as changed by an edge between them, which makes them one graph.
+     *
+     * @param other the version of the graph at the other end of the new edge
+     */
+    public void connect(GraphStructureVersion other) {
+        GraphStructureVersion root = root();
+        GraphStructureVersion otherRoot = other.root();
+
+        if (root != otherRoot) {
+            if (root.size < otherRoot.size) {
+                GraphStructureVersion smaller = root;
+                root = otherRoot;
+                otherRoot = smaller;
+            }
+            otherRoot.mergedInto = root;
+            root.size += otherRoot.size;
+        }
+
+        root.version = NEXT_VERSION.incrementAndGet();
+    }
+
+    private GraphStructureVersion root() {
+        GraphStructureVersion root = this;
+        while (root.mergedInto != null) {
+            if (root.mergedInto.mergedInto != null) {
+                root.mergedInto = root.mergedInto.mergedInto;
+            }
+            root = root.mergedInto;
+        }
+        return root;
+    }
+}
@@ -6,17 +6,15 @@ import io.improbable.keanu.vertices.Vertex;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashSet;
-import java.util.PriorityQueue;
 import java.util.Set;
 
 /**
  * This class enables efficient propagation of vertex updates.
  * Cascade is forward propagation and eval/lazyEval is backwards
- * propagation of updates.
+ * propagation of updates. Cascades follow each vertex's
+ * precompiled {@link CascadePlan}.
  */
 public class VertexValuePropagation {
 
@@ -28,32 +26,14 @@ public class VertexValuePropagation {
     }
 
     public static void cascadeUpdate(Vertex vertex) {
-        cascadeUpdate(Collections.singletonList(vertex));
+        vertex.getCascadePlan().cascade();
     }
 
     /**
      * @param cascadeFrom A collection that contains the vertices that have been updated.
      */
     public static void cascadeUpdate(Collection<? extends Vertex> cascadeFrom) {
-
-        PriorityQueue<Vertex> priorityQueue = new PriorityQueue<>(Comparator.comparing(Vertex::getId, Comparator.naturalOrder()));
-        priorityQueue.addAll(cascadeFrom);
-
-        HashSet<Vertex> alreadyQueued = new HashSet<>(cascadeFrom);
-
-        while (!priorityQueue.isEmpty()) {
-            Vertex<?> visiting = priorityQueue.poll();
-
-            updateVertexValue(visiting);
-
-            for (Vertex<?> child : visiting.getChildren()) {
-
-                if (!child.isProbabilistic() && !alreadyQueued.contains(child)) {
-                    priorityQueue.offer(child);
-                    alreadyQueued.add(child);
-                }
-            }
-        }
+        CascadePlan.compile(cascadeFrom).cascade();
     }
 
     public static void eval(Vertex... vertices) {
@@ -143,7 +123,7 @@ public class VertexValuePropagation {
         return stack;
     }
 
-    private static <T> void updateVertexValue(Vertex<T> vertex) {
+    static <T> void updateVertexValue(Vertex<T> vertex) {
         if (vertex.isProbabilistic()) {
             if (!vertex.hasValue()) {
                 vertex.setValue(vertex.sample());
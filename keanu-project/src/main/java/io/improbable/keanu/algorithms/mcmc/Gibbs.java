@@ -0,0 +1,207 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.algorithms.SampleSink;
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdate;
+import io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates;
+import io.improbable.keanu.algorithms.mcmc.proposal.ProposalDistribution;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.LiveNetworkState;
+import io.improbable.keanu.util.ProgressBar;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static io.improbable.keanu.algorithms.mcmc.MetropolisHastings.checkBayesNetInHealthyState;
+import static io.improbable.keanu.algorithms.mcmc.MetropolisHastings.takeSamples;
+import static io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm.takeSample;
+
+/**
+ * Gibbs sampling is a Markov Chain Monte Carlo method that updates one latent vertex at a time from its distribution
+ * conditioned on the rest of the network, which only depends on its Markov blanket.
+ * <p>
+ * Latent vertices whose prior is conjugate to the likelihood of their children, as recognised by one of the
+ * conjugate updates, are drawn exactly from their conditional so every update is accepted. Any other latent vertex
+ * gets a Metropolis Hastings step of its own instead.
+ */
+@Builder
+@Slf4j
+public class Gibbs implements PosteriorSamplingAlgorithm {
+
+    private static final ProposalDistribution DEFAULT_PROPOSAL_DISTRIBUTION = ProposalDistribution.usePrior();
+    private static final boolean DEFAULT_USE_CACHE_ON_REJECTION = true;
+
+    public static Gibbs withDefaultConfig() {
+        return withDefaultConfig(KeanuRandom.getDefaultRandom());
+    }
+
+    public static Gibbs withDefaultConfig(KeanuRandom random) {
+        return Gibbs.builder()
+            .random(random)
+            .build();
+    }
+
+    @Getter
+    @Setter
+    @Builder.Default
+    private KeanuRandom random = KeanuRandom.getDefaultRandom();
+
+    /**
+     * The conjugate updates to try for each latent vertex, in order.
+     */
+    @Getter
+    @Setter
+    @Builder.Default
+    private List<ConjugateUpdate> conjugateUpdates = ConjugateUpdates.defaults();
+
+    /**
+     * The proposal distribution of the Metropolis Hastings steps of latent vertices without a conjugate update.
+     */
+    @Getter
+    @Setter
+    @Builder.Default
+    private ProposalDistribution proposalDistribution = DEFAULT_PROPOSAL_DISTRIBUTION;
+
+    @Getter
+    @Setter
+    @Builder.Default
+    private boolean useCacheOnRejection = DEFAULT_USE_CACHE_ON_REJECTION;
+
+    @Override
+    public NetworkSamplesGenerator generatePosteriorSamples(final BayesianNetwork bayesianNetwork,
+                                                            final List<? extends Vertex> verticesToSampleFrom) {
+
+        return new NetworkSamplesGenerator(setupSampler(bayesianNetwork, verticesToSampleFrom), ProgressBar::new);
+    }
+
+    private SamplingAlgorithm setupSampler(final BayesianNetwork bayesianNetwork,
+                                           final List<? extends Vertex> verticesToSampleFrom) {
+        checkBayesNetInHealthyState(bayesianNetwork);
+
+        List<Vertex> latentVertices = bayesianNetwork.getLatentVertices();
+        List<Vertex> metropolisHastingsVertices = new ArrayList<>();
+        List<Update> updates = new ArrayList<>();
+
+        for (Vertex<?> latent : latentVertices) {
+            Optional<ConjugateUpdate.ConditionalSampler> conditional = ConjugateUpdates.find(latent, conjugateUpdates);
+            updates.add(new Update(latent, conditional.orElse(null)));
+            if (!conditional.isPresent()) {
+                metropolisHastingsVertices.add(latent);
+            }
+        }
+
+        log.debug("{} of {} latent vertices have a conjugate update", latentVertices.size() - metropolisHastingsVertices.size(), latentVertices.size());
+
+        MetropolisHastingsStep mhStep = new MetropolisHastingsStep(
+            metropolisHastingsVertices,
+            proposalDistribution,
+            useCacheOnRejection,
+            random
+        );
+
+        return new GibbsSampler(
+            updates,
+            bayesianNetwork.getLatentOrObservedVertices(),
+            verticesToSampleFrom,
+            mhStep,
+            random
+        );
+    }
+
+    /**
+     * A latent vertex and the sampler of its conditional distribution, which is null if it doesn't have a conjugate
+     * update.
+     */
+    private static class Update {
+
+        private final Vertex<?> latent;
+        private final ConjugateUpdate.ConditionalSampler conditional;
+
+        Update(Vertex<?> latent, ConjugateUpdate.ConditionalSampler conditional) {
+            this.latent = latent;
+            this.conditional = conditional;
+        }
+    }
+
+    public static class GibbsSampler implements SamplingAlgorithm {
+
+        private final List<Update> updates;
+        private final List<? extends Vertex> latentOrObservedVertices;
+        private final List<? extends Vertex> verticesToSampleFrom;
+        private final MetropolisHastingsStep mhStep;
+        private final KeanuRandom random;
+        private final LiveNetworkState sampledState;
+
+        private GibbsSampler(List<Update> updates,
+                             List<? extends Vertex> latentOrObservedVertices,
+                             List<? extends Vertex> verticesToSampleFrom,
+                             MetropolisHastingsStep mhStep,
+                             KeanuRandom random) {
+            this.updates = updates;
+            this.latentOrObservedVertices = latentOrObservedVertices;
+            this.verticesToSampleFrom = verticesToSampleFrom;
+            this.mhStep = mhStep;
+            this.random = random;
+            this.sampledState = new LiveNetworkState(verticesToSampleFrom);
+        }
+
+        /**
+         * Updates every latent vertex once, in the order of the network's latent vertices.
+         */
+        @Override
+        public void step() {
+            for (Update update : updates) {
+                if (update.conditional != null) {
+                    update.conditional.sample(random);
+                    VertexValuePropagation.cascadeUpdate(update.latent);
+                } else {
+                    mhStep.step(Collections.singleton(update.latent), 0.0);
+                }
+            }
+        }
+
+        @Override
+        public void sample(Map<VertexId, List<?>> samplesByVertex, List<Double> logOfMasterPForEachSample) {
+            step();
+            takeSamples(samplesByVertex, verticesToSampleFrom);
+            logOfMasterPForEachSample.add(getLogOfMasterP());
+        }
+
+        @Override
+        public NetworkSample sample() {
+            step();
+            return new NetworkSample(takeSample(verticesToSampleFrom), getLogOfMasterP());
+        }
+
+        /**
+         * The network is left in the state of the chain after each step, so the sink is given a view of it
+         * rather than a copy.
+         */
+        @Override
+        public void sample(SampleSink sink) {
+            step();
+            sink.accept(sampledState, getLogOfMasterP());
+        }
+
+        /**
+         * Conjugate updates don't calculate the change in log prob, so it's only calculated for the steps that
+         * are sampled.
+         */
+        private double getLogOfMasterP() {
+            return ProbabilityCalculator.calculateLogProbFor(latentOrObservedVertices);
+        }
+    }
+}
@@ -17,7 +17,6 @@ import java.util.List;
 import java.util.Map;
 
 import static io.improbable.keanu.algorithms.mcmc.HamiltonianSampler.addSampleFromVertices;
-import static io.improbable.keanu.algorithms.mcmc.HamiltonianSampler.cachePosition;
 
 /**
  * Hamiltonian Monte Carlo is a method for obtaining samples from a probability
@@ -60,6 +59,13 @@ public class Hamiltonian implements PosteriorSamplingAlgorithm {
     //the amount of distance to move each leapfrog
     private double stepSize = DEFAULT_STEP_SIZE;
 
+    @Getter
+    @Setter
+    @Builder.Default
+    //compile the graph between the latent vertices and the log prob into a LogProbTape, which makes
+    //each gradient calculation cheaper in exchange for compiling the tape up front
+    private boolean compileGradient = false;
+
     @Override
     public NetworkSamplesGenerator generatePosteriorSamples(final BayesianNetwork bayesNet,
                                                             final List<? extends Vertex> fromVertices) {
@@ -72,20 +78,22 @@ public class Hamiltonian implements PosteriorSamplingAlgorithm {
         bayesNet.cascadeObservations();
 
         final List<Vertex<DoubleTensor>> latentVertices = bayesNet.getContinuousLatentVertices();
-        final LogProbGradientCalculator logProbGradientCalculator = new LogProbGradientCalculator(bayesNet.getLatentOrObservedVertices(), latentVertices);
+        final LogProbGradientCalculator logProbGradientCalculator = compileGradient ?
+            LogProbGradientCalculator.compiled(bayesNet.getLatentOrObservedVertices(), latentVertices) :
+            new LogProbGradientCalculator(bayesNet.getLatentOrObservedVertices(), latentVertices);
 
         final Map<VertexId, List<?>> samples = new HashMap<>();
         addSampleFromVertices(samples, fromVertices);
 
-        Map<VertexId, DoubleTensor> position = new HashMap<>();
-        cachePosition(latentVertices, position);
-        Map<VertexId, DoubleTensor> gradient = logProbGradientCalculator.getJointLogProbGradientWrtLatents();
+        final LatentLayout latents = new LatentLayout(latentVertices);
+        double[] position = latents.gatherValues(latents.newArray());
+        double[] gradient = latents.gatherGradient(logProbGradientCalculator, latents.newArray());
 
         HamiltonianSampler.VertexState before = new HamiltonianSampler.VertexState(position, gradient);
-        HamiltonianSampler.VertexState after = new HamiltonianSampler.VertexState(new HashMap<>(), new HashMap<>());
+        HamiltonianSampler.VertexState after = new HamiltonianSampler.VertexState(latents.newArray(), latents.newArray());
 
         return new HamiltonianSampler(
-            latentVertices,
+            latents,
             random,
             fromVertices,
             leapFrogCount,
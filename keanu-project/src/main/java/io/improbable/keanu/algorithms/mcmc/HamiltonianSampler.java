@@ -1,36 +1,40 @@
 package io.improbable.keanu.algorithms.mcmc;
 
 import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.SampleLists;
+import io.improbable.keanu.algorithms.SampleSink;
 import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
 import io.improbable.keanu.network.BayesianNetwork;
-import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.network.LiveNetworkState;
+import io.improbable.keanu.network.NetworkState;
+import io.improbable.keanu.network.SimpleNetworkState;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexId;
 import io.improbable.keanu.vertices.dbl.KeanuRandom;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class HamiltonianSampler implements SamplingAlgorithm {
 
-    private final List<Vertex<DoubleTensor>> latentVertices;
+    private final LatentLayout latents;
     private final KeanuRandom random;
     private final List<? extends Vertex> fromVertices;
     private final int leapFrogCount;
     private final double stepSize;
     private final BayesianNetwork bayesNet;
+    private final Map<VertexId, Object> sampleBeforeLeapfrog;
+    private final NetworkState sampledState;
+    private final NetworkState stateBeforeLeapfrog;
 
     private VertexState during;
     private VertexState before;
     private LogProbGradientCalculator logProbGradientCalculator;
-    private Map<VertexId, ?> sampleBeforeLeapfrog;
     private double logOfMasterPBeforeLeapfrog;
 
-    public HamiltonianSampler(List<Vertex<DoubleTensor>> latentVertices,
+    public HamiltonianSampler(LatentLayout latents,
                               KeanuRandom random,
                               List<? extends Vertex> fromVertices,
                               int leapFrogCount,
@@ -40,7 +44,7 @@ public class HamiltonianSampler implements SamplingAlgorithm {
                               VertexState before,
                               LogProbGradientCalculator logProbGradientCalculator) {
 
-        this.latentVertices = latentVertices;
+        this.latents = latents;
         this.random = random;
         this.fromVertices = fromVertices;
         this.leapFrogCount = leapFrogCount;
@@ -50,18 +54,20 @@ public class HamiltonianSampler implements SamplingAlgorithm {
         this.before = before;
         this.logProbGradientCalculator = logProbGradientCalculator;
         this.sampleBeforeLeapfrog = new HashMap<>();
+        this.sampledState = new LiveNetworkState(fromVertices);
+        this.stateBeforeLeapfrog = new SimpleNetworkState(sampleBeforeLeapfrog);
         this.logOfMasterPBeforeLeapfrog = bayesNet.getLogOfMasterP();
     }
 
     @Override
     public void step() {
-        initializeMomentumForEachVertex(latentVertices, during.momentum, random);
+        latents.gatherGaussian(random, during.momentum);
         during.cacheState(before);
-        sampleBeforeLeapfrog = putSample(fromVertices);
+        putSample(fromVertices, sampleBeforeLeapfrog);
 
         for (int leapFrogNum = 0; leapFrogNum < leapFrogCount; leapFrogNum++) {
-            during.gradient = leapfrog(
-                latentVertices,
+            leapfrog(
+                latents,
                 during,
                 stepSize,
                 logProbGradientCalculator
@@ -72,17 +78,42 @@ public class HamiltonianSampler implements SamplingAlgorithm {
     @Override
     public void sample(Map<VertexId, List<?>> samples, List<Double> logOfMasterPForEachSample) {
         step();
-        addSampleFromCache(samples, acceptOrReject());
+        if (acceptOrReject()) {
+            addSampleFromVertices(samples, fromVertices);
+        } else {
+            addSampleFromCache(samples, sampleBeforeLeapfrog);
+        }
         logOfMasterPForEachSample.add(logOfMasterPBeforeLeapfrog);
     }
 
     @Override
     public NetworkSample sample() {
         step();
-        return new NetworkSample(acceptOrReject(), logOfMasterPBeforeLeapfrog);
+        Map<VertexId, Object> sample = new HashMap<>();
+        if (acceptOrReject()) {
+            putSample(fromVertices, sample);
+        } else {
+            sample.putAll(sampleBeforeLeapfrog);
+        }
+        return new NetworkSample(sample, logOfMasterPBeforeLeapfrog);
     }
 
-    private Map<VertexId, ?> acceptOrReject() {
+    /**
+     * An accepted leapfrog leaves the network in the state of the sample, so the sink is given a view of it rather
+     * than a copy. A rejected one doesn't, so the sink is given the sample cached before the leapfrog instead.
+     */
+    @Override
+    public void sample(SampleSink sink) {
+        step();
+        NetworkState sample = acceptOrReject() ? sampledState : stateBeforeLeapfrog;
+        sink.accept(sample, logOfMasterPBeforeLeapfrog);
+    }
+
+    /**
+     * @return true if the leapfrog was accepted, or false if it was rejected and the position and gradient were
+     * reverted to those before the leapfrog. The vertices are left in their post leapfrog state either way.
+     */
+    private boolean acceptOrReject() {
         final double logOfMasterPAfterLeapfrog = bayesNet.getLogOfMasterP();
 
         final double likelihoodOfLeapfrog = getLikelihoodOfLeapfrog(
@@ -95,7 +126,7 @@ public class HamiltonianSampler implements SamplingAlgorithm {
         if (shouldReject(likelihoodOfLeapfrog, random)) {
 
             //Revert to position and gradient before leapfrog
-            Map<VertexId, DoubleTensor> tempSwap = during.position;
+            double[] tempSwap = during.position;
             during.position = before.position;
             before.position = tempSwap;
 
@@ -103,18 +134,10 @@ public class HamiltonianSampler implements SamplingAlgorithm {
             during.gradient = before.gradient;
             before.gradient = tempSwap;
 
-            return sampleBeforeLeapfrog;
+            return false;
         } else {
             logOfMasterPBeforeLeapfrog = logOfMasterPAfterLeapfrog;
-            return putSample(fromVertices);
-        }
-    }
-
-    private static void initializeMomentumForEachVertex(List<Vertex<DoubleTensor>> vertexes,
-                                                        Map<VertexId, DoubleTensor> momentums,
-                                                        KeanuRandom random) {
-        for (Vertex<DoubleTensor> currentVertex : vertexes) {
-            momentums.put(currentVertex.getId(), random.nextGaussian(currentVertex.getShape()));
+            return true;
         }
     }
 
@@ -125,54 +148,45 @@ public class HamiltonianSampler implements SamplingAlgorithm {
      * Set `r = r` + (eps/2)dTL(`T)
      * return `T, r`
      *
-     * @param latentVertices
-     * @param during          current vertex position, gradient and momentum
+     * @param latents         the layout of the latent vertices
+     * @param during          current vertex position, gradient and momentum, which are updated in place
      * @param stepSize
      * @param logProbGradient calculator of the logProb gradients
-     * @return the gradient at the updated position
      */
-    private static Map<VertexId, DoubleTensor> leapfrog(final List<Vertex<DoubleTensor>> latentVertices,
-                                                        final VertexState during,
-                                                        final double stepSize,
-                                                        final LogProbGradientCalculator logProbGradient) {
+    private static void leapfrog(final LatentLayout latents,
+                                 final VertexState during,
+                                 final double stepSize,
+                                 final LogProbGradientCalculator logProbGradient) {
 
         final double halfTimeStep = stepSize / 2.0;
 
-        Map<VertexId, DoubleTensor> momentumsAtHalfTimeStep = new HashMap<>();
-
-        //Set `r = r + (eps/2)dTL(T)
-        for (Map.Entry<VertexId, DoubleTensor> vertexMomentum : during.momentum.entrySet()) {
-            final DoubleTensor updatedMomentum = during.gradient.get(vertexMomentum.getKey()).times(halfTimeStep).plusInPlace(vertexMomentum.getValue());
-            momentumsAtHalfTimeStep.put(vertexMomentum.getKey(), updatedMomentum);
-        }
+        final double[] position = during.position;
+        final double[] momentum = during.momentum;
 
-        //Set `T = T + `r.
-        for (Vertex<DoubleTensor> latent : latentVertices) {
-            final DoubleTensor nextPosition = momentumsAtHalfTimeStep.get(latent.getId()).times(halfTimeStep).plusInPlace(during.position.get(latent.getId()));
-            during.position.put(latent.getId(), nextPosition);
-            latent.setValue(nextPosition);
+        //Set `r = r + (eps/2)dTL(T) and `T = T + `r
+        for (int i = 0; i < position.length; i++) {
+            momentum[i] += during.gradient[i] * halfTimeStep;
+            position[i] += momentum[i] * halfTimeStep;
         }
 
-        VertexValuePropagation.cascadeUpdate(latentVertices);
+        latents.scatterValues(position);
+        VertexValuePropagation.cascadeUpdate(latents.getLatentVertices());
 
         //Set `r = `r + (eps/2)dTL(`T)
-        Map<VertexId, DoubleTensor> newGradient = logProbGradient.getJointLogProbGradientWrtLatents();
+        final double[] gradient = latents.gatherGradient(logProbGradient, during.gradient);
 
-        for (Map.Entry<VertexId, DoubleTensor> halfTimeStepMomentum : momentumsAtHalfTimeStep.entrySet()) {
-            final DoubleTensor updatedMomentum = newGradient.get(halfTimeStepMomentum.getKey()).times(halfTimeStep).plusInPlace(halfTimeStepMomentum.getValue());
-            during.momentum.put(halfTimeStepMomentum.getKey(), updatedMomentum);
+        for (int i = 0; i < momentum.length; i++) {
+            momentum[i] += gradient[i] * halfTimeStep;
         }
-
-        return newGradient;
     }
 
     private static double getLikelihoodOfLeapfrog(final double logOfMasterPAfterLeapfrog,
                                                   final double previousLogOfMasterP,
-                                                  final Map<VertexId, DoubleTensor> leapfroggedMomentum,
-                                                  final Map<VertexId, DoubleTensor> momentumPreviousTimeStep) {
+                                                  final double[] leapfroggedMomentum,
+                                                  final double[] momentumPreviousTimeStep) {
 
-        final double leapFroggedMomentumDotProduct = (0.5 * dotProduct(leapfroggedMomentum));
-        final double previousMomentumDotProduct = (0.5 * dotProduct(momentumPreviousTimeStep));
+        final double leapFroggedMomentumDotProduct = (0.5 * LatentLayout.dotProduct(leapfroggedMomentum));
+        final double previousMomentumDotProduct = (0.5 * LatentLayout.dotProduct(momentumPreviousTimeStep));
 
         final double leapFroggedLikelihood = logOfMasterPAfterLeapfrog - leapFroggedMomentumDotProduct;
         final double previousLikelihood = previousLogOfMasterP - previousMomentumDotProduct;
@@ -187,20 +201,17 @@ public class HamiltonianSampler implements SamplingAlgorithm {
         return likelihood < random.nextDouble();
     }
 
-    private static double dotProduct(Map<VertexId, DoubleTensor> momentums) {
-        return momentums.values().stream()
-            .mapToDouble(m -> m.pow(2).sum())
-            .sum();
-    }
-
     /**
      * This is meant to be used for caching a pre-leapfrog sample. This sample
      * will be used if the leapfrog is rejected.
      *
      * @param fromVertices
+     * @param sample       the map to put the value of each vertex in
      */
-    private static Map<VertexId, Object> putSample(List<? extends Vertex> fromVertices) {
-        return fromVertices.stream().collect(Collectors.toMap(Vertex::getId, Vertex::getValue));
+    private static void putSample(List<? extends Vertex> fromVertices, Map<VertexId, Object> sample) {
+        for (Vertex<?> vertex : fromVertices) {
+            sample.put(vertex.getId(), vertex.getValue());
+        }
     }
 
 
@@ -217,12 +228,6 @@ public class HamiltonianSampler implements SamplingAlgorithm {
         }
     }
 
-    static void cachePosition(List<Vertex<DoubleTensor>> latentVertices, Map<VertexId, DoubleTensor> position) {
-        for (Vertex<DoubleTensor> vertex : latentVertices) {
-            position.put(vertex.getId(), vertex.getValue());
-        }
-    }
-
     /**
      * This is used when a leapfrog is accepted. At that point the vertices are in a
      * post leapfrog state.
@@ -236,26 +241,26 @@ public class HamiltonianSampler implements SamplingAlgorithm {
     }
 
     static <T> void addSampleForVertex(VertexId id, T value, Map<VertexId, List<?>> samples) {
-        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(id, v -> new ArrayList<T>());
+        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(id, v -> SampleLists.newSampleList(value));
         samplesForVertex.add(value);
     }
 
     static class VertexState {
 
-        Map<VertexId, DoubleTensor> position;
-        Map<VertexId, DoubleTensor> gradient;
-        Map<VertexId, DoubleTensor> momentum;
+        double[] position;
+        double[] gradient;
+        double[] momentum;
 
-        public VertexState(Map<VertexId, DoubleTensor> position, Map<VertexId, DoubleTensor> gradient) {
+        public VertexState(double[] position, double[] gradient) {
             this.position = position;
             this.gradient = gradient;
-            this.momentum = new HashMap<>();
+            this.momentum = new double[position.length];
         }
 
         private void cacheState(VertexState that) {
-            that.position.putAll(position);
-            that.gradient.putAll(gradient);
-            that.momentum.putAll(momentum);
+            System.arraycopy(position, 0, that.position, 0, position.length);
+            System.arraycopy(gradient, 0, that.gradient, 0, gradient.length);
+            System.arraycopy(momentum, 0, that.momentum, 0, momentum.length);
         }
     }
 
@@ -0,0 +1,130 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lays the values of a list of latent vertices out end to end in a single flat double array, so that the position,
+ * momentum and gradient of a Hamiltonian system can each be held in one contiguous array and updated in place.
+ * <p>
+ * Each latent has an offset into the array, in the order the latents were given, and keeps the shape it had when
+ * the layout was created.
+ */
+public class LatentLayout {
+
+    private final List<Vertex<DoubleTensor>> latentVertices;
+    private final long[][] shapes;
+    private final int[] offsets;
+
+    public LatentLayout(List<Vertex<DoubleTensor>> latentVertices) {
+        this.latentVertices = latentVertices;
+        this.shapes = new long[latentVertices.size()][];
+        this.offsets = new int[latentVertices.size() + 1];
+
+        for (int i = 0; i < shapes.length; i++) {
+            shapes[i] = latentVertices.get(i).getShape();
+            offsets[i + 1] = offsets[i] + TensorShape.getLengthAsInt(shapes[i]);
+        }
+    }
+
+    public List<Vertex<DoubleTensor>> getLatentVertices() {
+        return latentVertices;
+    }
+
+    /**
+     * @return the total length of the values of all the latents
+     */
+    public int getLength() {
+        return offsets[shapes.length];
+    }
+
+    public double[] newArray() {
+        return new double[getLength()];
+    }
+
+    /**
+     * @param into the array to copy the current value of each latent into
+     * @return into
+     */
+    public double[] gatherValues(double[] into) {
+        for (int i = 0; i < shapes.length; i++) {
+            copyInto(latentVertices.get(i).getValue(), into, i);
+        }
+        return into;
+    }
+
+    /**
+     * Sets the value of each latent from its slice of the array. The values downstream of the latents are not
+     * updated.
+     *
+     * @param from the array to take the values from
+     */
+    public void scatterValues(double[] from) {
+        for (int i = 0; i < shapes.length; i++) {
+            latentVertices.get(i).setValue(
+                DoubleTensor.create(Arrays.copyOfRange(from, offsets[i], offsets[i + 1]), shapes[i])
+            );
+        }
+    }
+
+    /**
+     * Calculates the gradient of the log prob at the current values of the graph.
+     *
+     * @param logProbGradientCalculator a calculator with respect to the latents of this layout, in the same order
+     * @param into                      the array to write the gradient into. Latents the log prob doesn't depend on
+     *                                  have a gradient of zero.
+     * @return into
+     */
+    public double[] gatherGradient(LogProbGradientCalculator logProbGradientCalculator, double[] into) {
+        DoubleTensor[] gradient = logProbGradientCalculator.getJointLogProbGradientWrtLatentsInOrder();
+        for (int i = 0; i < shapes.length; i++) {
+            if (gradient[i] == null) {
+                Arrays.fill(into, offsets[i], offsets[i + 1], 0.0);
+            } else {
+                copyInto(gradient[i], into, i);
+            }
+        }
+        return into;
+    }
+
+    /**
+     * Draws a standard gaussian for every element of every latent, one latent at a time in the order of the layout.
+     *
+     * @param random the source of randomness
+     * @param into   the array to write the draws into
+     * @return into
+     */
+    public double[] gatherGaussian(KeanuRandom random, double[] into) {
+        for (int i = 0; i < shapes.length; i++) {
+            copyInto(random.nextGaussian(shapes[i]), into, i);
+        }
+        return into;
+    }
+
+    private void copyInto(DoubleTensor value, double[] into, int latent) {
+        int from = offsets[latent];
+        int length = offsets[latent + 1] - from;
+        if (value.getLength() == 1 && length != 1) {
+            Arrays.fill(into, from, from + length, value.scalar());
+        } else {
+            System.arraycopy(value.asFlatDoubleArray(), 0, into, from, length);
+        }
+    }
+
+    /**
+     * @return the sum of the squares of the elements of x
+     */
+    public static double dotProduct(double[] x) {
+        double dotProduct = 0.0;
+        for (double element : x) {
+            dotProduct += element * element;
+        }
+        return dotProduct;
+    }
+}
@@ -2,9 +2,12 @@ package io.improbable.keanu.algorithms.mcmc;
 
 import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.algorithms.SampleLists;
+import io.improbable.keanu.algorithms.SampleSink;
 import io.improbable.keanu.algorithms.mcmc.proposal.MHStepVariableSelector;
 import io.improbable.keanu.algorithms.mcmc.proposal.ProposalDistribution;
 import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.LiveNetworkState;
 import io.improbable.keanu.util.ProgressBar;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexId;
@@ -14,7 +17,6 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -94,6 +96,7 @@ public class MetropolisHastings implements PosteriorSamplingAlgorithm {
         private final List<? extends Vertex> verticesToSampleFrom;
         private final MetropolisHastingsStep mhStep;
         private final MHStepVariableSelector variableSelector;
+        private final LiveNetworkState sampledState;
 
         private double logProbabilityBeforeStep;
         private int sampleNum;
@@ -107,6 +110,7 @@ public class MetropolisHastings implements PosteriorSamplingAlgorithm {
             this.verticesToSampleFrom = verticesToSampleFrom;
             this.mhStep = mhStep;
             this.variableSelector = variableSelector;
+            this.sampledState = new LiveNetworkState(verticesToSampleFrom);
             this.logProbabilityBeforeStep = logProbabilityBeforeStep;
             this.sampleNum = 0;
         }
@@ -135,20 +139,30 @@ public class MetropolisHastings implements PosteriorSamplingAlgorithm {
             step();
             return new NetworkSample(takeSample(verticesToSampleFrom), logProbabilityBeforeStep);
         }
+
+        /**
+         * The network is left in the state of the chain after each step, so the sink is given a view of it
+         * rather than a copy.
+         */
+        @Override
+        public void sample(SampleSink sink) {
+            step();
+            sink.accept(sampledState, logProbabilityBeforeStep);
+        }
     }
 
-    private static void takeSamples(Map<VertexId, List<?>> samples, List<? extends Vertex> fromVertices) {
+    static void takeSamples(Map<VertexId, List<?>> samples, List<? extends Vertex> fromVertices) {
         fromVertices.forEach(vertex -> addSampleForVertex((Vertex<?>) vertex, samples));
     }
 
     private static <T> void addSampleForVertex(Vertex<T> vertex, Map<VertexId, List<?>> samples) {
-        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(vertex.getId(), v -> new ArrayList<T>());
         T value = vertex.getValue();
+        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(vertex.getId(), v -> SampleLists.newSampleList(value));
         samplesForVertex.add(value);
         log.trace(String.format("Sampled %s", value));
     }
 
-    private static void checkBayesNetInHealthyState(BayesianNetwork bayesNet) {
+    static void checkBayesNetInHealthyState(BayesianNetwork bayesNet) {
         bayesNet.cascadeObservations();
         if (bayesNet.getLatentOrObservedVertices().isEmpty()) {
             throw new IllegalArgumentException("Cannot sample from a completely deterministic BayesNet");
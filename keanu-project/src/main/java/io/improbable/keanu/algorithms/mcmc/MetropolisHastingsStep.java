@@ -5,13 +5,18 @@ import io.improbable.keanu.algorithms.mcmc.proposal.Proposal;
 import io.improbable.keanu.algorithms.mcmc.proposal.ProposalDistribution;
 import io.improbable.keanu.network.LambdaSection;
 import io.improbable.keanu.network.NetworkSnapshot;
+import io.improbable.keanu.vertices.NonProbabilistic;
+import io.improbable.keanu.vertices.Probabilistic;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.ScalarLogProbBatch;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.KeanuRandom;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,7 +30,7 @@ class MetropolisHastingsStep {
 
     private final ProposalDistribution proposalDistribution;
     private final boolean useCacheOnRejection;
-    private final Map<Vertex, LambdaSection> affectedVerticesCache;
+    private final Map<Vertex, AffectedVertices> affectedVerticesCache;
     private final KeanuRandom random;
 
     /**
@@ -65,14 +70,15 @@ class MetropolisHastingsStep {
                            final double logProbabilityBeforeStep,
                            final double temperature) {
 
-        log.trace(String.format("Chosen vertices: %s", chosenVertices.stream()
-            .map(Vertex::toString)
-            .collect(Collectors.toList())));
+        if (log.isTraceEnabled()) {
+            log.trace(String.format("Chosen vertices: %s", chosenVertices.stream()
+                .map(Vertex::toString)
+                .collect(Collectors.toList())));
+        }
         final double affectedVerticesLogProbOld = sumLogProbabilityOfAffected(chosenVertices, affectedVerticesCache);
 
-        NetworkSnapshot preProposalSnapshot = null;
         if (useCacheOnRejection) {
-            preProposalSnapshot = getSnapshotOfAllAffectedVertices(chosenVertices, affectedVerticesCache);
+            captureSnapshotsOfAffectedVertices(chosenVertices, affectedVerticesCache);
         }
 
         Proposal proposal = proposalDistribution.getProposal(chosenVertices, random);
@@ -98,10 +104,12 @@ class MetropolisHastingsStep {
 
 
             if (shouldAccept) {
-                log.trace(String.format("ACCEPT %.4f", logR));
-                log.trace(String.format("New log prob = %.4f", logProbabilityAfterStep));
+                if (log.isTraceEnabled()) {
+                    log.trace(String.format("ACCEPT %.4f", logR));
+                    log.trace(String.format("New log prob = %.4f", logProbabilityAfterStep));
+                }
                 return new StepResult(true, logProbabilityAfterStep);
-            } else {
+            } else if (log.isTraceEnabled()) {
                 log.trace(String.format("REJECT %.4f", logR));
             }
         }
@@ -109,7 +117,7 @@ class MetropolisHastingsStep {
         proposal.reject();
 
         if (useCacheOnRejection) {
-            preProposalSnapshot.apply();
+            applySnapshotsOfAffectedVertices(chosenVertices, affectedVerticesCache);
         } else {
             VertexValuePropagation.cascadeUpdate(chosenVertices);
         }
@@ -117,22 +125,29 @@ class MetropolisHastingsStep {
         return new StepResult(false, logProbabilityBeforeStep);
     }
 
-    private static NetworkSnapshot getSnapshotOfAllAffectedVertices(final Set<Vertex> chosenVertices,
-                                                                    final Map<Vertex, LambdaSection> affectedVertices) {
-
-        Set<Vertex> allAffectedVertices = new HashSet<>();
+    private static void captureSnapshotsOfAffectedVertices(final Set<Vertex> chosenVertices,
+                                                           final Map<Vertex, AffectedVertices> affectedVertices) {
         for (Vertex vertex : chosenVertices) {
-            allAffectedVertices.addAll(affectedVertices.get(vertex).getAllVertices());
+            affectedVertices.get(vertex).snapshot.capture();
         }
+    }
 
-        return NetworkSnapshot.create(allAffectedVertices);
+    /**
+     * Snapshots are all captured before the proposal is applied, so where the affected vertices of two chosen
+     * vertices overlap both snapshots hold the same pre-proposal state and the order they are applied in doesn't matter.
+     */
+    private static void applySnapshotsOfAffectedVertices(final Set<Vertex> chosenVertices,
+                                                         final Map<Vertex, AffectedVertices> affectedVertices) {
+        for (Vertex vertex : chosenVertices) {
+            affectedVertices.get(vertex).snapshot.apply();
+        }
     }
 
     private static double sumLogProbabilityOfAffected(Set<Vertex> vertices,
-                                                      Map<Vertex, LambdaSection> affectedVertices) {
+                                                      Map<Vertex, AffectedVertices> affectedVertices) {
         double sumLogProb = 0.0;
         for (Vertex v : vertices) {
-            sumLogProb += ProbabilityCalculator.calculateLogProbFor(affectedVertices.get(v).getLatentAndObservedVertices());
+            sumLogProb += affectedVertices.get(v).sumLogProb();
         }
         return sumLogProb;
     }
@@ -144,16 +159,169 @@ class MetropolisHastingsStep {
      *
      * @param latentVertices      The latent vertices to create a cache for
      * @param useCacheOnRejection Whether or not to cache the entire downstream set or just the observed/probabilistic
-     * @return A vertex to Lambda Section map that represents the downstream Lambda Section for each latent vertex.
-     * This Lambda Section may include all of the nonprobabilistic vertices if useCacheOnRejection is enabled.
+     * @return A vertex to affected vertices map that represents the downstream Lambda Section for each latent vertex.
+     * This includes a reusable snapshot of all of the nonprobabilistic vertices if useCacheOnRejection is enabled.
+     */
+    private static Map<Vertex, AffectedVertices> createVerticesAffectedByCache(List<? extends Vertex> latentVertices,
+                                                                               boolean useCacheOnRejection) {
+        Map<Vertex, CachedLogProb> logProbCache = new HashMap<>();
+        Map<Vertex, AffectedVertices> affectedVertices = new HashMap<>();
+
+        for (Vertex latent : latentVertices) {
+            LambdaSection lambdaSection = LambdaSection.getDownstreamLambdaSection(latent, useCacheOnRejection);
+            affectedVertices.put(latent, new AffectedVertices(lambdaSection, logProbCache, useCacheOnRejection));
+        }
+
+        return affectedVertices;
+    }
+
+    /**
+     * The downstream probabilistic and observed vertices of a latent vertex, which are the only vertices whose
+     * log prob can change when the latent vertex's value changes. The log probs that aren't cached are calculated
+     * together, so that scalar vertices of the same type are batched into one calculation.
+     */
+    private static class AffectedVertices {
+
+        private final CachedLogProb[] probabilistic;
+        private final ScalarLogProbBatch batch;
+        private final boolean[] stale;
+        private final double[] logProbs;
+        private final NonProbabilistic[] nonProbabilistic;
+        private final NetworkSnapshot snapshot;
+
+        AffectedVertices(LambdaSection lambdaSection, Map<Vertex, CachedLogProb> logProbCache, boolean useCacheOnRejection) {
+            List<CachedLogProb> probabilisticVertices = new ArrayList<>();
+            List<Probabilistic<?>> batchedVertices = new ArrayList<>();
+            List<NonProbabilistic> nonProbabilisticVertices = new ArrayList<>();
+
+            for (Vertex vertex : lambdaSection.getLatentAndObservedVertices()) {
+                if (vertex instanceof Probabilistic) {
+                    probabilisticVertices.add(logProbCache.computeIfAbsent(vertex, CachedLogProb::new));
+                    batchedVertices.add((Probabilistic<?>) vertex);
+                } else if (vertex instanceof NonProbabilistic) {
+                    nonProbabilisticVertices.add((NonProbabilistic) vertex);
+                } else {
+                    throw new IllegalArgumentException("Found a vertex that is neither Probabilistic nor Non-Probabilistic");
+                }
+            }
+
+            this.probabilistic = probabilisticVertices.toArray(new CachedLogProb[0]);
+            this.batch = new ScalarLogProbBatch(batchedVertices);
+            this.stale = new boolean[probabilistic.length];
+            this.logProbs = new double[probabilistic.length];
+            this.nonProbabilistic = nonProbabilisticVertices.toArray(new NonProbabilistic[0]);
+            this.snapshot = useCacheOnRejection ? NetworkSnapshot.create(lambdaSection.getAllVertices()) : null;
+        }
+
+        double sumLogProb() {
+            for (NonProbabilistic vertex : nonProbabilistic) {
+                if (vertex.contradictsObservation()) {
+                    return Double.NEGATIVE_INFINITY;
+                }
+            }
+
+            boolean anyStale = false;
+            for (int i = 0; i < probabilistic.length; i++) {
+                stale[i] = !probabilistic[i].isCached();
+                anyStale |= stale[i];
+            }
+
+            if (anyStale) {
+                batch.calculate(stale, logProbs);
+                for (int i = 0; i < probabilistic.length; i++) {
+                    if (stale[i]) {
+                        probabilistic[i].update(logProbs[i]);
+                    }
+                }
+            }
+
+            double sum = 0.0;
+            for (CachedLogProb cachedLogProb : probabilistic) {
+                sum += cachedLogProb.get();
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * The last two calculated log probs of a probabilistic vertex. The log prob of a vertex only depends on its value
+     * and the values of its parents, so the versions of those values act as version stamps: the log prob is only
+     * recalculated when they match neither cached entry. Keeping two entries means that after a rejected proposal
+     * has restored the previous values, and their versions, the log prob from before the proposal is still cached.
      */
-    private static Map<Vertex, LambdaSection> createVerticesAffectedByCache(List<? extends Vertex> latentVertices,
-                                                                            boolean useCacheOnRejection) {
-        return latentVertices.stream()
-            .collect(Collectors.toMap(
-                v -> v,
-                v -> LambdaSection.getDownstreamLambdaSection(v, useCacheOnRejection)
-            ));
+    private static class CachedLogProb {
+
+        private final Probabilistic<?> vertex;
+        private final Vertex<?>[] dependencies;
+        private final long[] currentVersions;
+        private long[] latestVersions;
+        private long[] previousVersions;
+        private boolean hasLatest = false;
+        private boolean hasPrevious = false;
+        private double latestLogProb;
+        private double previousLogProb;
+
+        CachedLogProb(Vertex<?> vertex) {
+            this.vertex = (Probabilistic<?>) vertex;
+
+            Set<Vertex> parents = vertex.getParents();
+            this.dependencies = new Vertex<?>[parents.size() + 1];
+            this.dependencies[0] = vertex;
+            int i = 1;
+            for (Vertex<?> parent : parents) {
+                this.dependencies[i++] = parent;
+            }
+            this.currentVersions = new long[dependencies.length];
+            this.latestVersions = new long[dependencies.length];
+            this.previousVersions = new long[dependencies.length];
+        }
+
+        /**
+         * @return true if the log prob at the current values is cached, otherwise it needs to be calculated and
+         * {@link #update updated}
+         */
+        boolean isCached() {
+            for (int i = 0; i < dependencies.length; i++) {
+                currentVersions[i] = dependencies[i].getValueVersion();
+            }
+
+            if (hasLatest && Arrays.equals(currentVersions, latestVersions)) {
+                return true;
+            }
+
+            if (hasPrevious && Arrays.equals(currentVersions, previousVersions)) {
+                long[] reusedVersions = previousVersions;
+                double reusedLogProb = previousLogProb;
+                previousVersions = latestVersions;
+                previousLogProb = latestLogProb;
+                latestVersions = reusedVersions;
+                latestLogProb = reusedLogProb;
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Caches the log prob at the current values, replacing the older of the two entries.
+         */
+        void update(double logProb) {
+            long[] reusedVersions = previousVersions;
+            previousVersions = latestVersions;
+            previousLogProb = latestLogProb;
+            hasPrevious = hasLatest;
+            latestVersions = reusedVersions;
+            latestLogProb = logProb;
+            hasLatest = true;
+
+            for (int i = 0; i < dependencies.length; i++) {
+                latestVersions[i] = dependencies[i].getValueVersion();
+            }
+        }
+
+        double get() {
+            return latestLogProb;
+        }
     }
 
     @Value
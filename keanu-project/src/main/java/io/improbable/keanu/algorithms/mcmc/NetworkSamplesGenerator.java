@@ -3,11 +3,14 @@ package io.improbable.keanu.algorithms.mcmc;
 import com.google.common.base.Preconditions;
 import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.SampleLists;
+import io.improbable.keanu.algorithms.SampleSink;
 import io.improbable.keanu.util.ProgressBar;
 import io.improbable.keanu.vertices.VertexId;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -85,7 +88,7 @@ public class NetworkSamplesGenerator {
         ProgressBar progressBar = progressBarSupplier.get();
 
         Map<VertexId, List<?>> samplesByVertex = new HashMap<>();
-        List<Double> logOfMasterPForEachSample = new ArrayList<>();
+        List<Double> logOfMasterPForEachSample = SampleLists.newLogProbList();
 
         dropSamples(dropCount, progressBar);
 
@@ -106,6 +109,41 @@ public class NetworkSamplesGenerator {
         return new NetworkSamples(samplesByVertex, logOfMasterPForEachSample, sampleCount);
     }
 
+    /**
+     * Generates samples like {@link #generate(int)} but passes each one to the sink as it is taken rather than
+     * collecting them in memory. The sink is not closed.
+     *
+     * @param totalSampleCount The total number of samples to generate before any dropping or down-sampling is done.
+     * @param sink             where to send the samples after dropping and down-sampling
+     * @return the number of samples given to the sink
+     */
+    public int generate(final int totalSampleCount, final SampleSink sink) {
+        Preconditions.checkArgument(dropCount < totalSampleCount,
+            "Cannot drop more samples than requested or all of the samples. Samples requested %s and dropping %s",
+            totalSampleCount, dropCount
+        );
+
+        ProgressBar progressBar = progressBarSupplier.get();
+
+        dropSamples(dropCount, progressBar);
+
+        int sampleCount = 0;
+        int samplesLeft = totalSampleCount - dropCount;
+        for (int i = 0; i < samplesLeft; i++) {
+            if (i % downSampleInterval == 0) {
+                algorithm.sample(sink);
+                sampleCount++;
+            } else {
+                algorithm.step();
+            }
+
+            progressBar.progress("Sampling...", (i + 1) / (double) samplesLeft);
+        }
+
+        progressBar.finish();
+        return sampleCount;
+    }
+
     /**
      * @return A stream of samples starting after dropping. Down-sampling is handled outside of the stream (i.e. the
      * stream will be the final result after dropping and down-sampling)
@@ -133,6 +171,26 @@ public class NetworkSamplesGenerator {
         }).onClose(progressBar::finish);
     }
 
+    /**
+     * @param batchSize the number of samples in each batch
+     * @return the samples of {@link #stream()} collected into batches, so that a consumer that is expensive to call
+     * (e.g. from Python) can take many samples at once
+     */
+    public Stream<NetworkSamples> streamBatches(int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "Batch size must be positive but was %s", batchSize);
+
+        Stream<NetworkSample> samples = stream();
+        Iterator<NetworkSample> sampleIterator = samples.iterator();
+
+        return Stream.generate(() -> {
+            List<NetworkSample> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(sampleIterator.next());
+            }
+            return NetworkSamples.from(batch);
+        }).onClose(samples::close);
+    }
+
     private void dropSamples(int dropCount, ProgressBar progressBar) {
         for (int i = 0; i < dropCount; i++) {
             algorithm.step();
@@ -0,0 +1,145 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.MultiChainSamples;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs several independent MCMC chains at the same time, one per thread.
+ * <p>
+ * Samplers mutate the values of the vertices they sample from, so each chain is run against its own
+ * network, built by calling the supplied network builder once per chain. Each chain also gets its own
+ * source of randomness, seeded from the root random, so that a run is reproducible for a given seed.
+ * <p>
+ * Usage:
+ * ParallelChains chains = ParallelChains.builder().chainCount(4).build();
+ * MultiChainSamples samples = chains.getPosteriorSamples(() -&gt; buildYourNetwork(), 1000);
+ */
+@Builder
+public class ParallelChains {
+
+    private static final int DEFAULT_CHAIN_COUNT = 4;
+
+    public static ParallelChains withDefaultConfig() {
+        return withDefaultConfig(KeanuRandom.getDefaultRandom());
+    }
+
+    public static ParallelChains withDefaultConfig(KeanuRandom random) {
+        return ParallelChains.builder()
+            .random(random)
+            .build();
+    }
+
+    //Root source of randomness from which each chain's random is seeded
+    @Getter
+    @Setter
+    @Builder.Default
+    private KeanuRandom random = KeanuRandom.getDefaultRandom();
+
+    @Getter
+    @Setter
+    @Builder.Default
+    private int chainCount = DEFAULT_CHAIN_COUNT;
+
+    //The maximum number of chains that will be run at the same time
+    @Getter
+    @Setter
+    @Builder.Default
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
+    //Creates the sampling algorithm for a chain given that chain's random
+    @Getter
+    @Setter
+    @Builder.Default
+    private Function<KeanuRandom, PosteriorSamplingAlgorithm> samplingAlgorithm = MetropolisHastings::withDefaultConfig;
+
+    @Getter
+    @Setter
+    @Builder.Default
+    private int dropCount = 0;
+
+    @Getter
+    @Setter
+    @Builder.Default
+    private int downSampleInterval = 1;
+
+    /**
+     * @param networkBuilder builds a new, independent network each time it is called
+     * @param sampleCount    number of samples to take in each chain, before dropping and down-sampling
+     * @return the samples of the top level latent vertices of each chain
+     */
+    public MultiChainSamples getPosteriorSamples(Supplier<BayesianNetwork> networkBuilder,
+                                                 int sampleCount) {
+        return getPosteriorSamples(networkBuilder, BayesianNetwork::getTopLevelLatentVertices, sampleCount);
+    }
+
+    /**
+     * @param networkBuilder       builds a new, independent network each time it is called
+     * @param verticesToSampleFrom selects the vertices to include in the returned samples from a chain's network
+     * @param sampleCount          number of samples to take in each chain, before dropping and down-sampling
+     * @return the samples of each chain, in chain order
+     */
+    public MultiChainSamples getPosteriorSamples(Supplier<BayesianNetwork> networkBuilder,
+                                                 Function<BayesianNetwork, List<? extends Vertex>> verticesToSampleFrom,
+                                                 int sampleCount) {
+        Preconditions.checkArgument(chainCount > 0, "Chain count of %s is invalid. Must run at least one chain.", chainCount);
+        Preconditions.checkArgument(threadCount > 0, "Thread count of %s is invalid. Must use at least one thread.", threadCount);
+
+        List<BayesianNetwork> networks = new ArrayList<>(chainCount);
+        List<KeanuRandom> randoms = new ArrayList<>(chainCount);
+        for (int i = 0; i < chainCount; i++) {
+            networks.add(networkBuilder.get());
+            randoms.add(new KeanuRandom(random.nextLong()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, chainCount));
+        try {
+            List<Future<NetworkSamples>> futures = new ArrayList<>(chainCount);
+            for (int i = 0; i < chainCount; i++) {
+                BayesianNetwork network = networks.get(i);
+                KeanuRandom chainRandom = randoms.get(i);
+                futures.add(executor.submit(() -> runChain(network, chainRandom, verticesToSampleFrom, sampleCount)));
+            }
+
+            List<NetworkSamples> chains = new ArrayList<>(chainCount);
+            for (Future<NetworkSamples> future : futures) {
+                chains.add(future.get());
+            }
+            return new MultiChainSamples(networks, chains);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for chains to finish", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to run chain", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private NetworkSamples runChain(BayesianNetwork network,
+                                    KeanuRandom chainRandom,
+                                    Function<BayesianNetwork, List<? extends Vertex>> verticesToSampleFrom,
+                                    int sampleCount) {
+        return samplingAlgorithm.apply(chainRandom)
+            .generatePosteriorSamples(network, verticesToSampleFrom.apply(network))
+            .dropCount(dropCount)
+            .downSampleInterval(downSampleInterval)
+            .generate(sampleCount);
+    }
+}
@@ -1,6 +1,7 @@
 package io.improbable.keanu.algorithms.mcmc;
 
 import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.SampleSink;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexId;
 
@@ -34,4 +35,14 @@ public interface SamplingAlgorithm {
      * @return a network state that represents the current state of the algorithm.
      */
     NetworkSample sample();
+
+    /**
+     * Takes a sample with the algorithm and passes it to the sink.
+     *
+     * @param sink the sink to give the sample to
+     */
+    default void sample(SampleSink sink) {
+        NetworkSample sample = sample();
+        sink.accept(sample, sample.getLogOfMasterP());
+    }
 }
@@ -0,0 +1,165 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.MiniBatchSelector;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.util.ProgressBar;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stochastic gradient MCMC, which moves through the posterior using the gradient of the log prob of a mini-batch of
+ * the data rather than of all of it, so that each step costs the same however much data there is. There is no
+ * accept or reject step, so the step size should be small for the samples to be close to the posterior.
+ * <p>
+ * The mini-batches are either:
+ * <ul>
+ * <li>random batches of the observed vertices, for networks with an observed vertex per data point, when an
+ * observed batch size is given. The observed vertices are split into batches once and a batch is picked at
+ * random for each step.</li>
+ * <li>chosen by a {@link MiniBatchSelector}, e.g. to observe a slice of the rows of a tensor of data such as in
+ * a {@link io.improbable.keanu.model.regression.LinearRegressionGraph}.</li>
+ * </ul>
+ * In both cases the likelihood gradient of the batch is scaled up to estimate that of all of the data.
+ * <p>
+ * Langevin dynamics: Bayesian Learning via Stochastic Gradient Langevin Dynamics
+ * https://www.ics.uci.edu/~welling/publications/papers/stoclangevin_v6.pdf
+ * <p>
+ * Hamiltonian dynamics: Stochastic Gradient Hamiltonian Monte Carlo
+ * https://arxiv.org/pdf/1402.4102.pdf
+ */
+@Builder
+public class StochasticGradientMCMC implements PosteriorSamplingAlgorithm {
+
+    private static final double DEFAULT_STEP_SIZE = 1e-3;
+    private static final double DEFAULT_FRICTION = 1.0;
+
+    public enum Dynamics {
+        LANGEVIN,
+        HAMILTONIAN
+    }
+
+    public static StochasticGradientMCMC withDefaultConfig() {
+        return withDefaultConfig(KeanuRandom.getDefaultRandom());
+    }
+
+    public static StochasticGradientMCMC withDefaultConfig(KeanuRandom random) {
+        return StochasticGradientMCMC.builder()
+            .random(random)
+            .build();
+    }
+
+    @Getter
+    @Setter
+    @Builder.Default
+    private KeanuRandom random = KeanuRandom.getDefaultRandom();
+
+    @Getter
+    @Setter
+    @Builder.Default
+    private Dynamics dynamics = Dynamics.LANGEVIN;
+
+    @Getter
+    @Setter
+    @Builder.Default
+    //the amount of time to move each step
+    private double stepSize = DEFAULT_STEP_SIZE;
+
+    @Getter
+    @Setter
+    @Builder.Default
+    //how strongly the momentum is damped each step, which is only used by Hamiltonian dynamics
+    private double friction = DEFAULT_FRICTION;
+
+    @Getter
+    @Setter
+    @Builder.Default
+    //the number of observed vertices in each batch, or zero to use all of them at every step
+    private int observedBatchSize = 0;
+
+    @Getter
+    @Setter
+    @Builder.Default
+    //chooses the data for each step instead of batching the observed vertices
+    private MiniBatchSelector miniBatchSelector = null;
+
+    @Override
+    public NetworkSamplesGenerator generatePosteriorSamples(final BayesianNetwork bayesNet,
+                                                            final List<? extends Vertex> fromVertices) {
+
+        return new NetworkSamplesGenerator(setupSampler(bayesNet, fromVertices), ProgressBar::new);
+    }
+
+    private SamplingAlgorithm setupSampler(final BayesianNetwork bayesNet,
+                                           final List<? extends Vertex> fromVertices) {
+        Preconditions.checkArgument(stepSize > 0, "Step size must be positive but was %s", stepSize);
+        Preconditions.checkArgument(observedBatchSize >= 0, "Observed batch size cannot be negative but was %s", observedBatchSize);
+        Preconditions.checkArgument(observedBatchSize == 0 || miniBatchSelector == null,
+            "Cannot batch observed vertices and use a mini-batch selector at the same time"
+        );
+
+        bayesNet.cascadeObservations();
+
+        final List<Vertex<DoubleTensor>> latentVertices = bayesNet.getContinuousLatentVertices();
+        final LatentLayout latents = new LatentLayout(latentVertices);
+
+        final List<Vertex> observedVertices = new ArrayList<>(bayesNet.getObservedVertices());
+        final List<List<Vertex>> observedBatches = observedBatchSize == 0 ?
+            singleBatch(observedVertices) :
+            shuffleIntoBatches(observedVertices, observedBatchSize);
+
+        final List<LogProbGradientCalculator> batchGradientCalculators = new ArrayList<>(observedBatches.size());
+        final double[] batchScales = new double[observedBatches.size()];
+        for (int i = 0; i < observedBatches.size(); i++) {
+            batchGradientCalculators.add(new LogProbGradientCalculator(observedBatches.get(i), latentVertices));
+            batchScales[i] = observedVertices.size() / (double) observedBatches.get(i).size();
+        }
+
+        return new StochasticGradientSampler(
+            latents,
+            random,
+            fromVertices,
+            dynamics,
+            stepSize,
+            friction,
+            new LogProbGradientCalculator(bayesNet.getLatentVertices(), latentVertices),
+            bayesNet.getLatentVertices(),
+            observedBatches,
+            batchGradientCalculators,
+            batchScales,
+            miniBatchSelector
+        );
+    }
+
+    private static List<List<Vertex>> singleBatch(List<Vertex> observedVertices) {
+        List<List<Vertex>> batches = new ArrayList<>();
+        if (!observedVertices.isEmpty()) {
+            batches.add(observedVertices);
+        }
+        return batches;
+    }
+
+    private List<List<Vertex>> shuffleIntoBatches(List<Vertex> observedVertices, int batchSize) {
+        for (int i = observedVertices.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Vertex swap = observedVertices.get(i);
+            observedVertices.set(i, observedVertices.get(j));
+            observedVertices.set(j, swap);
+        }
+
+        List<List<Vertex>> batches = new ArrayList<>();
+        for (int from = 0; from < observedVertices.size(); from += batchSize) {
+            batches.add(observedVertices.subList(from, Math.min(from + batchSize, observedVertices.size())));
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,156 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.MiniBatchSelector;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.improbable.keanu.algorithms.mcmc.HamiltonianSampler.addSampleFromVertices;
+
+/**
+ * Takes a step of stochastic gradient Langevin or Hamiltonian dynamics per sample. The position, momentum and
+ * gradients are held in flat arrays laid out by a {@link LatentLayout}.
+ * <p>
+ * The log of master probability given with each sample is estimated from the batch that the step used, i.e. the
+ * log prob of the latents plus the scaled log prob of the batch.
+ */
+public class StochasticGradientSampler implements SamplingAlgorithm {
+
+    private final LatentLayout latents;
+    private final KeanuRandom random;
+    private final List<? extends Vertex> fromVertices;
+    private final StochasticGradientMCMC.Dynamics dynamics;
+    private final double stepSize;
+    private final double friction;
+
+    private final LogProbGradientCalculator priorGradientCalculator;
+    private final List<? extends Vertex> latentVertices;
+    private final List<List<Vertex>> observedBatches;
+    private final List<LogProbGradientCalculator> batchGradientCalculators;
+    private final double[] batchScales;
+    private final MiniBatchSelector miniBatchSelector;
+
+    private final double[] position;
+    private final double[] momentum;
+    private final double[] gradient;
+    private final double[] batchGradient;
+    private final double[] noise;
+
+    private int stepCount = 0;
+    private int batch = -1;
+    private double likelihoodScale = 1.0;
+
+    public StochasticGradientSampler(LatentLayout latents,
+                                     KeanuRandom random,
+                                     List<? extends Vertex> fromVertices,
+                                     StochasticGradientMCMC.Dynamics dynamics,
+                                     double stepSize,
+                                     double friction,
+                                     LogProbGradientCalculator priorGradientCalculator,
+                                     List<? extends Vertex> latentVertices,
+                                     List<List<Vertex>> observedBatches,
+                                     List<LogProbGradientCalculator> batchGradientCalculators,
+                                     double[] batchScales,
+                                     MiniBatchSelector miniBatchSelector) {
+        this.latents = latents;
+        this.random = random;
+        this.fromVertices = fromVertices;
+        this.dynamics = dynamics;
+        this.stepSize = stepSize;
+        this.friction = friction;
+        this.priorGradientCalculator = priorGradientCalculator;
+        this.latentVertices = latentVertices;
+        this.observedBatches = observedBatches;
+        this.batchGradientCalculators = batchGradientCalculators;
+        this.batchScales = batchScales;
+        this.miniBatchSelector = miniBatchSelector;
+
+        this.position = latents.gatherValues(latents.newArray());
+        this.momentum = latents.newArray();
+        this.gradient = latents.newArray();
+        this.batchGradient = latents.newArray();
+        this.noise = latents.newArray();
+    }
+
+    @Override
+    public void step() {
+        calculateBatchGradient();
+
+        if (dynamics == StochasticGradientMCMC.Dynamics.LANGEVIN) {
+            //theta = theta + (eps/2)dL(theta) + N(0, eps)
+            double noiseScale = Math.sqrt(stepSize);
+            latents.gatherGaussian(random, noise);
+            for (int i = 0; i < position.length; i++) {
+                position[i] += 0.5 * stepSize * gradient[i] + noiseScale * noise[i];
+            }
+        } else {
+            //r = r + eps dL(theta) - eps C r + N(0, 2 C eps) and theta = theta + eps r
+            double noiseScale = Math.sqrt(2.0 * friction * stepSize);
+            latents.gatherGaussian(random, noise);
+            for (int i = 0; i < position.length; i++) {
+                momentum[i] += stepSize * gradient[i] - stepSize * friction * momentum[i] + noiseScale * noise[i];
+                position[i] += stepSize * momentum[i];
+            }
+        }
+
+        latents.scatterValues(position);
+        VertexValuePropagation.cascadeUpdate(latents.getLatentVertices());
+        stepCount++;
+    }
+
+    /**
+     * Chooses the batch for this step and sets the gradient to the gradient of the log prob of the latents plus
+     * the scaled gradient of the log prob of the batch.
+     */
+    private void calculateBatchGradient() {
+        if (miniBatchSelector != null) {
+            miniBatchSelector.selectBatch(stepCount);
+            likelihoodScale = miniBatchSelector.getLikelihoodScale();
+            VertexValuePropagation.cascadeUpdate(latents.getLatentVertices());
+        }
+
+        latents.gatherGradient(priorGradientCalculator, gradient);
+
+        if (observedBatches.isEmpty()) {
+            return;
+        }
+
+        batch = observedBatches.size() == 1 ? 0 : random.nextInt(observedBatches.size());
+        if (miniBatchSelector == null) {
+            likelihoodScale = batchScales[batch];
+        }
+
+        latents.gatherGradient(batchGradientCalculators.get(batch), batchGradient);
+        for (int i = 0; i < gradient.length; i++) {
+            gradient[i] += likelihoodScale * batchGradient[i];
+        }
+    }
+
+    private double getLogOfMasterPOfBatch() {
+        double logOfMasterP = ProbabilityCalculator.calculateLogProbFor(latentVertices);
+        if (batch >= 0) {
+            logOfMasterP += likelihoodScale * ProbabilityCalculator.calculateLogProbFor(observedBatches.get(batch));
+        }
+        return logOfMasterP;
+    }
+
+    @Override
+    public void sample(Map<VertexId, List<?>> samples, List<Double> logOfMasterPForEachSample) {
+        step();
+        addSampleFromVertices(samples, fromVertices);
+        logOfMasterPForEachSample.add(getLogOfMasterPOfBatch());
+    }
+
+    @Override
+    public NetworkSample sample() {
+        step();
+        return new NetworkSample(SamplingAlgorithm.takeSample(fromVertices), getLogOfMasterPOfBatch());
+    }
+}
@@ -0,0 +1,53 @@
+package io.improbable.keanu.algorithms.mcmc.conjugate;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.probabilistic.BetaVertex;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.broadcast;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.likelihoodChildren;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.sumToShape;
+
+/**
+ * A Beta prior on the probability of Bernoulli children. The conditional is Beta with alpha increased by the number
+ * of true children and beta increased by the number of false children.
+ */
+class BetaBernoulliUpdate implements ConjugateUpdate {
+
+    @Override
+    public Optional<ConditionalSampler> match(Vertex<?> latent, Set<Vertex> markovBlanket) {
+        if (!(latent instanceof BetaVertex)) {
+            return Optional.empty();
+        }
+
+        BetaVertex prior = (BetaVertex) latent;
+        return likelihoodChildren(
+            latent, markovBlanket, BernoulliVertex.class,
+            child -> child.getProbTrue() == latent
+        ).map(children -> random -> sample(prior, children, random));
+    }
+
+    private static void sample(BetaVertex prior, List<BernoulliVertex> children, KeanuRandom random) {
+        long[] shape = prior.getShape();
+
+        DoubleTensor alpha = broadcast(prior.getAlpha().getValue(), shape);
+        DoubleTensor beta = broadcast(prior.getBeta().getValue(), shape);
+
+        for (BernoulliVertex child : children) {
+            DoubleTensor trues = child.getValue().toDoubleMask();
+
+            alpha = alpha.plus(sumToShape(trues, shape));
+            beta = beta.plus(sumToShape(trues.unaryMinus().plusInPlace(1.0), shape));
+        }
+
+        DoubleTensor fromAlpha = random.nextGamma(shape, DoubleTensor.ones(shape), alpha);
+        DoubleTensor fromBeta = random.nextGamma(shape, DoubleTensor.ones(shape), beta);
+        prior.setValue(fromAlpha.div(fromAlpha.plus(fromBeta)));
+    }
+}
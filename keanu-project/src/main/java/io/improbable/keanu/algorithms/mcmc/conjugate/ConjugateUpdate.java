@@ -0,0 +1,33 @@
+package io.improbable.keanu.algorithms.mcmc.conjugate;
+
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Recognises a latent vertex whose prior is conjugate to the likelihood of its children, so that its value can be
+ * drawn exactly from its distribution conditioned on the rest of its Markov blanket.
+ */
+public interface ConjugateUpdate {
+
+    /**
+     * @param latent        a latent vertex
+     * @param markovBlanket the Markov blanket of the latent vertex
+     * @return a sampler of the latent vertex's conditional distribution if this update recognises its prior and
+     * children, otherwise empty
+     */
+    Optional<ConditionalSampler> match(Vertex<?> latent, Set<Vertex> markovBlanket);
+
+    interface ConditionalSampler {
+
+        /**
+         * Sets the value of the latent vertex to a sample of its distribution conditioned on the current values of
+         * its Markov blanket. Its descendants are not updated.
+         *
+         * @param random the source of randomness
+         */
+        void sample(KeanuRandom random);
+    }
+}
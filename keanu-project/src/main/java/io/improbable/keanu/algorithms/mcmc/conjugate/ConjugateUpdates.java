@@ -0,0 +1,124 @@
+package io.improbable.keanu.algorithms.mcmc.conjugate;
+
+import io.improbable.keanu.algorithms.graphtraversal.MarkovBlanket;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The conjugate updates that Gibbs sampling knows about, and helpers for writing them.
+ */
+public class ConjugateUpdates {
+
+    private ConjugateUpdates() {
+    }
+
+    /**
+     * @return the conjugate pairs of Keanu's vertices:
+     * <ul>
+     * <li>the mean of Gaussians with a Gaussian prior</li>
+     * <li>the precision of Gaussians, i.e. sigma = precision.pow(-0.5), with a Gamma prior</li>
+     * <li>the probability of Bernoullis with a Beta prior</li>
+     * <li>the probabilities of Categoricals with a Dirichlet prior</li>
+     * <li>the rate of Poissons with a Gamma prior</li>
+     * </ul>
+     */
+    public static List<ConjugateUpdate> defaults() {
+        return new ArrayList<>(Arrays.asList(
+            new GaussianMeanUpdate(),
+            new GammaPrecisionUpdate(),
+            new BetaBernoulliUpdate(),
+            new DirichletCategoricalUpdate(),
+            new GammaPoissonUpdate()
+        ));
+    }
+
+    /**
+     * @param latent  a latent vertex
+     * @param updates the updates to try, in order
+     * @return a sampler of the latent vertex's conditional distribution from the first update that recognises it,
+     * otherwise empty
+     */
+    public static Optional<ConjugateUpdate.ConditionalSampler> find(Vertex<?> latent, List<ConjugateUpdate> updates) {
+        Set<Vertex> markovBlanket = MarkovBlanket.get(latent);
+
+        for (ConjugateUpdate update : updates) {
+            Optional<ConjugateUpdate.ConditionalSampler> sampler = update.match(latent, markovBlanket);
+            if (sampler.isPresent()) {
+                return sampler;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @param parent        a vertex
+     * @param markovBlanket the Markov blanket the children must be in, i.e. children must be probabilistic
+     * @param childType     the type every child must be
+     * @param isLikelihood  whether a child depends on the parent only through the parameter the update is for
+     * @return the children of the parent if there are some and they are all likelihoods of the given type,
+     * otherwise empty
+     */
+    static <T> Optional<List<T>> likelihoodChildren(Vertex<?> parent,
+                                                    Set<Vertex> markovBlanket,
+                                                    Class<T> childType,
+                                                    Predicate<T> isLikelihood) {
+        return childrenOfType(parent, childType, child -> markovBlanket.contains(child) && isLikelihood.test(child));
+    }
+
+    /**
+     * @param parent     a vertex
+     * @param childType  the type every child must be
+     * @param isExpected whether a child is used by the parent in the way the update expects
+     * @return the children of the parent if there are some and they are all of the given type and expected,
+     * otherwise empty
+     */
+    static <T> Optional<List<T>> childrenOfType(Vertex<?> parent, Class<T> childType, Predicate<T> isExpected) {
+        Collection<Vertex> children = parent.getChildren();
+        if (children.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<T> matching = new ArrayList<>();
+        for (Vertex child : children) {
+            if (!childType.isInstance(child) || !isExpected.test(childType.cast(child))) {
+                return Optional.empty();
+            }
+            matching.add(childType.cast(child));
+        }
+        return Optional.of(matching);
+    }
+
+    /**
+     * @param values values of a child, which the parameter of shape was broadcast to
+     * @param shape  the shape of the parameter
+     * @return the values summed over the dimensions that the parameter was broadcast along
+     */
+    static DoubleTensor sumToShape(DoubleTensor values, long[] shape) {
+        if (Arrays.equals(values.getShape(), shape)) {
+            return values;
+        } else if (TensorShape.getLength(shape) == 1) {
+            return DoubleTensor.create(values.sum(), shape);
+        }
+        return AutoDiffBroadcast.sumToOperandShape(values, shape);
+    }
+
+    /**
+     * @param value a value of a parameter that is broadcast to shape
+     * @param shape the shape to broadcast to
+     * @return the value with the given shape
+     */
+    static DoubleTensor broadcast(DoubleTensor value, long[] shape) {
+        return DoubleTensor.ones(shape).times(value);
+    }
+}
@@ -0,0 +1,117 @@
+package io.improbable.keanu.algorithms.mcmc.conjugate;
+
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.TakeVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.DirichletVertex;
+import io.improbable.keanu.vertices.generic.probabilistic.discrete.CategoricalVertex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.broadcast;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.childrenOfType;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.likelihoodChildren;
+
+/**
+ * A Dirichlet prior on the probabilities of Categorical children, as made by
+ * {@link CategoricalVertex#of(DirichletVertex, List)}, where each category's probability is taken from a different
+ * element of the Dirichlet. The conditional is Dirichlet with each concentration increased by the number of times
+ * its category was chosen.
+ */
+class DirichletCategoricalUpdate implements ConjugateUpdate {
+
+    @Override
+    public Optional<ConditionalSampler> match(Vertex<?> latent, Set<Vertex> markovBlanket) {
+        if (!(latent instanceof DirichletVertex)) {
+            return Optional.empty();
+        }
+
+        Optional<List<TakeVertex>> takes = childrenOfType(latent, TakeVertex.class, take -> true);
+        if (!takes.isPresent()) {
+            return Optional.empty();
+        }
+
+        Set<CategoricalVertex> children = new LinkedHashSet<>();
+        for (TakeVertex take : takes.get()) {
+            Optional<List<CategoricalVertex>> categoricals = likelihoodChildren(
+                take, markovBlanket, CategoricalVertex.class, child -> true
+            );
+            if (!categoricals.isPresent()) {
+                return Optional.empty();
+            }
+            children.addAll(categoricals.get());
+        }
+
+        DirichletVertex prior = (DirichletVertex) latent;
+        List<Map<Object, Integer>> categoryIndices = new ArrayList<>();
+        for (CategoricalVertex<?, ?> child : children) {
+            Optional<Map<Object, Integer>> indices = categoryIndices(prior, child);
+            if (!indices.isPresent()) {
+                return Optional.empty();
+            }
+            categoryIndices.add(indices.get());
+        }
+
+        List<CategoricalVertex> categoricals = new ArrayList<>(children);
+        return Optional.of(random -> sample(prior, categoricals, categoryIndices, random));
+    }
+
+    /**
+     * @return the flat index in the Dirichlet of the probability of each category, if every category's probability is
+     * a different element of the Dirichlet and every element is used
+     */
+    private static Optional<Map<Object, Integer>> categoryIndices(DirichletVertex prior, CategoricalVertex<?, ?> child) {
+        long[] shape = prior.getShape();
+        long[] stride = TensorShape.getRowFirstStride(shape);
+        int length = TensorShape.getLengthAsInt(shape);
+        boolean[] used = new boolean[length];
+
+        Map<Object, Integer> indices = new HashMap<>();
+        for (Map.Entry<?, DoubleVertex> category : child.getSelectableValues().entrySet()) {
+            DoubleVertex probability = category.getValue();
+            if (!(probability instanceof TakeVertex) || ((TakeVertex) probability).getInputVertex() != prior) {
+                return Optional.empty();
+            }
+
+            int index = (int) TensorShape.getFlatIndex(shape, stride, ((TakeVertex) probability).getIndex());
+            if (used[index]) {
+                return Optional.empty();
+            }
+            used[index] = true;
+            indices.put(category.getKey(), index);
+        }
+
+        return indices.size() == length ? Optional.of(indices) : Optional.empty();
+    }
+
+    private static void sample(DirichletVertex prior,
+                               List<CategoricalVertex> children,
+                               List<Map<Object, Integer>> categoryIndices,
+                               KeanuRandom random) {
+        long[] shape = prior.getShape();
+        double[] counts = new double[TensorShape.getLengthAsInt(shape)];
+
+        for (int i = 0; i < children.size(); i++) {
+            Map<Object, Integer> indices = categoryIndices.get(i);
+            for (Object category : ((Tensor<?>) children.get(i).getValue()).asFlatList()) {
+                counts[indices.get(category)]++;
+            }
+        }
+
+        DoubleTensor concentration = broadcast(prior.getConcentration().getValue(), shape)
+            .plus(DoubleTensor.create(counts, shape));
+
+        DoubleTensor gammas = random.nextGamma(shape, DoubleTensor.ones(shape), concentration);
+        prior.setValue(gammas.div(gammas.sum()));
+    }
+}
@@ -0,0 +1,51 @@
+package io.improbable.keanu.algorithms.mcmc.conjugate;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.probabilistic.GammaVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.broadcast;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.likelihoodChildren;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.sumToShape;
+
+/**
+ * A Gamma prior on the rate of Poisson children. The conditional is Gamma with k increased by the sum of the
+ * children and the rate, 1 / theta, increased by the number of children.
+ */
+class GammaPoissonUpdate implements ConjugateUpdate {
+
+    @Override
+    public Optional<ConditionalSampler> match(Vertex<?> latent, Set<Vertex> markovBlanket) {
+        if (!(latent instanceof GammaVertex)) {
+            return Optional.empty();
+        }
+
+        GammaVertex prior = (GammaVertex) latent;
+        return likelihoodChildren(
+            latent, markovBlanket, PoissonVertex.class,
+            child -> child.getMu() == latent
+        ).map(children -> random -> sample(prior, children, random));
+    }
+
+    private static void sample(GammaVertex prior, List<PoissonVertex> children, KeanuRandom random) {
+        long[] shape = prior.getShape();
+
+        DoubleTensor k = broadcast(prior.getK().getValue(), shape);
+        DoubleTensor rate = broadcast(prior.getTheta().getValue().reciprocal(), shape);
+
+        for (PoissonVertex child : children) {
+            DoubleTensor counts = child.getValue().toDouble();
+
+            k = k.plus(sumToShape(counts, shape));
+            rate = rate.plus(sumToShape(DoubleTensor.ones(counts.getShape()), shape));
+        }
+
+        prior.setValue(random.nextGamma(shape, rate.reciprocal(), k));
+    }
+}
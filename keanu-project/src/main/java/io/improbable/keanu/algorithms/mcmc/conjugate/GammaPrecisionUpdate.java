@@ -0,0 +1,80 @@
+package io.improbable.keanu.algorithms.mcmc.conjugate;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.PowerVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GammaVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.broadcast;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.childrenOfType;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.likelihoodChildren;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.sumToShape;
+
+/**
+ * A Gamma prior on the precision of Gaussian children, which are parameterised by their standard deviation so use
+ * precision.pow(-0.5) as their sigma. The conditional is Gamma with k increased by half the number of children and
+ * the rate, 1 / theta, increased by half the sum of their squared deviations from their means.
+ */
+class GammaPrecisionUpdate implements ConjugateUpdate {
+
+    private static final double SIGMA_EXPONENT = -0.5;
+
+    @Override
+    public Optional<ConditionalSampler> match(Vertex<?> latent, Set<Vertex> markovBlanket) {
+        if (!(latent instanceof GammaVertex)) {
+            return Optional.empty();
+        }
+
+        Optional<List<PowerVertex>> sigmas = childrenOfType(
+            latent, PowerVertex.class,
+            power -> power.getBase() == latent && isSigmaExponent(power.getExponent())
+        );
+        if (!sigmas.isPresent()) {
+            return Optional.empty();
+        }
+
+        List<GaussianVertex> children = new ArrayList<>();
+        for (PowerVertex sigma : sigmas.get()) {
+            Optional<List<GaussianVertex>> gaussians = likelihoodChildren(
+                sigma, markovBlanket, GaussianVertex.class,
+                child -> child.getSigma() == sigma && child.getMu() != sigma && child.getMu() != latent
+            );
+            if (!gaussians.isPresent()) {
+                return Optional.empty();
+            }
+            children.addAll(gaussians.get());
+        }
+
+        GammaVertex prior = (GammaVertex) latent;
+        return Optional.of(random -> sample(prior, children, random));
+    }
+
+    private static boolean isSigmaExponent(Vertex<DoubleTensor> exponent) {
+        return exponent instanceof ConstantDoubleVertex
+            && exponent.getValue().elementwiseEquals(SIGMA_EXPONENT).allTrue();
+    }
+
+    private static void sample(GammaVertex prior, List<GaussianVertex> children, KeanuRandom random) {
+        long[] shape = prior.getShape();
+
+        DoubleTensor k = broadcast(prior.getK().getValue(), shape);
+        DoubleTensor rate = broadcast(prior.getTheta().getValue().reciprocal(), shape);
+
+        for (GaussianVertex child : children) {
+            DoubleTensor deviation = child.getValue().minus(child.getMu().getValue());
+
+            k = k.plus(sumToShape(DoubleTensor.ones(deviation.getShape()), shape).timesInPlace(0.5));
+            rate = rate.plus(sumToShape(deviation.times(deviation), shape).timesInPlace(0.5));
+        }
+
+        prior.setValue(random.nextGamma(shape, rate.reciprocal(), k));
+    }
+}
@@ -0,0 +1,54 @@
+package io.improbable.keanu.algorithms.mcmc.conjugate;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.broadcast;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.likelihoodChildren;
+import static io.improbable.keanu.algorithms.mcmc.conjugate.ConjugateUpdates.sumToShape;
+
+/**
+ * A Gaussian prior on the mean of Gaussian children. The conditional is Gaussian with a precision of the prior's
+ * precision plus the precision of each child, and a mean of the precision weighted average of the prior's mean and
+ * the children.
+ */
+class GaussianMeanUpdate implements ConjugateUpdate {
+
+    @Override
+    public Optional<ConditionalSampler> match(Vertex<?> latent, Set<Vertex> markovBlanket) {
+        if (!(latent instanceof GaussianVertex)) {
+            return Optional.empty();
+        }
+
+        GaussianVertex prior = (GaussianVertex) latent;
+        return likelihoodChildren(
+            latent, markovBlanket, GaussianVertex.class,
+            child -> child.getMu() == latent && child.getSigma() != latent
+        ).map(children -> random -> sample(prior, children, random));
+    }
+
+    private static void sample(GaussianVertex prior, List<GaussianVertex> children, KeanuRandom random) {
+        long[] shape = prior.getShape();
+
+        DoubleTensor precision = broadcast(prior.getSigma().getValue().pow(-2), shape);
+        DoubleTensor weightedSum = precision.times(prior.getMu().getValue());
+
+        for (GaussianVertex child : children) {
+            DoubleTensor value = child.getValue();
+            DoubleTensor childPrecision = broadcast(child.getSigma().getValue().pow(-2), value.getShape());
+
+            precision = precision.plus(sumToShape(childPrecision, shape));
+            weightedSum = weightedSum.plus(sumToShape(childPrecision.times(value), shape));
+        }
+
+        DoubleTensor variance = precision.reciprocal();
+        DoubleTensor mean = weightedSum.times(variance);
+        prior.setValue(random.nextGaussian(shape).timesInPlace(variance.sqrt()).plusInPlace(mean));
+    }
+}
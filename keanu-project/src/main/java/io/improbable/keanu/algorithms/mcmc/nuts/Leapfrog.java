@@ -1,34 +1,31 @@
 package io.improbable.keanu.algorithms.mcmc.nuts;
 
 import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
-import io.improbable.keanu.tensor.dbl.DoubleTensor;
-import io.improbable.keanu.vertices.Vertex;
-import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.algorithms.mcmc.LatentLayout;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 
 /**
  * Leapfrog performs a movement through physical space with the introduction of a momentum variable.
  * This is required for sampling in Hamiltonian and NUTS.
+ * <p>
+ * The position, momentum and gradient of every latent are each held in one flat array laid out by a
+ * {@link LatentLayout}. A leapfrog never changes its own arrays, as the tree keeps hold of earlier leapfrogs.
  */
 class Leapfrog {
 
-    private final Map<VertexId, DoubleTensor> position;
-    private final Map<VertexId, DoubleTensor> momentum;
-    private final Map<VertexId, DoubleTensor> gradient;
+    private final double[] position;
+    private final double[] momentum;
+    private final double[] gradient;
 
     /**
      * @param position the position of the vertices
      * @param momentum the momentum of the vertices
      * @param gradient the gradient of the vertices
      */
-    Leapfrog(Map<VertexId, DoubleTensor> position,
-             Map<VertexId, DoubleTensor> momentum,
-             Map<VertexId, DoubleTensor> gradient) {
+    Leapfrog(double[] position,
+             double[] momentum,
+             double[] gradient) {
         this.position = position;
         this.momentum = momentum;
         this.gradient = gradient;
@@ -37,78 +34,55 @@ class Leapfrog {
     /**
      * Performs one leapfrog of the vertices with a time delta as defined by epsilon
      *
-     * @param latentVertices                the latent vertices
+     * @param latents                       the layout of the latent vertices
      * @param logProbGradientCalculator     the calculator for the log prob gradient
      * @param epsilon                       the time delta
 
      * @return a new leapfrog having taken one step through space
      */
-    public Leapfrog step(final List<Vertex<DoubleTensor>> latentVertices,
+    public Leapfrog step(final LatentLayout latents,
                          final LogProbGradientCalculator logProbGradientCalculator,
                          final double epsilon) {
 
         final double halfTimeStep = epsilon / 2.0;
 
-        Map<VertexId, DoubleTensor> nextMomentum = stepMomentum(halfTimeStep, momentum, gradient);
-        Map<VertexId, DoubleTensor> nextPosition = stepPosition(latentVertices, halfTimeStep, nextMomentum, position);
-
-        VertexValuePropagation.cascadeUpdate(latentVertices);
-        Map<VertexId, DoubleTensor> nextPositionGradient = logProbGradientCalculator.getJointLogProbGradientWrtLatents();
+        final double[] nextMomentum = new double[momentum.length];
+        final double[] nextPosition = new double[position.length];
 
-        nextMomentum = stepMomentum(halfTimeStep, nextMomentum, nextPositionGradient);
+        for (int i = 0; i < nextMomentum.length; i++) {
+            nextMomentum[i] = momentum[i] + gradient[i] * halfTimeStep;
+            nextPosition[i] = position[i] + nextMomentum[i] * halfTimeStep;
+        }
 
-        return new Leapfrog(nextPosition, nextMomentum, nextPositionGradient);
-    }
+        latents.scatterValues(nextPosition);
+        VertexValuePropagation.cascadeUpdate(latents.getLatentVertices());
+        final double[] nextPositionGradient = latents.gatherGradient(logProbGradientCalculator, latents.newArray());
 
-    private Map<VertexId, DoubleTensor> stepPosition(List<Vertex<DoubleTensor>> latentVertices, double halfTimeStep, Map<VertexId, DoubleTensor> nextMomentum, Map<VertexId, DoubleTensor> position) {
-        Map<VertexId, DoubleTensor> nextPosition = new HashMap<>();
-        for (Vertex<DoubleTensor> latent : latentVertices) {
-            final DoubleTensor nextPositionForLatent = nextMomentum.get(latent.getId()).
-                times(halfTimeStep).
-                plusInPlace(
-                    position.get(latent.getId())
-                );
-            nextPosition.put(latent.getId(), nextPositionForLatent);
-            latent.setValue(nextPositionForLatent);
+        for (int i = 0; i < nextMomentum.length; i++) {
+            nextMomentum[i] += nextPositionGradient[i] * halfTimeStep;
         }
-        return nextPosition;
-    }
 
-    private Map<VertexId, DoubleTensor> stepMomentum(double halfTimeStep, Map<VertexId, DoubleTensor> momentum, Map<VertexId, DoubleTensor> gradient) {
-        Map<VertexId, DoubleTensor> nextMomentum = new HashMap<>();
-        for (Map.Entry<VertexId, DoubleTensor> rEntry : momentum.entrySet()) {
-            final DoubleTensor updatedMomentum = (gradient.get(rEntry.getKey()).times(halfTimeStep)).plusInPlace(rEntry.getValue());
-            nextMomentum.put(rEntry.getKey(), updatedMomentum);
-        }
-        return nextMomentum;
+        return new Leapfrog(nextPosition, nextMomentum, nextPositionGradient);
     }
 
     public double halfDotProductMomentum() {
-        return 0.5 * dotProduct(momentum);
+        return 0.5 * LatentLayout.dotProduct(momentum);
     }
 
-    public Map<VertexId, DoubleTensor> getPosition() {
+    public double[] getPosition() {
         return position;
     }
 
-    public Map<VertexId, DoubleTensor> getMomentum() {
+    public double[] getMomentum() {
         return momentum;
     }
 
-    public Map<VertexId, DoubleTensor> getGradient() {
+    public double[] getGradient() {
         return gradient;
     }
 
-    public Leapfrog makeJumpTo(Map<VertexId, DoubleTensor> position, Map<VertexId, DoubleTensor> gradient) {
+    public Leapfrog makeJumpTo(double[] position, double[] gradient) {
         return new Leapfrog(position, getMomentum(), gradient);
     }
 
-    private static double dotProduct(Map<VertexId, DoubleTensor> momentums) {
-        double dotProduct = 0.0;
-        for (DoubleTensor momentum : momentums.values()) {
-            dotProduct += momentum.pow(2).sum();
-        }
-        return dotProduct;
-    }
-
-}
\ No newline at end of file
+}
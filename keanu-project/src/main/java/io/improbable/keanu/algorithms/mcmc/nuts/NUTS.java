@@ -3,22 +3,20 @@ package io.improbable.keanu.algorithms.mcmc.nuts;
 import com.google.common.base.Preconditions;
 import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
 import io.improbable.keanu.algorithms.Statistics;
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.algorithms.mcmc.LatentLayout;
 import io.improbable.keanu.algorithms.mcmc.NetworkSamplesGenerator;
 import io.improbable.keanu.network.BayesianNetwork;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.util.ProgressBar;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
 import io.improbable.keanu.vertices.Vertex;
-import io.improbable.keanu.vertices.VertexId;
 import io.improbable.keanu.vertices.dbl.KeanuRandom;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
 import lombok.Builder;
 import lombok.Getter;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 import static io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm.takeSample;
 
@@ -79,6 +77,11 @@ public class NUTS implements PosteriorSamplingAlgorithm {
     @Builder.Default
     private int maxTreeHeight = 10;
 
+    //Compiles the graph between the latent vertices and the log prob into a LogProbTape before sampling. This makes
+    //each gradient calculation cheaper in exchange for compiling the tape up front.
+    @Builder.Default
+    private boolean compileGradient = false;
+
     //Sets whether or not to save debug STATISTICS. The STATISTICS available are: Step size, Log Prob, Mean Tree Acceptance Prob, Tree Size.
     @Builder.Default
     private boolean saveStatistics = false;
@@ -97,18 +100,21 @@ public class NUTS implements PosteriorSamplingAlgorithm {
         bayesNet.cascadeObservations();
 
         final List<Vertex<DoubleTensor>> latentVertices = bayesNet.getContinuousLatentVertices();
-        final LogProbGradientCalculator logProbGradientCalculator = new LogProbGradientCalculator(bayesNet.getLatentOrObservedVertices(), latentVertices);
+        final LogProbGradientCalculator logProbGradientCalculator = compileGradient ?
+            LogProbGradientCalculator.compiled(bayesNet.getLatentOrObservedVertices(), latentVertices) :
+            new LogProbGradientCalculator(bayesNet.getLatentOrObservedVertices(), latentVertices);
         List<Vertex> probabilisticVertices = bayesNet.getLatentOrObservedVertices();
 
-        Map<VertexId, DoubleTensor> position = latentVertices.stream().collect(Collectors.toMap(Vertex::getId, Vertex::getValue));
-        Map<VertexId, DoubleTensor> momentum = new HashMap<>();
-        Map<VertexId, DoubleTensor> gradient = logProbGradientCalculator.getJointLogProbGradientWrtLatents();
+        final LatentLayout latents = new LatentLayout(latentVertices);
+        double[] position = latents.gatherValues(latents.newArray());
+        double[] momentum = latents.newArray();
+        double[] gradient = latents.gatherGradient(logProbGradientCalculator, latents.newArray());
 
         double initialLogOfMasterP = ProbabilityCalculator.calculateLogProbFor(probabilisticVertices);
 
         double startingStepSize = (initialStepSize == null) ? Stepsize.findStartingStepSize(position,
             gradient,
-            latentVertices,
+            latents,
             probabilisticVertices,
             logProbGradientCalculator,
             initialLogOfMasterP,
@@ -121,13 +127,14 @@ public class NUTS implements PosteriorSamplingAlgorithm {
             adaptCount
         );
 
-        resetVertexValue(sampleFromVertices, position);
+        latents.scatterValues(position);
+        VertexValuePropagation.cascadeUpdate(latentVertices);
 
         Tree tree = Tree.createInitialTree(position, momentum, gradient, initialLogOfMasterP, takeSample(sampleFromVertices));
 
         return new NUTSSampler(
             sampleFromVertices,
-            latentVertices,
+            latents,
             probabilisticVertices,
             logProbGradientCalculator,
             adaptEnabled,
@@ -144,10 +151,4 @@ public class NUTS implements PosteriorSamplingAlgorithm {
         return statistics;
     }
 
-    private static void resetVertexValue(List<? extends Vertex> sampleFromVertices, Map<VertexId, DoubleTensor> previousPosition) {
-        for (Vertex vertex : sampleFromVertices) {
-            vertex.setValue(previousPosition.get(vertex.getId()));
-        }
-    }
-
 }
@@ -1,17 +1,20 @@
 package io.improbable.keanu.algorithms.mcmc.nuts;
 
 import io.improbable.keanu.algorithms.NetworkSample;
+import io.improbable.keanu.algorithms.SampleLists;
+import io.improbable.keanu.algorithms.SampleSink;
 import io.improbable.keanu.algorithms.Statistics;
+import io.improbable.keanu.algorithms.mcmc.LatentLayout;
 import io.improbable.keanu.algorithms.mcmc.SamplingAlgorithm;
-import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.network.NetworkState;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexId;
 import io.improbable.keanu.vertices.dbl.KeanuRandom;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Algorithm 6: "No-U-Turn Sampler with Dual Averaging".
@@ -21,7 +24,7 @@ import java.util.Map;
 class NUTSSampler implements SamplingAlgorithm {
 
     private final KeanuRandom random;
-    private final List<Vertex<DoubleTensor>> latentVertices;
+    private final LatentLayout latents;
     private final List<? extends Vertex> sampleFromVertices;
     private final List<Vertex> probabilisticVertices;
     private final int maxTreeHeight;
@@ -31,11 +34,12 @@ class NUTSSampler implements SamplingAlgorithm {
     private final LogProbGradientCalculator logProbGradientCalculator;
     private final Statistics statistics;
     private final boolean saveStatistics;
+    private final NetworkState sampleAtAcceptedPosition;
     private int sampleNum;
 
     /**
      * @param sampleFromVertices        vertices to sample from
-     * @param latentVertices            vertices that represent latent variables
+     * @param latents                   the layout of the vertices that represent latent variables
      * @param probabilisticVertices     vertices that contribute to total log probability (i.e. latent + observed)
      * @param logProbGradientCalculator gradient calculator for diff of log prob with respect to latents
      * @param adaptEnabled              enable the NUTS step size adaptation
@@ -47,7 +51,7 @@ class NUTSSampler implements SamplingAlgorithm {
      * @param saveStatistics            whether to record statistics
      */
     public NUTSSampler(List<? extends Vertex> sampleFromVertices,
-                       List<Vertex<DoubleTensor>> latentVertices,
+                       LatentLayout latents,
                        List<Vertex> probabilisticVertices,
                        LogProbGradientCalculator logProbGradientCalculator,
                        boolean adaptEnabled,
@@ -60,7 +64,7 @@ class NUTSSampler implements SamplingAlgorithm {
 
         this.sampleFromVertices = sampleFromVertices;
         this.probabilisticVertices = probabilisticVertices;
-        this.latentVertices = latentVertices;
+        this.latents = latents;
         this.logProbGradientCalculator = logProbGradientCalculator;
 
         this.tree = tree;
@@ -71,6 +75,7 @@ class NUTSSampler implements SamplingAlgorithm {
         this.random = random;
         this.statistics = statistics;
         this.saveStatistics = saveStatistics;
+        this.sampleAtAcceptedPosition = new SampleAtAcceptedPosition(tree);
 
         this.sampleNum = 1;
     }
@@ -88,13 +93,23 @@ class NUTSSampler implements SamplingAlgorithm {
         return new NetworkSample(tree.getSampleAtAcceptedPosition(), tree.getLogOfMasterPAtAcceptedPosition());
     }
 
+    /**
+     * The network is left at the end of the last leapfrog rather than at the accepted position, so the sink is given
+     * a view of the sample the tree took at the accepted position rather than of the network.
+     */
+    @Override
+    public void sample(SampleSink sink) {
+        step();
+        sink.accept(sampleAtAcceptedPosition, tree.getLogOfMasterPAtAcceptedPosition());
+    }
+
     @Override
     public void step() {
 
-        initializeMomentumForEachVertex(latentVertices, tree.getForwardMomentum(), random);
-        cache(tree.getForwardMomentum(), tree.getBackwardMomentum());
+        latents.gatherGaussian(random, tree.getForwardMomentum());
+        System.arraycopy(tree.getForwardMomentum(), 0, tree.getBackwardMomentum(), 0, latents.getLength());
 
-        double logOfMasterPMinusMomentumBeforeLeapfrog = tree.getLogOfMasterPAtAcceptedPosition() - 0.5 * dotProduct(tree.getForwardMomentum());
+        double logOfMasterPMinusMomentumBeforeLeapfrog = tree.getLogOfMasterPAtAcceptedPosition() - 0.5 * LatentLayout.dotProduct(tree.getForwardMomentum());
 
         double logU = Math.log(random.nextDouble()) + logOfMasterPMinusMomentumBeforeLeapfrog;
 
@@ -108,7 +123,7 @@ class NUTSSampler implements SamplingAlgorithm {
 
             Tree otherHalfTree = Tree.buildOtherHalfOfTree(
                 tree,
-                latentVertices,
+                latents,
                 probabilisticVertices,
                 logProbGradientCalculator,
                 sampleFromVertices,
@@ -156,28 +171,6 @@ class NUTSSampler implements SamplingAlgorithm {
         tree.save(statistics);
     }
 
-    private static void initializeMomentumForEachVertex(List<Vertex<DoubleTensor>> vertices,
-                                                        Map<VertexId, DoubleTensor> momentums,
-                                                        KeanuRandom random) {
-        for (Vertex<DoubleTensor> vertex : vertices) {
-            momentums.put(vertex.getId(), random.nextGaussian(vertex.getShape()));
-        }
-    }
-
-    private static void cache(Map<VertexId, DoubleTensor> from, Map<VertexId, DoubleTensor> to) {
-        for (Map.Entry<VertexId, DoubleTensor> entry : from.entrySet()) {
-            to.put(entry.getKey(), entry.getValue());
-        }
-    }
-
-    private static double dotProduct(Map<VertexId, DoubleTensor> momentums) {
-        double dotProduct = 0.0;
-        for (DoubleTensor momentum : momentums.values()) {
-            dotProduct += momentum.pow(2).sum();
-        }
-        return dotProduct;
-    }
-
     /**
      * This is used to save of the sample from the uniformly chosen acceptedPosition position
      *
@@ -191,8 +184,35 @@ class NUTSSampler implements SamplingAlgorithm {
     }
 
     private static <T> void addSampleForVertex(VertexId id, T value, Map<VertexId, List<?>> samples) {
-        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(id, v -> new ArrayList<T>());
+        List<T> samplesForVertex = (List<T>) samples.computeIfAbsent(id, v -> SampleLists.newSampleList(value));
         samplesForVertex.add(value);
     }
 
+    /**
+     * A view of the sample at the tree's accepted position, which follows the tree as the accepted position changes.
+     */
+    private static class SampleAtAcceptedPosition implements NetworkState {
+
+        private final Tree tree;
+
+        SampleAtAcceptedPosition(Tree tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        public <T> T get(Vertex<T> vertex) {
+            return get(vertex.getId());
+        }
+
+        @Override
+        public <T> T get(VertexId vertexId) {
+            return (T) tree.getSampleAtAcceptedPosition().get(vertexId);
+        }
+
+        @Override
+        public Set<VertexId> getVertexIds() {
+            return tree.getSampleAtAcceptedPosition().keySet();
+        }
+    }
+
 }
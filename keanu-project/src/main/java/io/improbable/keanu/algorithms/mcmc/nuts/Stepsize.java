@@ -2,16 +2,13 @@ package io.improbable.keanu.algorithms.mcmc.nuts;
 
 import io.improbable.keanu.algorithms.SaveStatistics;
 import io.improbable.keanu.algorithms.Statistics;
-import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.algorithms.mcmc.LatentLayout;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
 import io.improbable.keanu.vertices.Vertex;
-import io.improbable.keanu.vertices.VertexId;
 import io.improbable.keanu.vertices.dbl.KeanuRandom;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
 
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 
 /**
@@ -50,31 +47,27 @@ class Stepsize implements SaveStatistics {
      *
      * @param position                  the starting position
      * @param gradient                  the gradient at the starting position
-     * @param vertices                  the vertices
+     * @param latents                   the layout of the latent vertices
      * @param probabilisticVertices     the probabilistic vertices
      * @param logProbGradientCalculator the log prob gradient calculator
      * @param initialLogOfMasterP       the initial master log prob
      * @param random                    the source of randomness
      * @return a starting step size
      */
-    public static double findStartingStepSize(Map<VertexId, DoubleTensor> position,
-                                              Map<VertexId, DoubleTensor> gradient,
-                                              List<Vertex<DoubleTensor>> vertices,
+    public static double findStartingStepSize(double[] position,
+                                              double[] gradient,
+                                              LatentLayout latents,
                                               List<Vertex> probabilisticVertices,
                                               LogProbGradientCalculator logProbGradientCalculator,
                                               double initialLogOfMasterP,
                                               KeanuRandom random) {
         double stepsize = STARTING_STEPSIZE;
-        Map<VertexId, DoubleTensor> momentums = vertices.stream()
-            .collect(Collectors.toMap(
-                Vertex::getId,
-                v -> random.nextGaussian(v.getShape())
-            ));
+        double[] momentum = latents.gatherGaussian(random, latents.newArray());
 
-        Leapfrog leapfrog = new Leapfrog(position, momentums, gradient);
+        Leapfrog leapfrog = new Leapfrog(position, momentum, gradient);
         double pThetaR = initialLogOfMasterP - leapfrog.halfDotProductMomentum();
 
-        Leapfrog delta = leapfrog.step(vertices, logProbGradientCalculator, STARTING_STEPSIZE);
+        Leapfrog delta = leapfrog.step(latents, logProbGradientCalculator, STARTING_STEPSIZE);
 
         double probAfterLeapfrog = ProbabilityCalculator.calculateLogProbFor(probabilisticVertices);
         double pThetaRAfterLeapFrog = probAfterLeapfrog - delta.halfDotProductMomentum();
@@ -85,7 +78,7 @@ class Stepsize implements SaveStatistics {
         while (scalingFactor * logLikelihoodRatio > -scalingFactor * Math.log(2)) {
             stepsize = stepsize * Math.pow(2, scalingFactor);
 
-            delta = leapfrog.step(vertices, logProbGradientCalculator, stepsize);
+            delta = leapfrog.step(latents, logProbGradientCalculator, stepsize);
             probAfterLeapfrog = ProbabilityCalculator.calculateLogProbFor(probabilisticVertices);
             pThetaRAfterLeapFrog = probAfterLeapfrog - delta.halfDotProductMomentum();
 
@@ -2,7 +2,7 @@ package io.improbable.keanu.algorithms.mcmc.nuts;
 
 import io.improbable.keanu.algorithms.SaveStatistics;
 import io.improbable.keanu.algorithms.Statistics;
-import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.algorithms.mcmc.LatentLayout;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexId;
@@ -31,8 +31,8 @@ class Tree implements SaveStatistics {
 
     private Leapfrog leapfrogForward;
     private Leapfrog leapfrogBackward;
-    private Map<VertexId, DoubleTensor> acceptedPosition;
-    private Map<VertexId, DoubleTensor> gradientAtAcceptedPosition;
+    private double[] acceptedPosition;
+    private double[] gradientAtAcceptedPosition;
     private double logOfMasterPAtAcceptedPosition;
     private Map<VertexId, ?> sampleAtAcceptedPosition;
     private int acceptedLeapfrogCount;
@@ -79,9 +79,9 @@ class Tree implements SaveStatistics {
      * @param sampleAtAcceptedPosition the initial sample
      * @return a basic tree
      */
-    public static Tree createInitialTree(Map<VertexId, DoubleTensor> position,
-                                         Map<VertexId, DoubleTensor> momentum,
-                                         Map<VertexId, DoubleTensor> gradient,
+    public static Tree createInitialTree(double[] position,
+                                         double[] momentum,
+                                         double[] gradient,
                                          double initialLogOfMasterP,
                                          Map<VertexId, ?> sampleAtAcceptedPosition) {
 
@@ -97,7 +97,7 @@ class Tree implements SaveStatistics {
     }
 
     public static Tree buildOtherHalfOfTree(Tree currentTree,
-                                            List<Vertex<DoubleTensor>> latentVertices,
+                                            LatentLayout latents,
                                             List<Vertex> probabilisticVertices,
                                             LogProbGradientCalculator logProbGradientCalculator,
                                             final List<? extends Vertex> sampleFromVertices,
@@ -109,7 +109,7 @@ class Tree implements SaveStatistics {
                                             KeanuRandom random) {
 
         Tree otherHalfTree = buildTree(
-            latentVertices,
+            latents,
             probabilisticVertices,
             logProbGradientCalculator,
             sampleFromVertices,
@@ -131,7 +131,7 @@ class Tree implements SaveStatistics {
         return otherHalfTree;
     }
 
-    private static Tree buildTree(List<Vertex<DoubleTensor>> latentVertices,
+    private static Tree buildTree(LatentLayout latents,
                                   List<Vertex> probabilisticVertices,
                                   LogProbGradientCalculator logProbGradientCalculator,
                                   final List<? extends Vertex> sampleFromVertices,
@@ -146,7 +146,7 @@ class Tree implements SaveStatistics {
 
             //Base case-take one leapfrog step in the build direction
 
-            return treeBuilderBaseCase(latentVertices,
+            return treeBuilderBaseCase(latents,
                 probabilisticVertices,
                 logProbGradientCalculator,
                 sampleFromVertices,
@@ -161,7 +161,7 @@ class Tree implements SaveStatistics {
             //Recursion-implicitly build the left and right subtrees.
 
             Tree tree = buildTree(
-                latentVertices,
+                latents,
                 probabilisticVertices,
                 logProbGradientCalculator,
                 sampleFromVertices,
@@ -179,7 +179,7 @@ class Tree implements SaveStatistics {
 
                 Tree otherHalfTree = buildOtherHalfOfTree(
                     tree,
-                    latentVertices,
+                    latents,
                     probabilisticVertices,
                     logProbGradientCalculator,
                     sampleFromVertices,
@@ -212,7 +212,7 @@ class Tree implements SaveStatistics {
 
     }
 
-    private static Tree treeBuilderBaseCase(List<Vertex<DoubleTensor>> latentVertices,
+    private static Tree treeBuilderBaseCase(LatentLayout latents,
                                             List<Vertex> probabilisticVertices,
                                             LogProbGradientCalculator logProbGradientCalculator,
                                             final List<? extends Vertex> sampleFromVertices,
@@ -222,7 +222,7 @@ class Tree implements SaveStatistics {
                                             double epsilon,
                                             double logOfMasterPMinusMomentumBeforeLeapfrog) {
 
-        leapfrog = leapfrog.step(latentVertices, logProbGradientCalculator, epsilon * buildDirection);
+        leapfrog = leapfrog.step(latents, logProbGradientCalculator, epsilon * buildDirection);
 
         final double logOfMasterPAfterLeapfrog = ProbabilityCalculator.calculateLogProbFor(probabilisticVertices);
 
@@ -260,22 +260,18 @@ class Tree implements SaveStatistics {
         }
     }
 
-    private static boolean isNotUTurning(Map<VertexId, DoubleTensor> positionForward,
-                                         Map<VertexId, DoubleTensor> positionBackward,
-                                         Map<VertexId, DoubleTensor> momentumForward,
-                                         Map<VertexId, DoubleTensor> momentumBackward) {
+    private static boolean isNotUTurning(double[] positionForward,
+                                         double[] positionBackward,
+                                         double[] momentumForward,
+                                         double[] momentumBackward) {
         double forward = 0.0;
         double backward = 0.0;
 
-        for (Map.Entry<VertexId, DoubleTensor> forwardPositionForLatent : positionForward.entrySet()) {
+        for (int i = 0; i < positionForward.length; i++) {
+            final double forwardMinusBackward = positionForward[i] - positionBackward[i];
 
-            final VertexId latentId = forwardPositionForLatent.getKey();
-            final DoubleTensor forwardMinusBackward = forwardPositionForLatent.getValue().minus(
-                positionBackward.get(latentId)
-            );
-
-            forward += forwardMinusBackward.times(momentumForward.get(latentId)).sum();
-            backward += forwardMinusBackward.timesInPlace(momentumBackward.get(latentId)).sum();
+            forward += forwardMinusBackward * momentumForward[i];
+            backward += forwardMinusBackward * momentumBackward[i];
         }
 
         return (forward >= 0.0) && (backward >= 0.0);
@@ -331,19 +327,19 @@ class Tree implements SaveStatistics {
         return logOfMasterPAtAcceptedPosition;
     }
 
-    public Map<VertexId, DoubleTensor> getForwardPosition() {
+    public double[] getForwardPosition() {
         return leapfrogForward.getPosition();
     }
 
-    public Map<VertexId, DoubleTensor> getBackwardPosition() {
+    public double[] getBackwardPosition() {
         return leapfrogBackward.getPosition();
     }
 
-    public Map<VertexId, DoubleTensor> getForwardMomentum() {
+    public double[] getForwardMomentum() {
         return leapfrogForward.getMomentum();
     }
 
-    public Map<VertexId, DoubleTensor> getBackwardMomentum() {
+    public double[] getBackwardMomentum() {
         return leapfrogBackward.getMomentum();
     }
 
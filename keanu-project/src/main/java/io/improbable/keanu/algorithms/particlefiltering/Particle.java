@@ -1,25 +1,41 @@
 package io.improbable.keanu.algorithms.particlefiltering;
 
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
-import io.improbable.keanu.vertices.ProbabilityCalculator;
 import io.improbable.keanu.vertices.Vertex;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * Represents a Particle used in a Particle Filter.
  * A Particle can be thought of as a particular instance of the network with state and an associated probability.
+ * <p>
+ * The log probability is kept as a running total that each increment of the filter adds to. Latent values are
+ * shared with the particle this one was copied from, so copying a particle doesn't depend on how many latents
+ * it holds.
  */
 public class Particle {
 
-    private Map<Vertex, Object> latentVertices = new HashMap<>();
-    private List<Vertex> observedVertices = new ArrayList<>();
-    private double sumLogPOfSubgraph = 1.0;
+    private Map<Vertex, Object> addedLatentValues = new HashMap<>();
+    private LatentValues earlierLatentValues;
+    private double sumLogPOfSubgraph = 0.0;
 
+    /**
+     * @return the value of every latent vertex in this particle
+     */
     public Map<Vertex, Object> getLatentVertices() {
+        Deque<LatentValues> oldestFirst = new ArrayDeque<>();
+        for (LatentValues layer = earlierLatentValues; layer != null; layer = layer.older) {
+            oldestFirst.push(layer);
+        }
+
+        Map<Vertex, Object> latentVertices = new HashMap<>();
+        for (LatentValues layer : oldestFirst) {
+            latentVertices.putAll(layer.values);
+        }
+        latentVertices.putAll(addedLatentValues);
         return latentVertices;
     }
 
@@ -31,33 +47,34 @@ public class Particle {
     }
 
     public double getScalarValueOfVertex(Vertex<DoubleTensor> vertex) {
-        return ((DoubleTensor) latentVertices.get(vertex)).scalar();
+        return getValueOfVertex(vertex).scalar();
     }
 
-    public <T> T getValueOfVertex(Vertex<T> vertex){
-        return (T) latentVertices.get(vertex);
+    public <T> T getValueOfVertex(Vertex<T> vertex) {
+        Object value = addedLatentValues.get(vertex);
+        for (LatentValues layer = earlierLatentValues; value == null && layer != null; layer = layer.older) {
+            value = layer.values.get(vertex);
+        }
+        return (T) value;
     }
 
     <T> void addLatentVertex(Vertex<T> vertex, T value) {
-        latentVertices.put(vertex, value);
-    }
-
-    <T> void addObservedVertex(Vertex<T> vertex) {
-        observedVertices.add(vertex);
+        addedLatentValues.put(vertex, value);
     }
 
-    double updateSumLogPOfSubgraph() {
-        applyLatentVertexValues();
-        double sumLogPOfLatents = ProbabilityCalculator.calculateLogProbFor(latentVertices.keySet());
-        double sumLogPOfObservables = ProbabilityCalculator.calculateLogProbFor(observedVertices);
-        sumLogPOfSubgraph = sumLogPOfLatents + sumLogPOfObservables;
-        return sumLogPOfSubgraph;
+    void addToSumLogPOfSubgraph(double logProb) {
+        sumLogPOfSubgraph += logProb;
     }
 
     Particle shallowCopy() {
+        if (!addedLatentValues.isEmpty()) {
+            earlierLatentValues = LatentValues.push(addedLatentValues, earlierLatentValues);
+            addedLatentValues = new HashMap<>();
+        }
+
         Particle clone = new Particle();
-        clone.latentVertices = new HashMap<>(this.latentVertices);
-        clone.observedVertices = new ArrayList<>(this.observedVertices);
+        clone.earlierLatentValues = this.earlierLatentValues;
+        clone.sumLogPOfSubgraph = this.sumLogPOfSubgraph;
         return clone;
     }
 
@@ -65,14 +82,29 @@ public class Particle {
         return Double.compare(b.logProb(), a.logProb());
     }
 
-    private void applyLatentVertexValues() {
-        latentVertices.keySet().forEach(this::applyLatentVertexValue);
-    }
+    /**
+     * An immutable layer of latent values that may be shared between particles, on top of older layers. Each
+     * layer is kept smaller than the one below it by merging, so a lookup only visits a logarithmic number of
+     * layers.
+     */
+    private static class LatentValues {
+
+        private final Map<Vertex, Object> values;
+        private final LatentValues older;
+
+        private LatentValues(Map<Vertex, Object> values, LatentValues older) {
+            this.values = values;
+            this.older = older;
+        }
 
-    private <T> void applyLatentVertexValue(Vertex<T> vertex) {
-        if (latentVertices.containsKey(vertex)) {
-            T value = (T) latentVertices.get(vertex);
-            vertex.setAndCascade(value);
+        static LatentValues push(Map<Vertex, Object> values, LatentValues older) {
+            LatentValues layer = new LatentValues(values, older);
+            while (layer.older != null && layer.older.values.size() <= layer.values.size()) {
+                Map<Vertex, Object> merged = new HashMap<>(layer.older.values);
+                merged.putAll(layer.values);
+                layer = new LatentValues(merged, layer.older.older);
+            }
+            return layer;
         }
     }
 }
@@ -1,13 +1,26 @@
 package io.improbable.keanu.algorithms.particlefiltering;
 
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.LambdaSection;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.KeanuRandom;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /***
  * This class allows you to create particle filters to find likely states of a network (i.e. Particles)
@@ -23,13 +36,21 @@ import java.util.Set;
  *
  * This methodology is similar to the Sequential Importance Resampling Algorithm described here
  * (https://www.lancaster.ac.uk/pg/turnerl/PartileFiltering.pdf).
+ *
+ * Particles are resampled by systematic resampling over their normalised weights, and only when their effective
+ * sample size drops below the resampling threshold. Particles can be propagated in parallel, in which case each
+ * thread samples and scores its share of the particles against its own copy of the network.
  */
 public class ParticleFilter {
+    private static final Comparator<Vertex> BY_ID = Comparator.comparing(Vertex::getId, Comparator.naturalOrder());
+
     private Collection<? extends Vertex> vertices;
     private int numParticles;
     private int resamplingCycles;
     private double resamplingProportion;
+    private double resamplingThreshold;
     private KeanuRandom random;
+    private List<Propagator> propagators;
     private List<Particle> particles;
 
     /**
@@ -50,12 +71,52 @@ public class ParticleFilter {
                           int resamplingCycles,
                           double resamplingProportion,
                           KeanuRandom random) {
+        this(vertices, numParticles, resamplingCycles, resamplingProportion, 1.0, random, null, 1);
+    }
+
+    /**
+     * @param vertices             the vertices of a Bayesian network to find probable values for
+     * @param numParticles         the number of particles to generate
+     * @param resamplingCycles     the number of times low probability particles are culled each time the subgraph
+     *                             under consideration is expanded
+     * @param resamplingProportion the proportion of particles to cull
+     * @param resamplingThreshold  the effective sample size, as a proportion of the number of particles, below
+     *                             which the particles are resampled by weight when the subgraph is expanded
+     * @param random               the source of randomness
+     * @param networkBuilder       builds a network with the same vertices, created in the same order, as the one
+     *                             the vertices are from. It is called once for every thread but the first. May be
+     *                             null if threadCount is 1.
+     * @param threadCount          the number of threads to propagate particles on
+     */
+    public ParticleFilter(Collection<? extends Vertex> vertices,
+                          int numParticles,
+                          int resamplingCycles,
+                          double resamplingProportion,
+                          double resamplingThreshold,
+                          KeanuRandom random,
+                          Supplier<BayesianNetwork> networkBuilder,
+                          int threadCount) {
+        Preconditions.checkArgument(threadCount > 0, "Thread count of %s is invalid. Must use at least one thread.", threadCount);
+        Preconditions.checkArgument(threadCount == 1 || networkBuilder != null, "A network builder is needed to propagate on more than one thread");
+
         this.vertices = vertices;
         this.numParticles = numParticles;
         this.resamplingCycles = resamplingCycles;
         this.resamplingProportion = resamplingProportion;
+        this.resamplingThreshold = resamplingThreshold;
         this.random = random;
-        sort();
+        this.propagators = createPropagators(networkBuilder, threadCount);
+
+        if (propagators.size() == 1) {
+            sort(null);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threadCount);
+            try {
+                sort(pool);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
     }
 
     /**
@@ -74,7 +135,35 @@ public class ParticleFilter {
         return particles;
     }
 
-    private void sort() {
+    private List<Propagator> createPropagators(Supplier<BayesianNetwork> networkBuilder, int threadCount) {
+        List<Propagator> propagators = new ArrayList<>(threadCount);
+        if (threadCount == 1) {
+            propagators.add(new Propagator(null, random));
+            return propagators;
+        }
+
+        List<Vertex> originalVertices = new ArrayList<>(vertices);
+        originalVertices.sort(BY_ID);
+
+        propagators.add(new Propagator(null, new KeanuRandom(random.nextLong())));
+        for (int i = 1; i < threadCount; i++) {
+            List<Vertex> copiedVertices = new ArrayList<>(networkBuilder.get().getAllVertices());
+            copiedVertices.sort(BY_ID);
+            Preconditions.checkArgument(
+                copiedVertices.size() == originalVertices.size(),
+                "The network builder built %s vertices but the particle filter has %s", copiedVertices.size(), originalVertices.size()
+            );
+
+            Map<Vertex, Vertex> copies = new HashMap<>();
+            for (int j = 0; j < originalVertices.size(); j++) {
+                copies.put(originalVertices.get(j), copiedVertices.get(j));
+            }
+            propagators.add(new Propagator(copies, new KeanuRandom(random.nextLong())));
+        }
+        return propagators;
+    }
+
+    private void sort(ForkJoinPool pool) {
         Map<Vertex, Set<Vertex>> obsVertIncrDependencies = LatentIncrementSort.sort(this.vertices);
         List<Vertex> observedVertexOrder = new ArrayList<>(obsVertIncrDependencies.keySet());
         List<Particle> particles = createEmptyParticles(this.numParticles);
@@ -82,24 +171,24 @@ public class ParticleFilter {
         for (int i = 0; i < observedVertexOrder.size(); i++) {
             Vertex<?> nextObsVertex = observedVertexOrder.get(i);
             Set<Vertex> vertexDeps = obsVertIncrDependencies.get(nextObsVertex);
-            particles = updateParticles(nextObsVertex, vertexDeps, particles);
+            particles = updateParticles(new Increment(nextObsVertex, vertexDeps), particles, pool);
         }
 
         this.particles = particles;
     }
 
-    private List<Particle> updateParticles(Vertex<?> nextObservedVertex,
-                                                  Set<Vertex> vertexDeps,
-                                                  List<Particle> particles) {
+    private List<Particle> updateParticles(Increment increment,
+                                           List<Particle> particles,
+                                           ForkJoinPool pool) {
 
-        List<Particle> updatedParticles = sampleAndCopy(particles, numParticles);
-        addObservedVertexToParticles(updatedParticles, nextObservedVertex, vertexDeps);
+        List<Particle> updatedParticles = resampleIfDegenerate(particles);
+        addIncrementToParticles(updatedParticles, increment, pool);
 
         for (int i = 0; i < this.resamplingCycles; i++) {
             updatedParticles = removeWorstParticles(updatedParticles);
             int numToSample = this.numParticles - updatedParticles.size();
             List<Particle> sampledParticles = sampleAndCopy(particles, numToSample);
-            addObservedVertexToParticles(sampledParticles, nextObservedVertex, vertexDeps);
+            addIncrementToParticles(sampledParticles, increment, pool);
             updatedParticles.addAll(sampledParticles);
         }
 
@@ -117,23 +206,41 @@ public class ParticleFilter {
         return emptyParticles;
     }
 
-    private void addObservedVertexToParticles(List<Particle> particles,
-                                                     Vertex<?> observedVertex,
-                                                     Set<Vertex> vertexDependencies) {
-
-        for (Particle particle : particles) {
-            particle.addObservedVertex(observedVertex);
-            for (Vertex<?> latentVertex : vertexDependencies) {
-                sampleValueAndAddToParticle(latentVertex, particle);
-            }
+    /**
+     * Samples the new latent vertices of an increment for each particle, conditioned on the values the particle
+     * already has, and adds the log prob of the new latents and the observation to the particle's running total.
+     * The particles are split evenly between the propagators, one per thread.
+     */
+    private void addIncrementToParticles(List<Particle> particles, Increment increment, ForkJoinPool pool) {
+        if (pool == null) {
+            propagators.get(0).propagate(particles, increment);
+            return;
+        }
 
-            particle.updateSumLogPOfSubgraph();
+        int threadCount = propagators.size();
+        List<Callable<Void>> tasks = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            Propagator propagator = propagators.get(i);
+            List<Particle> share = particles.subList(
+                (int) ((long) particles.size() * i / threadCount),
+                (int) ((long) particles.size() * (i + 1) / threadCount)
+            );
+            tasks.add(() -> {
+                propagator.propagate(share, increment);
+                return null;
+            });
         }
-    }
 
-    private <T> void sampleValueAndAddToParticle(Vertex<T> vertex, Particle particle) {
-        T sample = vertex.sample(random);
-        particle.addLatentVertex(vertex, sample);
+        try {
+            for (Future<Void> task : pool.invokeAll(tasks)) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while propagating particles", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to propagate particles", e.getCause());
+        }
     }
 
     private List<Particle> removeWorstParticles(List<Particle> particles) {
@@ -143,30 +250,124 @@ public class ParticleFilter {
         return new ArrayList<>(particlesToKeep);
     }
 
+    /**
+     * Carries every particle forward as it is, unless the effective sample size of the particles has fallen below
+     * the resampling threshold, in which case they are all resampled by weight.
+     */
+    private List<Particle> resampleIfDegenerate(List<Particle> particles) {
+        ParticleWeights weights = new ParticleWeights(particles);
+        if (particles.size() == numParticles && weights.getEffectiveSampleSize() >= resamplingThreshold * numParticles) {
+            List<Particle> copiedParticles = new ArrayList<>(numParticles);
+            for (Particle particle : particles) {
+                copiedParticles.add(particle.shallowCopy());
+            }
+            return copiedParticles;
+        }
+
+        return sampleAndCopy(particles, weights, numParticles);
+    }
+
     private List<Particle> sampleAndCopy(List<Particle> particles, int numToSample) {
+        return sampleAndCopy(particles, new ParticleWeights(particles), numToSample);
+    }
 
-        double sumWeights = particles.stream().mapToDouble(p -> Math.exp(p.logProb())).sum();
-        List<Particle> sampledParticles = new ArrayList<>();
-        for (int i = 0; i < numToSample; i++) {
-            Particle sampledParticle = weightedRandomParticle(particles, sumWeights);
-            sampledParticles.add(sampledParticle.shallowCopy());
+    private List<Particle> sampleAndCopy(List<Particle> particles, ParticleWeights weights, int numToSample) {
+
+        List<Particle> sampledParticles = new ArrayList<>(numToSample);
+        for (int index : weights.sampleSystematically(numToSample, random)) {
+            sampledParticles.add(particles.get(index).shallowCopy());
         }
 
         return sampledParticles;
     }
 
-    private Particle weightedRandomParticle(List<Particle> particles, double sumWeights) {
-        double r = random.nextDouble() * sumWeights;
-        double cumulativeWeight = 0;
-        Particle p = particles.get(0);
-        for (int i = 0; i < particles.size(); i++) {
-            p = particles.get(i);
-            cumulativeWeight += Math.exp(p.logProb());
-            if (cumulativeWeight > r) {
-                break;
+    /**
+     * The vertices that one observed vertex adds to the subgraph under consideration. Only these change the log
+     * prob of a particle, so a particle is updated by adding their log prob to its running total.
+     */
+    private static class Increment {
+
+        private final List<Vertex> newLatentVertices;
+        private final List<Vertex> newProbabilisticVertices;
+        private final List<Vertex> earlierLatentDependencies;
+
+        /**
+         * @param observedVertex  the observed vertex being added
+         * @param latentVertices  the latent vertices that are added with it
+         */
+        Increment(Vertex<?> observedVertex, Set<Vertex> latentVertices) {
+            this.newLatentVertices = new ArrayList<>(latentVertices);
+            this.newLatentVertices.sort(BY_ID);
+
+            this.newProbabilisticVertices = new ArrayList<>(newLatentVertices);
+            this.newProbabilisticVertices.add(observedVertex);
+
+            Set<Vertex> earlierLatents = new HashSet<>();
+            for (Vertex<?> vertex : newProbabilisticVertices) {
+                for (Vertex<?> upstream : LambdaSection.getUpstreamLambdaSection(vertex, false).getLatentAndObservedVertices()) {
+                    if (!upstream.isObserved() && !latentVertices.contains(upstream)) {
+                        earlierLatents.add(upstream);
+                    }
+                }
+            }
+            this.earlierLatentDependencies = new ArrayList<>(earlierLatents);
+        }
+    }
+
+    /**
+     * Samples and scores particles against one copy of the network. Each thread has its own propagator, so that
+     * threads never write to the same vertices.
+     */
+    private static class Propagator {
+
+        private final Map<Vertex, Vertex> copies;
+        private final KeanuRandom random;
+
+        /**
+         * @param copies the copy of each vertex of the filtered network that this propagator uses, or null to use
+         *               the filtered network itself
+         * @param random the source of randomness for this propagator
+         */
+        Propagator(Map<Vertex, Vertex> copies, KeanuRandom random) {
+            this.copies = copies;
+            this.random = random;
+        }
+
+        void propagate(List<Particle> particles, Increment increment) {
+            List<Vertex> earlierLatents = copiesOf(increment.earlierLatentDependencies);
+            List<Vertex> newLatents = copiesOf(increment.newLatentVertices);
+            List<Vertex> newProbabilistic = copiesOf(increment.newProbabilisticVertices);
+
+            for (Particle particle : particles) {
+                for (int i = 0; i < earlierLatents.size(); i++) {
+                    earlierLatents.get(i).setValue(particle.getValueOfVertex(increment.earlierLatentDependencies.get(i)));
+                }
+                VertexValuePropagation.cascadeUpdate(earlierLatents);
+
+                for (int i = 0; i < newLatents.size(); i++) {
+                    sampleValueAndAddToParticle(newLatents.get(i), increment.newLatentVertices.get(i), particle);
+                }
+
+                particle.addToSumLogPOfSubgraph(ProbabilityCalculator.calculateLogProbFor(newProbabilistic));
             }
         }
 
-        return p;
+        private <T> void sampleValueAndAddToParticle(Vertex<T> vertex, Vertex<T> original, Particle particle) {
+            T sample = vertex.sample(random);
+            vertex.setAndCascade(sample);
+            particle.addLatentVertex(original, sample);
+        }
+
+        private List<Vertex> copiesOf(List<Vertex> vertices) {
+            if (copies == null) {
+                return vertices;
+            }
+
+            List<Vertex> copiesOfVertices = new ArrayList<>(vertices.size());
+            for (Vertex vertex : vertices) {
+                copiesOfVertices.add(copies.get(vertex));
+            }
+            return copiesOfVertices;
+        }
     }
 }
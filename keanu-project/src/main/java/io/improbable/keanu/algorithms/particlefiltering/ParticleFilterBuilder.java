@@ -1,9 +1,11 @@
 package io.improbable.keanu.algorithms.particlefiltering;
 
+import io.improbable.keanu.network.BayesianNetwork;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.KeanuRandom;
 
 import java.util.Collection;
+import java.util.function.Supplier;
 
 public class ParticleFilterBuilder {
 
@@ -11,7 +13,10 @@ public class ParticleFilterBuilder {
     private int numParticles = 1000;
     private int resamplingCycles = 3;
     private double resamplingProportion = 0.5;
+    private double resamplingThreshold = 1.0;
     private KeanuRandom random = KeanuRandom.getDefaultRandom();
+    private Supplier<BayesianNetwork> networkBuilder = null;
+    private int threadCount = 1;
 
     /**
      * @param vertices the vertices of a Bayesian network to find probable values for
@@ -50,6 +55,32 @@ public class ParticleFilterBuilder {
         return this;
     }
 
+    /**
+     * @param resamplingThreshold the effective sample size, as a proportion of the number of particles, below which
+     *                            particles are resampled by weight each time the subgraph under consideration is
+     *                            expanded. Above it every particle is carried forward as it is.
+     * @return this
+     */
+    public ParticleFilterBuilder withResamplingThreshold(double resamplingThreshold) {
+        this.resamplingThreshold = resamplingThreshold;
+        return this;
+    }
+
+    /**
+     * Propagates particles on several threads. Each thread other than the first samples and scores its particles
+     * against its own copy of the network, built by the network builder.
+     *
+     * @param networkBuilder builds a new network with the same vertices, created in the same order, as the network
+     *                       being filtered each time it is called
+     * @param threadCount    the number of threads to propagate particles on
+     * @return this
+     */
+    public ParticleFilterBuilder withParallelPropagation(Supplier<BayesianNetwork> networkBuilder, int threadCount) {
+        this.networkBuilder = networkBuilder;
+        this.threadCount = threadCount;
+        return this;
+    }
+
     /**
      * @param random A {@link KeanuRandom KeanuRandom} used for stochastic parts of algorithm
      * @return this
@@ -60,6 +91,7 @@ public class ParticleFilterBuilder {
     }
 
     public ParticleFilter build() {
-        return new ParticleFilter(vertices, numParticles, resamplingCycles, resamplingProportion, random);
+        return new ParticleFilter(vertices, numParticles, resamplingCycles, resamplingProportion, resamplingThreshold,
+            random, networkBuilder, threadCount);
     }
 }
@@ -0,0 +1,75 @@
+package io.improbable.keanu.algorithms.particlefiltering;
+
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+
+import java.util.List;
+
+/**
+ * The normalised weights of a list of particles, proportional to the exponent of their log probs.
+ * <p>
+ * The weights are normalised relative to the most probable particle before taking the exponent, so they don't
+ * underflow to zero however small the log probs get.
+ */
+class ParticleWeights {
+
+    private final double[] cumulativeWeights;
+    private final double effectiveSampleSize;
+
+    ParticleWeights(List<Particle> particles) {
+        int count = particles.size();
+        double maxLogProb = Double.NEGATIVE_INFINITY;
+        for (Particle particle : particles) {
+            maxLogProb = Math.max(maxLogProb, particle.logProb());
+        }
+
+        double[] weights = new double[count];
+        double sumWeights = 0.0;
+        double sumSquaredWeights = 0.0;
+        for (int i = 0; i < count; i++) {
+            weights[i] = maxLogProb == Double.NEGATIVE_INFINITY ? 1.0 : Math.exp(particles.get(i).logProb() - maxLogProb);
+            sumWeights += weights[i];
+            sumSquaredWeights += weights[i] * weights[i];
+        }
+
+        this.cumulativeWeights = new double[count];
+        double cumulativeWeight = 0.0;
+        for (int i = 0; i < count; i++) {
+            cumulativeWeight += weights[i];
+            cumulativeWeights[i] = cumulativeWeight / sumWeights;
+        }
+        this.effectiveSampleSize = sumWeights * sumWeights / sumSquaredWeights;
+    }
+
+    /**
+     * @return the number of equally weighted particles that the weights are worth, between 1 and the number of
+     * particles
+     */
+    double getEffectiveSampleSize() {
+        return effectiveSampleSize;
+    }
+
+    /**
+     * Draws particles by systematic resampling: a single uniform offset is spread into evenly spaced points over
+     * the cumulative weights, so the draws take one pass over the particles.
+     *
+     * @param count  the number of particles to draw
+     * @param random the source of randomness
+     * @return the index of each particle drawn, in ascending order
+     */
+    int[] sampleSystematically(int count, KeanuRandom random) {
+        int[] indices = new int[count];
+        double offset = random.nextDouble();
+        int particle = 0;
+        int last = cumulativeWeights.length - 1;
+
+        for (int i = 0; i < count; i++) {
+            double point = (i + offset) / count;
+            while (particle < last && cumulativeWeights[particle] <= point) {
+                particle++;
+            }
+            indices[i] = particle;
+        }
+
+        return indices;
+    }
+}
@@ -1,7 +1,9 @@
 package io.improbable.keanu.algorithms.variational.optimizer;
 
 import io.improbable.keanu.algorithms.graphtraversal.DifferentiableChecker;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.AdamOptimizer;
 import io.improbable.keanu.algorithms.variational.optimizer.gradient.GradientOptimizer;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.LBFGSOptimizer;
 import io.improbable.keanu.algorithms.variational.optimizer.nongradient.NonGradientOptimizer;
 import io.improbable.keanu.network.BayesianNetwork;
 import io.improbable.keanu.vertices.Vertex;
@@ -147,8 +149,37 @@ public class KeanuOptimizer {
         }
 
         public GradientOptimizer.GradientOptimizerBuilder builderFor(BayesianNetwork network) {
+            return builderFor(network, false);
+        }
+
+        /**
+         * @param network          The Bayesian network to run optimization on.
+         * @param compileGradients true if the gradients should be calculated using a compiled
+         *                         {@link io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbTape}, which
+         *                         is faster for optimizations that need many gradient evaluations
+         * @return a builder for a {@link GradientOptimizer}
+         */
+        public GradientOptimizer.GradientOptimizerBuilder builderFor(BayesianNetwork network, boolean compileGradients) {
+            initializeNetworkForOptimization(network);
+            return GradientOptimizer.builder().bayesianNetwork(new KeanuProbabilisticWithGradientGraph(network, compileGradients));
+        }
+
+        /**
+         * @param network The Bayesian network to run optimization on.
+         * @return a builder for an {@link LBFGSOptimizer} of the network
+         */
+        public LBFGSOptimizer.LBFGSOptimizerBuilder lbfgsBuilderFor(BayesianNetwork network) {
+            initializeNetworkForOptimization(network);
+            return LBFGSOptimizer.builder().bayesianNetwork(new KeanuProbabilisticWithGradientGraph(network));
+        }
+
+        /**
+         * @param network The Bayesian network to run optimization on.
+         * @return a builder for an {@link AdamOptimizer} of the network
+         */
+        public AdamOptimizer.AdamOptimizerBuilder adamBuilderFor(BayesianNetwork network) {
             initializeNetworkForOptimization(network);
-            return GradientOptimizer.builder().bayesianNetwork(new KeanuProbabilisticWithGradientGraph(network));
+            return AdamOptimizer.builder().bayesianNetwork(new KeanuProbabilisticWithGradientGraph(network));
         }
     }
 
@@ -14,21 +14,40 @@ public class KeanuProbabilisticWithGradientGraph extends KeanuProbabilisticGraph
     private LogProbGradientCalculator logLikelihoodGradientCalculator;
 
     public KeanuProbabilisticWithGradientGraph(BayesianNetwork bayesianNetwork) {
+        this(bayesianNetwork, false);
+    }
+
+    /**
+     * @param bayesianNetwork  the network to calculate the log prob and gradients of
+     * @param compileGradients true if the gradients should be calculated using a compiled
+     *                         {@link io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbTape}
+     */
+    public KeanuProbabilisticWithGradientGraph(BayesianNetwork bayesianNetwork, boolean compileGradients) {
         super(bayesianNetwork);
 
         List<Vertex<DoubleTensor>> continuousLatentVertices = bayesianNetwork.getContinuousLatentVertices();
 
-        this.logProbGradientCalculator = new LogProbGradientCalculator(
+        this.logProbGradientCalculator = createGradientCalculator(
             bayesianNetwork.getLatentOrObservedVertices(),
-            continuousLatentVertices
+            continuousLatentVertices,
+            compileGradients
         );
 
-        this.logLikelihoodGradientCalculator = new LogProbGradientCalculator(
+        this.logLikelihoodGradientCalculator = createGradientCalculator(
             bayesianNetwork.getObservedVertices(),
-            continuousLatentVertices
+            continuousLatentVertices,
+            compileGradients
         );
     }
 
+    private static LogProbGradientCalculator createGradientCalculator(List<? extends Vertex> ofVertices,
+                                                                      List<Vertex<DoubleTensor>> wrtVertices,
+                                                                      boolean compiled) {
+        return compiled ?
+            LogProbGradientCalculator.compiled(ofVertices, wrtVertices) :
+            new LogProbGradientCalculator(ofVertices, wrtVertices);
+    }
+
     @Override
     public Map<? extends VariableReference, DoubleTensor> logProbGradients(Map<VariableReference, ?> inputs) {
         return gradients(inputs, logProbGradientCalculator);
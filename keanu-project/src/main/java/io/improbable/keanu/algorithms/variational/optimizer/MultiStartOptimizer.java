@@ -0,0 +1,162 @@
+package io.improbable.keanu.algorithms.variational.optimizer;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.graphtraversal.TopologicalSort;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.network.NetworkState;
+import io.improbable.keanu.network.SimpleNetworkState;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Runs an optimizer from several starting points at the same time, one per thread, to find more than one mode
+ * of a multimodal network.
+ * <p>
+ * Each start draws the latent vertices of its own network from their priors, as
+ * {@link io.improbable.keanu.algorithms.mcmc.initialconditions.MultiModeDiscovery} does for simulated annealing,
+ * and then optimizes that network. Optimizers mutate the values of the vertices they optimize, so the network
+ * builder is called once per start. Each start gets its own source of randomness, seeded from the root random,
+ * so that a run is reproducible for a given seed.
+ * <p>
+ * Usage:
+ * MultiStartOptimizer optimizer = MultiStartOptimizer.builder().startCount(20).build();
+ * List&lt;MultiStartOptimizer.Optimum&gt; optima = optimizer.maxAPosteriori(() -&gt; buildYourNetwork());
+ */
+@Builder
+public class MultiStartOptimizer {
+
+    private static final int DEFAULT_START_COUNT = 10;
+
+    public static MultiStartOptimizer withDefaultConfig() {
+        return withDefaultConfig(KeanuRandom.getDefaultRandom());
+    }
+
+    public static MultiStartOptimizer withDefaultConfig(KeanuRandom random) {
+        return MultiStartOptimizer.builder()
+            .random(random)
+            .build();
+    }
+
+    //Root source of randomness from which each start's random is seeded
+    @Getter
+    @Setter
+    @Builder.Default
+    private KeanuRandom random = KeanuRandom.getDefaultRandom();
+
+    @Getter
+    @Setter
+    @Builder.Default
+    private int startCount = DEFAULT_START_COUNT;
+
+    //The maximum number of starts that will be optimized at the same time
+    @Getter
+    @Setter
+    @Builder.Default
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
+    //Creates the optimizer for a start's network once its latents have been drawn from their priors
+    @Getter
+    @Setter
+    @Builder.Default
+    private Function<BayesianNetwork, Optimizer> optimizer = KeanuOptimizer::of;
+
+    /**
+     * The result of optimizing from one of the starting points.
+     */
+    @Value
+    public static class Optimum {
+
+        //The network that was optimized, which is left holding the optimized values
+        BayesianNetwork network;
+
+        //The optimized values of the latent vertices of the network
+        NetworkState state;
+
+        //The natural logarithm of the MAP or maximum likelihood reached
+        double fitness;
+    }
+
+    /**
+     * @param networkBuilder builds a new, independent network each time it is called
+     * @return the optimum found from each start by MAP estimation, from the fittest to the least fit
+     */
+    public List<Optimum> maxAPosteriori(Supplier<BayesianNetwork> networkBuilder) {
+        return optimize(networkBuilder, Optimizer::maxAPosteriori);
+    }
+
+    /**
+     * @param networkBuilder builds a new, independent network each time it is called
+     * @return the optimum found from each start by maximum likelihood estimation, from the fittest to the least fit
+     */
+    public List<Optimum> maxLikelihood(Supplier<BayesianNetwork> networkBuilder) {
+        return optimize(networkBuilder, Optimizer::maxLikelihood);
+    }
+
+    private List<Optimum> optimize(Supplier<BayesianNetwork> networkBuilder, ToDoubleFunction<Optimizer> estimate) {
+        Preconditions.checkArgument(startCount > 0, "Start count of %s is invalid. Must optimize from at least one start.", startCount);
+        Preconditions.checkArgument(threadCount > 0, "Thread count of %s is invalid. Must use at least one thread.", threadCount);
+
+        List<BayesianNetwork> networks = new ArrayList<>(startCount);
+        List<KeanuRandom> randoms = new ArrayList<>(startCount);
+        for (int i = 0; i < startCount; i++) {
+            networks.add(networkBuilder.get());
+            randoms.add(new KeanuRandom(random.nextLong()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, startCount));
+        try {
+            List<Future<Optimum>> futures = new ArrayList<>(startCount);
+            for (int i = 0; i < startCount; i++) {
+                BayesianNetwork network = networks.get(i);
+                KeanuRandom startRandom = randoms.get(i);
+                futures.add(executor.submit(() -> optimizeFromPrior(network, startRandom, estimate)));
+            }
+
+            List<Optimum> optima = new ArrayList<>(startCount);
+            for (Future<Optimum> future : futures) {
+                optima.add(future.get());
+            }
+            optima.sort(Comparator.comparingDouble(Optimum::getFitness).reversed());
+            return optima;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for optimizers to finish", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to optimize from start", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Optimum optimizeFromPrior(BayesianNetwork network, KeanuRandom startRandom, ToDoubleFunction<Optimizer> estimate) {
+        network.cascadeObservations();
+        List<Vertex> latents = network.getLatentVertices();
+        BayesianNetwork.setFromSampleAndCascade(TopologicalSort.sort(latents), startRandom);
+
+        double fitness = estimate.applyAsDouble(optimizer.apply(network));
+
+        Map<VertexId, Object> latentValues = new HashMap<>();
+        for (Vertex latent : latents) {
+            latentValues.put(latent.getId(), latent.getValue());
+        }
+        return new Optimum(network, new SimpleNetworkState(latentValues), fitness);
+    }
+}
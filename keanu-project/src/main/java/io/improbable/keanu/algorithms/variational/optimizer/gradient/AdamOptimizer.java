@@ -0,0 +1,269 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+import io.improbable.keanu.algorithms.variational.optimizer.Optimizer;
+import io.improbable.keanu.algorithms.variational.optimizer.ProbabilisticWithGradientGraph;
+import io.improbable.keanu.util.ProgressBar;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The Adam optimizer, which takes a step along running averages of the gradient scaled by running averages of its
+ * square. It needs no line search, so each step costs a single evaluation of the fitness and its gradient, and it
+ * copes with noisy gradients. This makes it suited to optimizing on a different mini-batch of the data at each
+ * step, chosen by a {@link MiniBatchSelector}.
+ * <p>
+ * All of the optimizer's state is held in flat primitive arrays the length of the number of latent dimensions.
+ *
+ * @see <a href="https://arxiv.org/abs/1412.6980">Adam: A Method for Stochastic Optimization</a>
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class AdamOptimizer implements Optimizer {
+
+    public static AdamOptimizerBuilder builder() {
+        return new AdamOptimizerBuilder();
+    }
+
+    private ProbabilisticWithGradientGraph probabilisticWithGradientGraph;
+
+    /**
+     * the maximum number of steps to take
+     */
+    private int maxIterations;
+
+    private double learningRate;
+
+    /**
+     * how quickly the running average of the gradient forgets old gradients
+     */
+    private double beta1;
+
+    /**
+     * how quickly the running average of the squared gradient forgets old gradients
+     */
+    private double beta2;
+
+    /**
+     * added to the root of the squared gradient average to avoid dividing by zero
+     */
+    private double epsilon;
+
+    /**
+     * stop when no element of the point moves further than this in a step
+     */
+    private double convergenceThreshold;
+
+    /**
+     * chooses the data for each step, or null to use all of the data at every step
+     */
+    private MiniBatchSelector miniBatchSelector;
+
+    private final List<BiConsumer<double[], double[]>> onGradientCalculations = new ArrayList<>();
+    private final List<BiConsumer<double[], Double>> onFitnessCalculations = new ArrayList<>();
+
+    public void addGradientCalculationHandler(BiConsumer<double[], double[]> gradientCalculationHandler) {
+        this.onGradientCalculations.add(gradientCalculationHandler);
+    }
+
+    public void removeGradientCalculationHandler(BiConsumer<double[], double[]> gradientCalculationHandler) {
+        this.onGradientCalculations.remove(gradientCalculationHandler);
+    }
+
+    private void handleGradientCalculation(double[] point, double[] gradients) {
+        for (BiConsumer<double[], double[]> gradientCalculationHandler : onGradientCalculations) {
+            gradientCalculationHandler.accept(point, gradients);
+        }
+    }
+
+    @Override
+    public void addFitnessCalculationHandler(BiConsumer<double[], Double> fitnessCalculationHandler) {
+        this.onFitnessCalculations.add(fitnessCalculationHandler);
+    }
+
+    @Override
+    public void removeFitnessCalculationHandler(BiConsumer<double[], Double> fitnessCalculationHandler) {
+        this.onFitnessCalculations.remove(fitnessCalculationHandler);
+    }
+
+    private void handleFitnessCalculation(double[] point, Double fitness) {
+        for (BiConsumer<double[], Double> fitnessCalculationHandler : onFitnessCalculations) {
+            fitnessCalculationHandler.accept(point, fitness);
+        }
+    }
+
+    private void assertHasLatents() {
+        if (probabilisticWithGradientGraph.getLatentVariables().isEmpty()) {
+            throw new IllegalArgumentException("Cannot find MAP of network without any latent variables");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When optimizing on mini-batches the returned value is the fitness on the last batch, with its likelihood
+     * scaled by the selector's likelihood scale.
+     */
+    @Override
+    public double maxAPosteriori() {
+        return optimize(false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When optimizing on mini-batches the returned value is the fitness on the last batch, with its likelihood
+     * scaled by the selector's likelihood scale.
+     */
+    @Override
+    public double maxLikelihood() {
+        return optimize(true);
+    }
+
+    private double optimize(boolean useLikelihood) {
+        assertHasLatents();
+
+        FlatFitnessFunction fitnessFunction = new FlatFitnessFunction(
+            probabilisticWithGradientGraph,
+            useLikelihood,
+            this::handleGradientCalculation,
+            this::handleFitnessCalculation
+        );
+
+        ProgressBar progressBar = Optimizer.createFitnessProgressBar(this);
+
+        int n = fitnessFunction.getDimensions();
+        double[] point = fitnessFunction.getCurrentPoint();
+        double[] gradient = new double[n];
+        double[] firstMoment = new double[n];
+        double[] secondMoment = new double[n];
+
+        double beta1Power = 1.0;
+        double beta2Power = 1.0;
+        double fitness = Double.NEGATIVE_INFINITY;
+        int stepsTaken = 0;
+
+        for (int step = 0; step < maxIterations; step++) {
+            fitness = evaluate(fitnessFunction, step, point, gradient);
+
+            if (step == 0 && ProbabilityCalculator.isImpossibleLogProb(fitness)) {
+                throw new IllegalArgumentException("Cannot start optimizer on zero probability network");
+            }
+
+            beta1Power *= beta1;
+            beta2Power *= beta2;
+            double stepSize = learningRate * Math.sqrt(1.0 - beta2Power) / (1.0 - beta1Power);
+
+            double largestMove = 0.0;
+            for (int i = 0; i < n; i++) {
+                firstMoment[i] = beta1 * firstMoment[i] + (1.0 - beta1) * gradient[i];
+                secondMoment[i] = beta2 * secondMoment[i] + (1.0 - beta2) * gradient[i] * gradient[i];
+
+                double move = stepSize * firstMoment[i] / (Math.sqrt(secondMoment[i]) + epsilon);
+                point[i] += move;
+                largestMove = Math.max(largestMove, Math.abs(move));
+            }
+            stepsTaken = step + 1;
+
+            if (largestMove <= convergenceThreshold) {
+                break;
+            }
+        }
+
+        //the point is evaluated as the step after the last one taken, which is before maxIterations if it converged
+        fitness = evaluate(fitnessFunction, stepsTaken, point, gradient);
+
+        progressBar.finish();
+        return fitness;
+    }
+
+    private double evaluate(FlatFitnessFunction fitnessFunction, int step, double[] point, double[] gradient) {
+        if (miniBatchSelector == null) {
+            return fitnessFunction.evaluate(point, gradient);
+        }
+
+        miniBatchSelector.selectBatch(step);
+        return fitnessFunction.evaluate(point, gradient, miniBatchSelector.getLikelihoodScale());
+    }
+
+    public static class AdamOptimizerBuilder {
+
+        private ProbabilisticWithGradientGraph probabilisticWithGradientGraph;
+        private int maxIterations = 10000;
+        private double learningRate = 0.001;
+        private double beta1 = 0.9;
+        private double beta2 = 0.999;
+        private double epsilon = 1e-8;
+        private double convergenceThreshold = 1e-8;
+        private MiniBatchSelector miniBatchSelector = null;
+
+        AdamOptimizerBuilder() {
+        }
+
+        public AdamOptimizerBuilder bayesianNetwork(ProbabilisticWithGradientGraph probabilisticWithGradientGraph) {
+            this.probabilisticWithGradientGraph = probabilisticWithGradientGraph;
+            return this;
+        }
+
+        public AdamOptimizerBuilder maxIterations(int maxIterations) {
+            this.maxIterations = maxIterations;
+            return this;
+        }
+
+        public AdamOptimizerBuilder learningRate(double learningRate) {
+            this.learningRate = learningRate;
+            return this;
+        }
+
+        public AdamOptimizerBuilder beta1(double beta1) {
+            this.beta1 = beta1;
+            return this;
+        }
+
+        public AdamOptimizerBuilder beta2(double beta2) {
+            this.beta2 = beta2;
+            return this;
+        }
+
+        public AdamOptimizerBuilder epsilon(double epsilon) {
+            this.epsilon = epsilon;
+            return this;
+        }
+
+        public AdamOptimizerBuilder convergenceThreshold(double convergenceThreshold) {
+            this.convergenceThreshold = convergenceThreshold;
+            return this;
+        }
+
+        public AdamOptimizerBuilder miniBatchSelector(MiniBatchSelector miniBatchSelector) {
+            this.miniBatchSelector = miniBatchSelector;
+            return this;
+        }
+
+        public AdamOptimizer build() {
+            if (probabilisticWithGradientGraph == null) {
+                throw new IllegalStateException("Cannot build optimizer without specifying network to optimize.");
+            }
+            if (beta1 < 0 || beta1 >= 1 || beta2 < 0 || beta2 >= 1) {
+                throw new IllegalArgumentException("Betas must be in [0, 1) but were " + beta1 + " and " + beta2);
+            }
+            return new AdamOptimizer(
+                probabilisticWithGradientGraph,
+                maxIterations,
+                learningRate,
+                beta1,
+                beta2,
+                epsilon,
+                convergenceThreshold,
+                miniBatchSelector
+            );
+        }
+
+        public String toString() {
+            return "AdamOptimizer.AdamOptimizerBuilder(probabilisticWithGradientGraph=" + this.probabilisticWithGradientGraph + ", maxIterations=" + this.maxIterations + ", learningRate=" + this.learningRate + ", beta1=" + this.beta1 + ", beta2=" + this.beta2 + ", epsilon=" + this.epsilon + ", convergenceThreshold=" + this.convergenceThreshold + ", miniBatchSelector=" + this.miniBatchSelector + ")";
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+import com.google.common.primitives.Ints;
+import io.improbable.keanu.algorithms.variational.optimizer.Optimizer;
+import io.improbable.keanu.algorithms.variational.optimizer.ProbabilisticWithGradientGraph;
+import io.improbable.keanu.algorithms.variational.optimizer.Variable;
+import io.improbable.keanu.algorithms.variational.optimizer.VariableReference;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static io.improbable.keanu.algorithms.variational.optimizer.Optimizer.getAsDoubleTensors;
+
+/**
+ * Evaluates the fitness of a point and its gradient together, writing the gradient into a flat array that the
+ * caller owns. This is for optimizers that keep their state in primitive buffers. Unlike
+ * {@link FitnessFunctionWithGradient} the network is only updated once per point rather than once for the fitness
+ * and again for the gradient.
+ */
+class FlatFitnessFunction {
+
+    private final ProbabilisticWithGradientGraph probabilisticWithGradientGraph;
+    private final boolean useLikelihood;
+    private final BiConsumer<double[], double[]> onGradientCalculation;
+    private final BiConsumer<double[], Double> onFitnessCalculation;
+
+    private final List<Variable<? extends DoubleTensor>> latentVariables;
+    private final int[] offsets;
+    private final Map<VariableReference, DoubleTensor> inputs = new HashMap<>();
+
+    FlatFitnessFunction(ProbabilisticWithGradientGraph probabilisticWithGradientGraph,
+                        boolean useLikelihood,
+                        BiConsumer<double[], double[]> onGradientCalculation,
+                        BiConsumer<double[], Double> onFitnessCalculation) {
+        this.probabilisticWithGradientGraph = probabilisticWithGradientGraph;
+        this.useLikelihood = useLikelihood;
+        this.onGradientCalculation = onGradientCalculation;
+        this.onFitnessCalculation = onFitnessCalculation;
+
+        this.latentVariables = getAsDoubleTensors(probabilisticWithGradientGraph.getLatentVariables());
+        this.offsets = new int[latentVariables.size() + 1];
+        for (int i = 0; i < latentVariables.size(); i++) {
+            offsets[i + 1] = offsets[i] + Ints.checkedCast(TensorShape.getLength(latentVariables.get(i).getShape()));
+        }
+    }
+
+    int getDimensions() {
+        return offsets[latentVariables.size()];
+    }
+
+    double[] getCurrentPoint() {
+        return Optimizer.convertToPoint(latentVariables);
+    }
+
+    double evaluate(double[] point, double[] gradient) {
+        return evaluate(point, gradient, 1.0);
+    }
+
+    /**
+     * Moves the network to the point and calculates its fitness and gradient there.
+     *
+     * @param point           the values of the latent variables, flattened and in order
+     * @param gradient        where the gradient of the fitness with respect to the point is written
+     * @param likelihoodScale how much to weight the likelihood relative to the prior, e.g. the number of
+     *                        data points over the size of a mini-batch
+     * @return the fitness of the point
+     */
+    double evaluate(double[] point, double[] gradient, double likelihoodScale) {
+        for (int i = 0; i < latentVariables.size(); i++) {
+            Variable<? extends DoubleTensor> variable = latentVariables.get(i);
+            double[] values = Arrays.copyOfRange(point, offsets[i], offsets[i + 1]);
+            inputs.put(variable.getReference(), DoubleTensor.create(values, variable.getShape()));
+        }
+
+        double fitness;
+        if (useLikelihood) {
+            fitness = likelihoodScale * probabilisticWithGradientGraph.logLikelihood(inputs);
+            copyInto(probabilisticWithGradientGraph.logLikelihoodGradients(), gradient, likelihoodScale, false);
+        } else {
+            fitness = probabilisticWithGradientGraph.logProb(inputs);
+            copyInto(probabilisticWithGradientGraph.logProbGradients(), gradient, 1.0, false);
+
+            if (likelihoodScale != 1.0) {
+                fitness += (likelihoodScale - 1.0) * probabilisticWithGradientGraph.logLikelihood();
+                copyInto(probabilisticWithGradientGraph.logLikelihoodGradients(), gradient, likelihoodScale - 1.0, true);
+            }
+        }
+
+        if (onFitnessCalculation != null) {
+            onFitnessCalculation.accept(point, fitness);
+        }
+        if (onGradientCalculation != null) {
+            onGradientCalculation.accept(point, gradient);
+        }
+
+        return fitness;
+    }
+
+    private void copyInto(Map<? extends VariableReference, DoubleTensor> gradients, double[] gradient, double scale, boolean add) {
+        for (int i = 0; i < latentVariables.size(); i++) {
+            DoubleTensor partial = gradients.get(latentVariables.get(i).getReference());
+            if (partial == null) {
+                if (!add) {
+                    Arrays.fill(gradient, offsets[i], offsets[i + 1], 0.0);
+                }
+                continue;
+            }
+
+            double[] values = partial.asFlatDoubleArray();
+            for (int j = 0; j < values.length; j++) {
+                gradient[offsets[i] + j] = add ? gradient[offsets[i] + j] + scale * values[j] : scale * values[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+/**
+ * The last few steps and changes in gradient of an {@link LBFGSOptimizer}, held in a ring buffer, from which the
+ * product of the approximate inverse Hessian and a gradient is calculated with the two loop recursion.
+ * <p>
+ * A step is only remembered if its curvature is positive, which keeps the approximation positive definite. The
+ * step and change in gradient are calculated into scratch arrays first, so a step that is not remembered leaves the
+ * buffer exactly as it was.
+ */
+class LBFGSMemory {
+
+    private final int capacity;
+    private final double[][] steps;
+    private final double[][] gradientChanges;
+    private final double[] rho;
+    private final double[] alpha;
+
+    private double[] step;
+    private double[] gradientChange;
+    private int stored;
+    private int newest;
+
+    /**
+     * @param capacity   the number of previous steps to remember
+     * @param dimensions the number of latent dimensions
+     */
+    LBFGSMemory(int capacity, int dimensions) {
+        this.capacity = capacity;
+        this.steps = new double[capacity][dimensions];
+        this.gradientChanges = new double[capacity][dimensions];
+        this.rho = new double[capacity];
+        this.alpha = new double[capacity];
+        this.step = new double[dimensions];
+        this.gradientChange = new double[dimensions];
+        this.stored = 0;
+        this.newest = -1;
+    }
+
+    /**
+     * @return the number of steps remembered
+     */
+    int size() {
+        return stored;
+    }
+
+    /**
+     * Forgets every step remembered so far.
+     */
+    void clear() {
+        stored = 0;
+    }
+
+    /**
+     * Remembers the step from point to nextPoint if its curvature is positive.
+     *
+     * @param point        the point before the step
+     * @param gradient     the gradient of the fitness at point
+     * @param nextPoint    the point after the step
+     * @param nextGradient the gradient of the fitness at nextPoint
+     * @return true if the step was remembered, or false if its curvature wasn't positive and it was discarded
+     */
+    boolean remember(double[] point, double[] gradient, double[] nextPoint, double[] nextGradient) {
+        double curvature = 0.0;
+        for (int j = 0; j < step.length; j++) {
+            step[j] = nextPoint[j] - point[j];
+            gradientChange[j] = gradient[j] - nextGradient[j];
+            curvature += step[j] * gradientChange[j];
+        }
+
+        if (!(curvature > 0)) {
+            return false;
+        }
+
+        int next = (newest + 1) % capacity;
+
+        //swap the scratch arrays into the buffer rather than copying them
+        double[] swap = steps[next];
+        steps[next] = step;
+        step = swap;
+        swap = gradientChanges[next];
+        gradientChanges[next] = gradientChange;
+        gradientChange = swap;
+
+        rho[next] = 1.0 / curvature;
+        newest = next;
+        stored = Math.min(stored + 1, capacity);
+        return true;
+    }
+
+    /**
+     * Calculates the ascent direction, the product of the approximate inverse Hessian and the gradient, with the two
+     * loop recursion. With no steps remembered it is the gradient scaled to unit length.
+     *
+     * @param gradient  the gradient of the fitness
+     * @param direction written to with the ascent direction
+     */
+    void ascentDirection(double[] gradient, double[] direction) {
+        System.arraycopy(gradient, 0, direction, 0, gradient.length);
+        for (int k = 0; k < stored; k++) {
+            int i = Math.floorMod(newest - k, capacity);
+            alpha[i] = rho[i] * dot(steps[i], direction);
+            axpy(-alpha[i], gradientChanges[i], direction);
+        }
+
+        double scale = stored == 0 ?
+            1.0 / Math.sqrt(dot(gradient, gradient)) :
+            dot(steps[newest], gradientChanges[newest]) / dot(gradientChanges[newest], gradientChanges[newest]);
+        scale(scale, direction);
+
+        for (int k = stored - 1; k >= 0; k--) {
+            int i = Math.floorMod(newest - k, capacity);
+            double beta = rho[i] * dot(gradientChanges[i], direction);
+            axpy(alpha[i] - beta, steps[i], direction);
+        }
+    }
+
+    static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static void axpy(double a, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++) {
+            y[i] += a * x[i];
+        }
+    }
+
+    private static void scale(double a, double[] x) {
+        for (int i = 0; i < x.length; i++) {
+            x[i] *= a;
+        }
+    }
+}
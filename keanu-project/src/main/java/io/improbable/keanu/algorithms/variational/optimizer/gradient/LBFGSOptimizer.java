@@ -0,0 +1,273 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+import io.improbable.keanu.algorithms.variational.optimizer.Optimizer;
+import io.improbable.keanu.algorithms.variational.optimizer.ProbabilisticWithGradientGraph;
+import io.improbable.keanu.util.ProgressBar;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static io.improbable.keanu.algorithms.variational.optimizer.gradient.LBFGSMemory.dot;
+
+/**
+ * A limited memory BFGS optimizer. It builds an approximation of the inverse Hessian from the last few steps and
+ * gradients, which usually converges in far fewer evaluations than conjugate gradient. Each step tries the full
+ * quasi-Newton step first and only backtracks if that does not increase the fitness enough, so most steps cost a
+ * single evaluation of the fitness and its gradient.
+ * <p>
+ * All of the optimizer's state is held in flat primitive arrays the length of the number of latent dimensions.
+ *
+ * @see <a href="https://doi.org/10.1007/BF01589116">On the limited memory BFGS method for large scale optimization</a>
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class LBFGSOptimizer implements Optimizer {
+
+    private static final double SUFFICIENT_INCREASE = 1e-4;
+    private static final double BACKTRACK_FACTOR = 0.5;
+    private static final double SMALLEST_STEP = 1e-20;
+
+    public static LBFGSOptimizerBuilder builder() {
+        return new LBFGSOptimizerBuilder();
+    }
+
+    private ProbabilisticWithGradientGraph probabilisticWithGradientGraph;
+
+    /**
+     * the maximum number of evaluations of the fitness and its gradient before stopping at the best point so far
+     */
+    private int maxEvaluations;
+
+    /**
+     * the number of previous steps used to approximate the inverse Hessian
+     */
+    private int memory;
+
+    private double relativeThreshold;
+
+    private double absoluteThreshold;
+
+    /**
+     * stop when no element of the gradient is larger than this
+     */
+    private double gradientThreshold;
+
+    private final List<BiConsumer<double[], double[]>> onGradientCalculations = new ArrayList<>();
+    private final List<BiConsumer<double[], Double>> onFitnessCalculations = new ArrayList<>();
+
+    public void addGradientCalculationHandler(BiConsumer<double[], double[]> gradientCalculationHandler) {
+        this.onGradientCalculations.add(gradientCalculationHandler);
+    }
+
+    public void removeGradientCalculationHandler(BiConsumer<double[], double[]> gradientCalculationHandler) {
+        this.onGradientCalculations.remove(gradientCalculationHandler);
+    }
+
+    private void handleGradientCalculation(double[] point, double[] gradients) {
+        for (BiConsumer<double[], double[]> gradientCalculationHandler : onGradientCalculations) {
+            gradientCalculationHandler.accept(point, gradients);
+        }
+    }
+
+    @Override
+    public void addFitnessCalculationHandler(BiConsumer<double[], Double> fitnessCalculationHandler) {
+        this.onFitnessCalculations.add(fitnessCalculationHandler);
+    }
+
+    @Override
+    public void removeFitnessCalculationHandler(BiConsumer<double[], Double> fitnessCalculationHandler) {
+        this.onFitnessCalculations.remove(fitnessCalculationHandler);
+    }
+
+    private void handleFitnessCalculation(double[] point, Double fitness) {
+        for (BiConsumer<double[], Double> fitnessCalculationHandler : onFitnessCalculations) {
+            fitnessCalculationHandler.accept(point, fitness);
+        }
+    }
+
+    private void assertHasLatents() {
+        if (probabilisticWithGradientGraph.getLatentVariables().isEmpty()) {
+            throw new IllegalArgumentException("Cannot find MAP of network without any latent variables");
+        }
+    }
+
+    @Override
+    public double maxAPosteriori() {
+        return optimize(false);
+    }
+
+    @Override
+    public double maxLikelihood() {
+        return optimize(true);
+    }
+
+    private double optimize(boolean useLikelihood) {
+        assertHasLatents();
+
+        FlatFitnessFunction fitnessFunction = new FlatFitnessFunction(
+            probabilisticWithGradientGraph,
+            useLikelihood,
+            this::handleGradientCalculation,
+            this::handleFitnessCalculation
+        );
+
+        ProgressBar progressBar = Optimizer.createFitnessProgressBar(this);
+
+        int n = fitnessFunction.getDimensions();
+        double[] point = fitnessFunction.getCurrentPoint();
+        double[] gradient = new double[n];
+        double[] nextPoint = new double[n];
+        double[] nextGradient = new double[n];
+        double[] direction = new double[n];
+
+        LBFGSMemory history = new LBFGSMemory(memory, n);
+
+        double fitness = fitnessFunction.evaluate(point, gradient);
+        int evaluations = 1;
+
+        if (ProbabilityCalculator.isImpossibleLogProb(fitness)) {
+            throw new IllegalArgumentException("Cannot start optimizer on zero probability network");
+        }
+
+        boolean lastEvaluatedIsCurrent = true;
+
+        while (evaluations < maxEvaluations && maxAbs(gradient) > gradientThreshold) {
+
+            history.ascentDirection(gradient, direction);
+
+            double directionalDerivative = dot(gradient, direction);
+            if (!(directionalDerivative > 0)) {
+                //the approximation has lost positive definiteness so start again from steepest ascent
+                history.clear();
+                history.ascentDirection(gradient, direction);
+                directionalDerivative = dot(gradient, direction);
+            }
+
+            //backtracking line search for sufficient increase
+            double stepSize = 1.0;
+            double nextFitness;
+            boolean accepted = false;
+            do {
+                for (int j = 0; j < n; j++) {
+                    nextPoint[j] = point[j] + stepSize * direction[j];
+                }
+                nextFitness = fitnessFunction.evaluate(nextPoint, nextGradient);
+                evaluations++;
+
+                if (nextFitness >= fitness + SUFFICIENT_INCREASE * stepSize * directionalDerivative) {
+                    accepted = true;
+                } else {
+                    stepSize *= BACKTRACK_FACTOR;
+                }
+            } while (!accepted && stepSize > SMALLEST_STEP && evaluations < maxEvaluations);
+
+            lastEvaluatedIsCurrent = accepted;
+            if (!accepted) {
+                break;
+            }
+
+            history.remember(point, gradient, nextPoint, nextGradient);
+
+            double previousFitness = fitness;
+            double[] swap = point;
+            point = nextPoint;
+            nextPoint = swap;
+            swap = gradient;
+            gradient = nextGradient;
+            nextGradient = swap;
+            fitness = nextFitness;
+
+            if (hasConverged(previousFitness, fitness)) {
+                break;
+            }
+        }
+
+        if (!lastEvaluatedIsCurrent) {
+            fitness = fitnessFunction.evaluate(point, gradient);
+        }
+
+        progressBar.finish();
+        return fitness;
+    }
+
+    private boolean hasConverged(double previous, double current) {
+        double difference = Math.abs(previous - current);
+        double size = Math.max(Math.abs(previous), Math.abs(current));
+        return difference <= size * relativeThreshold || difference <= absoluteThreshold;
+    }
+
+    private static double maxAbs(double[] x) {
+        double max = 0.0;
+        for (double value : x) {
+            max = Math.max(max, Math.abs(value));
+        }
+        return max;
+    }
+
+    public static class LBFGSOptimizerBuilder {
+
+        private ProbabilisticWithGradientGraph probabilisticWithGradientGraph;
+        private int maxEvaluations = Integer.MAX_VALUE;
+        private int memory = 10;
+        private double relativeThreshold = 1e-8;
+        private double absoluteThreshold = 1e-8;
+        private double gradientThreshold = 1e-8;
+
+        LBFGSOptimizerBuilder() {
+        }
+
+        public LBFGSOptimizerBuilder bayesianNetwork(ProbabilisticWithGradientGraph probabilisticWithGradientGraph) {
+            this.probabilisticWithGradientGraph = probabilisticWithGradientGraph;
+            return this;
+        }
+
+        public LBFGSOptimizerBuilder maxEvaluations(int maxEvaluations) {
+            this.maxEvaluations = maxEvaluations;
+            return this;
+        }
+
+        public LBFGSOptimizerBuilder memory(int memory) {
+            this.memory = memory;
+            return this;
+        }
+
+        public LBFGSOptimizerBuilder relativeThreshold(double relativeThreshold) {
+            this.relativeThreshold = relativeThreshold;
+            return this;
+        }
+
+        public LBFGSOptimizerBuilder absoluteThreshold(double absoluteThreshold) {
+            this.absoluteThreshold = absoluteThreshold;
+            return this;
+        }
+
+        public LBFGSOptimizerBuilder gradientThreshold(double gradientThreshold) {
+            this.gradientThreshold = gradientThreshold;
+            return this;
+        }
+
+        public LBFGSOptimizer build() {
+            if (probabilisticWithGradientGraph == null) {
+                throw new IllegalStateException("Cannot build optimizer without specifying network to optimize.");
+            }
+            if (memory <= 0) {
+                throw new IllegalArgumentException("Memory must be positive but was " + memory);
+            }
+            return new LBFGSOptimizer(
+                probabilisticWithGradientGraph,
+                maxEvaluations,
+                memory,
+                relativeThreshold,
+                absoluteThreshold,
+                gradientThreshold
+            );
+        }
+
+        public String toString() {
+            return "LBFGSOptimizer.LBFGSOptimizerBuilder(probabilisticWithGradientGraph=" + this.probabilisticWithGradientGraph + ", maxEvaluations=" + this.maxEvaluations + ", memory=" + this.memory + ", relativeThreshold=" + this.relativeThreshold + ", absoluteThreshold=" + this.absoluteThreshold + ", gradientThreshold=" + this.gradientThreshold + ")";
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+/**
+ * Chooses the data that each step of a stochastic gradient optimizer or sampler sees, typically by observing the
+ * next batch of data on the observed vertices of the network.
+ */
+public interface MiniBatchSelector {
+
+    /**
+     * Called before the gradient of each step is calculated.
+     *
+     * @param step the number of the step, starting from zero
+     */
+    void selectBatch(int step);
+
+    /**
+     * @return how much to weight the likelihood of a batch relative to the prior, usually the number of data points
+     * divided by the size of a batch so that the likelihood of a batch estimates that of all of the data
+     */
+    double getLikelihoodScale();
+}
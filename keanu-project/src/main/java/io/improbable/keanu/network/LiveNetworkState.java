@@ -0,0 +1,42 @@
+package io.improbable.keanu.network;
+
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A NetworkState that is a view of the current values of a set of vertices. Nothing is copied, so the state
+ * changes whenever the values of the vertices do.
+ */
+public class LiveNetworkState implements NetworkState {
+
+    private final Map<VertexId, Vertex<?>> verticesById;
+
+    public LiveNetworkState(List<? extends Vertex> vertices) {
+        this.verticesById = new HashMap<>();
+        for (Vertex<?> vertex : vertices) {
+            verticesById.put(vertex.getId(), vertex);
+        }
+    }
+
+    @Override
+    public <T> T get(Vertex<T> vertex) {
+        return get(vertex.getId());
+    }
+
+    @Override
+    public <T> T get(VertexId vertexId) {
+        Vertex<?> vertex = verticesById.get(vertexId);
+        return vertex == null ? null : (T) vertex.getValue();
+    }
+
+    @Override
+    public Set<VertexId> getVertexIds() {
+        return Collections.unmodifiableSet(verticesById.keySet());
+    }
+}
@@ -2,28 +2,43 @@ package io.improbable.keanu.network;
 
 import io.improbable.keanu.vertices.Vertex;
 
-import java.util.*;
+import java.util.Collection;
+import java.util.Set;
 
 /**
- * Saves the state (value and observed) of a specified collection of vertices.
+ * Saves the state (value, value version and observed) of a specified collection of vertices.
+ * <p>
+ * The state is held in buffers sized to the vertices when the snapshot is created, so a snapshot can be
+ * reused by calling {@link #capture()} each time the state of the same vertices needs saving again.
  */
 public class NetworkSnapshot {
 
     public static NetworkSnapshot create(Set<Vertex> vertices) {
-        return new NetworkSnapshot(vertices);
+        NetworkSnapshot snapshot = new NetworkSnapshot(vertices);
+        snapshot.capture();
+        return snapshot;
     }
 
-    private final Map<Vertex, Object> values;
-    private final Set<Vertex> observed;
+    private final Vertex[] vertices;
+    private final Object[] values;
+    private final long[] valueVersions;
+    private final boolean[] observed;
 
     private NetworkSnapshot(Collection<Vertex> vertices) {
-        values = new HashMap<>();
-        observed = new HashSet<>();
-        for (Vertex v : vertices) {
-            values.put(v, v.getValue());
-            if (v.isObserved()) {
-                observed.add(v);
-            }
+        this.vertices = vertices.toArray(new Vertex[0]);
+        this.values = new Object[this.vertices.length];
+        this.valueVersions = new long[this.vertices.length];
+        this.observed = new boolean[this.vertices.length];
+    }
+
+    /**
+     * Save the current state of the vertices, replacing any previously saved state
+     */
+    public void capture() {
+        for (int i = 0; i < vertices.length; i++) {
+            values[i] = vertices[i].getValue();
+            valueVersions[i] = vertices[i].getValueVersion();
+            observed[i] = vertices[i].isObserved();
         }
     }
 
@@ -31,14 +46,15 @@ public class NetworkSnapshot {
      * Revert the state of the network to the previously saved values
      */
     public void apply() {
-        for (Vertex v : values.keySet()) {
-            if (observed.contains(v)) {
-                v.observe(values.get(v));
+        for (int i = 0; i < vertices.length; i++) {
+            Vertex v = vertices[i];
+            if (observed[i]) {
+                v.observe(values[i]);
             } else {
                 v.unobserve();
-                v.setValue(values.get(v));
+                v.setValue(values[i]);
             }
-
+            v.restoreValueVersion(valueVersions[i]);
         }
     }
 
@@ -135,6 +135,38 @@ public class TensorShape {
         return getLength(shape) == 1;
     }
 
+    /**
+     * Like ND4J, shapes that only differ by dimensions of length one are considered equivalent for vectors
+     *
+     * @param shape      a shape
+     * @param otherShape another shape
+     * @return true if tensors of the two shapes can be equal
+     */
+    public static boolean isEquivalent(long[] shape, long[] otherShape) {
+        if (Arrays.equals(shape, otherShape)) {
+            return true;
+        }
+        return isVectorLike(shape) && isVectorLike(otherShape) && getLength(shape) == getLength(otherShape);
+    }
+
+    /**
+     * @param shape a shape
+     * @return a hash code that is the same for equivalent shapes, see {@link #isEquivalent(long[], long[])}
+     */
+    public static int equivalentShapeHashCode(long[] shape) {
+        return isVectorLike(shape) ? Long.hashCode(getLength(shape)) : Arrays.hashCode(shape);
+    }
+
+    private static boolean isVectorLike(long[] shape) {
+        int dimensionsLongerThanOne = 0;
+        for (long dimension : shape) {
+            if (dimension > 1) {
+                dimensionsLongerThanOne++;
+            }
+        }
+        return dimensionsLongerThanOne <= 1;
+    }
+
     public static long[] concat(long[] shape1, long[] shape2) {
         long[] result = new long[shape1.length + shape2.length];
         System.arraycopy(shape1, 0, result, 0, shape1.length);
@@ -187,6 +219,49 @@ public class TensorShape {
         return (shape1.length >= shape2.length) ? shape1 : shape2;
     }
 
+    /**
+     * @param leftShape  the shape of one operand
+     * @param rightShape the shape of the other operand
+     * @return the shape that the numpy broadcasting rules give for an operation between tensors of these shapes
+     * @throws IllegalArgumentException if the shapes can't be broadcast against each other
+     */
+    public static long[] getBroadcastResultShape(long[] leftShape, long[] rightShape) {
+        int rank = Math.max(leftShape.length, rightShape.length);
+        long[] left = shapeToDesiredRankByPrependingOnes(leftShape, rank);
+        long[] right = shapeToDesiredRankByPrependingOnes(rightShape, rank);
+
+        long[] resultShape = new long[rank];
+        for (int d = 0; d < rank; d++) {
+            if (left[d] == right[d] || right[d] == 1) {
+                resultShape[d] = left[d];
+            } else if (left[d] == 1) {
+                resultShape[d] = right[d];
+            } else {
+                throw new IllegalArgumentException(
+                    "Cannot broadcast shapes " + Arrays.toString(leftShape) + " and " + Arrays.toString(rightShape)
+                );
+            }
+        }
+        return resultShape;
+    }
+
+    /**
+     * @param shape the shape of a row major tensor
+     * @param rank  the rank the tensor is broadcast to
+     * @return the stride of a tensor with this shape once it's been broadcast to the given rank, which is zero for
+     * every dimension that is broadcast
+     */
+    public static long[] getBroadcastStride(long[] shape, int rank) {
+        long[] paddedShape = shapeToDesiredRankByPrependingOnes(shape, rank);
+        long[] stride = getRowFirstStride(paddedShape);
+        for (int d = 0; d < rank; d++) {
+            if (paddedShape[d] == 1) {
+                stride[d] = 0;
+            }
+        }
+        return stride;
+    }
+
     private static long[] increaseRankByPaddingValue(long[] lowRankTensorShape, int desiredRank, boolean append) {
         long[] paddedShape = new long[desiredRank];
         if (lowRankTensorShape.length > desiredRank) {
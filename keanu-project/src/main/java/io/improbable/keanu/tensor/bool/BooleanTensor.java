@@ -8,11 +8,11 @@ import io.improbable.keanu.tensor.intgr.IntegerTensor;
 public interface BooleanTensor extends Tensor<Boolean>, BooleanOperators<BooleanTensor> {
 
     static BooleanTensor create(boolean value, long[] shape) {
-        return new SimpleBooleanTensor(value, shape);
+        return PackedBooleanTensor.create(value, shape);
     }
 
     static BooleanTensor create(boolean[] values, long... shape) {
-        return new SimpleBooleanTensor(values, shape);
+        return PackedBooleanTensor.create(values, shape);
     }
 
     static BooleanTensor create(boolean... values) {
@@ -20,15 +20,15 @@ public interface BooleanTensor extends Tensor<Boolean>, BooleanOperators<Boolean
     }
 
     static BooleanTensor scalar(boolean scalarValue) {
-        return new SimpleBooleanTensor(scalarValue);
+        return PackedBooleanTensor.create(scalarValue, SCALAR_SHAPE);
     }
 
     static BooleanTensor trues(long... shape) {
-        return new SimpleBooleanTensor(true, shape);
+        return PackedBooleanTensor.create(true, shape);
     }
 
     static BooleanTensor falses(long... shape) {
-        return new SimpleBooleanTensor(false, shape);
+        return PackedBooleanTensor.create(false, shape);
     }
 
     static BooleanTensor concat(int dimension, BooleanTensor[] toConcat) {
@@ -39,14 +39,7 @@ public interface BooleanTensor extends Tensor<Boolean>, BooleanOperators<Boolean
         }
 
         DoubleTensor concat = DoubleTensor.concat(dimension, toDoubles);
-        double[] concatFlat = concat.asFlatDoubleArray();
-        boolean[] data = new boolean[concat.asFlatDoubleArray().length];
-
-        for (int i = 0; i < data.length; i++) {
-            data[i] = concatFlat[i] == 1.0;
-        }
-
-        return new SimpleBooleanTensor(data, concat.getShape());
+        return PackedBooleanTensor.fromMask(concat.asFlatDoubleArray(), concat.getShape());
     }
 
     @Override
@@ -91,6 +84,11 @@ public interface BooleanTensor extends Tensor<Boolean>, BooleanOperators<Boolean
 
     boolean allFalse();
 
+    /**
+     * @return the number of elements that are true
+     */
+    long countTrue();
+
     DoubleTensor toDoubleMask();
 
     IntegerTensor toIntegerMask();
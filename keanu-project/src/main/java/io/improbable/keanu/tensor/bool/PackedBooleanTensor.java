@@ -0,0 +1,528 @@
+package io.improbable.keanu.tensor.bool;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.TensorShapeValidation;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import org.apache.commons.lang3.ArrayUtils;
+
+import java.util.Arrays;
+
+import static com.google.common.primitives.Ints.checkedCast;
+import static io.improbable.keanu.tensor.TensorShape.getFlatIndex;
+
+/**
+ * A boolean tensor that packs its elements into the bits of a long array, 64 to a word, so it takes an eighth of the
+ * memory of a {@link SimpleBooleanTensor}. The logical operations work on whole words at a time and counting the
+ * true elements is a population count of each word.
+ * <p>
+ * Elements are packed in c order, with element i at bit i % 64 of word i / 64. The bits past the last element are
+ * always zero. {@link BooleanTensor#create} and its siblings create tensors of this class.
+ */
+public class PackedBooleanTensor implements BooleanTensor {
+
+    private static final int BITS_PER_WORD = Long.SIZE;
+
+    private final long[] words;
+    private final int length;
+    private final long[] shape;
+    private final long[] stride;
+
+    private PackedBooleanTensor(long[] words, int length, long[] shape) {
+        this.words = words;
+        this.length = length;
+        this.shape = shape;
+        this.stride = TensorShape.getRowFirstStride(shape);
+    }
+
+    private static int wordCount(int length) {
+        return (length + BITS_PER_WORD - 1) / BITS_PER_WORD;
+    }
+
+    /**
+     * @param values tensor data in c ordering
+     * @param shape  desired shape of tensor
+     * @return a tensor of the given shape holding the values
+     */
+    public static PackedBooleanTensor create(boolean[] values, long[] shape) {
+        Preconditions.checkArgument(
+            TensorShape.getLength(shape) == values.length,
+            "Shape " + Arrays.toString(shape) + " does not match data length " + values.length
+        );
+
+        long[] words = new long[wordCount(values.length)];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i]) {
+                words[i / BITS_PER_WORD] |= 1L << i;
+            }
+        }
+        return new PackedBooleanTensor(words, values.length, Arrays.copyOf(shape, shape.length));
+    }
+
+    public static PackedBooleanTensor create(boolean value, long[] shape) {
+        int length = TensorShape.getLengthAsInt(shape);
+        long[] words = new long[wordCount(length)];
+        if (value) {
+            Arrays.fill(words, -1L);
+        }
+        return new PackedBooleanTensor(words, length, Arrays.copyOf(shape, shape.length)).clearUnusedBits();
+    }
+
+    /**
+     * @param mask  the elements of a tensor in c order where zero is false and anything else is true, as a comparison
+     *              on a double or integer tensor gives. Only as many elements as the shape has are read.
+     * @param shape the shape of the mask
+     * @return the mask as a boolean tensor
+     */
+    public static PackedBooleanTensor fromMask(double[] mask, long[] shape) {
+        int length = TensorShape.getLengthAsInt(shape);
+        long[] words = new long[wordCount(length)];
+        for (int i = 0; i < length; i++) {
+            if (mask[i] != 0.0) {
+                words[i / BITS_PER_WORD] |= 1L << i;
+            }
+        }
+        return new PackedBooleanTensor(words, length, Arrays.copyOf(shape, shape.length));
+    }
+
+    /**
+     * @param mask  the elements of a tensor in c order where zero is false and anything else is true
+     * @param shape the shape of the mask
+     * @return the mask as a boolean tensor
+     * @see #fromMask(double[], long[])
+     */
+    public static PackedBooleanTensor fromMask(int[] mask, long[] shape) {
+        int length = TensorShape.getLengthAsInt(shape);
+        long[] words = new long[wordCount(length)];
+        for (int i = 0; i < length; i++) {
+            if (mask[i] != 0) {
+                words[i / BITS_PER_WORD] |= 1L << i;
+            }
+        }
+        return new PackedBooleanTensor(words, length, Arrays.copyOf(shape, shape.length));
+    }
+
+    /**
+     * @param tensor any boolean tensor
+     * @return the words of the tensor, without copying them if it is already packed
+     */
+    private static long[] getWords(BooleanTensor tensor) {
+        if (tensor instanceof PackedBooleanTensor) {
+            return ((PackedBooleanTensor) tensor).words;
+        }
+        Boolean[] values = tensor.asFlatArray();
+        long[] words = new long[wordCount(values.length)];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i]) {
+                words[i / BITS_PER_WORD] |= 1L << i;
+            }
+        }
+        return words;
+    }
+
+    private boolean get(int index) {
+        return (words[index / BITS_PER_WORD] & (1L << index)) != 0;
+    }
+
+    private void set(int index, boolean value) {
+        if (value) {
+            words[index / BITS_PER_WORD] |= 1L << index;
+        } else {
+            words[index / BITS_PER_WORD] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Zeroes the bits past the last element, which operations on whole words like not can set
+     */
+    private PackedBooleanTensor clearUnusedBits() {
+        int usedBitsInLastWord = length % BITS_PER_WORD;
+        if (usedBitsInLastWord != 0) {
+            words[words.length - 1] &= -1L >>> (BITS_PER_WORD - usedBitsInLastWord);
+        }
+        return this;
+    }
+
+    @Override
+    public BooleanTensor reshape(long... newShape) {
+        if (TensorShape.getLength(shape) != TensorShape.getLength(newShape)) {
+            throw new IllegalArgumentException("Cannot reshape a tensor to a shape of different length. Failed to reshape: "
+                + Arrays.toString(shape) + " to: " + Arrays.toString(newShape));
+        }
+        return new PackedBooleanTensor(Arrays.copyOf(words, words.length), length, Arrays.copyOf(newShape, newShape.length));
+    }
+
+    @Override
+    public BooleanTensor and(BooleanTensor that) {
+        return duplicate().andInPlace(that);
+    }
+
+    @Override
+    public BooleanTensor or(BooleanTensor that) {
+        return duplicate().orInPlace(that);
+    }
+
+    @Override
+    public BooleanTensor xor(BooleanTensor that) {
+        return duplicate().xorInPlace(that);
+    }
+
+    @Override
+    public BooleanTensor not() {
+        return duplicate().notInPlace();
+    }
+
+    /**
+     * A length one tensor is treated as all trues or all falses, so e.g. and(true) leaves this unchanged. Any other
+     * tensor must have the same shape as this one.
+     */
+    private long[] getWordsLike(BooleanTensor that) {
+        if (that.isLengthOne()) {
+            if (length != 1) {
+                long[] filled = new long[words.length];
+                if (that.scalar()) {
+                    Arrays.fill(filled, -1L);
+                }
+                return filled;
+            }
+        } else {
+            TensorShapeValidation.checkShapesMatch(that.getShape(), shape);
+        }
+        return getWords(that);
+    }
+
+    @Override
+    public BooleanTensor andInPlace(BooleanTensor that) {
+        long[] thatWords = getWordsLike(that);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= thatWords[i];
+        }
+        return this;
+    }
+
+    @Override
+    public BooleanTensor orInPlace(BooleanTensor that) {
+        long[] thatWords = getWordsLike(that);
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= thatWords[i];
+        }
+        return clearUnusedBits();
+    }
+
+    @Override
+    public BooleanTensor xorInPlace(BooleanTensor that) {
+        long[] thatWords = getWordsLike(that);
+        for (int i = 0; i < words.length; i++) {
+            words[i] ^= thatWords[i];
+        }
+        return clearUnusedBits();
+    }
+
+    @Override
+    public BooleanTensor notInPlace() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = ~words[i];
+        }
+        return clearUnusedBits();
+    }
+
+    @Override
+    public boolean allTrue() {
+        return countTrue() == length;
+    }
+
+    @Override
+    public boolean allFalse() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long countTrue() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public DoubleTensor doubleWhere(DoubleTensor trueValue, DoubleTensor falseValue) {
+        double[] trueValues = trueValue.asFlatDoubleArray();
+        double[] falseValues = falseValue.asFlatDoubleArray();
+
+        double[] result = new double[length];
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            int from = w * BITS_PER_WORD;
+            int to = Math.min(from + BITS_PER_WORD, length);
+            for (int i = from; i < to; i++, word >>>= 1) {
+                result[i] = (word & 1L) != 0 ? getOrScalar(trueValues, i) : getOrScalar(falseValues, i);
+            }
+        }
+
+        return DoubleTensor.create(result, getShape());
+    }
+
+    private static double getOrScalar(double[] values, int index) {
+        if (values.length == 1) {
+            return values[0];
+        } else {
+            return values[index];
+        }
+    }
+
+    @Override
+    public IntegerTensor integerWhere(IntegerTensor trueValue, IntegerTensor falseValue) {
+        FlattenedView<Integer> trueValuesFlattened = trueValue.getFlattenedView();
+        FlattenedView<Integer> falseValuesFlattened = falseValue.getFlattenedView();
+
+        int[] result = new int[length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = get(i) ? trueValuesFlattened.getOrScalar(i) : falseValuesFlattened.getOrScalar(i);
+        }
+
+        return IntegerTensor.create(result, getShape());
+    }
+
+    @Override
+    public BooleanTensor booleanWhere(BooleanTensor trueValue, BooleanTensor falseValue) {
+        long[] trueWords = getWordsLike(trueValue);
+        long[] falseWords = getWordsLike(falseValue);
+
+        long[] result = new long[words.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (words[i] & trueWords[i]) | (~words[i] & falseWords[i]);
+        }
+
+        return new PackedBooleanTensor(result, length, getShape()).clearUnusedBits();
+    }
+
+    @Override
+    public <T, TENSOR extends Tensor<T>> TENSOR where(TENSOR trueValue, TENSOR falseValue) {
+        if (trueValue instanceof DoubleTensor && falseValue instanceof DoubleTensor) {
+            return (TENSOR) doubleWhere((DoubleTensor) trueValue, (DoubleTensor) falseValue);
+        } else if (trueValue instanceof IntegerTensor && falseValue instanceof IntegerTensor) {
+            return (TENSOR) integerWhere((IntegerTensor) trueValue, (IntegerTensor) falseValue);
+        } else if (trueValue instanceof BooleanTensor && falseValue instanceof BooleanTensor) {
+            return (TENSOR) booleanWhere((BooleanTensor) trueValue, (BooleanTensor) falseValue);
+        } else {
+            FlattenedView<T> trueValuesFlattened = trueValue.getFlattenedView();
+            FlattenedView<T> falseValuesFlattened = falseValue.getFlattenedView();
+
+            T[] result = (T[]) (new Object[length]);
+            for (int i = 0; i < result.length; i++) {
+                result[i] = get(i) ? trueValuesFlattened.getOrScalar(i) : falseValuesFlattened.getOrScalar(i);
+            }
+
+            return Tensor.create(result, getShape());
+        }
+    }
+
+    @Override
+    public DoubleTensor toDoubleMask() {
+        return DoubleTensor.create(asFlatDoubleArray(), getShape());
+    }
+
+    @Override
+    public IntegerTensor toIntegerMask() {
+        return IntegerTensor.create(asFlatIntegerArray(), getShape());
+    }
+
+    @Override
+    public BooleanTensor slice(int dimension, long index) {
+        TensorShapeValidation.checkDimensionExistsInShape(dimension, shape);
+        Preconditions.checkArgument(
+            index >= 0 && index < shape[dimension],
+            "Cannot slice index " + index + " of dimension " + dimension + " with shape " + Arrays.toString(shape)
+        );
+
+        long[] slicedShape = ArrayUtils.remove(shape, dimension);
+        int outer = checkedCast(TensorShape.getLength(Arrays.copyOfRange(shape, 0, dimension)));
+        int inner = checkedCast(stride[dimension]);
+        int dimensionLength = checkedCast(shape[dimension]);
+
+        PackedBooleanTensor sliced = new PackedBooleanTensor(new long[wordCount(outer * inner)], outer * inner, slicedShape);
+        for (int o = 0; o < outer; o++) {
+            int from = (o * dimensionLength + checkedCast(index)) * inner;
+            for (int i = 0; i < inner; i++) {
+                sliced.set(o * inner + i, get(from + i));
+            }
+        }
+
+        return sliced;
+    }
+
+    @Override
+    public int getRank() {
+        return shape.length;
+    }
+
+    @Override
+    public long[] getShape() {
+        return Arrays.copyOf(shape, shape.length);
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public boolean isShapePlaceholder() {
+        return false;
+    }
+
+    @Override
+    public Boolean getValue(long... index) {
+        return get(checkedCast(getFlatIndex(shape, stride, index)));
+    }
+
+    @Override
+    public BooleanTensor setValue(Boolean value, long... index) {
+        set(checkedCast(getFlatIndex(shape, stride, index)), value);
+        return this;
+    }
+
+    @Override
+    public Boolean scalar() {
+        return get(0);
+    }
+
+    @Override
+    public BooleanTensor duplicate() {
+        return new PackedBooleanTensor(Arrays.copyOf(words, words.length), length, getShape());
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Tensor that) {
+        if (that instanceof BooleanTensor && that.hasSameShapeAs(shape)) {
+            return xor((BooleanTensor) that).notInPlace();
+        }
+        return Tensor.elementwiseEquals(this, that);
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Boolean value) {
+        return value ? duplicate() : not();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o instanceof PackedBooleanTensor) {
+            PackedBooleanTensor that = (PackedBooleanTensor) o;
+            return Arrays.equals(shape, that.shape) && Arrays.equals(words, that.words);
+        } else if (o instanceof Tensor) {
+            Tensor that = (Tensor) o;
+            if (!Arrays.equals(that.getShape(), shape)) return false;
+            return Arrays.equals(
+                that.asFlatArray(),
+                this.asFlatArray()
+            );
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the same hash code as a {@link SimpleBooleanTensor} with the same values
+     */
+    @Override
+    public int hashCode() {
+        int dataHash = 1;
+        for (int i = 0; i < length; i++) {
+            dataHash = 31 * dataHash + Boolean.hashCode(get(i));
+        }
+
+        int result = dataHash;
+        result = 31 * result + Arrays.hashCode(shape);
+        result = 31 * result + Arrays.hashCode(stride);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder dataString = new StringBuilder();
+        boolean[] data = ArrayUtils.toPrimitive(asFlatArray());
+        if (data.length > 20) {
+            dataString.append(Arrays.toString(Arrays.copyOfRange(data, 0, 10)));
+            dataString.append("...");
+            dataString.append(Arrays.toString(Arrays.copyOfRange(data, data.length - 10, data.length)));
+        } else {
+            dataString.append(Arrays.toString(data));
+        }
+
+        return "{\n" +
+            "shape = " + Arrays.toString(shape) +
+            "\ndata = " + dataString.toString() +
+            "\n}";
+    }
+
+    @Override
+    public FlattenedView<Boolean> getFlattenedView() {
+        return new PackedBooleanFlattenedView();
+    }
+
+    private class PackedBooleanFlattenedView implements FlattenedView<Boolean> {
+
+        @Override
+        public long size() {
+            return length;
+        }
+
+        @Override
+        public Boolean get(long index) {
+            return PackedBooleanTensor.this.get(checkedCast(index));
+        }
+
+        @Override
+        public Boolean getOrScalar(long index) {
+            if (length == 1) {
+                return get(0);
+            } else {
+                return get(index);
+            }
+        }
+
+        @Override
+        public void set(long index, Boolean value) {
+            PackedBooleanTensor.this.set(checkedCast(index), value);
+        }
+    }
+
+    @Override
+    public double[] asFlatDoubleArray() {
+        double[] doubles = new double[length];
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = get(i) ? 1.0 : 0.0;
+        }
+        return doubles;
+    }
+
+    @Override
+    public int[] asFlatIntegerArray() {
+        int[] integers = new int[length];
+        for (int i = 0; i < integers.length; i++) {
+            integers[i] = get(i) ? 1 : 0;
+        }
+        return integers;
+    }
+
+    @Override
+    public Boolean[] asFlatArray() {
+        Boolean[] values = new Boolean[length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+}
@@ -225,6 +225,17 @@ public class SimpleBooleanTensor implements BooleanTensor {
         return true;
     }
 
+    @Override
+    public long countTrue() {
+        long count = 0;
+        for (boolean value : data) {
+            if (value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     @Override
     public DoubleTensor toDoubleMask() {
         double[] doubles = asFlatDoubleArray();
@@ -3,6 +3,7 @@ package io.improbable.keanu.tensor.dbl;
 import io.improbable.keanu.kotlin.DoubleOperators;
 import io.improbable.keanu.tensor.NumberTensor;
 import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
 import org.apache.commons.lang3.ArrayUtils;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -28,6 +29,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor create(double value, long[] shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(value);
+        } else if (JvmDoubleTensor.isPreferredFor(TensorShape.getLength(shape))) {
+            return JvmDoubleTensor.create(value, shape);
         } else {
             return Nd4jDoubleTensor.create(value, shape);
         }
@@ -36,6 +39,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor create(double[] values, long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE) && values.length == 1) {
             return new ScalarDoubleTensor(values[0]);
+        } else if (JvmDoubleTensor.isPreferredFor(values.length) && values.length == TensorShape.getLength(shape)) {
+            return JvmDoubleTensor.create(values, shape);
         } else {
             return Nd4jDoubleTensor.create(values, shape);
         }
@@ -48,6 +53,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor ones(long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(1.0);
+        } else if (JvmDoubleTensor.isPreferredFor(TensorShape.getLength(shape))) {
+            return JvmDoubleTensor.ones(shape);
         } else {
             return Nd4jDoubleTensor.ones(shape);
         }
@@ -56,6 +63,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor eye(long n) {
         if (n == 1) {
             return new ScalarDoubleTensor(1.0);
+        } else if (JvmDoubleTensor.isPreferredFor(n * n)) {
+            return JvmDoubleTensor.eye(n);
         } else {
             return Nd4jDoubleTensor.eye(n);
         }
@@ -64,6 +73,8 @@ public interface DoubleTensor extends NumberTensor<Double, DoubleTensor>, Double
     static DoubleTensor zeros(long... shape) {
         if (Arrays.equals(shape, Tensor.SCALAR_SHAPE)) {
             return new ScalarDoubleTensor(0.0);
+        } else if (JvmDoubleTensor.isPreferredFor(TensorShape.getLength(shape))) {
+            return JvmDoubleTensor.zeros(shape);
         } else {
             return Nd4jDoubleTensor.zeros(shape);
         }
@@ -0,0 +1,1344 @@
+package io.improbable.keanu.tensor.dbl;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.TensorShapeValidation;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.tensor.validate.TensorValidator;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.special.Gamma;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+
+import static com.google.common.primitives.Ints.checkedCast;
+import static io.improbable.keanu.tensor.TensorShape.getAbsoluteDimension;
+
+/**
+ * Class for representing small n-dimensional arrays of doubles. This is backed by a row major (c ordered) double
+ * array and implements every operation on the JVM, so it avoids the fixed cost of dispatching to ND4J that
+ * dominates operations on tensors with only a handful of elements.
+ * <p>
+ * Broadcasting follows the numpy rules, which is a superset of what {@link Nd4jDoubleTensor} supports.
+ * Tensors are only created with ND4J by default. {@link DoubleTensor#create} and its siblings choose this class for
+ * non-scalar tensors of at most {@link #getMaxLength()} elements once that has been set above zero, e.g. to 1024.
+ */
+public class JvmDoubleTensor implements DoubleTensor {
+
+    private static final int DEFAULT_MAX_LENGTH = 0;
+
+    /**
+     * Above this many multiplications ND4J's BLAS matrix multiply is faster than the naive one
+     */
+    private static final long MAX_JVM_MATRIX_MULTIPLY_OPERATIONS = 16 * 16 * 16;
+
+    private static final AtomicInteger MAX_LENGTH = new AtomicInteger(DEFAULT_MAX_LENGTH);
+
+    /**
+     * The same relative tolerance that ND4J uses when comparing arrays with equals
+     */
+    private static final double EQUALS_EPSILON = 1e-5;
+
+    static {
+        String maxLength = System.getProperty("io.improbable.keanu.tensor.dbl.JvmDoubleTensor.maxLength");
+
+        if (maxLength != null) {
+            MAX_LENGTH.set(Integer.parseInt(maxLength));
+        }
+    }
+
+    /**
+     * @return the longest non-scalar tensor that {@link DoubleTensor#create} and its siblings will back with a
+     * JvmDoubleTensor rather than an {@link Nd4jDoubleTensor}
+     */
+    public static int getMaxLength() {
+        return MAX_LENGTH.get();
+    }
+
+    /**
+     * @param maxLength the longest tensor to create as a JvmDoubleTensor. Zero, the default, means tensors are always
+     *                  created with ND4J. This can also be set with the
+     *                  io.improbable.keanu.tensor.dbl.JvmDoubleTensor.maxLength system property.
+     */
+    public static void setMaxLength(int maxLength) {
+        Preconditions.checkArgument(maxLength >= 0, "Max length must be non-negative but was " + maxLength);
+        MAX_LENGTH.set(maxLength);
+    }
+
+    static boolean isPreferredFor(long length) {
+        return length <= MAX_LENGTH.get();
+    }
+
+    private double[] buffer;
+    private long[] shape;
+    private long[] stride;
+
+    private JvmDoubleTensor(double[] buffer, long[] shape) {
+        this.buffer = buffer;
+        this.shape = shape;
+        this.stride = TensorShape.getRowFirstStride(shape);
+    }
+
+    /**
+     * @param values tensor data in c ordering. This is copied.
+     * @param shape  desired shape of tensor
+     * @return a tensor of the given shape containing a copy of the values
+     */
+    public static JvmDoubleTensor create(double[] values, long[] shape) {
+        Preconditions.checkArgument(
+            TensorShape.getLength(shape) == values.length,
+            "Shape " + Arrays.toString(shape) + " does not match data length " + values.length
+        );
+        return new JvmDoubleTensor(Arrays.copyOf(values, values.length), Arrays.copyOf(shape, shape.length));
+    }
+
+    public static JvmDoubleTensor create(double value, long[] shape) {
+        double[] buffer = new double[TensorShape.getLengthAsInt(shape)];
+        Arrays.fill(buffer, value);
+        return new JvmDoubleTensor(buffer, Arrays.copyOf(shape, shape.length));
+    }
+
+    public static JvmDoubleTensor ones(long... shape) {
+        return create(1.0, shape);
+    }
+
+    public static JvmDoubleTensor zeros(long... shape) {
+        return create(0.0, shape);
+    }
+
+    public static JvmDoubleTensor eye(long n) {
+        int size = checkedCast(n);
+        double[] buffer = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            buffer[i * size + i] = 1.0;
+        }
+        return new JvmDoubleTensor(buffer, new long[]{n, n});
+    }
+
+    /**
+     * @param tensor any tensor
+     * @return the data of the tensor in c order, without copying it if it is already a JvmDoubleTensor
+     */
+    private static double[] getBuffer(DoubleTensor tensor) {
+        if (tensor instanceof JvmDoubleTensor) {
+            return ((JvmDoubleTensor) tensor).buffer;
+        }
+        return tensor.asFlatDoubleArray();
+    }
+
+    @Override
+    public int getRank() {
+        return shape.length;
+    }
+
+    @Override
+    public long[] getShape() {
+        return Arrays.copyOf(shape, shape.length);
+    }
+
+    @Override
+    public long getLength() {
+        return buffer.length;
+    }
+
+    @Override
+    public boolean isShapePlaceholder() {
+        return buffer == null;
+    }
+
+    @Override
+    public Double getValue(long... index) {
+        return buffer[getFlatIndex(index)];
+    }
+
+    @Override
+    public DoubleTensor setValue(Double value, long... index) {
+        buffer[getFlatIndex(index)] = value;
+        return this;
+    }
+
+    /**
+     * A single index into a tensor that isn't a vector is an index into its flattened buffer, as it is in ND4J.
+     */
+    private int getFlatIndex(long[] index) {
+        if (index.length == 1 && shape.length != 1) {
+            if (index[0] < 0 || index[0] >= buffer.length) {
+                throw new IllegalArgumentException(
+                    "Invalid index " + Arrays.toString(index) + " for shape " + Arrays.toString(shape)
+                );
+            }
+            return checkedCast(index[0]);
+        }
+        return checkedCast(TensorShape.getFlatIndex(shape, stride, index));
+    }
+
+    @Override
+    public Double scalar() {
+        return buffer[0];
+    }
+
+    @Override
+    public DoubleTensor duplicate() {
+        return new JvmDoubleTensor(Arrays.copyOf(buffer, buffer.length), Arrays.copyOf(shape, shape.length));
+    }
+
+    @Override
+    public DoubleTensor reshape(long... newShape) {
+        newShape = inferUnknownDimension(newShape);
+        if (TensorShape.getLength(newShape) != buffer.length) {
+            throw new IllegalArgumentException("Cannot reshape a tensor to a shape of different length. Failed to reshape: "
+                + Arrays.toString(shape) + " to: " + Arrays.toString(newShape));
+        }
+        return new JvmDoubleTensor(Arrays.copyOf(buffer, buffer.length), Arrays.copyOf(newShape, newShape.length));
+    }
+
+    /**
+     * @return the shape with a dimension of -1, if there is one, replaced by whatever length keeps the length of
+     * this tensor unchanged
+     */
+    private long[] inferUnknownDimension(long[] newShape) {
+        int unknownDimension = ArrayUtils.indexOf(newShape, -1L);
+        if (unknownDimension == ArrayUtils.INDEX_NOT_FOUND) {
+            return newShape;
+        }
+
+        long[] inferredShape = Arrays.copyOf(newShape, newShape.length);
+        inferredShape[unknownDimension] = 1;
+        long knownLength = TensorShape.getLength(inferredShape);
+        if (knownLength > 0) {
+            inferredShape[unknownDimension] = buffer.length / knownLength;
+        }
+        return inferredShape;
+    }
+
+    @Override
+    public DoubleTensor permute(int... rearrange) {
+        Preconditions.checkArgument(
+            rearrange.length == shape.length,
+            "Cannot permute " + Arrays.toString(shape) + " by " + Arrays.toString(rearrange)
+        );
+
+        long[] permutedShape = new long[shape.length];
+        long[] permutedStride = new long[shape.length];
+        for (int i = 0; i < rearrange.length; i++) {
+            permutedShape[i] = shape[rearrange[i]];
+            permutedStride[i] = stride[rearrange[i]];
+        }
+
+        double[] permuted = new double[buffer.length];
+        long[] index = new long[shape.length];
+        for (int i = 0; i < permuted.length; i++) {
+            int from = 0;
+            for (int d = 0; d < index.length; d++) {
+                from += index[d] * permutedStride[d];
+            }
+            permuted[i] = buffer[from];
+            incrementIndex(index, permutedShape);
+        }
+
+        return new JvmDoubleTensor(permuted, permutedShape);
+    }
+
+    private static void incrementIndex(long[] index, long[] shape) {
+        for (int d = index.length - 1; d >= 0; d--) {
+            index[d]++;
+            if (index[d] < shape[d]) {
+                return;
+            }
+            index[d] = 0;
+        }
+    }
+
+    /**
+     * @return a matrix with this on its diagonal if this is a vector, including row and column vectors, or
+     * otherwise the diagonal of this square matrix as a vector
+     */
+    @Override
+    public DoubleTensor diag() {
+        if (shape.length == 1 || (shape.length == 2 && (shape[0] == 1 || shape[1] == 1))) {
+            int n = buffer.length;
+            double[] diagonal = new double[n * n];
+            for (int i = 0; i < n; i++) {
+                diagonal[i * n + i] = buffer[i];
+            }
+            return new JvmDoubleTensor(diagonal, new long[]{n, n});
+        } else if (isSquareMatrix()) {
+            int n = checkedCast(shape[0]);
+            double[] diagonal = new double[n];
+            for (int i = 0; i < n; i++) {
+                diagonal[i] = buffer[i * n + i];
+            }
+            return new JvmDoubleTensor(diagonal, new long[]{n});
+        } else {
+            throw new IllegalArgumentException("Diag is only defined for vectors and square matrices but shape was " + Arrays.toString(shape));
+        }
+    }
+
+    private boolean isSquareMatrix() {
+        return shape.length == 2 && shape[0] == shape[1];
+    }
+
+    /**
+     * @return the tensor with the order of its dimensions reversed
+     */
+    @Override
+    public DoubleTensor transpose() {
+        int[] reversed = new int[shape.length];
+        for (int i = 0; i < reversed.length; i++) {
+            reversed[i] = reversed.length - 1 - i;
+        }
+        return permute(reversed);
+    }
+
+    @Override
+    public DoubleTensor sum(int... overDimensions) {
+        if (overDimensions.length == 0) {
+            return duplicate();
+        }
+
+        overDimensions = TensorShape.getAbsoluteDimensions(shape.length, overDimensions);
+        long[] summedShape = ArrayUtils.removeAll(shape, overDimensions);
+
+        boolean[] isSummed = new boolean[shape.length];
+        for (int dimension : overDimensions) {
+            isSummed[dimension] = true;
+        }
+
+        long[] summedStride = TensorShape.getRowFirstStride(summedShape);
+        long[] resultStride = new long[shape.length];
+        for (int d = 0, summedDimension = 0; d < shape.length; d++) {
+            resultStride[d] = isSummed[d] ? 0 : summedStride[summedDimension++];
+        }
+
+        double[] summed = new double[TensorShape.getLengthAsInt(summedShape)];
+        long[] index = new long[shape.length];
+        for (double value : buffer) {
+            int to = 0;
+            for (int d = 0; d < index.length; d++) {
+                to += index[d] * resultStride[d];
+            }
+            summed[to] += value;
+            incrementIndex(index, shape);
+        }
+
+        return new JvmDoubleTensor(summed, summedShape);
+    }
+
+    @Override
+    public Double sum() {
+        double sum = 0.0;
+        for (double value : buffer) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Override
+    public DoubleTensor toDouble() {
+        return duplicate();
+    }
+
+    @Override
+    public IntegerTensor toInteger() {
+        return IntegerTensor.create(asFlatIntegerArray(), getShape());
+    }
+
+    @Override
+    public DoubleTensor apply(Function<Double, Double> function) {
+        return duplicate().applyInPlace(function);
+    }
+
+    @Override
+    public DoubleTensor reciprocal() {
+        return duplicate().reciprocalInPlace();
+    }
+
+    @Override
+    public DoubleTensor minus(double value) {
+        return duplicate().minusInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor plus(double value) {
+        return duplicate().plusInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor times(double value) {
+        return duplicate().timesInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor div(double value) {
+        return duplicate().divInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor matrixMultiply(DoubleTensor that) {
+        long[] thatShape = that.getShape();
+
+        boolean isSupported = shape.length == 2 && thatShape.length >= 1 && thatShape.length <= 2 && shape[1] == thatShape[0];
+        long columnCount = thatShape.length == 2 ? thatShape[1] : 1;
+
+        if (!isSupported || shape[0] * shape[1] * columnCount > MAX_JVM_MATRIX_MULTIPLY_OPERATIONS) {
+            //leave the large and unusual cases, and the errors, to ND4J
+            return new Nd4jDoubleTensor(Nd4jDoubleTensor.unsafeGetNd4J(this)).matrixMultiply(that);
+        }
+
+        int rows = checkedCast(shape[0]);
+        int inner = checkedCast(shape[1]);
+        int columns = checkedCast(columnCount);
+        double[] right = getBuffer(that);
+
+        double[] product = new double[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            for (int k = 0; k < inner; k++) {
+                double left = buffer[i * inner + k];
+                for (int j = 0; j < columns; j++) {
+                    product[i * columns + j] += left * right[k * columns + j];
+                }
+            }
+        }
+
+        long[] productShape = thatShape.length == 2 ? new long[]{rows, columns} : new long[]{rows};
+        return new JvmDoubleTensor(product, productShape);
+    }
+
+    @Override
+    public DoubleTensor tensorMultiply(DoubleTensor value, int[] dimsLeft, int[] dimsRight) {
+        return new Nd4jDoubleTensor(Nd4jDoubleTensor.unsafeGetNd4J(this)).tensorMultiply(value, dimsLeft, dimsRight);
+    }
+
+    @Override
+    public DoubleTensor pow(DoubleTensor exponent) {
+        return duplicate().powInPlace(exponent);
+    }
+
+    @Override
+    public DoubleTensor pow(double exponent) {
+        return duplicate().powInPlace(exponent);
+    }
+
+    @Override
+    public DoubleTensor sqrt() {
+        return duplicate().sqrtInPlace();
+    }
+
+    @Override
+    public DoubleTensor log() {
+        return duplicate().logInPlace();
+    }
+
+    @Override
+    public DoubleTensor safeLogTimes(DoubleTensor y) {
+        return duplicate().safeLogTimesInPlace(y);
+    }
+
+    @Override
+    public DoubleTensor logGamma() {
+        return duplicate().logGammaInPlace();
+    }
+
+    @Override
+    public DoubleTensor digamma() {
+        return duplicate().digammaInPlace();
+    }
+
+    @Override
+    public DoubleTensor sin() {
+        return duplicate().sinInPlace();
+    }
+
+    @Override
+    public DoubleTensor cos() {
+        return duplicate().cosInPlace();
+    }
+
+    @Override
+    public DoubleTensor tan() {
+        return duplicate().tanInPlace();
+    }
+
+    @Override
+    public DoubleTensor atan() {
+        return duplicate().atanInPlace();
+    }
+
+    @Override
+    public DoubleTensor atan2(double y) {
+        return duplicate().atan2InPlace(y);
+    }
+
+    @Override
+    public DoubleTensor atan2(DoubleTensor y) {
+        return duplicate().atan2InPlace(y);
+    }
+
+    @Override
+    public DoubleTensor asin() {
+        return duplicate().asinInPlace();
+    }
+
+    @Override
+    public DoubleTensor acos() {
+        return duplicate().acosInPlace();
+    }
+
+    @Override
+    public DoubleTensor exp() {
+        return duplicate().expInPlace();
+    }
+
+    @Override
+    public DoubleTensor matrixInverse() {
+        Preconditions.checkArgument(isSquareMatrix(), "Matrix inverse is only defined for square matrices but shape was " + Arrays.toString(shape));
+        RealMatrix inverse = new LUDecomposition(asRealMatrix()).getSolver().getInverse();
+        return fromRealMatrix(inverse);
+    }
+
+    @Override
+    public double max() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : buffer) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    @Override
+    public double min() {
+        double min = Double.POSITIVE_INFINITY;
+        for (double value : buffer) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    @Override
+    public int argMax() {
+        int argMax = 0;
+        for (int i = 1; i < buffer.length; i++) {
+            if (buffer[i] > buffer[argMax]) {
+                argMax = i;
+            }
+        }
+        return argMax;
+    }
+
+    @Override
+    public IntegerTensor argMax(int axis) {
+        TensorShapeValidation.checkDimensionExistsInShape(axis, shape);
+        long[] resultShape = TensorShape.removeDimension(axis, shape);
+
+        int axisLength = checkedCast(shape[axis]);
+        int axisStride = checkedCast(stride[axis]);
+        int outer = checkedCast(TensorShape.getLength(Arrays.copyOfRange(shape, 0, axis)));
+        int inner = axisStride;
+
+        int[] argMax = new int[outer * inner];
+        for (int o = 0; o < outer; o++) {
+            for (int i = 0; i < inner; i++) {
+                int start = o * axisLength * axisStride + i;
+                int maxIndex = 0;
+                for (int a = 1; a < axisLength; a++) {
+                    if (buffer[start + a * axisStride] > buffer[start + maxIndex * axisStride]) {
+                        maxIndex = a;
+                    }
+                }
+                argMax[o * inner + i] = maxIndex;
+            }
+        }
+
+        return IntegerTensor.create(argMax, resultShape);
+    }
+
+    @Override
+    public double average() {
+        return sum() / buffer.length;
+    }
+
+    /**
+     * @return the bias corrected standard deviation, which matches {@link Nd4jDoubleTensor#standardDeviation()}
+     */
+    @Override
+    public double standardDeviation() {
+        double average = average();
+        double sumOfSquares = 0.0;
+        for (double value : buffer) {
+            sumOfSquares += (value - average) * (value - average);
+        }
+        return Math.sqrt(sumOfSquares / (buffer.length - 1));
+    }
+
+    @Override
+    public boolean equalsWithinEpsilon(DoubleTensor o, double epsilon) {
+        if (this == o) return true;
+        if (!this.hasSameShapeAs(o)) return false;
+
+        double[] other = getBuffer(o);
+        for (int i = 0; i < buffer.length; i++) {
+            if (!(Math.abs(buffer[i] - other[i]) <= epsilon)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public DoubleTensor standardize() {
+        return duplicate().standardizeInPlace();
+    }
+
+    @Override
+    public DoubleTensor replaceNaN(double value) {
+        return duplicate().replaceNaNInPlace(value);
+    }
+
+    @Override
+    public DoubleTensor clamp(DoubleTensor min, DoubleTensor max) {
+        return duplicate().clampInPlace(min, max);
+    }
+
+    @Override
+    public DoubleTensor ceil() {
+        return duplicate().ceilInPlace();
+    }
+
+    @Override
+    public DoubleTensor floor() {
+        return duplicate().floorInPlace();
+    }
+
+    @Override
+    public DoubleTensor round() {
+        return duplicate().roundInPlace();
+    }
+
+    @Override
+    public DoubleTensor sigmoid() {
+        return duplicate().sigmoidInPlace();
+    }
+
+    /**
+     * @return the same triangular factor as {@link Nd4jDoubleTensor#choleskyDecomposition()}, i.e. the transpose
+     * of the lower triangular L where L times its transpose is this matrix
+     */
+    @Override
+    public DoubleTensor choleskyDecomposition() {
+        Preconditions.checkArgument(isSquareMatrix(), "Cholesky decomposition is only defined for square matrices but shape was " + Arrays.toString(shape));
+
+        int n = checkedCast(shape[0]);
+        double[] lower = new double[n * n];
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = buffer[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= lower[i * n + k] * lower[j * n + k];
+                }
+
+                if (i == j) {
+                    if (!(sum > 0.0)) {
+                        //not positive definite so leave the failure to LAPACK
+                        return new Nd4jDoubleTensor(Nd4jDoubleTensor.unsafeGetNd4J(this)).choleskyDecomposition();
+                    }
+                    lower[i * n + i] = Math.sqrt(sum);
+                } else {
+                    lower[i * n + j] = sum / lower[j * n + j];
+                }
+            }
+        }
+
+        return new JvmDoubleTensor(lower, new long[]{n, n}).transpose();
+    }
+
+    @Override
+    public double determinant() {
+        return new LUDecomposition(asRealMatrix()).getDeterminant();
+    }
+
+    private RealMatrix asRealMatrix() {
+        int rows = checkedCast(shape[0]);
+        int columns = checkedCast(shape[1]);
+        double[][] matrix = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(buffer, i * columns, matrix[i], 0, columns);
+        }
+        return new Array2DRowRealMatrix(matrix, false);
+    }
+
+    private static JvmDoubleTensor fromRealMatrix(RealMatrix matrix) {
+        int rows = matrix.getRowDimension();
+        int columns = matrix.getColumnDimension();
+        double[] buffer = new double[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(matrix.getRow(i), 0, buffer, i * columns, columns);
+        }
+        return new JvmDoubleTensor(buffer, new long[]{rows, columns});
+    }
+
+    @Override
+    public double product() {
+        double product = 1.0;
+        for (double value : buffer) {
+            product *= value;
+        }
+        return product;
+    }
+
+    /**
+     * @param dimension the dimension to take the slice from
+     * @param index     the index along the dimension
+     * @return the slice, which has one dimension fewer than this tensor
+     */
+    @Override
+    public DoubleTensor slice(int dimension, long index) {
+        TensorShapeValidation.checkDimensionExistsInShape(dimension, shape);
+        Preconditions.checkArgument(
+            index >= 0 && index < shape[dimension],
+            "Cannot slice index " + index + " of dimension " + dimension + " with shape " + Arrays.toString(shape)
+        );
+
+        long[] slicedShape = ArrayUtils.remove(shape, dimension);
+        int outer = checkedCast(TensorShape.getLength(Arrays.copyOfRange(shape, 0, dimension)));
+        int inner = checkedCast(stride[dimension]);
+        int dimensionLength = checkedCast(shape[dimension]);
+
+        double[] sliced = new double[outer * inner];
+        for (int o = 0; o < outer; o++) {
+            System.arraycopy(buffer, (o * dimensionLength + checkedCast(index)) * inner, sliced, o * inner, inner);
+        }
+
+        return new JvmDoubleTensor(sliced, slicedShape);
+    }
+
+    /**
+     * @param dimension      the dimension to split on
+     * @param splitAtIndices the exclusive end of each piece along the dimension
+     * @return the pieces, which have the same rank as this tensor
+     * @see Nd4jDoubleTensor#split(int, long...)
+     */
+    @Override
+    public List<DoubleTensor> split(int dimension, long... splitAtIndices) {
+        dimension = getAbsoluteDimension(dimension, getRank());
+
+        if (dimension < 0 || dimension >= shape.length) {
+            throw new IllegalArgumentException("Invalid dimension to split on " + dimension);
+        }
+
+        int outer = checkedCast(TensorShape.getLength(Arrays.copyOfRange(shape, 0, dimension)));
+        int inner = checkedCast(stride[dimension]);
+        int dimensionLength = checkedCast(shape[dimension]);
+
+        List<DoubleTensor> splits = new ArrayList<>();
+        long previousSplitIndex = 0;
+        for (long splitAtIndex : splitAtIndices) {
+
+            if (previousSplitIndex == splitAtIndex || splitAtIndex > dimensionLength) {
+                throw new IllegalArgumentException("Invalid index to split on " + splitAtIndex + " at dimension " + dimension + " for tensor of shape " + Arrays.toString(shape));
+            }
+
+            int pieceLength = checkedCast(splitAtIndex - previousSplitIndex);
+            long[] pieceShape = getShape();
+            pieceShape[dimension] = pieceLength;
+
+            double[] piece = new double[outer * pieceLength * inner];
+            for (int o = 0; o < outer; o++) {
+                System.arraycopy(
+                    buffer, (o * dimensionLength + checkedCast(previousSplitIndex)) * inner,
+                    piece, o * pieceLength * inner,
+                    pieceLength * inner
+                );
+            }
+
+            splits.add(new JvmDoubleTensor(piece, pieceShape));
+            previousSplitIndex = splitAtIndex;
+        }
+
+        return splits;
+    }
+
+    @Override
+    public DoubleTensor minus(DoubleTensor that) {
+        return duplicate().minusInPlace(that);
+    }
+
+    @Override
+    public DoubleTensor plus(DoubleTensor that) {
+        return duplicate().plusInPlace(that);
+    }
+
+    @Override
+    public DoubleTensor times(DoubleTensor that) {
+        return duplicate().timesInPlace(that);
+    }
+
+    @Override
+    public DoubleTensor div(DoubleTensor that) {
+        return duplicate().divInPlace(that);
+    }
+
+    @Override
+    public DoubleTensor unaryMinus() {
+        return duplicate().unaryMinusInPlace();
+    }
+
+    @Override
+    public DoubleTensor abs() {
+        return duplicate().absInPlace();
+    }
+
+    @Override
+    public DoubleTensor getGreaterThanMask(DoubleTensor greaterThanThis) {
+        return broadcast(buffer, shape, greaterThanThis, (a, b) -> a > b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor getGreaterThanOrEqualToMask(DoubleTensor greaterThanOrEqualToThis) {
+        return broadcast(buffer, shape, greaterThanOrEqualToThis, (a, b) -> a >= b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor getLessThanMask(DoubleTensor lessThanThis) {
+        return broadcast(buffer, shape, lessThanThis, (a, b) -> a < b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor getLessThanOrEqualToMask(DoubleTensor lessThanOrEqualToThis) {
+        return broadcast(buffer, shape, lessThanOrEqualToThis, (a, b) -> a <= b ? 1.0 : 0.0);
+    }
+
+    @Override
+    public DoubleTensor setWithMaskInPlace(DoubleTensor mask, Double value) {
+        if (this.getLength() != mask.getLength()) {
+            throw new IllegalArgumentException("The lengths of the tensor and mask must match, but got tensor length: " + this.getLength() + ", mask length: " + mask.getLength());
+        }
+
+        double[] maskBuffer = getBuffer(mask);
+        for (int i = 0; i < buffer.length; i++) {
+            if (maskBuffer[i] == 1.0) {
+                buffer[i] = value;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor setWithMask(DoubleTensor mask, Double value) {
+        return duplicate().setWithMaskInPlace(mask, value);
+    }
+
+    @Override
+    public DoubleTensor applyInPlace(Function<Double, Double> function) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = function.apply(buffer[i]);
+        }
+        return this;
+    }
+
+    private DoubleTensor transformInPlace(DoubleUnaryOperator operator) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = operator.applyAsDouble(buffer[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Applies the operator between this and that, broadcasting them against each other, and stores the result
+     * in this. Unlike {@link Nd4jDoubleTensor} this always returns this, which takes on the broadcast shape.
+     */
+    private DoubleTensor broadcastInPlace(DoubleTensor that, DoubleBinaryOperator operator) {
+        if (that.isLengthOne()) {
+            double right = that.scalar();
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = operator.applyAsDouble(buffer[i], right);
+            }
+            if (that.getRank() > shape.length) {
+                setShape(TensorShape.shapeToDesiredRankByPrependingOnes(shape, that.getRank()));
+            }
+            return this;
+        }
+
+        if (that.hasSameShapeAs(shape)) {
+            double[] right = getBuffer(that);
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = operator.applyAsDouble(buffer[i], right[i]);
+            }
+            return this;
+        }
+
+        JvmDoubleTensor result = broadcast(buffer, shape, that, operator);
+        this.buffer = result.buffer;
+        setShape(result.shape);
+        return this;
+    }
+
+    private void setShape(long[] shape) {
+        this.shape = shape;
+        this.stride = TensorShape.getRowFirstStride(shape);
+    }
+
+    private static JvmDoubleTensor broadcast(double[] left, long[] leftShape, DoubleTensor that, DoubleBinaryOperator operator) {
+        double[] right = getBuffer(that);
+        long[] rightShape = that.getShape();
+        long[] resultShape = TensorShape.getBroadcastResultShape(leftShape, rightShape);
+
+        int rank = resultShape.length;
+        long[] leftStride = TensorShape.getBroadcastStride(leftShape, rank);
+        long[] rightStride = TensorShape.getBroadcastStride(rightShape, rank);
+
+        double[] result = new double[TensorShape.getLengthAsInt(resultShape)];
+        long[] index = new long[rank];
+        int leftIndex = 0;
+        int rightIndex = 0;
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = operator.applyAsDouble(left[leftIndex], right[rightIndex]);
+
+            for (int d = rank - 1; d >= 0; d--) {
+                index[d]++;
+                leftIndex += leftStride[d];
+                rightIndex += rightStride[d];
+                if (index[d] < resultShape[d]) {
+                    break;
+                }
+                leftIndex -= leftStride[d] * resultShape[d];
+                rightIndex -= rightStride[d] * resultShape[d];
+                index[d] = 0;
+            }
+        }
+
+        return new JvmDoubleTensor(result, resultShape);
+    }
+
+    @Override
+    public DoubleTensor reciprocalInPlace() {
+        return transformInPlace(x -> 1.0 / x);
+    }
+
+    @Override
+    public DoubleTensor minusInPlace(double value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] -= value;
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor plusInPlace(double value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] += value;
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor timesInPlace(double value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] *= value;
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor divInPlace(double value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] /= value;
+        }
+        return this;
+    }
+
+    @Override
+    public DoubleTensor powInPlace(DoubleTensor exponent) {
+        return broadcastInPlace(exponent, Math::pow);
+    }
+
+    @Override
+    public DoubleTensor powInPlace(double exponent) {
+        return transformInPlace(x -> Math.pow(x, exponent));
+    }
+
+    @Override
+    public DoubleTensor sqrtInPlace() {
+        return transformInPlace(Math::sqrt);
+    }
+
+    @Override
+    public DoubleTensor logInPlace() {
+        return transformInPlace(Math::log);
+    }
+
+    /**
+     * This is identical to log().times(y), except that it changes NaN results to 0.
+     * This is important when calculating 0log0, which should return 0
+     * See https://arcsecond.wordpress.com/2009/03/19/0log0-0-for-real/ for some mathematical justification
+     *
+     * @param y The tensor value to multiply by
+     * @return the log of this tensor multiplied by y
+     */
+    @Override
+    public DoubleTensor safeLogTimesInPlace(DoubleTensor y) {
+        TensorValidator.NAN_CATCHER.validate(this);
+        TensorValidator.NAN_CATCHER.validate(y);
+        DoubleTensor result = this.logInPlace().timesInPlace(y);
+        return TensorValidator.NAN_FIXER.validate(result);
+    }
+
+    @Override
+    public DoubleTensor logGammaInPlace() {
+        return transformInPlace(Gamma::logGamma);
+    }
+
+    @Override
+    public DoubleTensor digammaInPlace() {
+        return transformInPlace(Gamma::digamma);
+    }
+
+    @Override
+    public DoubleTensor sinInPlace() {
+        return transformInPlace(Math::sin);
+    }
+
+    @Override
+    public DoubleTensor cosInPlace() {
+        return transformInPlace(Math::cos);
+    }
+
+    @Override
+    public DoubleTensor tanInPlace() {
+        return transformInPlace(Math::tan);
+    }
+
+    @Override
+    public DoubleTensor atanInPlace() {
+        return transformInPlace(Math::atan);
+    }
+
+    @Override
+    public DoubleTensor atan2InPlace(double y) {
+        return transformInPlace(x -> Math.atan2(y, x));
+    }
+
+    @Override
+    public DoubleTensor atan2InPlace(DoubleTensor y) {
+        return broadcastInPlace(y, (x, yValue) -> Math.atan2(yValue, x));
+    }
+
+    @Override
+    public DoubleTensor asinInPlace() {
+        return transformInPlace(Math::asin);
+    }
+
+    @Override
+    public DoubleTensor acosInPlace() {
+        return transformInPlace(Math::acos);
+    }
+
+    @Override
+    public DoubleTensor expInPlace() {
+        return transformInPlace(Math::exp);
+    }
+
+    @Override
+    public DoubleTensor minusInPlace(DoubleTensor that) {
+        return broadcastInPlace(that, (a, b) -> a - b);
+    }
+
+    @Override
+    public DoubleTensor plusInPlace(DoubleTensor that) {
+        return broadcastInPlace(that, (a, b) -> a + b);
+    }
+
+    @Override
+    public DoubleTensor timesInPlace(DoubleTensor that) {
+        return broadcastInPlace(that, (a, b) -> a * b);
+    }
+
+    @Override
+    public DoubleTensor divInPlace(DoubleTensor that) {
+        return broadcastInPlace(that, (a, b) -> a / b);
+    }
+
+    @Override
+    public DoubleTensor unaryMinusInPlace() {
+        return transformInPlace(x -> -x);
+    }
+
+    @Override
+    public DoubleTensor absInPlace() {
+        return transformInPlace(Math::abs);
+    }
+
+    @Override
+    public DoubleTensor minInPlace(DoubleTensor min) {
+        return broadcastInPlace(min, Math::min);
+    }
+
+    @Override
+    public DoubleTensor maxInPlace(DoubleTensor max) {
+        return broadcastInPlace(max, Math::max);
+    }
+
+    @Override
+    public DoubleTensor clampInPlace(DoubleTensor min, DoubleTensor max) {
+        return minInPlace(max).maxInPlace(min);
+    }
+
+    @Override
+    public DoubleTensor ceilInPlace() {
+        return transformInPlace(Math::ceil);
+    }
+
+    @Override
+    public DoubleTensor floorInPlace() {
+        return transformInPlace(Math::floor);
+    }
+
+    /**
+     * Rounds halves away from zero, which matches ND4J and Python rather than Java's Math.round
+     * e.g. round(-2.5) == -3.0
+     *
+     * @return Nearest integer value as a DoubleTensor
+     */
+    @Override
+    public DoubleTensor roundInPlace() {
+        return transformInPlace(x -> Math.copySign(Math.floor(Math.abs(x) + 0.5), x));
+    }
+
+    @Override
+    public DoubleTensor sigmoidInPlace() {
+        return transformInPlace(x -> 1.0D / (1.0D + FastMath.exp(-x)));
+    }
+
+    @Override
+    public DoubleTensor standardizeInPlace() {
+        double average = average();
+        double standardDeviation = standardDeviation();
+        return transformInPlace(x -> (x - average) / standardDeviation);
+    }
+
+    @Override
+    public DoubleTensor replaceNaNInPlace(double value) {
+        return transformInPlace(x -> Double.isNaN(x) ? value : x);
+    }
+
+    @Override
+    public DoubleTensor setAllInPlace(double value) {
+        Arrays.fill(buffer, value);
+        return this;
+    }
+
+    // Comparisons
+
+    @Override
+    public BooleanTensor lessThan(double value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] < value;
+        }
+        return BooleanTensor.create(result, getShape());
+    }
+
+    @Override
+    public BooleanTensor lessThanOrEqual(double value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] <= value;
+        }
+        return BooleanTensor.create(result, getShape());
+    }
+
+    @Override
+    public BooleanTensor greaterThan(double value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] > value;
+        }
+        return BooleanTensor.create(result, getShape());
+    }
+
+    @Override
+    public BooleanTensor greaterThanOrEqual(double value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] >= value;
+        }
+        return BooleanTensor.create(result, getShape());
+    }
+
+    @Override
+    public BooleanTensor notNaN() {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = !Double.isNaN(buffer[i]);
+        }
+        return BooleanTensor.create(result, getShape());
+    }
+
+    @Override
+    public BooleanTensor lessThan(DoubleTensor value) {
+        return getLessThanMask(value).elementwiseEquals(1.0);
+    }
+
+    @Override
+    public BooleanTensor lessThanOrEqual(DoubleTensor value) {
+        return getLessThanOrEqualToMask(value).elementwiseEquals(1.0);
+    }
+
+    @Override
+    public BooleanTensor greaterThan(DoubleTensor value) {
+        return getGreaterThanMask(value).elementwiseEquals(1.0);
+    }
+
+    @Override
+    public BooleanTensor greaterThanOrEqual(DoubleTensor value) {
+        return getGreaterThanOrEqualToMask(value).elementwiseEquals(1.0);
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Tensor that) {
+        if (that instanceof DoubleTensor) {
+            return broadcast(buffer, shape, (DoubleTensor) that, (a, b) -> a == b ? 1.0 : 0.0).elementwiseEquals(1.0);
+        } else {
+            return Tensor.elementwiseEquals(this, that);
+        }
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Double value) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = buffer[i] == value;
+        }
+        return BooleanTensor.create(result, getShape());
+    }
+
+    @Override
+    public FlattenedView<Double> getFlattenedView() {
+        return new JvmDoubleFlattenedView();
+    }
+
+    @Override
+    public double[] asFlatDoubleArray() {
+        return Arrays.copyOf(buffer, buffer.length);
+    }
+
+    @Override
+    public int[] asFlatIntegerArray() {
+        int[] integers = new int[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            integers[i] = (int) buffer[i];
+        }
+        return integers;
+    }
+
+    @Override
+    public Double[] asFlatArray() {
+        return ArrayUtils.toObject(buffer);
+    }
+
+    /**
+     * Non-scalar double tensors are compared the way ND4J compares arrays, which is within a small relative
+     * tolerance. This keeps equality the same whichever implementation a tensor happens to be backed by.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o instanceof JvmDoubleTensor || o instanceof Nd4jDoubleTensor) {
+            DoubleTensor that = (DoubleTensor) o;
+            return TensorShape.isEquivalent(shape, that.getShape()) && equalsWithinRelativeEpsilon(buffer, getBuffer(that));
+        } else if (o instanceof Tensor) {
+            Tensor that = (Tensor) o;
+            if (!Arrays.equals(that.getShape(), shape)) return false;
+            return Arrays.equals(
+                that.asFlatArray(),
+                this.asFlatArray()
+            );
+        }
+
+        return false;
+    }
+
+    private static boolean equalsWithinRelativeEpsilon(double[] a, double[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+
+        for (int i = 0; i < a.length; i++) {
+            double difference = Math.abs(a[i] - b[i]);
+            boolean equal = difference <= EQUALS_EPSILON ||
+                difference <= EQUALS_EPSILON * Math.max(Math.abs(a[i]), Math.abs(b[i]));
+            if (!equal) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCodeOf(shape, buffer);
+    }
+
+    /**
+     * Shared with {@link Nd4jDoubleTensor}, as a tensor can be equal to one of either class.
+     *
+     * @return a hash of the values, with -0.0 hashed as 0.0, and of the shape, with vectors of the same length
+     * hashed the same whatever their orientation
+     */
+    static int hashCodeOf(long[] shape, double[] values) {
+        int valuesHashCode = 1;
+        for (double value : values) {
+            //Double.hashCode already hashes every NaN the same
+            valuesHashCode = 31 * valuesHashCode + Double.hashCode(value == 0.0 ? 0.0 : value);
+        }
+        return 31 * TensorShape.equivalentShapeHashCode(shape) + valuesHashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "{\n" +
+            "data = " + Arrays.toString(buffer) +
+            "\nshape = " + Arrays.toString(shape) +
+            "\n}";
+    }
+
+    private class JvmDoubleFlattenedView implements FlattenedView<Double> {
+
+        @Override
+        public long size() {
+            return buffer.length;
+        }
+
+        @Override
+        public Double get(long index) {
+            return buffer[checkedCast(index)];
+        }
+
+        @Override
+        public Double getOrScalar(long index) {
+            if (buffer.length == 1) {
+                return buffer[0];
+            } else {
+                return get(index);
+            }
+        }
+
+        @Override
+        public void set(long index, Double value) {
+            buffer[checkedCast(index)] = value;
+        }
+    }
+}
@@ -7,7 +7,7 @@ import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.TensorShapeValidation;
 import io.improbable.keanu.tensor.TypedINDArrayFactory;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
-import io.improbable.keanu.tensor.bool.SimpleBooleanTensor;
+import io.improbable.keanu.tensor.bool.PackedBooleanTensor;
 import io.improbable.keanu.tensor.intgr.IntegerTensor;
 import io.improbable.keanu.tensor.intgr.Nd4jIntegerTensor;
 import io.improbable.keanu.tensor.validate.TensorValidator;
@@ -36,7 +36,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
 
-import static com.google.common.primitives.Ints.checkedCast;
 import static io.improbable.keanu.tensor.TensorShape.getAbsoluteDimension;
 import static io.improbable.keanu.tensor.TypedINDArrayFactory.valueArrayOf;
 import static java.util.Arrays.copyOf;
@@ -104,6 +103,9 @@ public class Nd4jDoubleTensor implements DoubleTensor {
         if (that.isLengthOne()) {
             return TypedINDArrayFactory.scalar(that.scalar(), BUFFER_TYPE).reshape(that.getShape());
         }
+        if (that instanceof JvmDoubleTensor) {
+            return TypedINDArrayFactory.create(that.asFlatDoubleArray(), that.getShape(), BUFFER_TYPE);
+        }
         return ((Nd4jDoubleTensor) that).tensor;
     }
 
@@ -1075,6 +1077,8 @@ public class Nd4jDoubleTensor implements DoubleTensor {
 
         if (o instanceof Nd4jDoubleTensor) {
             return tensor.equals(((Nd4jDoubleTensor) o).tensor);
+        } else if (o instanceof JvmDoubleTensor) {
+            return tensor.equals(unsafeGetNd4J((JvmDoubleTensor) o));
         } else if (o instanceof Tensor) {
             Tensor that = (Tensor) o;
             if (!Arrays.equals(that.getShape(), getShape())) return false;
@@ -1089,7 +1093,7 @@ public class Nd4jDoubleTensor implements DoubleTensor {
 
     @Override
     public int hashCode() {
-        return tensor.hashCode();
+        return JvmDoubleTensor.hashCodeOf(getShape(), asFlatDoubleArray());
     }
 
     @Override
@@ -1108,13 +1112,7 @@ public class Nd4jDoubleTensor implements DoubleTensor {
     }
 
     private BooleanTensor fromMask(INDArray mask, long[] shape) {
-        DataBuffer data = mask.data();
-        boolean[] boolsFromMask = new boolean[checkedCast(mask.length())];
-
-        for (int i = 0; i < boolsFromMask.length; i++) {
-            boolsFromMask[i] = data.getDouble(i) != 0.0;
-        }
-        return new SimpleBooleanTensor(boolsFromMask, shape);
+        return PackedBooleanTensor.fromMask(mask.data().asDouble(), shape);
     }
 
     @Override
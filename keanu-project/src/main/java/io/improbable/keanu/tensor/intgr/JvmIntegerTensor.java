@@ -0,0 +1,885 @@
+package io.improbable.keanu.tensor.intgr;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.TensorShapeValidation;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.bool.PackedBooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import org.apache.commons.lang3.ArrayUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+import static com.google.common.primitives.Ints.checkedCast;
+
+/**
+ * Class for representing n-dimensional arrays of integers. This is backed by a row major (c ordered) int array and
+ * implements every operation on the JVM, so it takes half the memory of an {@link Nd4jIntegerTensor}, which holds its
+ * integers as doubles, and no operation pays for converting between them or for dispatching to ND4J.
+ * <p>
+ * Broadcasting follows the numpy rules, which is a superset of what {@link Nd4jIntegerTensor} supports.
+ * {@link IntegerTensor#create} chooses this class for non-scalar tensors of at most {@link #getMaxLength()} elements,
+ * which by default is all of them.
+ */
+public class JvmIntegerTensor implements IntegerTensor {
+
+    private static final int DEFAULT_MAX_LENGTH = Integer.MAX_VALUE;
+
+    /**
+     * Above this many multiplications ND4J's BLAS matrix multiply is faster than the naive one
+     */
+    private static final long MAX_JVM_MATRIX_MULTIPLY_OPERATIONS = 16 * 16 * 16;
+
+    private static final AtomicInteger MAX_LENGTH = new AtomicInteger(DEFAULT_MAX_LENGTH);
+
+    static {
+        String maxLength = System.getProperty("io.improbable.keanu.tensor.intgr.JvmIntegerTensor.maxLength");
+
+        if (maxLength != null) {
+            MAX_LENGTH.set(Integer.parseInt(maxLength));
+        }
+    }
+
+    /**
+     * @return the longest non-scalar tensor that {@link IntegerTensor#create} and its siblings will back with a
+     * JvmIntegerTensor rather than an {@link Nd4jIntegerTensor}
+     */
+    public static int getMaxLength() {
+        return MAX_LENGTH.get();
+    }
+
+    /**
+     * @param maxLength the longest tensor to create as a JvmIntegerTensor. Zero means tensors are always created
+     *                  with ND4J. This can also be set with the
+     *                  io.improbable.keanu.tensor.intgr.JvmIntegerTensor.maxLength system property.
+     */
+    public static void setMaxLength(int maxLength) {
+        Preconditions.checkArgument(maxLength >= 0, "Max length must be non-negative but was " + maxLength);
+        MAX_LENGTH.set(maxLength);
+    }
+
+    static boolean isPreferredFor(long length) {
+        return length <= MAX_LENGTH.get();
+    }
+
+    private int[] buffer;
+    private long[] shape;
+    private long[] stride;
+
+    private JvmIntegerTensor(int[] buffer, long[] shape) {
+        this.buffer = buffer;
+        this.shape = shape;
+        this.stride = TensorShape.getRowFirstStride(shape);
+    }
+
+    /**
+     * @param values tensor data in c ordering. This is copied.
+     * @param shape  desired shape of tensor
+     * @return a tensor of the given shape containing a copy of the values
+     */
+    public static JvmIntegerTensor create(int[] values, long[] shape) {
+        Preconditions.checkArgument(
+            TensorShape.getLength(shape) == values.length,
+            "Shape " + Arrays.toString(shape) + " does not match data length " + values.length
+        );
+        return new JvmIntegerTensor(Arrays.copyOf(values, values.length), Arrays.copyOf(shape, shape.length));
+    }
+
+    public static JvmIntegerTensor create(int value, long[] shape) {
+        int[] buffer = new int[TensorShape.getLengthAsInt(shape)];
+        Arrays.fill(buffer, value);
+        return new JvmIntegerTensor(buffer, Arrays.copyOf(shape, shape.length));
+    }
+
+    public static JvmIntegerTensor ones(long... shape) {
+        return create(1, shape);
+    }
+
+    public static JvmIntegerTensor zeros(long... shape) {
+        return create(0, shape);
+    }
+
+    public static JvmIntegerTensor eye(long n) {
+        int size = checkedCast(n);
+        int[] buffer = new int[size * size];
+        for (int i = 0; i < size; i++) {
+            buffer[i * size + i] = 1;
+        }
+        return new JvmIntegerTensor(buffer, new long[]{n, n});
+    }
+
+    /**
+     * @param tensor any tensor
+     * @return the data of the tensor in c order, without copying it if it is already a JvmIntegerTensor
+     */
+    private static int[] getBuffer(IntegerTensor tensor) {
+        if (tensor instanceof JvmIntegerTensor) {
+            return ((JvmIntegerTensor) tensor).buffer;
+        }
+        return tensor.asFlatIntegerArray();
+    }
+
+    @Override
+    public int getRank() {
+        return shape.length;
+    }
+
+    @Override
+    public long[] getShape() {
+        return Arrays.copyOf(shape, shape.length);
+    }
+
+    @Override
+    public long getLength() {
+        return buffer.length;
+    }
+
+    @Override
+    public boolean isShapePlaceholder() {
+        return buffer == null;
+    }
+
+    @Override
+    public Integer getValue(long... index) {
+        return buffer[getFlatIndex(index)];
+    }
+
+    @Override
+    public IntegerTensor setValue(Integer value, long... index) {
+        buffer[getFlatIndex(index)] = value;
+        return this;
+    }
+
+    /**
+     * A single index into a tensor that isn't a vector is an index into its flattened buffer, as it is in ND4J.
+     */
+    private int getFlatIndex(long[] index) {
+        if (index.length == 1 && shape.length != 1) {
+            if (index[0] < 0 || index[0] >= buffer.length) {
+                throw new IllegalArgumentException(
+                    "Invalid index " + Arrays.toString(index) + " for shape " + Arrays.toString(shape)
+                );
+            }
+            return checkedCast(index[0]);
+        }
+        return checkedCast(TensorShape.getFlatIndex(shape, stride, index));
+    }
+
+    @Override
+    public Integer scalar() {
+        return buffer[0];
+    }
+
+    @Override
+    public IntegerTensor duplicate() {
+        return new JvmIntegerTensor(Arrays.copyOf(buffer, buffer.length), Arrays.copyOf(shape, shape.length));
+    }
+
+    @Override
+    public IntegerTensor reshape(long... newShape) {
+        newShape = inferUnknownDimension(newShape);
+        if (TensorShape.getLength(newShape) != buffer.length) {
+            throw new IllegalArgumentException("Cannot reshape a tensor to a shape of different length. Failed to reshape: "
+                + Arrays.toString(shape) + " to: " + Arrays.toString(newShape));
+        }
+        return new JvmIntegerTensor(Arrays.copyOf(buffer, buffer.length), Arrays.copyOf(newShape, newShape.length));
+    }
+
+    /**
+     * @return the shape with a dimension of -1, if there is one, replaced by whatever length keeps the length of
+     * this tensor unchanged
+     */
+    private long[] inferUnknownDimension(long[] newShape) {
+        int unknownDimension = ArrayUtils.indexOf(newShape, -1L);
+        if (unknownDimension == ArrayUtils.INDEX_NOT_FOUND) {
+            return newShape;
+        }
+
+        long[] inferredShape = Arrays.copyOf(newShape, newShape.length);
+        inferredShape[unknownDimension] = 1;
+        long knownLength = TensorShape.getLength(inferredShape);
+        if (knownLength > 0) {
+            inferredShape[unknownDimension] = buffer.length / knownLength;
+        }
+        return inferredShape;
+    }
+
+    private static void incrementIndex(long[] index, long[] shape) {
+        for (int d = index.length - 1; d >= 0; d--) {
+            index[d]++;
+            if (index[d] < shape[d]) {
+                return;
+            }
+            index[d] = 0;
+        }
+    }
+
+    /**
+     * @return a matrix with this on its diagonal if this is a vector, including row and column vectors, or
+     * otherwise the diagonal of this square matrix as a vector
+     */
+    @Override
+    public IntegerTensor diag() {
+        if (shape.length == 1 || (shape.length == 2 && (shape[0] == 1 || shape[1] == 1))) {
+            int n = buffer.length;
+            int[] diagonal = new int[n * n];
+            for (int i = 0; i < n; i++) {
+                diagonal[i * n + i] = buffer[i];
+            }
+            return new JvmIntegerTensor(diagonal, new long[]{n, n});
+        } else if (shape.length == 2 && shape[0] == shape[1]) {
+            int n = checkedCast(shape[0]);
+            int[] diagonal = new int[n];
+            for (int i = 0; i < n; i++) {
+                diagonal[i] = buffer[i * n + i];
+            }
+            return new JvmIntegerTensor(diagonal, new long[]{n});
+        } else {
+            throw new IllegalArgumentException("Diag is only defined for vectors and square matrices but shape was " + Arrays.toString(shape));
+        }
+    }
+
+    /**
+     * @return the tensor with the order of its dimensions reversed
+     */
+    @Override
+    public IntegerTensor transpose() {
+        long[] transposedShape = new long[shape.length];
+        long[] transposedStride = new long[shape.length];
+        for (int d = 0; d < shape.length; d++) {
+            transposedShape[d] = shape[shape.length - 1 - d];
+            transposedStride[d] = stride[shape.length - 1 - d];
+        }
+
+        int[] transposed = new int[buffer.length];
+        long[] index = new long[shape.length];
+        for (int i = 0; i < transposed.length; i++) {
+            int from = 0;
+            for (int d = 0; d < index.length; d++) {
+                from += index[d] * transposedStride[d];
+            }
+            transposed[i] = buffer[from];
+            incrementIndex(index, transposedShape);
+        }
+
+        return new JvmIntegerTensor(transposed, transposedShape);
+    }
+
+    @Override
+    public IntegerTensor sum(int... overDimensions) {
+        if (overDimensions.length == 0) {
+            return duplicate();
+        }
+
+        overDimensions = TensorShape.getAbsoluteDimensions(shape.length, overDimensions);
+        long[] summedShape = ArrayUtils.removeAll(shape, overDimensions);
+
+        boolean[] isSummed = new boolean[shape.length];
+        for (int dimension : overDimensions) {
+            isSummed[dimension] = true;
+        }
+
+        long[] summedStride = TensorShape.getRowFirstStride(summedShape);
+        long[] resultStride = new long[shape.length];
+        for (int d = 0, summedDimension = 0; d < shape.length; d++) {
+            resultStride[d] = isSummed[d] ? 0 : summedStride[summedDimension++];
+        }
+
+        int[] summed = new int[TensorShape.getLengthAsInt(summedShape)];
+        long[] index = new long[shape.length];
+        for (int value : buffer) {
+            int to = 0;
+            for (int d = 0; d < index.length; d++) {
+                to += index[d] * resultStride[d];
+            }
+            summed[to] += value;
+            incrementIndex(index, shape);
+        }
+
+        return new JvmIntegerTensor(summed, summedShape);
+    }
+
+    @Override
+    public Integer sum() {
+        int sum = 0;
+        for (int value : buffer) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Override
+    public DoubleTensor toDouble() {
+        return DoubleTensor.create(asFlatDoubleArray(), getShape());
+    }
+
+    @Override
+    public IntegerTensor toInteger() {
+        return duplicate();
+    }
+
+    @Override
+    public IntegerTensor minus(int value) {
+        return duplicate().minusInPlace(value);
+    }
+
+    @Override
+    public IntegerTensor plus(int value) {
+        return duplicate().plusInPlace(value);
+    }
+
+    @Override
+    public IntegerTensor times(int value) {
+        return duplicate().timesInPlace(value);
+    }
+
+    @Override
+    public IntegerTensor div(int value) {
+        return duplicate().divInPlace(value);
+    }
+
+    @Override
+    public IntegerTensor pow(int exponent) {
+        return duplicate().powInPlace(exponent);
+    }
+
+    @Override
+    public IntegerTensor minus(IntegerTensor that) {
+        return duplicate().minusInPlace(that);
+    }
+
+    @Override
+    public IntegerTensor plus(IntegerTensor that) {
+        return duplicate().plusInPlace(that);
+    }
+
+    @Override
+    public IntegerTensor times(IntegerTensor that) {
+        return duplicate().timesInPlace(that);
+    }
+
+    @Override
+    public IntegerTensor div(IntegerTensor that) {
+        return duplicate().divInPlace(that);
+    }
+
+    @Override
+    public IntegerTensor pow(IntegerTensor exponent) {
+        return duplicate().powInPlace(exponent);
+    }
+
+    @Override
+    public IntegerTensor matrixMultiply(IntegerTensor that) {
+        long[] thatShape = that.getShape();
+
+        boolean isSupported = shape.length == 2 && thatShape.length >= 1 && thatShape.length <= 2 && shape[1] == thatShape[0];
+        long columnCount = thatShape.length == 2 ? thatShape[1] : 1;
+
+        if (!isSupported || shape[0] * shape[1] * columnCount > MAX_JVM_MATRIX_MULTIPLY_OPERATIONS) {
+            //leave the large and unusual cases, and the errors, to ND4J
+            return new Nd4jIntegerTensor(Nd4jIntegerTensor.unsafeGetNd4J(this)).matrixMultiply(that);
+        }
+
+        int rows = checkedCast(shape[0]);
+        int inner = checkedCast(shape[1]);
+        int columns = checkedCast(columnCount);
+        int[] right = getBuffer(that);
+
+        int[] product = new int[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            for (int k = 0; k < inner; k++) {
+                int left = buffer[i * inner + k];
+                for (int j = 0; j < columns; j++) {
+                    product[i * columns + j] += left * right[k * columns + j];
+                }
+            }
+        }
+
+        long[] productShape = thatShape.length == 2 ? new long[]{rows, columns} : new long[]{rows};
+        return new JvmIntegerTensor(product, productShape);
+    }
+
+    @Override
+    public IntegerTensor tensorMultiply(IntegerTensor value, int[] dimsLeft, int[] dimsRight) {
+        return new Nd4jIntegerTensor(Nd4jIntegerTensor.unsafeGetNd4J(this)).tensorMultiply(value, dimsLeft, dimsRight);
+    }
+
+    @Override
+    public IntegerTensor unaryMinus() {
+        return duplicate().unaryMinusInPlace();
+    }
+
+    @Override
+    public IntegerTensor abs() {
+        return duplicate().absInPlace();
+    }
+
+    @Override
+    public int argMax() {
+        int argMax = 0;
+        for (int i = 1; i < buffer.length; i++) {
+            if (buffer[i] > buffer[argMax]) {
+                argMax = i;
+            }
+        }
+        return argMax;
+    }
+
+    @Override
+    public IntegerTensor argMax(int axis) {
+        TensorShapeValidation.checkDimensionExistsInShape(axis, shape);
+        long[] resultShape = TensorShape.removeDimension(axis, shape);
+
+        int axisLength = checkedCast(shape[axis]);
+        int axisStride = checkedCast(stride[axis]);
+        int outer = checkedCast(TensorShape.getLength(Arrays.copyOfRange(shape, 0, axis)));
+        int inner = axisStride;
+
+        int[] argMax = new int[outer * inner];
+        for (int o = 0; o < outer; o++) {
+            for (int i = 0; i < inner; i++) {
+                int start = o * axisLength * axisStride + i;
+                int maxIndex = 0;
+                for (int a = 1; a < axisLength; a++) {
+                    if (buffer[start + a * axisStride] > buffer[start + maxIndex * axisStride]) {
+                        maxIndex = a;
+                    }
+                }
+                argMax[o * inner + i] = maxIndex;
+            }
+        }
+
+        return IntegerTensor.create(argMax, resultShape);
+    }
+
+    @Override
+    public int min() {
+        int min = Integer.MAX_VALUE;
+        for (int value : buffer) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    @Override
+    public int max() {
+        int max = Integer.MIN_VALUE;
+        for (int value : buffer) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * @param dimension the dimension to take the slice from
+     * @param index     the index along the dimension
+     * @return the slice, which has one dimension fewer than this tensor
+     */
+    @Override
+    public IntegerTensor slice(int dimension, long index) {
+        TensorShapeValidation.checkDimensionExistsInShape(dimension, shape);
+        Preconditions.checkArgument(
+            index >= 0 && index < shape[dimension],
+            "Cannot slice index " + index + " of dimension " + dimension + " with shape " + Arrays.toString(shape)
+        );
+
+        long[] slicedShape = ArrayUtils.remove(shape, dimension);
+        int outer = checkedCast(TensorShape.getLength(Arrays.copyOfRange(shape, 0, dimension)));
+        int inner = checkedCast(stride[dimension]);
+        int dimensionLength = checkedCast(shape[dimension]);
+
+        int[] sliced = new int[outer * inner];
+        for (int o = 0; o < outer; o++) {
+            System.arraycopy(buffer, (o * dimensionLength + checkedCast(index)) * inner, sliced, o * inner, inner);
+        }
+
+        return new JvmIntegerTensor(sliced, slicedShape);
+    }
+
+    @Override
+    public IntegerTensor getGreaterThanMask(IntegerTensor greaterThanThis) {
+        return broadcast(buffer, shape, greaterThanThis, (a, b) -> a > b ? 1 : 0);
+    }
+
+    @Override
+    public IntegerTensor getGreaterThanOrEqualToMask(IntegerTensor greaterThanOrEqualToThis) {
+        return broadcast(buffer, shape, greaterThanOrEqualToThis, (a, b) -> a >= b ? 1 : 0);
+    }
+
+    @Override
+    public IntegerTensor getLessThanMask(IntegerTensor lessThanThis) {
+        return broadcast(buffer, shape, lessThanThis, (a, b) -> a < b ? 1 : 0);
+    }
+
+    @Override
+    public IntegerTensor getLessThanOrEqualToMask(IntegerTensor lessThanOrEqualToThis) {
+        return broadcast(buffer, shape, lessThanOrEqualToThis, (a, b) -> a <= b ? 1 : 0);
+    }
+
+    @Override
+    public IntegerTensor setWithMaskInPlace(IntegerTensor mask, Integer value) {
+        if (this.getLength() != mask.getLength()) {
+            throw new IllegalArgumentException("The lengths of the tensor and mask must match, but got tensor length: " + this.getLength() + ", mask length: " + mask.getLength());
+        }
+
+        int[] maskBuffer = getBuffer(mask);
+        for (int i = 0; i < buffer.length; i++) {
+            if (maskBuffer[i] == 1) {
+                buffer[i] = value;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public IntegerTensor setWithMask(IntegerTensor mask, Integer value) {
+        return duplicate().setWithMaskInPlace(mask, value);
+    }
+
+    @Override
+    public IntegerTensor apply(Function<Integer, Integer> function) {
+        return duplicate().applyInPlace(function);
+    }
+
+    @Override
+    public IntegerTensor applyInPlace(Function<Integer, Integer> function) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = function.apply(buffer[i]);
+        }
+        return this;
+    }
+
+    private IntegerTensor transformInPlace(IntUnaryOperator operator) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = operator.applyAsInt(buffer[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Applies the operator between this and that, broadcasting them against each other, and stores the result
+     * in this. Unlike {@link Nd4jIntegerTensor} this always returns this, which takes on the broadcast shape.
+     */
+    private IntegerTensor broadcastInPlace(IntegerTensor that, IntBinaryOperator operator) {
+        if (that.isLengthOne()) {
+            int right = that.scalar();
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = operator.applyAsInt(buffer[i], right);
+            }
+            if (that.getRank() > shape.length) {
+                setShape(TensorShape.shapeToDesiredRankByPrependingOnes(shape, that.getRank()));
+            }
+            return this;
+        }
+
+        if (that.hasSameShapeAs(shape)) {
+            int[] right = getBuffer(that);
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = operator.applyAsInt(buffer[i], right[i]);
+            }
+            return this;
+        }
+
+        JvmIntegerTensor result = broadcast(buffer, shape, that, operator);
+        this.buffer = result.buffer;
+        setShape(result.shape);
+        return this;
+    }
+
+    private void setShape(long[] shape) {
+        this.shape = shape;
+        this.stride = TensorShape.getRowFirstStride(shape);
+    }
+
+    private static JvmIntegerTensor broadcast(int[] left, long[] leftShape, IntegerTensor that, IntBinaryOperator operator) {
+        int[] right = getBuffer(that);
+        long[] rightShape = that.getShape();
+        long[] resultShape = TensorShape.getBroadcastResultShape(leftShape, rightShape);
+
+        if (Arrays.equals(leftShape, rightShape)) {
+            int[] result = new int[left.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = operator.applyAsInt(left[i], right[i]);
+            }
+            return new JvmIntegerTensor(result, resultShape);
+        }
+
+        int rank = resultShape.length;
+        long[] leftStride = TensorShape.getBroadcastStride(leftShape, rank);
+        long[] rightStride = TensorShape.getBroadcastStride(rightShape, rank);
+
+        int[] result = new int[TensorShape.getLengthAsInt(resultShape)];
+        long[] index = new long[rank];
+        int leftIndex = 0;
+        int rightIndex = 0;
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = operator.applyAsInt(left[leftIndex], right[rightIndex]);
+
+            for (int d = rank - 1; d >= 0; d--) {
+                index[d]++;
+                leftIndex += leftStride[d];
+                rightIndex += rightStride[d];
+                if (index[d] < resultShape[d]) {
+                    break;
+                }
+                leftIndex -= leftStride[d] * resultShape[d];
+                rightIndex -= rightStride[d] * resultShape[d];
+                index[d] = 0;
+            }
+        }
+
+        return new JvmIntegerTensor(result, resultShape);
+    }
+
+    @Override
+    public IntegerTensor minusInPlace(int value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] -= value;
+        }
+        return this;
+    }
+
+    @Override
+    public IntegerTensor plusInPlace(int value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] += value;
+        }
+        return this;
+    }
+
+    @Override
+    public IntegerTensor timesInPlace(int value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] *= value;
+        }
+        return this;
+    }
+
+    /**
+     * Divides rounding towards zero, which matches {@link Nd4jIntegerTensor#divInPlace(int)}
+     */
+    @Override
+    public IntegerTensor divInPlace(int value) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] /= value;
+        }
+        return this;
+    }
+
+    /**
+     * Negative exponents round towards zero as {@link Nd4jIntegerTensor} does, e.g. 2 to the power of -1 is 0
+     */
+    @Override
+    public IntegerTensor powInPlace(int exponent) {
+        return transformInPlace(x -> (int) Math.pow(x, exponent));
+    }
+
+    @Override
+    public IntegerTensor minusInPlace(IntegerTensor that) {
+        return broadcastInPlace(that, (a, b) -> a - b);
+    }
+
+    @Override
+    public IntegerTensor plusInPlace(IntegerTensor that) {
+        return broadcastInPlace(that, (a, b) -> a + b);
+    }
+
+    @Override
+    public IntegerTensor timesInPlace(IntegerTensor that) {
+        return broadcastInPlace(that, (a, b) -> a * b);
+    }
+
+    @Override
+    public IntegerTensor divInPlace(IntegerTensor that) {
+        return broadcastInPlace(that, (a, b) -> a / b);
+    }
+
+    @Override
+    public IntegerTensor powInPlace(IntegerTensor exponent) {
+        return broadcastInPlace(exponent, (a, b) -> (int) Math.pow(a, b));
+    }
+
+    @Override
+    public IntegerTensor unaryMinusInPlace() {
+        return transformInPlace(x -> -x);
+    }
+
+    @Override
+    public IntegerTensor absInPlace() {
+        return transformInPlace(Math::abs);
+    }
+
+    @Override
+    public IntegerTensor minInPlace(IntegerTensor min) {
+        return broadcastInPlace(min, Math::min);
+    }
+
+    @Override
+    public IntegerTensor maxInPlace(IntegerTensor max) {
+        return broadcastInPlace(max, Math::max);
+    }
+
+    // Comparisons
+
+    private BooleanTensor compare(IntPredicate predicate) {
+        boolean[] result = new boolean[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            result[i] = predicate.test(buffer[i]);
+        }
+        return BooleanTensor.create(result, getShape());
+    }
+
+    private static BooleanTensor fromMask(JvmIntegerTensor mask) {
+        return PackedBooleanTensor.fromMask(mask.buffer, mask.shape);
+    }
+
+    @Override
+    public BooleanTensor lessThan(int value) {
+        return compare(x -> x < value);
+    }
+
+    @Override
+    public BooleanTensor lessThanOrEqual(int value) {
+        return compare(x -> x <= value);
+    }
+
+    @Override
+    public BooleanTensor greaterThan(int value) {
+        return compare(x -> x > value);
+    }
+
+    @Override
+    public BooleanTensor greaterThanOrEqual(int value) {
+        return compare(x -> x >= value);
+    }
+
+    @Override
+    public BooleanTensor lessThan(IntegerTensor value) {
+        return fromMask(broadcast(buffer, shape, value, (a, b) -> a < b ? 1 : 0));
+    }
+
+    @Override
+    public BooleanTensor lessThanOrEqual(IntegerTensor value) {
+        return fromMask(broadcast(buffer, shape, value, (a, b) -> a <= b ? 1 : 0));
+    }
+
+    @Override
+    public BooleanTensor greaterThan(IntegerTensor value) {
+        return fromMask(broadcast(buffer, shape, value, (a, b) -> a > b ? 1 : 0));
+    }
+
+    @Override
+    public BooleanTensor greaterThanOrEqual(IntegerTensor value) {
+        return fromMask(broadcast(buffer, shape, value, (a, b) -> a >= b ? 1 : 0));
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Tensor that) {
+        if (that instanceof IntegerTensor) {
+            return fromMask(broadcast(buffer, shape, (IntegerTensor) that, (a, b) -> a == b ? 1 : 0));
+        } else {
+            return Tensor.elementwiseEquals(this, that);
+        }
+    }
+
+    @Override
+    public BooleanTensor elementwiseEquals(Integer value) {
+        int compareTo = value;
+        return compare(x -> x == compareTo);
+    }
+
+    @Override
+    public FlattenedView<Integer> getFlattenedView() {
+        return new JvmIntegerFlattenedView();
+    }
+
+    @Override
+    public double[] asFlatDoubleArray() {
+        double[] doubles = new double[buffer.length];
+        for (int i = 0; i < buffer.length; i++) {
+            doubles[i] = buffer[i];
+        }
+        return doubles;
+    }
+
+    @Override
+    public int[] asFlatIntegerArray() {
+        return Arrays.copyOf(buffer, buffer.length);
+    }
+
+    @Override
+    public Integer[] asFlatArray() {
+        return ArrayUtils.toObject(buffer);
+    }
+
+    /**
+     * Non-scalar integer tensors are compared the way ND4J compares arrays, so equality is the same whichever
+     * implementation a tensor happens to be backed by.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+
+        if (o instanceof JvmIntegerTensor || o instanceof Nd4jIntegerTensor) {
+            IntegerTensor that = (IntegerTensor) o;
+            return TensorShape.isEquivalent(shape, that.getShape()) && Arrays.equals(buffer, getBuffer(that));
+        } else if (o instanceof Tensor) {
+            Tensor that = (Tensor) o;
+            if (!Arrays.equals(that.getShape(), shape)) return false;
+            return Arrays.equals(
+                that.asFlatArray(),
+                this.asFlatArray()
+            );
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        //equal vectors can differ in shape so their shapes are hashed as equivalent shapes
+        return 31 * Arrays.hashCode(buffer) + TensorShape.equivalentShapeHashCode(shape);
+    }
+
+    @Override
+    public String toString() {
+        return "{\n" +
+            "data = " + Arrays.toString(buffer) +
+            "\nshape = " + Arrays.toString(shape) +
+            "\n}";
+    }
+
+    private class JvmIntegerFlattenedView implements FlattenedView<Integer> {
+
+        @Override
+        public long size() {
+            return buffer.length;
+        }
+
+        @Override
+        public Integer get(long index) {
+            return buffer[checkedCast(index)];
+        }
+
+        @Override
+        public Integer getOrScalar(long index) {
+            if (buffer.length == 1) {
+                return buffer[0];
+            } else {
+                return get(index);
+            }
+        }
+
+        @Override
+        public void set(long index, Integer value) {
+            buffer[checkedCast(index)] = value;
+        }
+    }
+}
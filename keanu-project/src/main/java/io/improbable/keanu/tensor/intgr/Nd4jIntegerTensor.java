@@ -7,7 +7,7 @@ import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.TensorShapeValidation;
 import io.improbable.keanu.tensor.TypedINDArrayFactory;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
-import io.improbable.keanu.tensor.bool.SimpleBooleanTensor;
+import io.improbable.keanu.tensor.bool.PackedBooleanTensor;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.tensor.dbl.Nd4jDoubleTensor;
 import org.apache.commons.lang3.ArrayUtils;
@@ -25,7 +25,6 @@ import org.nd4j.linalg.ops.transforms.Transforms;
 import java.util.Arrays;
 import java.util.function.Function;
 
-import static com.google.common.primitives.Ints.checkedCast;
 import static java.util.Arrays.copyOf;
 
 /**
@@ -89,6 +88,9 @@ public class Nd4jIntegerTensor implements IntegerTensor {
         if (that.isLengthOne()) {
             return TypedINDArrayFactory.scalar(that.scalar(), BUFFER_TYPE).reshape(that.getShape());
         }
+        if (that instanceof JvmIntegerTensor) {
+            return TypedINDArrayFactory.create(that.asFlatDoubleArray(), that.getShape(), BUFFER_TYPE);
+        }
         return ((Nd4jIntegerTensor) that).tensor;
     }
 
@@ -632,6 +634,8 @@ public class Nd4jIntegerTensor implements IntegerTensor {
 
         if (o instanceof Nd4jIntegerTensor) {
             return tensor.equals(((Nd4jIntegerTensor) o).tensor);
+        } else if (o instanceof JvmIntegerTensor) {
+            return tensor.equals(unsafeGetNd4J((JvmIntegerTensor) o));
         } else if (o instanceof Tensor) {
             Tensor that = (Tensor) o;
             if (!Arrays.equals(that.getShape(), getShape())) return false;
@@ -646,9 +650,8 @@ public class Nd4jIntegerTensor implements IntegerTensor {
 
     @Override
     public int hashCode() {
-        int result = tensor != null ? tensor.hashCode() : 0;
-        result = 31 * result + Arrays.hashCode(getShape());
-        return result;
+        //matches JvmIntegerTensor, which equal tensors can be backed by
+        return 31 * Arrays.hashCode(asFlatIntegerArray()) + TensorShape.equivalentShapeHashCode(getShape());
     }
 
     @Override
@@ -657,13 +660,7 @@ public class Nd4jIntegerTensor implements IntegerTensor {
     }
 
     private BooleanTensor fromMask(INDArray mask, long[] shape) {
-        DataBuffer data = mask.data();
-        boolean[] boolsFromMask = new boolean[checkedCast(mask.length())];
-
-        for (int i = 0; i < boolsFromMask.length; i++) {
-            boolsFromMask[i] = data.getInt(i) != 0;
-        }
-        return new SimpleBooleanTensor(boolsFromMask, shape);
+        return PackedBooleanTensor.fromMask(mask.data().asDouble(), shape);
     }
 
     @Override
@@ -0,0 +1,124 @@
+package io.improbable.keanu.util.csv;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes blocks of text to a file on a background thread, so formatting the next block overlaps with writing the
+ * last. The queue of blocks waiting to be written is bounded, so a writer that can't keep up holds back the caller
+ * rather than filling the heap.
+ */
+class BackgroundFileWriter implements AutoCloseable {
+
+    private static final Block END = new Block(null);
+
+    private final File file;
+    private final BlockingQueue<Block> queue;
+    private final Thread thread;
+    private volatile IOException failure;
+
+    /**
+     * @param file          the file to write to. Anything already in it is overwritten.
+     * @param queueCapacity the number of blocks that can be waiting to be written
+     */
+    BackgroundFileWriter(File file, int queueCapacity) {
+        this.file = file;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        BufferedWriter writer;
+        try {
+            writer = new BufferedWriter(new FileWriter(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.thread = new Thread(() -> writeUntilEnd(writer), "keanu-writer-" + file.getName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void writeUntilEnd(BufferedWriter writer) {
+        boolean ended = false;
+        try (BufferedWriter toClose = writer) {
+            Block block;
+            while ((block = queue.take()) != END) {
+                toClose.write(block.text);
+            }
+            ended = true;
+        } catch (IOException e) {
+            failure = e;
+            if (!ended) {
+                drainUntilEnd();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainUntilEnd() {
+        try {
+            while (queue.take() != END) {
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a block to be written, waiting for space in the queue if it's full.
+     *
+     * @param block the text to write
+     */
+    void write(String block) {
+        throwIfFailed();
+        put(new Block(block));
+    }
+
+    /**
+     * Waits for everything queued to be written and closes the file.
+     */
+    @Override
+    public void close() {
+        put(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing " + file, e);
+        }
+        throwIfFailed();
+    }
+
+    private void put(Block block) {
+        try {
+            queue.put(block);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing " + file, e);
+        }
+    }
+
+    private void throwIfFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    /**
+     * A block of text waiting to be written. The end of the file is marked by its own block, so no text can be
+     * mistaken for it.
+     */
+    private static class Block {
+
+        private final String text;
+
+        Block(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package io.improbable.keanu.util.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the rows in a range of bytes of a csv file straight into primitive arrays, one per requested column, without
+ * making a string for each field.
+ * <p>
+ * Doubles that have at most 15 significant digits and a power of ten of at most 22 are calculated with a single
+ * correctly rounded multiplication or division, which gives the same result as {@link Double#parseDouble(String)}.
+ * Anything else falls back to {@link Double#parseDouble(String)}.
+ */
+class ColumnChunkParser {
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_FAST_SIGNIFICANT_DIGITS = 15;
+
+    private final byte delimiter;
+    private final List<String> doubleColumnNames;
+    private final List<String> integerColumnNames;
+
+    /**
+     * for each column of the file up to the last requested one, 1 + the index of the double column it's read into,
+     * -(1 + the index of the integer column it's read into) or 0 if it isn't read
+     */
+    private final int[] columnTargets;
+
+    ColumnChunkParser(byte delimiter,
+                      List<String> doubleColumnNames,
+                      int[] doubleColumnIndices,
+                      List<String> integerColumnNames,
+                      int[] integerColumnIndices) {
+        this.delimiter = delimiter;
+        this.doubleColumnNames = doubleColumnNames;
+        this.integerColumnNames = integerColumnNames;
+
+        int lastColumn = -1;
+        for (int index : doubleColumnIndices) {
+            lastColumn = Math.max(lastColumn, index);
+        }
+        for (int index : integerColumnIndices) {
+            lastColumn = Math.max(lastColumn, index);
+        }
+
+        this.columnTargets = new int[lastColumn + 1];
+        for (int i = 0; i < doubleColumnIndices.length; i++) {
+            setTarget(doubleColumnIndices[i], i + 1, doubleColumnNames.get(i));
+        }
+        for (int i = 0; i < integerColumnIndices.length; i++) {
+            setTarget(integerColumnIndices[i], -(i + 1), integerColumnNames.get(i));
+        }
+    }
+
+    private void setTarget(int columnIndex, int target, String name) {
+        if (columnTargets[columnIndex] != 0) {
+            throw new IllegalArgumentException("Column " + name + " is requested more than once");
+        }
+        columnTargets[columnIndex] = target;
+    }
+
+    /**
+     * @param chunk  the bytes of whole lines of the file, from the chunk's position to its limit
+     * @param offset the position in the file of the start of the chunk, for error messages
+     * @return the requested columns of every non blank line in the chunk
+     */
+    CsvColumns parse(ByteBuffer chunk, long offset) {
+        int rowCount = countRows(chunk);
+
+        double[][] doubles = new double[doubleColumnNames.size()][rowCount];
+        int[][] integers = new int[integerColumnNames.size()][rowCount];
+        parse(chunk, offset, doubles, integers, 0);
+
+        return toColumns(rowCount, doubles, integers);
+    }
+
+    /**
+     * Parses the rows of a chunk into columns that hold the rows of more than just this chunk.
+     *
+     * @param chunk    the bytes of whole lines of the file, from the chunk's position to its limit
+     * @param offset   the position in the file of the start of the chunk, for error messages
+     * @param doubles  the double columns, in the order they were requested, each with room for the chunk's rows
+     * @param integers the integer columns, in the order they were requested, each with room for the chunk's rows
+     * @param firstRow the index in the columns of the chunk's first row
+     */
+    void parse(ByteBuffer chunk, long offset, double[][] doubles, int[][] integers, int firstRow) {
+        int start = chunk.position();
+        int limit = chunk.limit();
+
+        int row = firstRow;
+        int lineStart = start;
+        while (lineStart < limit) {
+            int lineEnd = findLineEnd(chunk, lineStart, limit);
+            int contentEnd = trimEnd(chunk, lineStart, lineEnd);
+
+            if (contentEnd > lineStart) {
+                parseRow(chunk, lineStart, contentEnd, row, doubles, integers, offset - start);
+                row++;
+            }
+
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * @param chunk the bytes of whole lines of the file, from the chunk's position to its limit
+     * @return the number of non blank lines in the chunk
+     */
+    static int countRows(ByteBuffer chunk) {
+        int limit = chunk.limit();
+        int rowCount = 0;
+        int lineStart = chunk.position();
+        while (lineStart < limit) {
+            int lineEnd = findLineEnd(chunk, lineStart, limit);
+            if (trimEnd(chunk, lineStart, lineEnd) > lineStart) {
+                rowCount++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return rowCount;
+    }
+
+    /**
+     * @param rowCount the number of rows in each column
+     * @param doubles  the double columns, in the order they were requested
+     * @param integers the integer columns, in the order they were requested
+     * @return the columns keyed by their names
+     */
+    CsvColumns toColumns(int rowCount, double[][] doubles, int[][] integers) {
+        Map<String, double[]> doubleColumns = new LinkedHashMap<>();
+        for (int i = 0; i < doubles.length; i++) {
+            doubleColumns.put(doubleColumnNames.get(i), doubles[i]);
+        }
+        Map<String, int[]> integerColumns = new LinkedHashMap<>();
+        for (int i = 0; i < integers.length; i++) {
+            integerColumns.put(integerColumnNames.get(i), integers[i]);
+        }
+
+        return new CsvColumns(rowCount, doubleColumns, integerColumns);
+    }
+
+    private void parseRow(ByteBuffer chunk, int lineStart, int lineEnd, int row,
+                          double[][] doubles, int[][] integers, long fileOffset) {
+        int column = 0;
+        int fieldStart = lineStart;
+
+        for (int i = lineStart; i <= lineEnd && column < columnTargets.length; i++) {
+            if (i == lineEnd || chunk.get(i) == delimiter) {
+                int target = columnTargets[column];
+                if (target > 0) {
+                    doubles[target - 1][row] = parseDouble(chunk, fieldStart, i, doubleColumnNames.get(target - 1), fileOffset);
+                } else if (target < 0) {
+                    integers[-target - 1][row] = parseInteger(chunk, fieldStart, i, integerColumnNames.get(-target - 1), fileOffset);
+                }
+                column++;
+                fieldStart = i + 1;
+            }
+        }
+
+        if (column < columnTargets.length) {
+            throw new IllegalArgumentException("Line at byte " + (fileOffset + lineStart) + " has " + column
+                + " columns but the requested columns need " + columnTargets.length);
+        }
+    }
+
+    private static double parseDouble(ByteBuffer chunk, int from, int to, String column, long fileOffset) {
+        int start = trimStart(chunk, from, to);
+        int end = trimEnd(chunk, start, to);
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chunk.get(i) == '-' || chunk.get(i) == '+')) {
+            negative = chunk.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+
+        while (i < end && isDigit(chunk.get(i)) && significantDigits <= MAX_FAST_SIGNIFICANT_DIGITS) {
+            mantissa = mantissa * 10 + (chunk.get(i) - '0');
+            significantDigits += mantissa == 0 ? 0 : 1;
+            hasDigits = true;
+            i++;
+        }
+
+        if (i < end && chunk.get(i) == '.') {
+            i++;
+            while (i < end && isDigit(chunk.get(i)) && significantDigits <= MAX_FAST_SIGNIFICANT_DIGITS) {
+                mantissa = mantissa * 10 + (chunk.get(i) - '0');
+                significantDigits += mantissa == 0 ? 0 : 1;
+                exponent--;
+                hasDigits = true;
+                i++;
+            }
+        }
+
+        if (hasDigits && i < end && (chunk.get(i) == 'e' || chunk.get(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (chunk.get(i) == '-' || chunk.get(i) == '+')) {
+                negativeExponent = chunk.get(i) == '-';
+                i++;
+            }
+
+            int exponentStart = i;
+            int explicitExponent = 0;
+            while (i < end && isDigit(chunk.get(i)) && explicitExponent < POWERS_OF_TEN.length * 10) {
+                explicitExponent = explicitExponent * 10 + (chunk.get(i) - '0');
+                i++;
+            }
+            hasDigits = i > exponentStart;
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        boolean isFastPath = hasDigits
+            && i == end
+            && significantDigits <= MAX_FAST_SIGNIFICANT_DIGITS
+            && Math.abs(exponent) < POWERS_OF_TEN.length;
+
+        if (!isFastPath) {
+            String field = decode(chunk, start, end);
+            try {
+                return Double.parseDouble(field);
+            } catch (NumberFormatException e) {
+                throw new NumberFormatException("Cannot parse \"" + field + "\" as a double in column " + column
+                    + " at byte " + (fileOffset + start));
+            }
+        }
+
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private static int parseInteger(ByteBuffer chunk, int from, int to, String column, long fileOffset) {
+        int start = trimStart(chunk, from, to);
+        int end = trimEnd(chunk, start, to);
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chunk.get(i) == '-' || chunk.get(i) == '+')) {
+            negative = chunk.get(i) == '-';
+            i++;
+        }
+
+        long value = 0;
+        boolean valid = i < end;
+        for (; i < end && valid; i++) {
+            byte b = chunk.get(i);
+            value = value * 10 + (b - '0');
+            valid = isDigit(b) && value <= (long) Integer.MAX_VALUE + 1;
+        }
+
+        value = negative ? -value : value;
+        if (!valid || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Cannot parse \"" + decode(chunk, start, end) + "\" as an integer in column "
+                + column + " at byte " + (fileOffset + start));
+        }
+
+        return (int) value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int findLineEnd(ByteBuffer chunk, int from, int limit) {
+        int i = from;
+        while (i < limit && chunk.get(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimStart(ByteBuffer chunk, int from, int to) {
+        int i = from;
+        while (i < to && (chunk.get(i) & 0xFF) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimEnd(ByteBuffer chunk, int from, int to) {
+        int i = to;
+        while (i > from && (chunk.get(i - 1) & 0xFF) <= ' ') {
+            i--;
+        }
+        return i;
+    }
+
+    private static String decode(ByteBuffer chunk, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = chunk.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
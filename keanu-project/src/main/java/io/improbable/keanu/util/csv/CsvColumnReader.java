@@ -0,0 +1,436 @@
+package io.improbable.keanu.util.csv;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads numeric columns of a large csv file straight into primitive arrays, for observing as tensors.
+ * <p>
+ * The file is memory mapped and split into chunks of whole lines, which are parsed in parallel. Only the requested
+ * columns are parsed and no string is made for each field. The chunks can be streamed in order, in which case the
+ * memory used is bounded by the chunk size times the thread count, or read into a column per tensor.
+ * <p>
+ * Usage:
+ * CsvColumns columns = ReadCsv.columnsFromFile(path).doubleColumns("x", "y").integerColumns("count").readColumns();
+ * DoubleTensor x = columns.getDoubleColumn("x");
+ * <p>
+ * Like the {@link CsvReader}, fields are trimmed and quoted fields are not supported. Blank lines are skipped.
+ */
+public class CsvColumnReader {
+
+    private static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private final Path file;
+    private byte delimiter;
+    private boolean expectHeader;
+    private int chunkSize;
+    private int threadCount;
+    private final List<String> doubleColumns;
+    private final List<String> integerColumns;
+
+    public CsvColumnReader(Path file) {
+        this.file = file;
+        this.delimiter = ',';
+        this.expectHeader = true;
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+        this.threadCount = Runtime.getRuntime().availableProcessors();
+        this.doubleColumns = new ArrayList<>();
+        this.integerColumns = new ArrayList<>();
+    }
+
+    /**
+     * Tells the reader to either treat the first line of the file as a header or as data. Without a header, columns
+     * are named by their index, starting from "0".
+     *
+     * @param expectHeader true for first line is header, false for data
+     * @return this reader
+     */
+    public CsvColumnReader expectHeader(boolean expectHeader) {
+        this.expectHeader = expectHeader;
+        return this;
+    }
+
+    /**
+     * @param delimiter the single byte character between fields, e.g. '\t' for tab separated files
+     * @return this reader
+     */
+    public CsvColumnReader withDelimiter(char delimiter) {
+        Preconditions.checkArgument(delimiter < 0x80, "Delimiter must be a single byte character");
+        this.delimiter = (byte) delimiter;
+        return this;
+    }
+
+    /**
+     * @param chunkSize the approximate number of bytes of the file parsed in each chunk
+     * @return this reader
+     */
+    public CsvColumnReader withChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * @param threadCount the number of chunks that are parsed at the same time
+     * @return this reader
+     */
+    public CsvColumnReader withThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+        return this;
+    }
+
+    /**
+     * @param columns the names of the columns to parse as doubles
+     * @return this reader
+     */
+    public CsvColumnReader doubleColumns(String... columns) {
+        this.doubleColumns.addAll(Arrays.asList(columns));
+        return this;
+    }
+
+    /**
+     * @param columns the names of the columns to parse as integers
+     * @return this reader
+     */
+    public CsvColumnReader integerColumns(String... columns) {
+        this.integerColumns.addAll(Arrays.asList(columns));
+        return this;
+    }
+
+    /**
+     * Gets the header of the csv file if one exist otherwise an empty list.
+     *
+     * @return the header
+     */
+    public List<String> getHeader() {
+        if (!expectHeader) {
+            return new ArrayList<>();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return splitHeader(readHeader(channel));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the requested columns of every row in the file.
+     * <p>
+     * The rows of each chunk are counted first, so that every chunk can then be parsed in parallel straight into its
+     * own range of rows of the columns. No chunk is held as well as the columns, so the memory used is just that of
+     * the columns.
+     *
+     * @return the columns of the whole file
+     */
+    public CsvColumns readColumns() {
+        FileChannel channel = openChannel();
+        ExecutorService executor = null;
+
+        try {
+            ColumnChunkParser parser = createParser(channel);
+            long[] boundaries = chunkBoundaries(channel, dataStart(channel));
+            int chunkCount = boundaries.length - 1;
+            executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, chunkCount)));
+
+            List<Future<Integer>> counting = new ArrayList<>();
+            for (int i = 0; i < chunkCount; i++) {
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                counting.add(executor.submit(() -> ColumnChunkParser.countRows(map(channel, start, end))));
+            }
+
+            int[] firstRows = new int[chunkCount + 1];
+            for (int i = 0; i < chunkCount; i++) {
+                firstRows[i + 1] = firstRows[i] + getParsed(counting.get(i));
+            }
+            int rowCount = firstRows[chunkCount];
+
+            double[][] doubles = new double[doubleColumns.size()][rowCount];
+            int[][] integers = new int[integerColumns.size()][rowCount];
+
+            List<Future<Void>> parsing = new ArrayList<>();
+            for (int i = 0; i < chunkCount; i++) {
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                int firstRow = firstRows[i];
+                parsing.add(executor.submit(() -> {
+                    parser.parse(map(channel, start, end), start, doubles, integers, firstRow);
+                    return null;
+                }));
+            }
+            for (Future<Void> chunk : parsing) {
+                getParsed(chunk);
+            }
+
+            return parser.toColumns(rowCount, doubles, integers);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Reads the requested columns a chunk at a time. The stream should be closed if it isn't read to the end.
+     *
+     * @return the columns of the rows in each chunk of the file, in the order they appear in the file
+     */
+    public Stream<CsvColumns> streamColumns() {
+        FileChannel channel = openChannel();
+
+        try {
+            ColumnChunkParser parser = createParser(channel);
+            ChunkIterator chunks = new ChunkIterator(channel, parser, chunkBoundaries(channel, dataStart(channel)));
+            return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(chunks::close);
+
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    private FileChannel openChannel() {
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size of %s is invalid. Must be positive.", chunkSize);
+        Preconditions.checkArgument(threadCount > 0, "Thread count of %s is invalid. Must use at least one thread.", threadCount);
+        Preconditions.checkArgument(!doubleColumns.isEmpty() || !integerColumns.isEmpty(), "No columns requested");
+
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ColumnChunkParser createParser(FileChannel channel) throws IOException {
+        List<String> header = expectHeader ? splitHeader(readHeader(channel)) : new ArrayList<>();
+
+        return new ColumnChunkParser(
+            delimiter,
+            new ArrayList<>(doubleColumns),
+            resolveColumns(doubleColumns, header),
+            new ArrayList<>(integerColumns),
+            resolveColumns(integerColumns, header)
+        );
+    }
+
+    /**
+     * @return the position in the file of the first line after the header, if there is one
+     */
+    private long dataStart(FileChannel channel) throws IOException {
+        if (!expectHeader) {
+            return 0;
+        }
+        return Math.min(channel.size(), findNextLineEnd(channel, 0) + 1);
+    }
+
+    private static ByteBuffer map(FileChannel channel, long start, long end) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    }
+
+    /**
+     * @return the result of parsing a chunk, with any exception thrown while parsing it rethrown as it was
+     */
+    private <T> T getParsed(Future<T> parsing) {
+        try {
+            return parsing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing " + file, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new UncheckedIOException(new IOException("Failed to read " + file, e.getCause()));
+        }
+    }
+
+    private int[] resolveColumns(List<String> columns, List<String> header) {
+        int[] indices = new int[columns.size()];
+
+        for (int i = 0; i < indices.length; i++) {
+            String column = columns.get(i);
+
+            if (expectHeader) {
+                indices[i] = header.indexOf(column);
+                if (indices[i] < 0) {
+                    throw new IllegalArgumentException("Column " + column + " is not in the header " + header);
+                }
+            } else {
+                try {
+                    indices[i] = Integer.parseInt(column);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Columns of a file without a header are named by their index but got " + column);
+                }
+            }
+        }
+
+        return indices;
+    }
+
+    private byte[] readHeader(FileChannel channel) throws IOException {
+        long headerEnd = findNextLineEnd(channel, 0);
+        ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        }
+        return header.array();
+    }
+
+    /**
+     * Splits the header on the delimiter byte, like the {@link ColumnChunkParser} splits each row, rather than as a
+     * pattern. The delimiter is a single byte character, which can't be part of any multi byte UTF-8 character.
+     */
+    private List<String> splitHeader(byte[] headerLine) {
+        List<String> names = new ArrayList<>();
+        int fieldStart = 0;
+        for (int i = 0; i <= headerLine.length; i++) {
+            if (i == headerLine.length || headerLine[i] == delimiter) {
+                names.add(new String(headerLine, fieldStart, i - fieldStart, StandardCharsets.UTF_8).trim());
+                fieldStart = i + 1;
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the start of each chunk followed by the end of the last, where every chunk ends just after a new line
+     * or at the end of the file
+     */
+    private long[] chunkBoundaries(FileChannel channel, long dataStart) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(dataStart);
+
+        long start = dataStart;
+        while (start < size) {
+            long end = start + chunkSize >= size ? size : Math.min(size, findNextLineEnd(channel, start + chunkSize) + 1);
+            boundaries.add(end);
+            start = end;
+        }
+
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * @return the position of the first new line at or after from, or the size of the file if there isn't one
+     */
+    private static long findNextLineEnd(FileChannel channel, long from) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //the original failure is more useful
+        }
+    }
+
+    /**
+     * Parses up to thread count chunks ahead of the one that's been asked for, and gives them back in file order.
+     */
+    private class ChunkIterator implements Iterator<CsvColumns> {
+
+        private final FileChannel channel;
+        private final ColumnChunkParser parser;
+        private final long[] boundaries;
+        private final ExecutorService executor;
+        private final Deque<Future<CsvColumns>> parsing = new ArrayDeque<>();
+        private int nextToSubmit = 0;
+
+        ChunkIterator(FileChannel channel, ColumnChunkParser parser, long[] boundaries) {
+            this.channel = channel;
+            this.parser = parser;
+            this.boundaries = boundaries;
+            this.executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, boundaries.length - 1)));
+            submitAhead();
+        }
+
+        private void submitAhead() {
+            while (parsing.size() < threadCount && nextToSubmit < boundaries.length - 1) {
+                long start = boundaries[nextToSubmit];
+                long end = boundaries[nextToSubmit + 1];
+                parsing.add(executor.submit(() -> parser.parse(map(channel, start, end), start)));
+                nextToSubmit++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (parsing.isEmpty()) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public CsvColumns next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            CsvColumns chunk;
+            try {
+                chunk = getParsed(parsing.poll());
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            submitAhead();
+            return chunk;
+        }
+
+        void close() {
+            parsing.clear();
+            executor.shutdownNow();
+            closeQuietly(channel);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.improbable.keanu.util.csv;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Numeric columns read from a csv file by a {@link CsvColumnReader}, each held as a primitive array with an element
+ * per row.
+ */
+public class CsvColumns {
+
+    private final int rowCount;
+    private final Map<String, double[]> doubleColumns;
+    private final Map<String, int[]> integerColumns;
+
+    CsvColumns(int rowCount, Map<String, double[]> doubleColumns, Map<String, int[]> integerColumns) {
+        this.rowCount = rowCount;
+        this.doubleColumns = doubleColumns;
+        this.integerColumns = integerColumns;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public Set<String> getDoubleColumnNames() {
+        return doubleColumns.keySet();
+    }
+
+    public Set<String> getIntegerColumnNames() {
+        return integerColumns.keySet();
+    }
+
+    /**
+     * @param name the name of a column that was read as doubles
+     * @return the column as a vector with an element per row
+     */
+    public DoubleTensor getDoubleColumn(String name) {
+        double[] values = doubleColumns.get(name);
+        if (values == null) {
+            throw new IllegalArgumentException("Column " + name + " was not read as a double column");
+        }
+        return DoubleTensor.create(values, new long[]{rowCount});
+    }
+
+    /**
+     * @param name the name of a column that was read as integers
+     * @return the column as a vector with an element per row
+     */
+    public IntegerTensor getIntegerColumn(String name) {
+        int[] values = integerColumns.get(name);
+        if (values == null) {
+            throw new IllegalArgumentException("Column " + name + " was not read as an integer column");
+        }
+        return IntegerTensor.create(values, new long[]{rowCount});
+    }
+}
@@ -64,7 +64,14 @@ public class CsvReader {
         }
 
         return bufferedReader.lines()
-            .map(this::splitLine);
+            .map(this::splitLine)
+            .onClose(() -> {
+                try {
+                    bufferedReader.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
     }
 
     public <T> RowsAsObjectParser<T> asRowsDefinedBy(Class<T> clazz) {
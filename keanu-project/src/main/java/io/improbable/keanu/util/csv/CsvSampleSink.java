@@ -0,0 +1,149 @@
+package io.improbable.keanu.util.csv;
+
+import com.google.common.base.Preconditions;
+import com.opencsv.CSVWriter;
+import io.improbable.keanu.algorithms.SampleSink;
+import io.improbable.keanu.network.NetworkState;
+import io.improbable.keanu.network.SimpleNetworkState;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A sink that writes each sample to a CSV file as a row as soon as it is given it. The columns are the flattened
+ * values of each vertex, with the same header as {@link SampleWriter#withDefaultHeader()}, followed by the log of
+ * the master probability of the sample.
+ * <p>
+ * The file can be read back with {@link #read(File, List, SampleSink)}, e.g. to resume a chain from its last sample.
+ */
+public class CsvSampleSink implements SampleSink {
+
+    public static final String LOG_OF_MASTER_P_HEADER = "logOfMasterP";
+
+    private final List<? extends Vertex<? extends Tensor>> vertices;
+    private final CSVWriter writer;
+    private final String[] row;
+
+    /**
+     * @param file     the file to write to. Anything already in it is overwritten.
+     * @param vertices the vertices to write the samples of
+     */
+    public CsvSampleSink(File file, List<? extends Vertex<? extends Tensor>> vertices) {
+        this.vertices = vertices;
+
+        List<String> header = SampleWriter.createDefaultHeader(vertices);
+        header.add(LOG_OF_MASTER_P_HEADER);
+        this.row = new String[header.size()];
+
+        try {
+            this.writer = new CSVWriter(new BufferedWriter(new FileWriter(file)), Writer.DEFAULT_SEPARATOR,
+                Writer.DEFAULT_QUOTE_CHAR, Writer.DEFAULT_ESCAPE_CHAR, Writer.DEFAULT_LINE_END);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writer.writeNext(header.toArray(new String[0]), false);
+    }
+
+    @Override
+    public void accept(NetworkState sample, double logOfMasterP) {
+        int column = 0;
+        for (Vertex<? extends Tensor> vertex : vertices) {
+            Tensor.FlattenedView<?> values = ((Tensor<?>) sample.get(vertex.getId())).getFlattenedView();
+            for (long j = 0; j < values.size(); j++) {
+                row[column++] = values.get(j).toString();
+            }
+        }
+        row[column] = Double.toString(logOfMasterP);
+
+        writer.writeNext(row, false);
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads back a file written by a CsvSampleSink one sample at a time.
+     *
+     * @param file     a file written by a CsvSampleSink
+     * @param vertices vertices with the same types and shapes, in the same order, as those that were written. Their
+     *                 ids don't have to match.
+     * @param into     the sink to give each sample to
+     * @return the number of samples read
+     */
+    public static int read(File file, List<? extends Vertex<? extends Tensor>> vertices, SampleSink into) {
+        int columnCount = 1;
+        for (Vertex<? extends Tensor> vertex : vertices) {
+            columnCount += vertex.getValue().getLength();
+        }
+
+        Map<VertexId, Tensor> values = new HashMap<>();
+        NetworkState sample = new SimpleNetworkState(values);
+
+        int sampleCount = 0;
+        try (Stream<List<String>> lines = ReadCsv.fromFile(file).streamLines()) {
+            for (Iterator<List<String>> it = lines.iterator(); it.hasNext(); ) {
+                List<String> line = it.next();
+                Preconditions.checkArgument(
+                    line.size() == columnCount,
+                    "Expected %s columns but sample %s has %s", columnCount, sampleCount, line.size()
+                );
+
+                int column = 0;
+                for (Vertex<? extends Tensor> vertex : vertices) {
+                    Tensor like = vertex.getValue();
+                    int length = (int) like.getLength();
+                    values.put(vertex.getId(), parse(like, line.subList(column, column + length)));
+                    column += length;
+                }
+
+                into.accept(sample, Double.parseDouble(line.get(column)));
+                sampleCount++;
+            }
+        }
+        return sampleCount;
+    }
+
+    private static Tensor parse(Tensor like, List<String> cells) {
+        long[] shape = like.getShape();
+        if (like instanceof DoubleTensor) {
+            double[] parsed = new double[cells.size()];
+            for (int i = 0; i < parsed.length; i++) {
+                parsed[i] = Double.parseDouble(cells.get(i));
+            }
+            return DoubleTensor.create(parsed, shape);
+        } else if (like instanceof IntegerTensor) {
+            int[] parsed = new int[cells.size()];
+            for (int i = 0; i < parsed.length; i++) {
+                parsed[i] = Integer.parseInt(cells.get(i));
+            }
+            return IntegerTensor.create(parsed, shape);
+        } else if (like instanceof BooleanTensor) {
+            boolean[] parsed = new boolean[cells.size()];
+            for (int i = 0; i < parsed.length; i++) {
+                parsed[i] = Boolean.parseBoolean(cells.get(i));
+            }
+            return BooleanTensor.create(parsed, shape);
+        }
+        throw new IllegalArgumentException("Cannot read samples of type " + like.getClass().getSimpleName());
+    }
+}
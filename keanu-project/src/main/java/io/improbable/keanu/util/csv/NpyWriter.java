@@ -0,0 +1,83 @@
+package io.improbable.keanu.util.csv;
+
+import io.improbable.keanu.algorithms.FlattenedSamples;
+import io.improbable.keanu.tensor.Tensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes the samples of a vertex as a single array in the NumPy .npy format (version 1.0), with the sample as the
+ * first dimension followed by the shape of the vertex. Only the header is written here. The values are written by
+ * {@link FlattenedSamples#writeTo(WritableByteChannel)}, little endian and in C order, so the file can be memory
+ * mapped with numpy.load(file, mmap_mode='r').
+ */
+class NpyWriter {
+
+    private static final byte[] MAGIC = {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0};
+    private static final int HEADER_ALIGNMENT = 64;
+
+    private NpyWriter() {
+    }
+
+    /**
+     * @param file    the file to write to. Anything already in it is overwritten.
+     * @param value   the value of the vertex, which gives the type and shape of the array even if there are no samples
+     * @param samples the samples of the vertex, which all have the same type and shape as its value
+     */
+    static void write(File file, Tensor value, List<? extends Tensor> samples) {
+        FlattenedSamples flattened = FlattenedSamples.of(value, samples);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer header = ByteBuffer.wrap(header(flattened.getDType(), flattened.getShape()));
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            flattened.writeTo(channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The magic string, version and length of the header followed by a python dict literal describing the array,
+     * padded with spaces and a new line so the data starts on a multiple of 64 bytes.
+     */
+    private static byte[] header(String descr, long[] shape) {
+        StringBuilder dimensions = new StringBuilder().append(shape[0]).append(",");
+        for (int i = 1; i < shape.length; i++) {
+            dimensions.append(" ").append(shape[i]).append(",");
+        }
+        if (shape.length > 1) {
+            dimensions.setLength(dimensions.length() - 1);
+        }
+
+        StringBuilder dict = new StringBuilder()
+            .append("{'descr': '").append(descr)
+            .append("', 'fortran_order': False, 'shape': (").append(dimensions).append("), }");
+
+        int unpadded = MAGIC.length + Short.BYTES + dict.length() + 1;
+        int padding = (HEADER_ALIGNMENT - unpadded % HEADER_ALIGNMENT) % HEADER_ALIGNMENT;
+        for (int i = 0; i < padding; i++) {
+            dict.append(' ');
+        }
+        dict.append('\n');
+
+        ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Short.BYTES + dict.length()).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.putShort((short) dict.length());
+        header.put(dict.toString().getBytes(StandardCharsets.US_ASCII));
+        return header.array();
+    }
+}
@@ -43,6 +43,18 @@ public class ReadCsv {
         });
     }
 
+    public static CsvColumnReader columnsFromFile(String filePath) {
+        return columnsFromFile(Paths.get(filePath));
+    }
+
+    /**
+     * @param filePath the full path to the file for loading
+     * @return a reader that parses numeric columns of the file in parallel chunks
+     */
+    public static CsvColumnReader columnsFromFile(Path filePath) {
+        return new CsvColumnReader(filePath);
+    }
+
     public static CsvReader fromString(String csvString) {
         return new CsvReader(() -> new StringReader(csvString));
     }
@@ -1,16 +1,31 @@
 package io.improbable.keanu.util.csv;
 
+import com.google.common.base.Preconditions;
 import io.improbable.keanu.algorithms.NetworkSamples;
 import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
 import io.improbable.keanu.vertices.Vertex;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
+/**
+ * Writes samples with a row per sample and a column per element of each vertex.
+ * <p>
+ * Rows are formatted straight from the primitive values of each sample into blocks of text, which are written to the
+ * file on a background thread through a bounded queue, so the whole file is never held in memory.
+ */
 public class SampleWriter extends Writer {
 
     private static final String HEADER_STYLE = "{%s}[%d]";
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int QUEUED_BLOCKS = 16;
 
     private NetworkSamples samples;
     private List<? extends Vertex<? extends Tensor>> vertices;
@@ -22,34 +37,121 @@ public class SampleWriter extends Writer {
 
     @Override
     public File toFile(File file) {
-        List<String[]> data = new ArrayList<>();
-
-        for (int i = 0; i < samples.size(); i++) {
-            List<String> row = new ArrayList<>();
-            for (Vertex<? extends Tensor> vertex : vertices) {
-                Tensor sample = samples.get(vertex).asList().get(i);
-                List<Object> flatList = sample.asFlatList();
-                for (int j = 0; j < flatList.size(); j++) {
-                    row.add(flatList.get(j).toString());
+        List<List<? extends Tensor>> samplesByVertex = getSamplesByVertex();
+        char separator = getSeparator();
+        String lineEnd = getLineEnd();
+
+        try (BackgroundFileWriter writer = new BackgroundFileWriter(file, QUEUED_BLOCKS)) {
+            StringBuilder block = new StringBuilder(formatHeaderLine());
+
+            for (int i = 0; i < samples.size(); i++) {
+                boolean firstColumn = true;
+                for (List<? extends Tensor> vertexSamples : samplesByVertex) {
+                    firstColumn = appendValues(block, vertexSamples.get(i), separator, firstColumn);
+                }
+                block.append(lineEnd);
+
+                if (block.length() >= BLOCK_SIZE) {
+                    writer.write(block.toString());
+                    block.setLength(0);
                 }
             }
-            String[] rowToString = new String[row.size()];
-            data.add(row.toArray(rowToString));
+
+            writer.write(block.toString());
         }
 
-        return writeToFile(file, data);
+        return file;
+    }
+
+    /**
+     * Writes the samples of each vertex to its own file in the NumPy .npy format, with the sample as the first
+     * dimension. Unlike a csv file, these can be memory mapped, e.g. with numpy.load(file, mmap_mode='r').
+     *
+     * @param directory the directory to write to, which is created if it doesn't exist. The samples of each vertex are
+     *                  written to a file named by the vertex's id, e.g. 1_2.npy for the vertex with id [1, 2].
+     * @return the files written, in the same order as the vertices
+     */
+    public List<File> toNpy(File directory) {
+        Preconditions.checkArgument(
+            directory.isDirectory() || directory.mkdirs(),
+            "Cannot create directory %s", directory
+        );
+
+        List<List<? extends Tensor>> samplesByVertex = getSamplesByVertex();
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < vertices.size(); i++) {
+            File file = new File(directory, npyFileName(vertices.get(i)));
+            NpyWriter.write(file, vertices.get(i).getValue(), samplesByVertex.get(i));
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * VertexSamples can't be empty, so each vertex gets an empty list when there are no samples.
+     */
+    private List<List<? extends Tensor>> getSamplesByVertex() {
+        List<List<? extends Tensor>> samplesByVertex = new ArrayList<>();
+        for (Vertex<? extends Tensor> vertex : vertices) {
+            samplesByVertex.add(samples.size() == 0 ? Collections.emptyList() : samples.get(vertex).asList());
+        }
+        return samplesByVertex;
+    }
+
+    private static String npyFileName(Vertex<?> vertex) {
+        return Arrays.stream(vertex.getId().getValue())
+            .mapToObj(Long::toString)
+            .collect(Collectors.joining("_", "", ".npy"));
+    }
+
+    /**
+     * @return whether the next value appended is the first column of the row
+     */
+    private static boolean appendValues(StringBuilder row, Tensor sample, char separator, boolean firstColumn) {
+        if (sample instanceof DoubleTensor) {
+            for (double value : ((DoubleTensor) sample).asFlatDoubleArray()) {
+                firstColumn = appendSeparator(row, separator, firstColumn);
+                row.append(value);
+            }
+        } else if (sample instanceof IntegerTensor) {
+            for (int value : ((IntegerTensor) sample).asFlatIntegerArray()) {
+                firstColumn = appendSeparator(row, separator, firstColumn);
+                row.append(value);
+            }
+        } else if (sample instanceof BooleanTensor) {
+            for (Boolean value : ((BooleanTensor) sample).asFlatArray()) {
+                firstColumn = appendSeparator(row, separator, firstColumn);
+                row.append(value.booleanValue());
+            }
+        } else {
+            for (Object value : sample.asFlatList()) {
+                firstColumn = appendSeparator(row, separator, firstColumn);
+                row.append(value);
+            }
+        }
+        return firstColumn;
+    }
+
+    private static boolean appendSeparator(StringBuilder row, char separator, boolean firstColumn) {
+        if (!firstColumn) {
+            row.append(separator);
+        }
+        return false;
     }
 
     @Override
     public Writer withDefaultHeader() {
+        withHeader(createDefaultHeader(vertices).toArray(new String[0]));
+        return this;
+    }
+
+    static List<String> createDefaultHeader(List<? extends Vertex<? extends Tensor>> vertices) {
         List<String> header = new ArrayList<>();
         for (Vertex<? extends Tensor> vertex : vertices) {
             for (int j = 0; j < vertex.getValue().getLength(); j++) {
                 header.add(String.format(HEADER_STYLE, vertex.getId(), j));
             }
         }
-        String[] headerToArray = new String[header.size()];
-        withHeader(header.toArray(headerToArray));
-        return this;
+        return header;
     }
 }
@@ -4,6 +4,7 @@ import io.improbable.keanu.algorithms.NetworkSamples;
 import io.improbable.keanu.tensor.Tensor;
 import io.improbable.keanu.vertices.Vertex;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
@@ -25,6 +26,15 @@ public class WriteCsv {
         return asSamples(samples, Arrays.asList(vertices));
     }
 
+    /**
+     * @param file     the file to write samples to as they are taken
+     * @param vertices the vertices whose samples will be written to CSV
+     * @return a sink that writes each sample it is given to the file
+     */
+    public static CsvSampleSink asSampleSink(File file, List<? extends Vertex<? extends Tensor>> vertices) {
+        return new CsvSampleSink(file, vertices);
+    }
+
     /**
      * @param vertices the vertices whose values will be written to CSV in rows
      * @return a writer for the csv file
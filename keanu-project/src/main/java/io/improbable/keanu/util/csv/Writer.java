@@ -6,6 +6,7 @@ import com.opencsv.ICSVWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.List;
@@ -101,6 +102,23 @@ public abstract class Writer {
         return file;
     }
 
+    /**
+     * @return the header formatted as a line of the csv file, or an empty string if the header isn't enabled
+     */
+    String formatHeaderLine() {
+        if (!headerEnabled) {
+            return "";
+        }
+
+        StringWriter line = new StringWriter();
+        try (CSVWriter writer = new CSVWriter(line, separator, quoteChar, escapeChar, lineEnd)) {
+            writer.writeNext(header, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return line.toString();
+    }
+
     String[] createHeader(int size, String headerStyle, Function<Integer, String> func) {
         String[] header = new String[size];
         for (int i = 0; i < size; i++) {
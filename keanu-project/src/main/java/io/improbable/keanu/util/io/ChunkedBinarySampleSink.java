@@ -0,0 +1,289 @@
+package io.improbable.keanu.util.io;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.SampleSink;
+import io.improbable.keanu.network.NetworkState;
+import io.improbable.keanu.network.SimpleNetworkState;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.TensorShape;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sink that writes samples to a compact binary file. Samples are buffered into chunks of a fixed number of
+ * samples and each chunk is written and flushed as soon as it is full, so memory use is bounded by the chunk size
+ * and at most one chunk is lost if a run is killed.
+ * <p>
+ * The file starts with a header of the type and shape of each vertex. Each chunk is then the number of samples in
+ * it followed by the samples, each of which is its log of master probability followed by the flattened values of
+ * each vertex as doubles, ints or bytes depending on the type of the vertex.
+ * <p>
+ * The file can be read back with {@link #read(File, List, SampleSink)}, e.g. to resume a chain from its last sample.
+ */
+public class ChunkedBinarySampleSink implements SampleSink {
+
+    private static final int MAGIC_NUMBER = 0x4B534D50;
+    private static final int FORMAT_VERSION = 1;
+    private static final int DEFAULT_SAMPLES_PER_CHUNK = 1024;
+
+    private static final byte DOUBLE_TYPE = 0;
+    private static final byte INTEGER_TYPE = 1;
+    private static final byte BOOLEAN_TYPE = 2;
+
+    private final List<? extends Vertex<? extends Tensor>> vertices;
+    private final byte[] types;
+    private final int samplesPerChunk;
+    private final ByteBuffer chunk;
+    private final DataOutputStream output;
+    private int samplesInChunk = 0;
+
+    public ChunkedBinarySampleSink(File file, List<? extends Vertex<? extends Tensor>> vertices) {
+        this(file, vertices, DEFAULT_SAMPLES_PER_CHUNK);
+    }
+
+    /**
+     * @param file            the file to write to. Anything already in it is overwritten.
+     * @param vertices        the vertices to write the samples of
+     * @param samplesPerChunk the number of samples to buffer before writing them to the file
+     */
+    public ChunkedBinarySampleSink(File file, List<? extends Vertex<? extends Tensor>> vertices, int samplesPerChunk) {
+        Preconditions.checkArgument(samplesPerChunk > 0, "Samples per chunk must be positive but was %s", samplesPerChunk);
+
+        this.vertices = vertices;
+        this.samplesPerChunk = samplesPerChunk;
+        this.types = new byte[vertices.size()];
+
+        long[][] shapes = new long[vertices.size()][];
+        for (int i = 0; i < types.length; i++) {
+            Tensor value = vertices.get(i).getValue();
+            types[i] = typeOf(value);
+            shapes[i] = value.getShape();
+        }
+
+        this.chunk = ByteBuffer.allocate(getSampleLength(types, shapes) * samplesPerChunk);
+
+        try {
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            writeHeader(shapes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeHeader(long[][] shapes) throws IOException {
+        output.writeInt(MAGIC_NUMBER);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(types.length);
+        for (int i = 0; i < types.length; i++) {
+            output.writeByte(types[i]);
+            output.writeInt(shapes[i].length);
+            for (long dimension : shapes[i]) {
+                output.writeLong(dimension);
+            }
+        }
+        output.flush();
+    }
+
+    private static byte typeOf(Tensor value) {
+        if (value instanceof DoubleTensor) {
+            return DOUBLE_TYPE;
+        } else if (value instanceof IntegerTensor) {
+            return INTEGER_TYPE;
+        } else if (value instanceof BooleanTensor) {
+            return BOOLEAN_TYPE;
+        }
+        throw new IllegalArgumentException("Cannot write samples of type " + value.getClass().getSimpleName());
+    }
+
+    private static int getSampleLength(byte[] types, long[][] shapes) {
+        int sampleLength = Double.BYTES;
+        for (int i = 0; i < types.length; i++) {
+            int length = TensorShape.getLengthAsInt(shapes[i]);
+            switch (types[i]) {
+                case DOUBLE_TYPE:
+                    sampleLength += length * Double.BYTES;
+                    break;
+                case INTEGER_TYPE:
+                    sampleLength += length * Integer.BYTES;
+                    break;
+                default:
+                    sampleLength += length;
+            }
+        }
+        return sampleLength;
+    }
+
+    @Override
+    public void accept(NetworkState sample, double logOfMasterP) {
+        chunk.putDouble(logOfMasterP);
+
+        for (int i = 0; i < types.length; i++) {
+            Tensor value = sample.get(vertices.get(i).getId());
+            switch (types[i]) {
+                case DOUBLE_TYPE:
+                    for (double element : ((DoubleTensor) value).asFlatDoubleArray()) {
+                        chunk.putDouble(element);
+                    }
+                    break;
+                case INTEGER_TYPE:
+                    for (int element : ((IntegerTensor) value).asFlatIntegerArray()) {
+                        chunk.putInt(element);
+                    }
+                    break;
+                default:
+                    for (Boolean element : ((BooleanTensor) value).asFlatArray()) {
+                        chunk.put(element ? (byte) 1 : (byte) 0);
+                    }
+            }
+        }
+
+        samplesInChunk++;
+        if (samplesInChunk == samplesPerChunk) {
+            writeChunk();
+        }
+    }
+
+    private void writeChunk() {
+        if (samplesInChunk == 0) {
+            return;
+        }
+
+        try {
+            output.writeInt(samplesInChunk);
+            output.write(chunk.array(), 0, chunk.position());
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        chunk.clear();
+        samplesInChunk = 0;
+    }
+
+    @Override
+    public void close() {
+        writeChunk();
+        try {
+            output.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads back a file written by a ChunkedBinarySampleSink one sample at a time. A partly written chunk at the
+     * end of the file, e.g. from a run that was killed, is ignored.
+     *
+     * @param file     a file written by a ChunkedBinarySampleSink
+     * @param vertices vertices with the same types and shapes, in the same order, as those that were written. Their
+     *                 ids don't have to match.
+     * @param into     the sink to give each sample to
+     * @return the number of samples read
+     */
+    public static int read(File file, List<? extends Vertex<? extends Tensor>> vertices, SampleSink into) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            Preconditions.checkArgument(input.readInt() == MAGIC_NUMBER, "%s is not a sample file", file);
+            int version = input.readInt();
+            Preconditions.checkArgument(version == FORMAT_VERSION, "Unsupported sample file version %s", version);
+
+            int vertexCount = input.readInt();
+            Preconditions.checkArgument(
+                vertexCount == vertices.size(),
+                "The file has samples of %s vertices but %s were given", vertexCount, vertices.size()
+            );
+
+            byte[] types = new byte[vertexCount];
+            long[][] shapes = new long[vertexCount][];
+            for (int i = 0; i < vertexCount; i++) {
+                types[i] = input.readByte();
+                shapes[i] = new long[input.readInt()];
+                for (int d = 0; d < shapes[i].length; d++) {
+                    shapes[i][d] = input.readLong();
+                }
+
+                Tensor like = vertices.get(i).getValue();
+                Preconditions.checkArgument(
+                    types[i] == typeOf(like) && Arrays.equals(shapes[i], like.getShape()),
+                    "Vertex %s does not match the type and shape of the samples in the file", i
+                );
+            }
+
+            return readChunks(input, vertices, types, shapes, into);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int readChunks(DataInputStream input,
+                                  List<? extends Vertex<? extends Tensor>> vertices,
+                                  byte[] types,
+                                  long[][] shapes,
+                                  SampleSink into) throws IOException {
+        int sampleLength = getSampleLength(types, shapes);
+        Map<VertexId, Tensor> values = new HashMap<>();
+        NetworkState sample = new SimpleNetworkState(values);
+
+        int sampleCount = 0;
+        while (true) {
+            ByteBuffer chunk;
+            try {
+                int samplesInChunk = input.readInt();
+                chunk = ByteBuffer.allocate(samplesInChunk * sampleLength);
+                input.readFully(chunk.array());
+            } catch (EOFException e) {
+                return sampleCount;
+            }
+
+            while (chunk.hasRemaining()) {
+                double logOfMasterP = chunk.getDouble();
+                for (int i = 0; i < types.length; i++) {
+                    values.put(vertices.get(i).getId(), readValue(chunk, types[i], shapes[i]));
+                }
+
+                into.accept(sample, logOfMasterP);
+                sampleCount++;
+            }
+        }
+    }
+
+    private static Tensor readValue(ByteBuffer chunk, byte type, long[] shape) {
+        int length = TensorShape.getLengthAsInt(shape);
+        switch (type) {
+            case DOUBLE_TYPE:
+                double[] doubles = new double[length];
+                chunk.asDoubleBuffer().get(doubles);
+                chunk.position(chunk.position() + length * Double.BYTES);
+                return DoubleTensor.create(doubles, shape);
+            case INTEGER_TYPE:
+                int[] integers = new int[length];
+                chunk.asIntBuffer().get(integers);
+                chunk.position(chunk.position() + length * Integer.BYTES);
+                return IntegerTensor.create(integers, shape);
+            default:
+                boolean[] booleans = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    booleans[i] = chunk.get() != 0;
+                }
+                return BooleanTensor.create(booleans, shape);
+        }
+    }
+}
@@ -1,10 +1,7 @@
 package io.improbable.keanu.util.io;
 
-import com.google.common.primitives.Booleans;
-import com.google.common.primitives.Doubles;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
-import com.google.gson.internal.Primitives;
 import io.improbable.keanu.KeanuSavedBayesNet;
 import io.improbable.keanu.network.BayesianNetwork;
 import io.improbable.keanu.network.NetworkLoader;
@@ -12,27 +9,61 @@ import io.improbable.keanu.tensor.Tensor;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.tensor.intgr.IntegerTensor;
-import io.improbable.keanu.vertices.LoadShape;
-import io.improbable.keanu.vertices.LoadVertexParam;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexLabel;
 import io.improbable.keanu.vertices.bool.BooleanVertex;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.intgr.IntegerVertex;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Parameter;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.stream.IntStream;
+
+/**
+ * Loads a network saved by the {@link ProtobufSaver}.
+ * <p>
+ * The load constructor of each vertex type is looked up once and shared between loaders, and the tensors in the
+ * saved parameters and values are decoded in parallel before the vertices are created. The time taken by each stage
+ * of the last load is available from {@link #getLastLoadTimings()} and is logged at debug level.
+ */
+@Slf4j
 public class ProtobufLoader implements NetworkLoader {
 
     private final Map<Vertex, KeanuSavedBayesNet.StoredValue> savedValues;
+    private final Map<Vertex, Tensor> savedTensors;
+
+    @Getter
+    private LoadTimings lastLoadTimings;
 
     public ProtobufLoader() {
         savedValues = new HashMap<>();
+        savedTensors = new HashMap<>();
+    }
+
+    /**
+     * How long each stage of loading a network took.
+     */
+    @Value
+    public static class LoadTimings {
+        /**
+         * parsing the protobuf, which is zero when an already parsed model was loaded
+         */
+        Duration parsing;
+        Duration tensorDecoding;
+        Duration vertexCreation;
+        Duration networkCreation;
+        Duration valueLoading;
+
+        public Duration getTotal() {
+            return parsing.plus(tensorDecoding).plus(vertexCreation).plus(networkCreation).plus(valueLoading);
+        }
     }
 
     @Override
@@ -42,21 +73,51 @@ public class ProtobufLoader implements NetworkLoader {
 
     @Override
     public BayesianNetwork loadNetwork(InputStream input) throws IOException {
+        long start = System.nanoTime();
         KeanuSavedBayesNet.Model parsedModel = KeanuSavedBayesNet.Model.parseFrom(input);
-        return loadNetwork(parsedModel);
+        return loadNetwork(parsedModel, System.nanoTime() - start);
     }
 
     public BayesianNetwork loadNetwork(KeanuSavedBayesNet.Model parsedModel) {
+        return loadNetwork(parsedModel, 0L);
+    }
+
+    private BayesianNetwork loadNetwork(KeanuSavedBayesNet.Model parsedModel, long parsingNanos) {
+        List<KeanuSavedBayesNet.Vertex> vertices = parsedModel.getNetwork().getVerticesList();
+        List<KeanuSavedBayesNet.StoredValue> storedValues = parsedModel.getNetworkState().getDefaultStateList();
+
+        long decodingStart = System.nanoTime();
+        Object[][] decodedParams = new Object[vertices.size()][];
+        IntStream.range(0, vertices.size()).parallel()
+            .forEach(i -> decodedParams[i] = decodeTensorParams(vertices.get(i)));
+        Tensor[] decodedValues = new Tensor[storedValues.size()];
+        IntStream.range(0, storedValues.size()).parallel()
+            .forEach(i -> decodedValues[i] = decodeTensorValue(storedValues.get(i).getValue()));
+
+        long creationStart = System.nanoTime();
         Map<KeanuSavedBayesNet.VertexID, Vertex> instantiatedVertices = new HashMap<>();
 
-        for (KeanuSavedBayesNet.Vertex vertex : parsedModel.getNetwork().getVerticesList()) {
-            Vertex newVertex = createVertexFromProtoBuf(vertex, instantiatedVertices);
+        for (int i = 0; i < vertices.size(); i++) {
+            KeanuSavedBayesNet.Vertex vertex = vertices.get(i);
+            Vertex newVertex = createVertexFromProtoBuf(vertex, decodedParams[i], instantiatedVertices);
             instantiatedVertices.put(vertex.getId(), newVertex);
         }
 
+        long networkStart = System.nanoTime();
         BayesianNetwork bayesNet = new BayesianNetwork(instantiatedVertices.values());
 
-        loadDefaultValues(parsedModel.getNetworkState(), instantiatedVertices, bayesNet);
+        long valuesStart = System.nanoTime();
+        loadDefaultValues(storedValues, decodedValues, instantiatedVertices, bayesNet);
+        long end = System.nanoTime();
+
+        lastLoadTimings = new LoadTimings(
+            Duration.ofNanos(parsingNanos),
+            Duration.ofNanos(creationStart - decodingStart),
+            Duration.ofNanos(networkStart - creationStart),
+            Duration.ofNanos(valuesStart - networkStart),
+            Duration.ofNanos(end - valuesStart)
+        );
+        log.debug("Loaded network of {} vertices: {}", vertices.size(), lastLoadTimings);
 
         return bayesNet;
     }
@@ -64,26 +125,22 @@ public class ProtobufLoader implements NetworkLoader {
     @Override
     public void loadValue(DoubleVertex vertex) {
         KeanuSavedBayesNet.StoredValue valueInformation = savedValues.get(vertex);
-        KeanuSavedBayesNet.VertexValue value = valueInformation.getValue();
-        DoubleTensor tensor = extractDoubleValue(value);
-        setOrObserveValue(vertex, tensor, valueInformation.getIsObserved());
-    }
-
-    private DoubleTensor extractDoubleValue(KeanuSavedBayesNet.VertexValue value) {
-        if (value.getValueTypeCase() != KeanuSavedBayesNet.VertexValue.ValueTypeCase.DOUBLEVAL) {
+        if (valueInformation.getValue().getValueTypeCase() != KeanuSavedBayesNet.VertexValue.ValueTypeCase.DOUBLEVAL) {
             throw new IllegalArgumentException("Non Double Value specified for Double Vertex");
-        } else {
-            return extractDoubleTensor(value.getDoubleVal());
         }
+        setOrObserveValue(vertex, savedTensors.get(vertex), valueInformation.getIsObserved());
     }
 
-    private void loadDefaultValues(KeanuSavedBayesNet.BayesianNetworkState parsedNetworkState,
+    private void loadDefaultValues(List<KeanuSavedBayesNet.StoredValue> storedValues,
+                                   Tensor[] decodedValues,
                                    Map<KeanuSavedBayesNet.VertexID, Vertex> instantiatedVertices,
                                    BayesianNetwork bayesNet) {
-        for (KeanuSavedBayesNet.StoredValue value : parsedNetworkState.getDefaultStateList()) {
+        for (int i = 0; i < storedValues.size(); i++) {
+            KeanuSavedBayesNet.StoredValue value = storedValues.get(i);
             Vertex targetVertex = getTargetVertex(value, instantiatedVertices, bayesNet);
 
             savedValues.put(targetVertex, value);
+            savedTensors.put(targetVertex, decodedValues[i]);
             targetVertex.loadValue(this);
         }
     }
@@ -141,32 +198,34 @@ public class ProtobufLoader implements NetworkLoader {
     @Override
     public void loadValue(BooleanVertex vertex) {
         KeanuSavedBayesNet.StoredValue valueInformation = savedValues.get(vertex);
-        KeanuSavedBayesNet.VertexValue value = valueInformation.getValue();
-        BooleanTensor tensor = extractBoolValue(value);
-        setOrObserveValue(vertex, tensor, valueInformation.getIsObserved());
-    }
-
-    private BooleanTensor extractBoolValue(KeanuSavedBayesNet.VertexValue value) {
-        if (value.getValueTypeCase() != KeanuSavedBayesNet.VertexValue.ValueTypeCase.BOOLVAL) {
+        if (valueInformation.getValue().getValueTypeCase() != KeanuSavedBayesNet.VertexValue.ValueTypeCase.BOOLVAL) {
             throw new IllegalArgumentException("Non Boolean Value specified for Boolean Vertex");
-        } else {
-            return extractBoolTensor(value.getBoolVal());
         }
+        setOrObserveValue(vertex, savedTensors.get(vertex), valueInformation.getIsObserved());
     }
 
     @Override
     public void loadValue(IntegerVertex vertex) {
         KeanuSavedBayesNet.StoredValue valueInformation = savedValues.get(vertex);
-        KeanuSavedBayesNet.VertexValue value = valueInformation.getValue();
-        IntegerTensor tensor = extractIntValue(value);
-        setOrObserveValue(vertex, tensor, valueInformation.getIsObserved());
+        if (valueInformation.getValue().getValueTypeCase() != KeanuSavedBayesNet.VertexValue.ValueTypeCase.INTVAL) {
+            throw new IllegalArgumentException("Non Int Value specified for Int Vertex");
+        }
+        setOrObserveValue(vertex, savedTensors.get(vertex), valueInformation.getIsObserved());
     }
 
-    private IntegerTensor extractIntValue(KeanuSavedBayesNet.VertexValue value) {
-        if (value.getValueTypeCase() != KeanuSavedBayesNet.VertexValue.ValueTypeCase.INTVAL) {
-            throw new IllegalArgumentException("Non Int Value specified for Int Vertex");
-        } else {
-            return extractIntTensor(value.getIntVal());
+    private Tensor decodeTensorValue(KeanuSavedBayesNet.VertexValue value) {
+        switch (value.getValueTypeCase()) {
+            case DOUBLEVAL:
+                return extractDoubleTensor(value.getDoubleVal());
+
+            case BOOLVAL:
+                return extractBoolTensor(value.getBoolVal());
+
+            case INTVAL:
+                return extractIntTensor(value.getIntVal());
+
+            default:
+                return null;
         }
     }
 
@@ -179,16 +238,12 @@ public class ProtobufLoader implements NetworkLoader {
     }
 
     private <T> Vertex<T> createVertexFromProtoBuf(KeanuSavedBayesNet.Vertex vertex,
+                                                   Object[] decodedParams,
                                                    Map<KeanuSavedBayesNet.VertexID, Vertex> existingVertices) {
-        Class vertexClass;
-        try {
-            vertexClass = Class.forName(vertex.getVertexType());
-        } catch (ClassNotFoundException e) {
-            throw new IllegalArgumentException("Unknown Vertex Type Specified: " + vertex.getVertexType(), e);
-        }
+        VertexLoadConstructor loadConstructor = VertexLoadConstructor.forVertexType(vertex.getVertexType());
 
-        Map<String, Object> parameterMap = getParameterMap(vertex, existingVertices);
-        Vertex newVertex = instantiateVertex(vertexClass, parameterMap, vertex);
+        Map<String, Object> parameterMap = getParameterMap(vertex, decodedParams, existingVertices);
+        Vertex newVertex = loadConstructor.instantiate(parameterMap, vertex);
 
         if (!vertex.getLabel().isEmpty()) {
             newVertex.setLabel(vertex.getLabel());
@@ -197,78 +252,48 @@ public class ProtobufLoader implements NetworkLoader {
         return newVertex;
     }
 
-    private Vertex instantiateVertex(Class vertexClass,
-                                     Map<String, Object> paramMap,
-                                     KeanuSavedBayesNet.Vertex vertex) {
-        Constructor<Vertex> loadConstructor = getAnnotatedConstructor(vertexClass);
-        Parameter[] constructorParameters = loadConstructor.getParameters();
-        Object[] arguments = new Object[constructorParameters.length];
-
-        for (int i = 0; i < constructorParameters.length; i++) {
-            arguments[i] = getParameter(constructorParameters[i], paramMap, vertex);
-
-            Class argumentClass = arguments[i].getClass();
-            Class parameterClass = Primitives.wrap(constructorParameters[i].getType());
-
-            if (!parameterClass.isAssignableFrom(argumentClass)) {
-                throw new IllegalArgumentException("Incorrect Parameter Type specified.  Got: "
-                    + argumentClass + ", Expected: " + parameterClass);
+    /**
+     * Decodes the tensor parameters of a vertex, which don't depend on any other vertex so can be decoded ahead of
+     * creating the vertices.
+     *
+     * @return the decoded tensor of each parameter, in order, or null where the parameter is not a tensor
+     */
+    private Object[] decodeTensorParams(KeanuSavedBayesNet.Vertex vertex) {
+        Object[] decodedParams = new Object[vertex.getParametersCount()];
+
+        for (int i = 0; i < decodedParams.length; i++) {
+            KeanuSavedBayesNet.NamedParam parameter = vertex.getParameters(i);
+
+            switch (parameter.getParamCase()) {
+                case DOUBLETENSORPARAM:
+                    decodedParams[i] = extractDoubleTensor(parameter.getDoubleTensorParam());
+                    break;
+
+                case INTTENSORPARAM:
+                    decodedParams[i] = extractIntTensor(parameter.getIntTensorParam());
+                    break;
+
+                case BOOLTENSORPARAM:
+                    decodedParams[i] = extractBoolTensor(parameter.getBoolTensorParam());
+                    break;
+
+                default:
+                    break;
             }
         }
 
-        try {
-            return loadConstructor.newInstance(arguments);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Failed to create new Vertex", e);
-        }
-    }
-
-    private Object getParameter(Parameter methodParameter,
-                                Map<String, Object> paramMap,
-                                KeanuSavedBayesNet.Vertex vertex) {
-        LoadVertexParam paramAnnotation;
-
-        if ((paramAnnotation = methodParameter.getAnnotation(LoadVertexParam.class)) != null) {
-            Object parameter = paramMap.get(paramAnnotation.value());
-            if (parameter == null) {
-                throw new IllegalArgumentException("Failed to create vertex due to missing parent: "
-                    + paramAnnotation.value());
-            } else {
-                return parameter;
-            }
-        } else if (methodParameter.getAnnotation(LoadShape.class) != null) {
-            if (vertex.getShapeCount() == 0) {
-                return Tensor.SCALAR_SHAPE;
-            } else {
-                return Longs.toArray(vertex.getShapeList());
-            }
-        } else {
-            throw new IllegalArgumentException("Cannot create Vertex due to unannotated parameter in constructor");
-        }
-    }
-
-    private Constructor getAnnotatedConstructor(Class vertexClass) {
-        Constructor[] constructors = vertexClass.getConstructors();
-
-        for (Constructor constructor : constructors) {
-            Parameter[] parameters = constructor.getParameters();
-
-            if (parameters.length > 0 &&
-                (parameters[0].isAnnotationPresent(LoadVertexParam.class)
-                    || parameters[0].isAnnotationPresent(LoadShape.class))) {
-                return constructor;
-            }
-        }
-
-        throw new IllegalArgumentException("No Annotated Load Constructor for Vertex of type: " + vertexClass);
+        return decodedParams;
     }
 
     private Map<String, Object> getParameterMap(KeanuSavedBayesNet.Vertex vertex,
+                                                Object[] decodedParams,
                                                 Map<KeanuSavedBayesNet.VertexID, Vertex> existingVertices) {
         Map<String, Object> parameterMap = new HashMap<>();
 
-        for (KeanuSavedBayesNet.NamedParam parameter : vertex.getParametersList()) {
-            parameterMap.put(parameter.getName(), getDecodedParam(parameter, existingVertices));
+        for (int i = 0; i < vertex.getParametersCount(); i++) {
+            KeanuSavedBayesNet.NamedParam parameter = vertex.getParameters(i);
+            Object decoded = decodedParams[i] != null ? decodedParams[i] : getDecodedParam(parameter, existingVertices);
+            parameterMap.put(parameter.getName(), decoded);
         }
 
         return parameterMap;
@@ -280,15 +305,6 @@ public class ProtobufLoader implements NetworkLoader {
             case PARENTVERTEX:
                 return existingVertices.get(parameter.getParentVertex());
 
-            case DOUBLETENSORPARAM:
-                return extractDoubleTensor(parameter.getDoubleTensorParam());
-
-            case INTTENSORPARAM:
-                return extractIntTensor(parameter.getIntTensorParam());
-
-            case BOOLTENSORPARAM:
-                return extractBoolTensor(parameter.getBoolTensorParam());
-
             case DOUBLEPARAM:
                 return parameter.getDoubleParam();
 
@@ -338,21 +354,27 @@ public class ProtobufLoader implements NetworkLoader {
         return newVertexArray;
     }
 
-    private DoubleTensor extractDoubleTensor(KeanuSavedBayesNet.DoubleTensor tensor) {
-        return DoubleTensor.create(
-            Doubles.toArray(tensor.getValuesList()),
-            Longs.toArray(tensor.getShapeList()));
+    private static DoubleTensor extractDoubleTensor(KeanuSavedBayesNet.DoubleTensor tensor) {
+        double[] values = new double[tensor.getValuesCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = tensor.getValues(i);
+        }
+        return DoubleTensor.create(values, Longs.toArray(tensor.getShapeList()));
     }
 
-    private IntegerTensor extractIntTensor(KeanuSavedBayesNet.IntegerTensor tensor) {
-        return IntegerTensor.create(
-            Ints.toArray(tensor.getValuesList()),
-            Longs.toArray(tensor.getShapeList()));
+    private static IntegerTensor extractIntTensor(KeanuSavedBayesNet.IntegerTensor tensor) {
+        int[] values = new int[tensor.getValuesCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = tensor.getValues(i);
+        }
+        return IntegerTensor.create(values, Longs.toArray(tensor.getShapeList()));
     }
 
-    private BooleanTensor extractBoolTensor(KeanuSavedBayesNet.BooleanTensor tensor) {
-        return BooleanTensor.create(
-            Booleans.toArray(tensor.getValuesList()),
-            Longs.toArray(tensor.getShapeList()));
+    private static BooleanTensor extractBoolTensor(KeanuSavedBayesNet.BooleanTensor tensor) {
+        boolean[] values = new boolean[tensor.getValuesCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = tensor.getValues(i);
+        }
+        return BooleanTensor.create(values, Longs.toArray(tensor.getShapeList()));
     }
 }
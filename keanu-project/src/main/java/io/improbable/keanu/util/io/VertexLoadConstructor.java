@@ -0,0 +1,137 @@
+package io.improbable.keanu.util.io;
+
+import com.google.common.primitives.Longs;
+import com.google.gson.internal.Primitives;
+import io.improbable.keanu.KeanuSavedBayesNet;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.vertices.LoadShape;
+import io.improbable.keanu.vertices.LoadVertexParam;
+import io.improbable.keanu.vertices.Vertex;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Parameter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The annotated load constructor of a vertex class, resolved once per class and shared between loaders. The
+ * reflective lookup of the class, its constructors and their {@link LoadVertexParam} annotations is done the first
+ * time a vertex type is loaded and the constructor is then called through a {@link MethodHandle}.
+ */
+class VertexLoadConstructor {
+
+    private static final Map<String, VertexLoadConstructor> CACHE = new ConcurrentHashMap<>();
+
+    private final MethodHandle constructor;
+
+    /**
+     * the {@link LoadVertexParam} name of each parameter, or null where the parameter is the {@link LoadShape}
+     */
+    private final String[] parameterNames;
+
+    private final Class[] parameterTypes;
+
+    private VertexLoadConstructor(Constructor loadConstructor) {
+        Parameter[] parameters = loadConstructor.getParameters();
+        this.parameterNames = new String[parameters.length];
+        this.parameterTypes = new Class[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++) {
+            LoadVertexParam paramAnnotation = parameters[i].getAnnotation(LoadVertexParam.class);
+
+            if (paramAnnotation != null) {
+                parameterNames[i] = paramAnnotation.value();
+            } else if (!parameters[i].isAnnotationPresent(LoadShape.class)) {
+                throw new IllegalArgumentException("Cannot create Vertex due to unannotated parameter in constructor");
+            }
+
+            parameterTypes[i] = Primitives.wrap(parameters[i].getType());
+        }
+
+        try {
+            this.constructor = MethodHandles.publicLookup()
+                .unreflectConstructor(loadConstructor)
+                .asSpreader(Object[].class, parameters.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access load constructor of " + loadConstructor.getDeclaringClass(), e);
+        }
+    }
+
+    static VertexLoadConstructor forVertexType(String vertexType) {
+        VertexLoadConstructor cached = CACHE.get(vertexType);
+        if (cached == null) {
+            cached = CACHE.computeIfAbsent(vertexType, VertexLoadConstructor::resolve);
+        }
+        return cached;
+    }
+
+    private static VertexLoadConstructor resolve(String vertexType) {
+        Class vertexClass;
+        try {
+            vertexClass = Class.forName(vertexType);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown Vertex Type Specified: " + vertexType, e);
+        }
+
+        return new VertexLoadConstructor(getAnnotatedConstructor(vertexClass));
+    }
+
+    private static Constructor getAnnotatedConstructor(Class vertexClass) {
+        Constructor[] constructors = vertexClass.getConstructors();
+
+        for (Constructor constructor : constructors) {
+            Parameter[] parameters = constructor.getParameters();
+
+            if (parameters.length > 0 &&
+                (parameters[0].isAnnotationPresent(LoadVertexParam.class)
+                    || parameters[0].isAnnotationPresent(LoadShape.class))) {
+                return constructor;
+            }
+        }
+
+        throw new IllegalArgumentException("No Annotated Load Constructor for Vertex of type: " + vertexClass);
+    }
+
+    Vertex instantiate(Map<String, Object> paramMap, KeanuSavedBayesNet.Vertex vertex) {
+        Object[] arguments = new Object[parameterNames.length];
+
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = getParameter(i, paramMap, vertex);
+
+            Class argumentClass = arguments[i].getClass();
+            if (!parameterTypes[i].isAssignableFrom(argumentClass)) {
+                throw new IllegalArgumentException("Incorrect Parameter Type specified.  Got: "
+                    + argumentClass + ", Expected: " + parameterTypes[i]);
+            }
+        }
+
+        try {
+            return (Vertex) (Object) constructor.invokeExact(arguments);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Failed to create new Vertex", e);
+        }
+    }
+
+    private Object getParameter(int index, Map<String, Object> paramMap, KeanuSavedBayesNet.Vertex vertex) {
+        String name = parameterNames[index];
+
+        if (name != null) {
+            Object parameter = paramMap.get(name);
+            if (parameter == null) {
+                throw new IllegalArgumentException("Failed to create vertex due to missing parent: " + name);
+            } else {
+                return parameter;
+            }
+        } else if (vertex.getShapeCount() == 0) {
+            return Tensor.SCALAR_SHAPE;
+        } else {
+            return Longs.toArray(vertex.getShapeList());
+        }
+    }
+}
@@ -1,15 +1,27 @@
 package io.improbable.keanu.vertices;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class ProbabilityCalculator {
     private ProbabilityCalculator() {}
 
+    /**
+     * Sums the log probs of the probabilistic vertices. Scalar vertices of the types that {@link ScalarLogProbBatch}
+     * supports are batched together by type and calculated in one pass, the rest are calculated one at a time.
+     * The sum is accumulated in the order of the vertices so the result doesn't depend on the batching.
+     *
+     * @param vertices the vertices to calculate the log prob of
+     * @return the sum of the log probs of the probabilistic vertices, or negative infinity if any of the
+     * non-probabilistic vertices contradicts its observation
+     */
     public static double calculateLogProbFor(Collection<? extends Vertex> vertices) {
-        double sum = 0.0;
+        final List<Probabilistic<?>> probabilisticVertices = new ArrayList<>();
+
         for (Vertex<?> vertex : vertices) {
             if (vertex instanceof Probabilistic) {
-                sum += ((Probabilistic) vertex).logProbAtValue();
+                probabilisticVertices.add((Probabilistic<?>) vertex);
             } else if (vertex instanceof NonProbabilistic) {
                 if (((NonProbabilistic) vertex).contradictsObservation()) {
                     return Double.NEGATIVE_INFINITY;
@@ -18,6 +30,14 @@ public class ProbabilityCalculator {
                 throw new IllegalArgumentException("Found a vertex that is neither Probabilistic nor Non-Probabilistic");
             }
         }
+
+        final double[] logProbs = new double[probabilisticVertices.size()];
+        new ScalarLogProbBatch(probabilisticVertices).calculate(logProbs);
+
+        double sum = 0.0;
+        for (double logProb : logProbs) {
+            sum += logProb;
+        }
         return sum;
     }
 
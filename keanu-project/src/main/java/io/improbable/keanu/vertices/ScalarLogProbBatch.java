@@ -0,0 +1,255 @@
+package io.improbable.keanu.vertices;
+
+import io.improbable.keanu.distributions.continuous.Gaussian;
+import io.improbable.keanu.distributions.discrete.Poisson;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.dbl.JvmDoubleTensor;
+import io.improbable.keanu.tensor.intgr.JvmIntegerTensor;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Calculates the log probs of many probabilistic vertices, batching scalar vertices of the same type with scalar
+ * parents into one tensorised log prob calculation of their distribution per type. Every other vertex has its log
+ * prob calculated on its own.
+ * <p>
+ * The values of each parameter are gathered into a tensor with an element per vertex, unless every vertex in the
+ * batch has the same parent for that parameter, in which case the parent's value is used as it is. The gathered
+ * values are held in {@link JvmDoubleTensor}s, which do the same floating point operations element by element as
+ * the scalar tensors, so each batched log prob is exactly equal to the one the vertex itself would calculate.
+ * <p>
+ * The batches only depend on the structure of the graph, so the same batch can be used to calculate the log probs
+ * of any of its vertices at their current values as many times as needed.
+ */
+public class ScalarLogProbBatch {
+
+    private final Probabilistic<?>[] vertices;
+    private final boolean[] batched;
+    private final Batch[] batches;
+
+    /**
+     * @param vertices the probabilistic vertices to calculate the log probs of
+     */
+    public ScalarLogProbBatch(List<? extends Probabilistic<?>> vertices) {
+        this.vertices = vertices.toArray(new Probabilistic<?>[0]);
+        this.batched = new boolean[this.vertices.length];
+
+        List<Integer> gaussians = new ArrayList<>();
+        List<Integer> poissons = new ArrayList<>();
+
+        for (int i = 0; i < this.vertices.length; i++) {
+            Probabilistic<?> vertex = this.vertices[i];
+            if (Gaussians.canBatch(vertex)) {
+                gaussians.add(i);
+            } else if (Poissons.canBatch(vertex)) {
+                poissons.add(i);
+            }
+        }
+
+        List<Batch> nonEmpty = new ArrayList<>();
+        if (!gaussians.isEmpty()) {
+            nonEmpty.add(new Gaussians(this.vertices, gaussians));
+        }
+        if (!poissons.isEmpty()) {
+            nonEmpty.add(new Poissons(this.vertices, poissons));
+        }
+        this.batches = nonEmpty.toArray(new Batch[0]);
+
+        for (Batch batch : batches) {
+            for (int member : batch.members) {
+                batched[member] = true;
+            }
+        }
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int size() {
+        return vertices.length;
+    }
+
+    /**
+     * Calculates the log prob of every vertex.
+     *
+     * @param logProbs written to at the index of each vertex
+     */
+    public void calculate(double[] logProbs) {
+        calculate(null, logProbs);
+    }
+
+    /**
+     * Calculates the log probs of the selected vertices.
+     *
+     * @param selected whether to calculate the log prob of the vertex at each index, or null to calculate all of them
+     * @param logProbs written to at the index of each selected vertex and left as it is for the others
+     */
+    public void calculate(boolean[] selected, double[] logProbs) {
+        for (int i = 0; i < vertices.length; i++) {
+            if (!batched[i] && (selected == null || selected[i])) {
+                logProbs[i] = vertices[i].logProbAtValue();
+            }
+        }
+
+        for (Batch batch : batches) {
+            batch.calculate(selected, logProbs);
+        }
+    }
+
+    private static boolean isScalar(Vertex<?> vertex) {
+        return vertex.getShape().length == 0;
+    }
+
+    /**
+     * Vertices of one type whose log probs are calculated together.
+     */
+    private abstract static class Batch {
+
+        protected final int[] members;
+        private final int[] chosen;
+
+        Batch(List<Integer> members) {
+            this.members = members.stream().mapToInt(Integer::intValue).toArray();
+            this.chosen = new int[this.members.length];
+        }
+
+        void calculate(boolean[] selected, double[] logProbs) {
+            int count = 0;
+            for (int member : members) {
+                if (selected == null || selected[member]) {
+                    chosen[count++] = member;
+                }
+            }
+
+            if (count == 0) {
+                return;
+            }
+
+            double[] batchLogProbs = logProbs(chosen, count).asFlatDoubleArray();
+            for (int i = 0; i < count; i++) {
+                logProbs[chosen[i]] = batchLogProbs[i];
+            }
+        }
+
+        /**
+         * @param chosen the indices of the vertices to calculate the log probs of, in the first count elements
+         * @param count  the number of vertices
+         * @return the log prob of each chosen vertex, in order
+         */
+        protected abstract DoubleTensor logProbs(int[] chosen, int count);
+
+        /**
+         * @return the parent shared by every member, or null if they don't all have the same parent
+         */
+        protected static <V> DoubleVertex sharedParent(V[] vertices,
+                                                     int[] members,
+                                                     Function<V, DoubleVertex> parentOf) {
+            DoubleVertex shared = parentOf.apply(vertices[members[0]]);
+            for (int member : members) {
+                if (parentOf.apply(vertices[member]) != shared) {
+                    return null;
+                }
+            }
+            return shared;
+        }
+
+        /**
+         * @return the value of the shared parent, or the values of each chosen vertex's parent gathered into a tensor
+         */
+        protected static <V> DoubleTensor parameter(DoubleVertex shared,
+                                                    V[] vertices,
+                                                    int[] chosen,
+                                                    int count,
+                                                    Function<V, DoubleVertex> parentOf) {
+            if (shared != null) {
+                return shared.getValue();
+            }
+
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = parentOf.apply(vertices[chosen[i]]).getValue().scalar();
+            }
+            return JvmDoubleTensor.create(values, new long[]{count});
+        }
+    }
+
+    private static class Gaussians extends Batch {
+
+        private final GaussianVertex[] gaussians;
+        private final DoubleVertex sharedMu;
+        private final DoubleVertex sharedSigma;
+
+        static boolean canBatch(Probabilistic<?> vertex) {
+            if (vertex.getClass() != GaussianVertex.class) {
+                return false;
+            }
+
+            GaussianVertex gaussian = (GaussianVertex) vertex;
+            return isScalar(gaussian) && isScalar(gaussian.getMu()) && isScalar(gaussian.getSigma());
+        }
+
+        Gaussians(Probabilistic<?>[] vertices, List<Integer> members) {
+            super(members);
+            this.gaussians = new GaussianVertex[vertices.length];
+            for (int member : this.members) {
+                gaussians[member] = (GaussianVertex) vertices[member];
+            }
+            this.sharedMu = sharedParent(gaussians, this.members, GaussianVertex::getMu);
+            this.sharedSigma = sharedParent(gaussians, this.members, GaussianVertex::getSigma);
+        }
+
+        @Override
+        protected DoubleTensor logProbs(int[] chosen, int count) {
+            double[] x = new double[count];
+            for (int i = 0; i < count; i++) {
+                x[i] = gaussians[chosen[i]].getValue().scalar();
+            }
+
+            DoubleTensor mu = parameter(sharedMu, gaussians, chosen, count, GaussianVertex::getMu);
+            DoubleTensor sigma = parameter(sharedSigma, gaussians, chosen, count, GaussianVertex::getSigma);
+
+            return Gaussian.withParameters(mu, sigma).logProb(JvmDoubleTensor.create(x, new long[]{count}));
+        }
+    }
+
+    private static class Poissons extends Batch {
+
+        private final PoissonVertex[] poissons;
+        private final DoubleVertex sharedMu;
+
+        static boolean canBatch(Probabilistic<?> vertex) {
+            if (vertex.getClass() != PoissonVertex.class) {
+                return false;
+            }
+
+            PoissonVertex poisson = (PoissonVertex) vertex;
+            return isScalar(poisson) && isScalar(poisson.getMu());
+        }
+
+        Poissons(Probabilistic<?>[] vertices, List<Integer> members) {
+            super(members);
+            this.poissons = new PoissonVertex[vertices.length];
+            for (int member : this.members) {
+                poissons[member] = (PoissonVertex) vertices[member];
+            }
+            this.sharedMu = sharedParent(poissons, this.members, PoissonVertex::getMu);
+        }
+
+        @Override
+        protected DoubleTensor logProbs(int[] chosen, int count) {
+            int[] k = new int[count];
+            for (int i = 0; i < count; i++) {
+                k[i] = poissons[chosen[i]].getValue().scalar();
+            }
+
+            DoubleTensor mu = parameter(sharedMu, poissons, chosen, count, PoissonVertex::getMu);
+
+            return Poisson.withParameters(mu).logProb(JvmIntegerTensor.create(k, new long[]{count}));
+        }
+    }
+}
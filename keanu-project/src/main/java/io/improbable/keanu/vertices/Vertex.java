@@ -1,7 +1,10 @@
 package io.improbable.keanu.vertices;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import io.improbable.keanu.algorithms.graphtraversal.CascadePlan;
 import io.improbable.keanu.algorithms.graphtraversal.DiscoverGraph;
+import io.improbable.keanu.algorithms.graphtraversal.GraphStructureVersion;
 import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
 import io.improbable.keanu.algorithms.variational.optimizer.Variable;
 import io.improbable.keanu.algorithms.variational.optimizer.VariableReference;
@@ -22,11 +25,15 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
     private final VertexId id = new VertexId();
     private final long[] initialShape;
     private final Observable<T> observation;
+    private final GraphStructureVersion graphStructureVersion = new GraphStructureVersion();
 
     private Set<Vertex> children = Collections.emptySet();
     private Set<Vertex> parents = Collections.emptySet();
     private T value;
+    private long valueVersion = 0L;
+    private long latestValueVersion = 0L;
     private VertexLabel label = null;
+    private CascadePlan cascadePlan = null;
 
     public Vertex() {
         this(Tensor.SCALAR_SHAPE);
@@ -123,9 +130,36 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
     public void setValue(T value) {
         if (!observation.isObserved()) {
             this.value = value;
+            valueVersion = ++latestValueVersion;
         }
     }
 
+    /**
+     * The version of a vertex's value changes every time its value is set or observed, including when the same
+     * value object is set again after being changed in place. A value that is changed in place must be set again
+     * for the change to be seen by anything that compares versions.
+     *
+     * @return the version of this vertex's value, which is never the same for two different settings of the value
+     */
+    public long getValueVersion() {
+        return valueVersion;
+    }
+
+    /**
+     * Puts back the version that this vertex's value had when it was last set to the value it has now, so that
+     * restoring a previous value doesn't make it look like a new one.
+     *
+     * @param valueVersion a version previously returned by {@link #getValueVersion()} when the vertex had its
+     *                     current value
+     */
+    public void restoreValueVersion(long valueVersion) {
+        Preconditions.checkArgument(
+            valueVersion <= latestValueVersion,
+            "Cannot restore value version " + valueVersion + " that was never given to a value"
+        );
+        this.valueVersion = valueVersion;
+    }
+
     @Override
     public T getValue() {
         return hasValue() ? value : lazyEval();
@@ -164,6 +198,25 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
         VertexValuePropagation.cascadeUpdate(this);
     }
 
+    /**
+     * @return the plan for propagating a change in this vertex's value to the vertices downstream of it.
+     * The plan is compiled the first time it's needed and recompiled after any change to the graph's structure.
+     */
+    public CascadePlan getCascadePlan() {
+        if (cascadePlan == null || !cascadePlan.isValid()) {
+            cascadePlan = CascadePlan.compile(this);
+        }
+        return cascadePlan;
+    }
+
+    /**
+     * @return the version of the structure of the graph this vertex is connected to, which changes whenever a
+     * vertex in the graph gains a parent or child
+     */
+    public GraphStructureVersion getGraphStructureVersion() {
+        return graphStructureVersion;
+    }
+
     /**
      * This marks the vertex's value as being observed and unchangeable.
      * <p>
@@ -176,6 +229,7 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
     @Override
     public void observe(T value) {
         this.value = value;
+        valueVersion = ++latestValueVersion;
         observation.observe(value);
     }
 
@@ -220,10 +274,12 @@ public abstract class Vertex<T> implements Observable<T>, Samplable<T>, Variable
 
     public void addChild(Vertex<?> v) {
         children = ImmutableSet.<Vertex>builder().addAll(children).add(v).build();
+        graphStructureVersion.connect(v.getGraphStructureVersion());
     }
 
     public void setParents(Collection<? extends Vertex> parents) {
         this.parents = Collections.emptySet();
+        graphStructureVersion.increment();
         addParents(parents);
     }
 
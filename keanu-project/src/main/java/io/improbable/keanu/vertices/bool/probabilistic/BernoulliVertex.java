@@ -67,7 +67,29 @@ public class BernoulliVertex extends BooleanVertex implements ProbabilisticBoole
 
     @Override
     public double logProb(BooleanTensor value) {
-        return Bernoulli.withParameters(probTrue.getValue()).logProb(value).sum();
+        DoubleTensor probTrueValue = probTrue.getValue();
+        if (probTrueValue.isLengthOne()) {
+            return logProbOfCount(value.countTrue(), value.getLength(), probTrueValue.scalar());
+        }
+        return Bernoulli.withParameters(probTrueValue).logProb(value).sum();
+    }
+
+    /**
+     * With a single probability of true the log prob only depends on how many of the values are true, so it can be
+     * found without a tensor of probabilities the size of the values.
+     */
+    private static double logProbOfCount(long trueCount, long length, double probTrue) {
+        double probTrueClamped = Math.min(Math.max(probTrue, 0.0), 1.0);
+        long falseCount = length - trueCount;
+
+        double logProb = 0.0;
+        if (trueCount > 0) {
+            logProb += trueCount * Math.log(probTrueClamped);
+        }
+        if (falseCount > 0) {
+            logProb += falseCount * Math.log(1.0 - probTrueClamped);
+        }
+        return logProb;
     }
 
     @Override
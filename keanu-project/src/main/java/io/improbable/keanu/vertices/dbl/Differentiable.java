@@ -1,11 +1,11 @@
 package io.improbable.keanu.vertices.dbl;
 
-import io.improbable.keanu.tensor.TensorShape;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 public interface Differentiable {
@@ -19,12 +19,31 @@ public interface Differentiable {
     }
 
     static PartialDerivative withRespectToSelf(long[] shape) {
-        return new PartialDerivative(
-            DoubleTensor.eye(TensorShape.getLength(shape)).reshape(TensorShape.concat(shape, shape))
-        );
+        return PartialDerivative.identity(shape);
     }
 
     default Map<Vertex, PartialDerivative> reverseModeAutoDifferentiation(PartialDerivative derivativeOfOutputWithRespectToSelf) {
         return Collections.emptyMap();
     }
+
+    /**
+     * A reverse mode step for the gradient of a scalar, such as a log prob, which is a vector-Jacobian product.
+     * Unlike {@link #reverseModeAutoDifferentiation(PartialDerivative)} there are no 'of' dimensions, so the cost
+     * only depends on the shapes of this vertex and its parents. Vertices can override this to skip building partial
+     * derivatives, otherwise it's calculated by reverse mode auto diff with a partial of rank zero 'of'.
+     *
+     * @param adjoint the derivative of the scalar with respect to this vertex, which has the shape of this vertex
+     * @return the derivative of the scalar with respect to each parent that it depends on, with that parent's shape
+     */
+    default Map<Vertex, DoubleTensor> reverseModeVectorJacobianProduct(DoubleTensor adjoint) {
+        Map<Vertex, PartialDerivative> partials = reverseModeAutoDifferentiation(new PartialDerivative(adjoint));
+
+        Map<Vertex, DoubleTensor> parentAdjoints = new HashMap<>();
+        for (Map.Entry<Vertex, PartialDerivative> partial : partials.entrySet()) {
+            if (partial.getValue() != null && partial.getValue().isPresent()) {
+                parentAdjoints.put(partial.getKey(), partial.getValue().get());
+            }
+        }
+        return parentAdjoints;
+    }
 }
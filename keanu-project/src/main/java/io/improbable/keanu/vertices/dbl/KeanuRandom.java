@@ -122,6 +122,10 @@ public class KeanuRandom {
         return nd4jRandom.nextInt(maxExclusive);
     }
 
+    public long nextLong() {
+        return nd4jRandom.nextLong();
+    }
+
     private INDArray doubleNextInt(long[] shape) {
         Nd4j.setDataType(bufferType);
         return nd4jRandom.nextInt(shape);
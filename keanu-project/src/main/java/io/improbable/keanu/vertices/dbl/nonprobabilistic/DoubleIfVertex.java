@@ -89,8 +89,8 @@ public class DoubleIfVertex extends DoubleVertex implements Differentiable, NonP
         BooleanTensor predicateValue = predicate.getValue();
         partials.put(thn, derivativeOfOutputWithRespectToSelf
             .multiplyAlongWrtDimensions(predicateValue.toDoubleMask()));
-        partials.put(els, derivativeOfOutputWithRespectToSelf
-            .multiplyAlongWrtDimensions(predicateValue.not().toDoubleMask()));
+        partials.merge(els, derivativeOfOutputWithRespectToSelf
+            .multiplyAlongWrtDimensions(predicateValue.not().toDoubleMask()), PartialDerivative::add);
         return partials;
     }
 
@@ -35,7 +35,7 @@ public class AutoDiffBroadcast {
 
         if (shouldCorrectPartialForBroadcast(partial, partialWrtShape, targetWrtShape)) {
 
-            long[] partialShape = partial.get().getShape();
+            long[] partialShape = partial.getShape();
 
             int[] broadcastDimensions = dimensionsWithShapeChange(partialShape, partialWrtShape.length, targetWrtShape);
 
@@ -52,6 +52,23 @@ public class AutoDiffBroadcast {
         }
     }
 
+    /**
+     * @param adjoint      the derivative of a scalar with respect to the result of a broadcast operation
+     * @param operandShape the shape of an operand of the operation
+     * @return the derivative of the scalar with respect to the operand, which is summed over the dimensions that
+     * the operand was broadcast along
+     */
+    public static DoubleTensor sumToOperandShape(DoubleTensor adjoint, long[] operandShape) {
+        long[] adjointShape = adjoint.getShape();
+
+        if (Arrays.equals(adjointShape, operandShape)) {
+            return adjoint;
+        }
+
+        int[] broadcastDimensions = dimensionsWithShapeChange(adjointShape, adjointShape.length, operandShape);
+        return adjoint.sum(broadcastDimensions).reshape(operandShape);
+    }
+
     /**
      * @param partial       The partial derivative that may or may not come from a broadcasted operation.
      * @param actualShape   The part of the partial shape that should match the expected shape in the case no broadcast was
@@ -0,0 +1,286 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.diff;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.graphtraversal.CascadePlan;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Probabilistic;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.Differentiable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The gradient of the joint log prob of a set of probabilistic vertices with respect to a set of latent vertices,
+ * calculated in a single backward pass over the graph.
+ * <p>
+ * The pass is planned once, when it's created: every vertex that the gradient flows through is given a slot and the
+ * differentiable non-probabilistic vertices between the log prob and the latent vertices are sorted into reverse
+ * topological order. Each gradient then seeds the dLogProbAtValue adjoints of every probabilistic vertex at once and
+ * sweeps over the sorted vertices, accumulating each vertex's vector-Jacobian product, see
+ * {@link Differentiable#reverseModeVectorJacobianProduct(DoubleTensor)}, into the slots of its parents. Graph
+ * upstream of many probabilistic vertices is therefore only differentiated once per gradient.
+ * <p>
+ * The plan only depends on the structure of the graph and is replanned if the structure changes.
+ */
+class LogProbBackwardPass {
+
+    private static final Comparator<Vertex> BY_ID_DESCENDING = Comparator.<Vertex, VertexId>comparing(Vertex::getId, Comparator.naturalOrder()).reversed();
+
+    private final List<? extends Vertex> logProbOfVertices;
+    private final List<? extends Vertex<?>> wrtVertices;
+
+    //only used to tell when the structure of the graph has changed
+    private CascadePlan structure;
+    private LogProbSeed[] seeds;
+    private ReverseOperation[] reverseOperations;
+    private DoubleTensor[] adjoints;
+
+    /**
+     * @param logProbOfVertices the probabilistic vertices whose log prob is summed
+     * @param wrtVertices       the latent vertices to calculate the gradient with respect to
+     */
+    LogProbBackwardPass(List<? extends Vertex> logProbOfVertices, List<? extends Vertex<?>> wrtVertices) {
+        this.logProbOfVertices = new ArrayList<>(logProbOfVertices);
+        this.wrtVertices = new ArrayList<>(wrtVertices);
+        plan();
+    }
+
+    private void plan() {
+        Map<Vertex, Integer> slots = new HashMap<>();
+        for (Vertex<?> wrt : wrtVertices) {
+            slots.put(wrt, slots.size());
+        }
+
+        Map<Vertex, Boolean> reachesWrt = new HashMap<>();
+        Set<Vertex> operations = new HashSet<>();
+        List<LogProbSeed> seedList = new ArrayList<>();
+
+        for (Vertex<?> ofVertex : logProbOfVertices) {
+            Preconditions.checkArgument(
+                ofVertex instanceof Probabilistic<?>,
+                "Cannot get logProb gradient on non-probabilistic vertex %s", ofVertex
+            );
+
+            List<Vertex> seededParents = new ArrayList<>();
+            for (Vertex<?> parent : ofVertex.getParents()) {
+                if (reachesWrt(parent, slots, reachesWrt, operations)) {
+                    seededParents.add(parent);
+                }
+            }
+
+            Integer selfSlot = ofVertex.isObserved() ? null : slots.get(ofVertex);
+            if (selfSlot != null || !seededParents.isEmpty()) {
+                seedList.add(new LogProbSeed(ofVertex, selfSlot, seededParents));
+            }
+        }
+
+        Vertex[] sortedOperations = operations.toArray(new Vertex[0]);
+        Arrays.sort(sortedOperations, BY_ID_DESCENDING);
+        for (Vertex operation : sortedOperations) {
+            slots.put(operation, slots.size());
+        }
+
+        this.seeds = seedList.toArray(new LogProbSeed[0]);
+        for (LogProbSeed seed : seeds) {
+            seed.assignSlots(slots);
+        }
+
+        this.reverseOperations = new ReverseOperation[sortedOperations.length];
+        for (int i = 0; i < sortedOperations.length; i++) {
+            reverseOperations[i] = new ReverseOperation(sortedOperations[i], slots);
+        }
+
+        this.adjoints = new DoubleTensor[slots.size()];
+        this.structure = CascadePlan.compile(wrtVertices);
+    }
+
+    /**
+     * A vertex reaches the wrt vertices if it is one of them, or if it is a latent, differentiable and
+     * non-probabilistic vertex with a parent that reaches them. The latter are the operations of the reverse sweep.
+     */
+    private static boolean reachesWrt(Vertex<?> vertex,
+                                      Map<Vertex, Integer> wrtSlots,
+                                      Map<Vertex, Boolean> reachesWrt,
+                                      Set<Vertex> operations) {
+        if (wrtSlots.containsKey(vertex)) {
+            return !vertex.isObserved();
+        }
+
+        if (vertex.isProbabilistic() || vertex.isObserved() || !vertex.isDifferentiable()) {
+            return false;
+        }
+
+        Boolean known = reachesWrt.get(vertex);
+        if (known != null) {
+            return known;
+        }
+
+        //mark before visiting parents so that the traversal terminates
+        reachesWrt.put(vertex, false);
+
+        boolean reaches = false;
+        for (Vertex<?> parent : vertex.getParents()) {
+            reaches |= reachesWrt(parent, wrtSlots, reachesWrt, operations);
+        }
+
+        reachesWrt.put(vertex, reaches);
+        if (reaches) {
+            operations.add(vertex);
+        }
+        return reaches;
+    }
+
+    private void replanIfGraphChanged() {
+        if (!structure.isValid()) {
+            plan();
+        }
+    }
+
+    /**
+     * Performs the reverse sweep at the current values of the graph.
+     *
+     * @return the gradient of the log prob with respect to each of the wrt vertices, in the order the wrt vertices
+     * were given. An entry is null if the log prob doesn't depend on that vertex.
+     */
+    DoubleTensor[] gradient() {
+        replanIfGraphChanged();
+        Arrays.fill(adjoints, null);
+
+        for (LogProbSeed seed : seeds) {
+            seed.seed(adjoints);
+        }
+
+        for (ReverseOperation operation : reverseOperations) {
+            operation.propagate(adjoints);
+        }
+
+        return Arrays.copyOf(adjoints, wrtVertices.size());
+    }
+
+    /**
+     * @return the gradient of the log prob keyed by the id of each wrt vertex that the log prob depends on
+     */
+    Map<VertexId, DoubleTensor> getJointLogProbGradientWrtLatents() {
+        DoubleTensor[] gradient = gradient();
+
+        Map<VertexId, DoubleTensor> gradientById = new HashMap<>();
+        for (int i = 0; i < gradient.length; i++) {
+            if (gradient[i] != null) {
+                gradientById.put(wrtVertices.get(i).getId(), gradient[i]);
+            }
+        }
+        return gradientById;
+    }
+
+    /**
+     * Adjoints may be shared between slots, e.g. an addition passes its adjoint straight to both of its operands,
+     * so they're summed into a new tensor rather than in place.
+     */
+    private static void accumulate(DoubleTensor[] adjoints, int slot, DoubleTensor adjoint) {
+        if (adjoint == null) {
+            return;
+        }
+
+        DoubleTensor existing = adjoints[slot];
+        adjoints[slot] = existing == null ? adjoint : existing.plus(adjoint);
+    }
+
+    /**
+     * The derivatives of a probabilistic vertex's log prob with respect to its own value and its parents, which are
+     * the starting adjoints of the reverse sweep.
+     */
+    private static class LogProbSeed {
+
+        private final Vertex<?> ofVertex;
+        private final Integer selfSlot;
+        private final Vertex[] parents;
+        private final Set<Vertex> diffWrt;
+        private int[] parentSlots;
+
+        LogProbSeed(Vertex<?> ofVertex, Integer selfSlot, List<Vertex> parents) {
+            this.ofVertex = ofVertex;
+            this.selfSlot = selfSlot;
+            this.parents = parents.toArray(new Vertex[0]);
+            this.diffWrt = new LinkedHashSet<>(parents);
+            if (selfSlot != null) {
+                diffWrt.add(ofVertex);
+            }
+        }
+
+        void assignSlots(Map<Vertex, Integer> slots) {
+            parentSlots = new int[parents.length];
+            for (int i = 0; i < parents.length; i++) {
+                parentSlots[i] = slots.get(parents[i]);
+            }
+        }
+
+        void seed(DoubleTensor[] adjoints) {
+            Map<Vertex, DoubleTensor> dLogProb = ((Probabilistic<?>) ofVertex).dLogProbAtValue(diffWrt);
+
+            if (selfSlot != null) {
+                DoubleTensor dSelf = dLogProb.get(ofVertex);
+                accumulate(adjoints, selfSlot, dSelf);
+            }
+
+            for (int i = 0; i < parents.length; i++) {
+                DoubleTensor dParent = dLogProb.get(parents[i]);
+                if (dParent != null) {
+                    accumulate(adjoints, parentSlots[i], AutoDiffBroadcast.sumToOperandShape(dParent, parents[i].getShape()));
+                }
+            }
+        }
+    }
+
+    /**
+     * A non-probabilistic differentiable vertex that passes its adjoint on to those of its parents that reach the
+     * wrt vertices.
+     */
+    private static class ReverseOperation {
+
+        private final Differentiable vertex;
+        private final int slot;
+        private final Vertex[] parents;
+        private final int[] parentSlots;
+
+        ReverseOperation(Vertex<?> vertex, Map<Vertex, Integer> slots) {
+            this.vertex = (Differentiable) vertex;
+            this.slot = slots.get(vertex);
+
+            List<Vertex> reachingParents = new ArrayList<>();
+            for (Vertex<?> parent : vertex.getParents()) {
+                //the slotted vertices are the wrt vertices and the operations, none of which are observed unless
+                //they're an observed wrt vertex
+                if (slots.containsKey(parent) && !parent.isObserved()) {
+                    reachingParents.add(parent);
+                }
+            }
+
+            this.parents = reachingParents.toArray(new Vertex[0]);
+            this.parentSlots = new int[parents.length];
+            for (int i = 0; i < parents.length; i++) {
+                parentSlots[i] = slots.get(parents[i]);
+            }
+        }
+
+        void propagate(DoubleTensor[] adjoints) {
+            DoubleTensor adjoint = adjoints[slot];
+            if (adjoint == null) {
+                return;
+            }
+
+            Map<Vertex, DoubleTensor> parentAdjoints = vertex.reverseModeVectorJacobianProduct(adjoint);
+            for (int i = 0; i < parents.length; i++) {
+                accumulate(adjoints, parentSlots[i], parentAdjoints.get(parents[i]));
+            }
+        }
+    }
+}
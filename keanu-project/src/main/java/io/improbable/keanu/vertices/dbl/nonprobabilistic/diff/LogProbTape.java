@@ -0,0 +1,529 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.diff;
+
+import com.google.common.base.Preconditions;
+import io.improbable.keanu.algorithms.graphtraversal.CascadePlan;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.NonProbabilistic;
+import io.improbable.keanu.vertices.Probabilistic;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.Differentiable;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.AdditionVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.DifferenceVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.DivisionVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.DoubleBinaryOpVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.binary.MultiplicationVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.DoubleUnaryOpVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.ExpVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.LogVertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The graph between a set of latent vertices and the log prob of a set of probabilistic vertices, recorded as a flat
+ * instruction tape for repeatedly evaluating the log prob and its gradient with respect to the latent vertices.
+ * <p>
+ * Every double vertex the tape reads or writes is given a slot, and the values and adjoints of the vertices are held
+ * in registers indexed by slot. Each non-probabilistic vertex downstream of the latent vertices is recorded, in
+ * topological order, as an instruction: an opcode, the slot it writes and the slots of its operands, all in flat
+ * arrays. The forward pass runs the instructions in order, computing each value from the registers, and the reverse
+ * pass runs them backwards, accumulating the vector-Jacobian product of each instruction into the adjoint registers
+ * of its operands.
+ * <p>
+ * Addition, subtraction, multiplication, division, exp and log are lowered to opcodes of the tape. Any other vertex
+ * is a generic instruction that calls its vertex's calculate and reverseModeVectorJacobianProduct, so the tape
+ * supports every differentiable vertex. The log prob of each probabilistic vertex is seeded into the adjoints of its
+ * value and parents with its dLogProbAtValue.
+ * <p>
+ * The values computed by the forward pass are also set on their vertices, so the rest of the graph sees them. The
+ * tape only depends on the structure of the graph and will recompile itself if the structure changes.
+ */
+public class LogProbTape {
+
+    private static final int NO_SLOT = -1;
+
+    private enum Opcode {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE, EXP, LOG, GENERIC
+    }
+
+    /**
+     * @param logProbOfVertices the probabilistic vertices whose log prob is summed
+     * @param wrtVertices       the latent vertices to calculate the gradient with respect to
+     * @return a tape for the log prob of logProbOfVertices and its gradient with respect to wrtVertices
+     */
+    public static LogProbTape compile(List<? extends Vertex> logProbOfVertices, List<? extends Vertex<?>> wrtVertices) {
+        return new LogProbTape(logProbOfVertices, wrtVertices);
+    }
+
+    private final List<? extends Vertex> logProbOfVertices;
+    private final List<? extends Vertex<?>> wrtVertices;
+
+    private CascadePlan plan;
+
+    //the slots, the first of which are the wrt vertices in order
+    private Vertex<?>[] slotVertices;
+    private boolean[] differentiable;
+    private int[] inputSlots;
+
+    //the instructions
+    private Opcode[] opcodes;
+    private Vertex<?>[] instructionVertices;
+    private boolean[] observed;
+    private int[] outputSlots;
+    private int[] operandStarts;
+    private int[] operandSlots;
+    private Vertex<?>[] operandVertices;
+
+    //the log prob seeds
+    private Probabilistic<?>[] seedVertices;
+    private List<Set<Vertex>> seedDiffWrt;
+    private int[] seedSelfSlots;
+    private int[] seedParentStarts;
+    private int[] seedParentSlots;
+    private Vertex<?>[] seedParents;
+
+    //the registers
+    private DoubleTensor[] values;
+    private DoubleTensor[] adjoints;
+
+    private LogProbTape(List<? extends Vertex> logProbOfVertices, List<? extends Vertex<?>> wrtVertices) {
+        this.logProbOfVertices = new ArrayList<>(logProbOfVertices);
+        this.wrtVertices = new ArrayList<>(wrtVertices);
+        compile();
+    }
+
+    private void compile() {
+        plan = CascadePlan.compile(wrtVertices);
+
+        Map<Vertex, Integer> slots = new HashMap<>();
+        List<Vertex<?>> slotVertexList = new ArrayList<>();
+        List<Boolean> differentiableList = new ArrayList<>();
+        for (Vertex<?> wrt : wrtVertices) {
+            slots.put(wrt, slotVertexList.size());
+            slotVertexList.add(wrt);
+            differentiableList.add(!wrt.isObserved());
+        }
+
+        List<Opcode> opcodeList = new ArrayList<>();
+        List<Vertex<?>> instructionList = new ArrayList<>();
+        List<Integer> outputList = new ArrayList<>();
+        List<Integer> operandStartList = new ArrayList<>();
+        List<Integer> operandSlotList = new ArrayList<>();
+        List<Vertex<?>> operandVertexList = new ArrayList<>();
+
+        for (Vertex<?> vertex : plan.getVertices()) {
+            if (slots.containsKey(vertex) || vertex.isProbabilistic()) {
+                continue;
+            }
+
+            Opcode opcode = opcodeOf(vertex);
+            boolean reachesWrt = false;
+            operandStartList.add(operandSlotList.size());
+
+            if (vertex instanceof DoubleVertex) {
+                for (Vertex<?> operand : operandsOf(vertex, opcode)) {
+                    int operandSlot = slotOf(operand, slots, slotVertexList, differentiableList);
+                    operandSlotList.add(operandSlot);
+                    operandVertexList.add(operand);
+                    reachesWrt |= differentiableList.get(operandSlot);
+                }
+            }
+
+            int outputSlot = NO_SLOT;
+            if (vertex instanceof DoubleVertex) {
+                outputSlot = slotOf(vertex, slots, slotVertexList, differentiableList);
+                differentiableList.set(outputSlot, reachesWrt && !vertex.isObserved() && vertex.isDifferentiable());
+            }
+
+            opcodeList.add(opcode);
+            instructionList.add(vertex);
+            outputList.add(outputSlot);
+        }
+        operandStartList.add(operandSlotList.size());
+
+        compileSeeds(slots, differentiableList);
+
+        this.opcodes = opcodeList.toArray(new Opcode[0]);
+        this.instructionVertices = instructionList.toArray(new Vertex<?>[0]);
+        this.observed = new boolean[instructionVertices.length];
+        for (int i = 0; i < instructionVertices.length; i++) {
+            observed[i] = instructionVertices[i].isObserved();
+        }
+        this.outputSlots = toIntArray(outputList);
+        this.operandStarts = toIntArray(operandStartList);
+        this.operandSlots = toIntArray(operandSlotList);
+        this.operandVertices = operandVertexList.toArray(new Vertex<?>[0]);
+
+        this.slotVertices = slotVertexList.toArray(new Vertex<?>[0]);
+        this.differentiable = new boolean[slotVertices.length];
+        for (int slot = 0; slot < slotVertices.length; slot++) {
+            differentiable[slot] = differentiableList.get(slot);
+        }
+
+        boolean[] isOutput = new boolean[slotVertices.length];
+        for (int outputSlot : outputSlots) {
+            if (outputSlot != NO_SLOT) {
+                isOutput[outputSlot] = true;
+            }
+        }
+        List<Integer> inputList = new ArrayList<>();
+        for (int slot = 0; slot < slotVertices.length; slot++) {
+            if (!isOutput[slot]) {
+                inputList.add(slot);
+            }
+        }
+        this.inputSlots = toIntArray(inputList);
+
+        this.values = new DoubleTensor[slotVertices.length];
+        this.adjoints = new DoubleTensor[slotVertices.length];
+    }
+
+    private void compileSeeds(Map<Vertex, Integer> slots, List<Boolean> differentiableList) {
+        List<Probabilistic<?>> seedVertexList = new ArrayList<>();
+        List<Integer> selfSlotList = new ArrayList<>();
+        List<Integer> parentStartList = new ArrayList<>();
+        List<Integer> parentSlotList = new ArrayList<>();
+        List<Vertex<?>> parentList = new ArrayList<>();
+        seedDiffWrt = new ArrayList<>();
+
+        for (Vertex<?> ofVertex : logProbOfVertices) {
+            Preconditions.checkArgument(
+                ofVertex instanceof Probabilistic<?>,
+                "Cannot get logProb gradient on non-probabilistic vertex %s", ofVertex
+            );
+
+            Set<Vertex> diffWrt = new LinkedHashSet<>();
+            int parentStart = parentSlotList.size();
+            for (Vertex<?> parent : ofVertex.getParents()) {
+                Integer parentSlot = slots.get(parent);
+                if (parentSlot != null && differentiableList.get(parentSlot)) {
+                    parentSlotList.add(parentSlot);
+                    parentList.add(parent);
+                    diffWrt.add(parent);
+                }
+            }
+
+            Integer selfSlot = slots.get(ofVertex);
+            boolean seedsSelf = selfSlot != null && differentiableList.get(selfSlot);
+            if (seedsSelf) {
+                diffWrt.add(ofVertex);
+            }
+
+            if (diffWrt.isEmpty()) {
+                continue;
+            }
+
+            seedVertexList.add((Probabilistic<?>) ofVertex);
+            selfSlotList.add(seedsSelf ? selfSlot : NO_SLOT);
+            parentStartList.add(parentStart);
+            seedDiffWrt.add(diffWrt);
+        }
+        parentStartList.add(parentSlotList.size());
+
+        this.seedVertices = seedVertexList.toArray(new Probabilistic<?>[0]);
+        this.seedSelfSlots = toIntArray(selfSlotList);
+        this.seedParentStarts = toIntArray(parentStartList);
+        this.seedParentSlots = toIntArray(parentSlotList);
+        this.seedParents = parentList.toArray(new Vertex<?>[0]);
+    }
+
+    private static Opcode opcodeOf(Vertex<?> vertex) {
+        Class<?> type = vertex.getClass();
+        if (type == AdditionVertex.class) {
+            return Opcode.ADD;
+        } else if (type == DifferenceVertex.class) {
+            return Opcode.SUBTRACT;
+        } else if (type == MultiplicationVertex.class) {
+            return Opcode.MULTIPLY;
+        } else if (type == DivisionVertex.class) {
+            return Opcode.DIVIDE;
+        } else if (type == ExpVertex.class) {
+            return Opcode.EXP;
+        } else if (type == LogVertex.class) {
+            return Opcode.LOG;
+        } else {
+            return Opcode.GENERIC;
+        }
+    }
+
+    /**
+     * The operands of a lowered instruction are in the order its opcode expects them, which may repeat a vertex, e.g.
+     * A.times(A). The operands of a generic instruction are its double parents.
+     */
+    private static List<Vertex<?>> operandsOf(Vertex<?> vertex, Opcode opcode) {
+        List<Vertex<?>> operands = new ArrayList<>();
+        switch (opcode) {
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+                operands.add(((DoubleBinaryOpVertex) vertex).getLeft());
+                operands.add(((DoubleBinaryOpVertex) vertex).getRight());
+                break;
+            case EXP:
+            case LOG:
+                operands.add(((DoubleUnaryOpVertex) vertex).getInputVertex());
+                break;
+            default:
+                for (Vertex<?> parent : vertex.getParents()) {
+                    if (parent instanceof DoubleVertex) {
+                        operands.add(parent);
+                    }
+                }
+        }
+        return operands;
+    }
+
+    private static int slotOf(Vertex<?> vertex,
+                              Map<Vertex, Integer> slots,
+                              List<Vertex<?>> slotVertexList,
+                              List<Boolean> differentiableList) {
+        Integer slot = slots.get(vertex);
+        if (slot == null) {
+            slot = slotVertexList.size();
+            slots.put(vertex, slot);
+            slotVertexList.add(vertex);
+            differentiableList.add(false);
+        }
+        return slot;
+    }
+
+    private static int[] toIntArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void recompileIfGraphChanged() {
+        if (!plan.isValid()) {
+            compile();
+        }
+    }
+
+    /**
+     * Updates the values of every non-probabilistic vertex downstream of the wrt vertices by running the tape. This
+     * should be called after the values of the wrt vertices have been changed.
+     */
+    public void forward() {
+        recompileIfGraphChanged();
+
+        for (int slot : inputSlots) {
+            values[slot] = valueOf(slotVertices[slot]);
+        }
+
+        for (int i = 0; i < opcodes.length; i++) {
+            execute(i);
+        }
+    }
+
+    private void execute(int instruction) {
+        Vertex<?> vertex = instructionVertices[instruction];
+        int output = outputSlots[instruction];
+
+        if (observed[instruction]) {
+            if (output != NO_SLOT) {
+                values[output] = valueOf(vertex);
+            }
+            return;
+        }
+
+        if (opcodes[instruction] == Opcode.GENERIC) {
+            setValue(vertex, ((NonProbabilistic<?>) vertex).calculate());
+            if (output != NO_SLOT) {
+                values[output] = valueOf(vertex);
+            }
+            return;
+        }
+
+        int operands = operandStarts[instruction];
+        DoubleTensor result;
+        switch (opcodes[instruction]) {
+            case ADD:
+                result = operandValue(operands).plus(operandValue(operands + 1));
+                break;
+            case SUBTRACT:
+                result = operandValue(operands).minus(operandValue(operands + 1));
+                break;
+            case MULTIPLY:
+                result = operandValue(operands).times(operandValue(operands + 1));
+                break;
+            case DIVIDE:
+                result = operandValue(operands).div(operandValue(operands + 1));
+                break;
+            case EXP:
+                result = operandValue(operands).exp();
+                break;
+            case LOG:
+                result = operandValue(operands).log();
+                break;
+            default:
+                throw new IllegalStateException("Unknown opcode " + opcodes[instruction]);
+        }
+
+        setValue(vertex, result);
+        values[output] = result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void setValue(Vertex<T> vertex, Object value) {
+        vertex.setValue((T) value);
+    }
+
+    private static DoubleTensor valueOf(Vertex<?> vertex) {
+        Object value = vertex.getValue();
+        return value instanceof DoubleTensor ? (DoubleTensor) value : null;
+    }
+
+    private DoubleTensor operandValue(int operand) {
+        return values[operandSlots[operand]];
+    }
+
+    /**
+     * @return the sum of the log probs of the logProbOf vertices at their current values
+     */
+    public double logProb() {
+        return ProbabilityCalculator.calculateLogProbFor(logProbOfVertices);
+    }
+
+    /**
+     * Runs the reverse pass at the current values of the graph.
+     *
+     * @return the gradient of the log prob with respect to each of the wrt vertices, in the order the wrt vertices
+     * were given when compiling. An entry is null if the log prob doesn't depend on that vertex.
+     */
+    public DoubleTensor[] gradient() {
+        recompileIfGraphChanged();
+
+        for (int slot = 0; slot < slotVertices.length; slot++) {
+            values[slot] = valueOf(slotVertices[slot]);
+        }
+        Arrays.fill(adjoints, null);
+
+        for (int seed = 0; seed < seedVertices.length; seed++) {
+            seed(seed);
+        }
+
+        for (int i = opcodes.length - 1; i >= 0; i--) {
+            int output = outputSlots[i];
+            if (output != NO_SLOT && differentiable[output] && adjoints[output] != null) {
+                reverse(i, adjoints[output]);
+            }
+        }
+
+        return Arrays.copyOf(adjoints, wrtVertices.size());
+    }
+
+    /**
+     * @return the gradient of the log prob keyed by the id of each wrt vertex that the log prob depends on
+     */
+    public Map<VertexId, DoubleTensor> getJointLogProbGradientWrtLatents() {
+        DoubleTensor[] gradient = gradient();
+
+        Map<VertexId, DoubleTensor> gradientById = new HashMap<>();
+        for (int i = 0; i < gradient.length; i++) {
+            if (gradient[i] != null) {
+                gradientById.put(wrtVertices.get(i).getId(), gradient[i]);
+            }
+        }
+        return gradientById;
+    }
+
+    private void seed(int seed) {
+        Probabilistic<?> ofVertex = seedVertices[seed];
+        Map<Vertex, DoubleTensor> dLogProb = ofVertex.dLogProbAtValue(seedDiffWrt.get(seed));
+
+        int selfSlot = seedSelfSlots[seed];
+        if (selfSlot != NO_SLOT) {
+            accumulate(selfSlot, dLogProb.get(ofVertex));
+        }
+
+        for (int parent = seedParentStarts[seed]; parent < seedParentStarts[seed + 1]; parent++) {
+            DoubleTensor dParent = dLogProb.get(seedParents[parent]);
+            if (dParent != null) {
+                int parentSlot = seedParentSlots[parent];
+                accumulate(parentSlot, AutoDiffBroadcast.sumToOperandShape(dParent, values[parentSlot].getShape()));
+            }
+        }
+    }
+
+    private void reverse(int instruction, DoubleTensor adjoint) {
+        int left = operandStarts[instruction];
+        int right = left + 1;
+
+        switch (opcodes[instruction]) {
+            case ADD:
+                accumulateToOperand(left, adjoint);
+                accumulateToOperand(right, adjoint);
+                break;
+            case SUBTRACT:
+                accumulateToOperand(left, adjoint);
+                if (operandIsDifferentiable(right)) {
+                    accumulateToOperand(right, adjoint.unaryMinus());
+                }
+                break;
+            case MULTIPLY:
+                if (operandIsDifferentiable(left)) {
+                    accumulateToOperand(left, adjoint.times(operandValue(right)));
+                }
+                if (operandIsDifferentiable(right)) {
+                    accumulateToOperand(right, adjoint.times(operandValue(left)));
+                }
+                break;
+            case DIVIDE:
+                DoubleTensor adjointOverRight = adjoint.div(operandValue(right));
+                accumulateToOperand(left, adjointOverRight);
+                if (operandIsDifferentiable(right)) {
+                    accumulateToOperand(right, adjointOverRight.times(operandValue(left)).divInPlace(operandValue(right)).unaryMinusInPlace());
+                }
+                break;
+            case EXP:
+                accumulateToOperand(left, adjoint.times(values[outputSlots[instruction]]));
+                break;
+            case LOG:
+                accumulateToOperand(left, adjoint.div(operandValue(left)));
+                break;
+            default:
+                Map<Vertex, DoubleTensor> operandAdjoints = ((Differentiable) instructionVertices[instruction])
+                    .reverseModeVectorJacobianProduct(adjoint);
+                for (int operand = left; operand < operandStarts[instruction + 1]; operand++) {
+                    if (operandIsDifferentiable(operand)) {
+                        accumulate(operandSlots[operand], operandAdjoints.get(operandVertices[operand]));
+                    }
+                }
+        }
+    }
+
+    private boolean operandIsDifferentiable(int operand) {
+        return differentiable[operandSlots[operand]];
+    }
+
+    /**
+     * The adjoint of a lowered instruction has the shape of its output, so it's summed over any dimensions the
+     * operand was broadcast along.
+     */
+    private void accumulateToOperand(int operand, DoubleTensor adjoint) {
+        int slot = operandSlots[operand];
+        if (differentiable[slot]) {
+            accumulate(slot, AutoDiffBroadcast.sumToOperandShape(adjoint, values[slot].getShape()));
+        }
+    }
+
+    /**
+     * Adjoints may be shared between slots, e.g. an addition passes its adjoint straight to both of its operands,
+     * so they're summed into a new tensor rather than in place.
+     */
+    private void accumulate(int slot, DoubleTensor adjoint) {
+        if (adjoint == null) {
+            return;
+        }
+
+        DoubleTensor existing = adjoints[slot];
+        adjoints[slot] = existing == null ? adjoint : existing.plus(adjoint);
+    }
+}
@@ -5,40 +5,103 @@ import io.improbable.keanu.tensor.dbl.DoubleTensor;
 
 import java.util.Arrays;
 
+/**
+ * The partial derivative of some tensor 'of' with respect to some tensor 'wrt', which is a tensor of shape [of, wrt].
+ * <p>
+ * A partial can also be held as a diagonal, where the of and wrt shapes are the same and only the elements where
+ * the of index equals the wrt index can be nonzero. The partial of a vertex with respect to itself is the diagonal
+ * of ones, so this is how autodiff is seeded, and it only takes as much memory as the vertex's value. Element-wise
+ * operations keep a partial diagonal and anything else makes the dense partial, which is only made once.
+ */
 public class PartialDerivative {
 
     public static final PartialDerivative EMPTY = new PartialDerivative(null);
 
-    private final DoubleTensor partial;
+    private DoubleTensor partial;
+
+    private final DoubleTensor diagonal;
 
     public PartialDerivative(DoubleTensor partial) {
+        this(partial, null);
+    }
+
+    private PartialDerivative(DoubleTensor partial, DoubleTensor diagonal) {
         this.partial = partial;
+        this.diagonal = diagonal;
+    }
+
+    /**
+     * @param diagonal the elements on the diagonal, which has the shape of both the of and the wrt
+     * @return a partial that is zero everywhere except its diagonal
+     */
+    public static PartialDerivative diagonal(DoubleTensor diagonal) {
+        return new PartialDerivative(null, diagonal);
+    }
+
+    /**
+     * @param shape the shape of the of and the wrt
+     * @return the partial of a tensor of the given shape with respect to itself
+     */
+    public static PartialDerivative identity(long[] shape) {
+        return diagonal(DoubleTensor.ones(shape));
     }
 
     public boolean isPresent() {
-        return partial != null;
+        return partial != null || diagonal != null;
+    }
+
+    public boolean isDiagonal() {
+        return diagonal != null;
+    }
+
+    /**
+     * @return the elements on the diagonal if this partial is diagonal, otherwise null
+     */
+    public DoubleTensor getDiagonal() {
+        return diagonal;
     }
 
+    /**
+     * @return the dense partial, which is made from the diagonal on the first call if this partial is diagonal
+     */
     public DoubleTensor get() {
+        if (partial == null && diagonal != null) {
+            partial = densify(diagonal);
+        }
         return partial;
     }
 
+    /**
+     * @return the shape of the dense partial, without making it
+     */
+    public long[] getShape() {
+        if (partial == null && diagonal != null) {
+            return TensorShape.concat(diagonal.getShape(), diagonal.getShape());
+        }
+        return partial.getShape();
+    }
+
     public long[] getOfShape(long[] wrtShape) {
-        return Arrays.copyOfRange(partial.getShape(), 0, partial.getRank() - wrtShape.length);
+        long[] shape = getShape();
+        return Arrays.copyOfRange(shape, 0, shape.length - wrtShape.length);
     }
 
     public long[] getWrtShape(long[] ofShape) {
-        return Arrays.copyOfRange(partial.getShape(), ofShape.length, partial.getRank());
+        long[] shape = getShape();
+        return Arrays.copyOfRange(shape, ofShape.length, shape.length);
     }
 
     public PartialDerivative add(PartialDerivative addition) {
 
         if (this.isPresent() && addition.isPresent()) {
-            return new PartialDerivative(partial.plus(addition.partial));
+            if (haveSameDiagonalShape(this, addition)) {
+                return diagonal(diagonal.plus(addition.diagonal));
+            }
+            return new PartialDerivative(get().plus(addition.get()));
         } else if (this.isPresent() && !addition.isPresent()) {
-            return new PartialDerivative(get());
+            return this;
         } else if (!this.isPresent() && addition.isPresent()) {
-            return new PartialDerivative(addition.partial);
+            return addition;
         } else {
             return PartialDerivative.EMPTY;
         }
@@ -47,11 +110,16 @@ public class PartialDerivative {
     public PartialDerivative subtract(PartialDerivative subtraction) {
 
         if (this.isPresent() && subtraction.isPresent()) {
-            return new PartialDerivative(partial.minus(subtraction.partial));
+            if (haveSameDiagonalShape(this, subtraction)) {
+                return diagonal(diagonal.minus(subtraction.diagonal));
+            }
+            return new PartialDerivative(get().minus(subtraction.get()));
         } else if (this.isPresent() && !subtraction.isPresent()) {
-            return new PartialDerivative(get());
+            return this;
         } else if (!this.isPresent() && subtraction.isPresent()) {
-            return new PartialDerivative(subtraction.partial.unaryMinus());
+            return subtraction.isDiagonal() ?
+                diagonal(subtraction.diagonal.unaryMinus()) :
+                new PartialDerivative(subtraction.partial.unaryMinus());
         } else {
             return PartialDerivative.EMPTY;
         }
@@ -63,6 +131,10 @@ public class PartialDerivative {
             return this;
         }
 
+        if (isDiagonal()) {
+            return diagonal(diagonal.times(multiplier));
+        }
+
         return new PartialDerivative(partial.times(multiplier));
     }
 
@@ -89,8 +161,13 @@ public class PartialDerivative {
             return this;
         }
 
-        DoubleTensor multiplierAlignedAlongOf = alignAlongOf(multiplier, partial.getShape(), partialOfRank);
-        DoubleTensor result = partial.times(multiplierAlignedAlongOf);
+        if (isDiagonal() && partialOfRank == diagonal.getRank() && broadcastsInto(multiplier, diagonal)) {
+            return diagonal(diagonal.times(alignToRank(multiplier, diagonal.getRank())));
+        }
+
+        DoubleTensor dense = get();
+        DoubleTensor multiplierAlignedAlongOf = alignAlongOf(multiplier, dense.getShape(), partialOfRank);
+        DoubleTensor result = dense.times(multiplierAlignedAlongOf);
 
         return new PartialDerivative(result);
     }
@@ -105,8 +182,13 @@ public class PartialDerivative {
             return this;
         }
 
-        DoubleTensor divisorAlignedAlongOf = alignAlongOf(divisor, partial.getShape(), partialOfRank);
-        DoubleTensor result = partial.div(divisorAlignedAlongOf);
+        if (isDiagonal() && partialOfRank == diagonal.getRank() && broadcastsInto(divisor, diagonal)) {
+            return diagonal(diagonal.div(alignToRank(divisor, diagonal.getRank())));
+        }
+
+        DoubleTensor dense = get();
+        DoubleTensor divisorAlignedAlongOf = alignAlongOf(divisor, dense.getShape(), partialOfRank);
+        DoubleTensor result = dense.div(divisorAlignedAlongOf);
 
         return new PartialDerivative(result);
     }
@@ -117,12 +199,35 @@ public class PartialDerivative {
             return this;
         }
 
-        DoubleTensor multiplierAlignedAlongWrt = alignAlongWrt(multiplier, partial.getRank());
-        DoubleTensor result = partial.times(multiplierAlignedAlongWrt);
+        if (isDiagonal() && broadcastsInto(multiplier, diagonal)) {
+            return diagonal(diagonal.times(alignToRank(multiplier, diagonal.getRank())));
+        }
+
+        DoubleTensor dense = get();
+        DoubleTensor multiplierAlignedAlongWrt = alignAlongWrt(multiplier, dense.getRank());
+        DoubleTensor result = dense.times(multiplierAlignedAlongWrt);
 
         return new PartialDerivative(result);
     }
 
+    /**
+     * @param overDimensions the of dimensions to sum over, which are removed from the result
+     * @return a partial derivative of the sum of the of tensor over the given dimensions
+     */
+    public PartialDerivative sumOverOfDimensions(int[] overDimensions) {
+
+        if (!isPresent()) {
+            return this;
+        }
+
+        if (isDiagonal() && overDimensions.length == diagonal.getRank()) {
+            //summing a diagonal over all of its of dimensions leaves the diagonal, with the shape of the wrt
+            return new PartialDerivative(diagonal);
+        }
+
+        return new PartialDerivative(get().sum(overDimensions));
+    }
+
     public static PartialDerivative matrixMultiplyAlongOfDimensions(PartialDerivative partial, DoubleTensor multiplier, boolean partialIsLeft) {
 
         if (!partial.isPresent()) {
@@ -203,6 +308,50 @@ public class PartialDerivative {
         return tensor.reshape(alongOfShape);
     }
 
+    private static boolean haveSameDiagonalShape(PartialDerivative left, PartialDerivative right) {
+        return left.isDiagonal() && right.isDiagonal()
+            && Arrays.equals(left.diagonal.getShape(), right.diagonal.getShape());
+    }
+
+    /**
+     * @return true if the tensor can be broadcast to the shape of the target without changing the target's shape
+     */
+    private static boolean broadcastsInto(DoubleTensor tensor, DoubleTensor target) {
+        long[] shape = tensor.getShape();
+        long[] targetShape = target.getShape();
+
+        if (shape.length > targetShape.length) {
+            return false;
+        }
+
+        for (int i = 1; i <= shape.length; i++) {
+            long length = shape[shape.length - i];
+            if (length != 1 && length != targetShape[targetShape.length - i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static DoubleTensor alignToRank(DoubleTensor tensor, int rank) {
+        if (tensor.getRank() == rank) {
+            return tensor;
+        }
+        return tensor.reshape(TensorShape.shapeToDesiredRankByPrependingOnes(tensor.getShape(), rank));
+    }
+
+    private static DoubleTensor densify(DoubleTensor diagonal) {
+        double[] diagonalValues = diagonal.asFlatDoubleArray();
+        int length = diagonalValues.length;
+
+        double[] dense = new double[Math.multiplyExact(length, length)];
+        for (int i = 0; i < length; i++) {
+            dense[i * length + i] = diagonalValues[i];
+        }
+
+        return DoubleTensor.create(dense, TensorShape.concat(diagonal.getShape(), diagonal.getShape()));
+    }
+
     private static DoubleTensor alignAlongWrt(DoubleTensor tensor, int partialRank) {
         final long[] alongWrtShape = TensorShape.shapeToDesiredRankByPrependingOnes(tensor.getShape(), partialRank);
         return tensor.reshape(alongWrtShape);
@@ -8,7 +8,6 @@ import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
 
-import java.util.HashMap;
 import java.util.Map;
 
 public class ArcTan2Vertex extends DoubleBinaryOpVertex {
@@ -51,7 +50,6 @@ public class ArcTan2Vertex extends DoubleBinaryOpVertex {
 
     @Override
     public Map<Vertex, PartialDerivative> reverseModeAutoDifferentiation(PartialDerivative derivativeOfOutputWithRespectToSelf) {
-        Map<Vertex, PartialDerivative> partials = new HashMap<>();
         DoubleTensor xValue = left.getValue();
         DoubleTensor yValue = right.getValue();
 
@@ -65,8 +63,6 @@ public class ArcTan2Vertex extends DoubleBinaryOpVertex {
         PartialDerivative toLeft = AutoDiffBroadcast.correctForBroadcastPartialReverse(dOutputsWrtLeft, this.getShape(), left.getShape());
         PartialDerivative toRight = AutoDiffBroadcast.correctForBroadcastPartialReverse(dOutputsWrtRight, this.getShape(), right.getShape());
 
-        partials.put(left, toLeft);
-        partials.put(right, toRight);
-        return partials;
+        return operandPartials(toLeft, toRight);
     }
 }
@@ -9,7 +9,6 @@ import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkIsBroadcastable;
@@ -46,13 +45,17 @@ public class DifferenceVertex extends DoubleBinaryOpVertex {
 
     @Override
     public Map<Vertex, PartialDerivative> reverseModeAutoDifferentiation(PartialDerivative derivativeOfOutputWithRespectToSelf) {
-        Map<Vertex, PartialDerivative> partials = new HashMap<>();
-
         PartialDerivative toLeft = AutoDiffBroadcast.correctForBroadcastPartialReverse(derivativeOfOutputWithRespectToSelf, this.getShape(), left.getShape());
         PartialDerivative toRight = AutoDiffBroadcast.correctForBroadcastPartialReverse(derivativeOfOutputWithRespectToSelf.multiplyBy(-1), this.getShape(), right.getShape());
 
-        partials.put(left, toLeft);
-        partials.put(right, toRight);
-        return partials;
+        return operandPartials(toLeft, toRight);
+    }
+
+    @Override
+    public Map<Vertex, DoubleTensor> reverseModeVectorJacobianProduct(DoubleTensor adjoint) {
+        return operandAdjoints(
+            AutoDiffBroadcast.sumToOperandShape(adjoint, left.getShape()),
+            AutoDiffBroadcast.sumToOperandShape(adjoint.unaryMinus(), right.getShape())
+        );
     }
 }
@@ -9,7 +9,6 @@ import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkIsBroadcastable;
@@ -48,7 +47,6 @@ public class DivisionVertex extends DoubleBinaryOpVertex {
 
     @Override
     public Map<Vertex, PartialDerivative> reverseModeAutoDifferentiation(PartialDerivative derivativeOfOutputWithRespectToSelf) {
-        Map<Vertex, PartialDerivative> partials = new HashMap<>();
         DoubleTensor leftValue = left.getValue();
         DoubleTensor rightValue = right.getValue();
         DoubleTensor dOutWrtLeft = rightValue.reciprocal();
@@ -63,9 +61,19 @@ public class DivisionVertex extends DoubleBinaryOpVertex {
         PartialDerivative toLeft = AutoDiffBroadcast.correctForBroadcastPartialReverse(dOutputsWrtLeft, this.getShape(), left.getShape());
         PartialDerivative toRight = AutoDiffBroadcast.correctForBroadcastPartialReverse(dOutputsWrtRight, this.getShape(), right.getShape());
 
-        partials.put(left, toLeft);
-        partials.put(right, toRight);
+        return operandPartials(toLeft, toRight);
+    }
+
+    @Override
+    public Map<Vertex, DoubleTensor> reverseModeVectorJacobianProduct(DoubleTensor adjoint) {
+        DoubleTensor leftValue = left.getValue();
+        DoubleTensor rightValue = right.getValue();
+        DoubleTensor adjointOverRight = adjoint.div(rightValue);
+        DoubleTensor toRight = adjointOverRight.times(leftValue).divInPlace(rightValue).unaryMinusInPlace();
 
-        return partials;
+        return operandAdjoints(
+            AutoDiffBroadcast.sumToOperandShape(adjointOverRight, left.getShape()),
+            AutoDiffBroadcast.sumToOperandShape(toRight, right.getShape())
+        );
     }
 }
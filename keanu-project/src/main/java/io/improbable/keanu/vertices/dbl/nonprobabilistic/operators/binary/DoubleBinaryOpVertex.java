@@ -10,6 +10,7 @@ import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.KeanuRandom;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkHasOneNonLengthOneShapeOrAllLengthOne;
@@ -80,6 +81,38 @@ public abstract class DoubleBinaryOpVertex extends DoubleVertex implements Diffe
         }
     }
 
+    /**
+     * @param toLeft  the adjoint of the left operand
+     * @param toRight the adjoint of the right operand
+     * @return the adjoints keyed by operand, which are summed when both operands are the same vertex
+     */
+    protected Map<Vertex, DoubleTensor> operandAdjoints(DoubleTensor toLeft, DoubleTensor toRight) {
+        Map<Vertex, DoubleTensor> adjoints = new HashMap<>();
+        if (left == right) {
+            adjoints.put(left, toLeft.plus(toRight));
+        } else {
+            adjoints.put(left, toLeft);
+            adjoints.put(right, toRight);
+        }
+        return adjoints;
+    }
+
+    /**
+     * @param toLeft  the partial derivative with respect to the left operand
+     * @param toRight the partial derivative with respect to the right operand
+     * @return the partial derivatives keyed by operand, which are summed when both operands are the same vertex
+     */
+    protected Map<Vertex, PartialDerivative> operandPartials(PartialDerivative toLeft, PartialDerivative toRight) {
+        Map<Vertex, PartialDerivative> partials = new HashMap<>();
+        if (left == right) {
+            partials.put(left, toLeft.add(toRight));
+        } else {
+            partials.put(left, toLeft);
+            partials.put(right, toRight);
+        }
+        return partials;
+    }
+
     protected abstract DoubleTensor op(DoubleTensor l, DoubleTensor r);
 
     protected abstract PartialDerivative forwardModeAutoDifferentiation(PartialDerivative l, PartialDerivative r);
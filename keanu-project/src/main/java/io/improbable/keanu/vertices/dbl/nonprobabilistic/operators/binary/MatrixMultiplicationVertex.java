@@ -8,7 +8,6 @@ import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 
 public class MatrixMultiplicationVertex extends DoubleBinaryOpVertex {
@@ -48,11 +47,15 @@ public class MatrixMultiplicationVertex extends DoubleBinaryOpVertex {
                 false
             );
 
-        Map<Vertex, PartialDerivative> partials = new HashMap<>();
-        partials.put(left, dOutputsWrtLeft);
-        partials.put(right, dOutputsWrtRight);
+        return operandPartials(dOutputsWrtLeft, dOutputsWrtRight);
+    }
 
-        return partials;
+    @Override
+    public Map<Vertex, DoubleTensor> reverseModeVectorJacobianProduct(DoubleTensor adjoint) {
+        return operandAdjoints(
+            adjoint.matrixMultiply(right.getValue().transpose()),
+            left.getValue().transpose().matrixMultiply(adjoint)
+        );
     }
 
     @Override
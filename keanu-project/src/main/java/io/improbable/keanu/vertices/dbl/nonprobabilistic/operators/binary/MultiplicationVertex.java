@@ -9,7 +9,6 @@ import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.AutoDiffBroadcast;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.PartialDerivative;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import static io.improbable.keanu.tensor.TensorShapeValidation.checkIsBroadcastable;
@@ -49,8 +48,6 @@ public class MultiplicationVertex extends DoubleBinaryOpVertex {
 
     @Override
     public Map<Vertex, PartialDerivative> reverseModeAutoDifferentiation(PartialDerivative derivativeOfOutputWithRespectToSelf) {
-        Map<Vertex, PartialDerivative> partials = new HashMap<>();
-
         PartialDerivative dOutputsWrtLeft = derivativeOfOutputWithRespectToSelf.multiplyAlongWrtDimensions(
             right.getValue()
         );
@@ -62,10 +59,15 @@ public class MultiplicationVertex extends DoubleBinaryOpVertex {
         PartialDerivative toLeft = AutoDiffBroadcast.correctForBroadcastPartialReverse(dOutputsWrtLeft, this.getShape(), left.getShape());
         PartialDerivative toRight = AutoDiffBroadcast.correctForBroadcastPartialReverse(dOutputsWrtRight, this.getShape(), right.getShape());
 
-        partials.put(left, toLeft);
-        partials.put(right, toRight);
+        return operandPartials(toLeft, toRight);
+    }
 
-        return partials;
+    @Override
+    public Map<Vertex, DoubleTensor> reverseModeVectorJacobianProduct(DoubleTensor adjoint) {
+        return operandAdjoints(
+            AutoDiffBroadcast.sumToOperandShape(adjoint.times(right.getValue()), left.getShape()),
+            AutoDiffBroadcast.sumToOperandShape(adjoint.times(left.getValue()), right.getShape())
+        );
     }
 
 }
@@ -78,7 +78,7 @@ public class ConcatenationVertex extends DoubleVertex implements Differentiable,
             DoubleTensor operandValue = operandValues.get(i);
 
             if (partial.isPresent()) {
-                long[] partialWrtShape = partial.get().getShape();
+                long[] partialWrtShape = partial.getShape();
                 wrtShape = Arrays.copyOfRange(partialWrtShape, operandValue.getRank(), partialWrtShape.length);
                 break;
             }
@@ -146,7 +146,7 @@ public class ConcatenationVertex extends DoubleVertex implements Differentiable,
         List<DoubleTensor> splitPartial = partial.split(wrtSplitOn, splitIndices);
 
         for (int i = 0; i < splitPartial.size(); i++) {
-            splitPartials.put(operands[i], new PartialDerivative(splitPartial.get(i)));
+            splitPartials.merge(operands[i], new PartialDerivative(splitPartial.get(i)), PartialDerivative::add);
         }
 
         return splitPartials;
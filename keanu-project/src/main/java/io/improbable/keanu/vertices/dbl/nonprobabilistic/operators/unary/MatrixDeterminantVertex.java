@@ -48,7 +48,7 @@ public class MatrixDeterminantVertex extends DoubleUnaryOpVertex implements Diff
             .multiplyBy(inputVertex.getValue().determinant());
 
         long[] resultShape = TensorShape.concat(
-            derivativeOfOutputWithRespectToSelf.get().getShape(),
+            derivativeOfOutputWithRespectToSelf.getShape(),
             inputVertex.getShape()
         );
 
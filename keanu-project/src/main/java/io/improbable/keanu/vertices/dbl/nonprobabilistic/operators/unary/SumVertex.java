@@ -61,7 +61,7 @@ public class SumVertex extends DoubleUnaryOpVertex implements Differentiable {
     @Override
     public PartialDerivative forwardModeAutoDifferentiation(Map<Vertex, PartialDerivative> derivativeOfParentsWithRespectToInput) {
         PartialDerivative dInputVertex = derivativeOfParentsWithRespectToInput.get(inputVertex);
-        return new PartialDerivative(dInputVertex.get().sum(overDimensions));
+        return dInputVertex.sumOverOfDimensions(overDimensions);
     }
 
     @Override
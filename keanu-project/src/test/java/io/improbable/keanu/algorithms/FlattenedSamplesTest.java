@@ -0,0 +1,100 @@
+package io.improbable.keanu.algorithms;
+
+import com.google.common.collect.ImmutableList;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FlattenedSamplesTest {
+
+    @Test
+    public void flattensDoubleSamplesIntoLittleEndianBytes() {
+        VertexSamples<DoubleTensor> samples = new VertexSamples<>(ImmutableList.of(
+            DoubleTensor.create(new double[]{1.5, -2, 3, 4}, 2, 2),
+            DoubleTensor.create(new double[]{5, 6, 7, 8.25}, 2, 2)
+        ));
+
+        FlattenedSamples flattened = samples.flatten();
+        ByteBuffer bytes = ByteBuffer.wrap(flattened.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        double[] values = new double[8];
+        bytes.asDoubleBuffer().get(values);
+
+        assertEquals("<f8", flattened.getDType());
+        assertArrayEquals(new long[]{2, 2, 2}, flattened.getShape());
+        assertEquals(64, flattened.getByteLength());
+        assertArrayEquals(new double[]{1.5, -2, 3, 4, 5, 6, 7, 8.25}, values, 0.0);
+    }
+
+    @Test
+    public void flattensScalarIntegerAndBooleanSamples() {
+        FlattenedSamples integers = FlattenedSamples.of(ImmutableList.of(IntegerTensor.scalar(-1), IntegerTensor.scalar(258)));
+        FlattenedSamples booleans = FlattenedSamples.of(ImmutableList.of(
+            BooleanTensor.create(new boolean[]{true, false, true}, 3),
+            BooleanTensor.create(new boolean[]{false, false, true}, 3)
+        ));
+
+        assertEquals("<i4", integers.getDType());
+        assertArrayEquals(new long[]{2}, integers.getShape());
+        assertArrayEquals(new byte[]{-1, -1, -1, -1, 2, 1, 0, 0}, integers.toByteArray());
+
+        assertEquals("|b1", booleans.getDType());
+        assertArrayEquals(new long[]{2, 3}, booleans.getShape());
+        assertArrayEquals(new byte[]{1, 0, 1, 0, 0, 1}, booleans.toByteArray());
+    }
+
+    @Test
+    public void writesTheSameBytesToATempFile() throws IOException {
+        ImmutableList.Builder<DoubleTensor> samples = ImmutableList.builder();
+        for (int i = 0; i < 2500; i++) {
+            samples.add(DoubleTensor.create(new double[]{i, -i, i * 0.5}, 3));
+        }
+        FlattenedSamples flattened = FlattenedSamples.of(samples.build());
+
+        File file = flattened.toTempFile();
+        try {
+            assertArrayEquals(flattened.toByteArray(), Files.readAllBytes(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void writesTheSameBytesToAChannel() throws IOException {
+        ImmutableList.Builder<IntegerTensor> samples = ImmutableList.builder();
+        for (int i = 0; i < 100000; i++) {
+            samples.add(IntegerTensor.create(new int[]{i, -i, 7}, 3));
+        }
+        FlattenedSamples flattened = FlattenedSamples.of(samples.build());
+
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        flattened.writeTo(Channels.newChannel(written));
+
+        assertArrayEquals(flattened.toByteArray(), written.toByteArray());
+    }
+
+    @Test
+    public void takesTheTypeAndShapeFromTheValueWhenThereAreNoSamples() {
+        FlattenedSamples flattened = FlattenedSamples.of(IntegerTensor.create(new int[]{1, 2}, 2), ImmutableList.of());
+
+        assertEquals("<i4", flattened.getDType());
+        assertArrayEquals(new long[]{0, 2}, flattened.getShape());
+        assertEquals(0, flattened.toByteArray().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotFlattenSamplesOfDifferentShapes() {
+        FlattenedSamples.of(ImmutableList.of(DoubleTensor.scalar(1.0), DoubleTensor.create(new double[]{1, 2}, 2)));
+    }
+}
@@ -0,0 +1,87 @@
+package io.improbable.keanu.algorithms;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SampleListsTest {
+
+    @Test
+    public void storesScalarDoubleTensorSamples() {
+        List<DoubleTensor> samples = SampleLists.newSampleList(DoubleTensor.scalar(0.0));
+
+        for (int i = 0; i < 50000; i++) {
+            samples.add(DoubleTensor.scalar(i));
+        }
+
+        assertEquals(50000, samples.size());
+        assertEquals(DoubleTensor.scalar(0.0), samples.get(0));
+        assertEquals(DoubleTensor.scalar(49999.0), samples.get(49999));
+    }
+
+    @Test
+    public void storesFixedShapeDoubleTensorSamples() {
+        DoubleTensor first = DoubleTensor.create(new double[]{1, 2, 3, 4}, 2, 2);
+        DoubleTensor second = DoubleTensor.create(new double[]{5, 6, 7, 8}, 2, 2);
+        List<DoubleTensor> samples = SampleLists.newSampleList(first);
+
+        samples.add(first);
+        samples.add(second);
+
+        assertEquals(Arrays.asList(first, second), samples);
+        assertArrayEquals(new long[]{2, 2}, samples.get(1).getShape());
+    }
+
+    @Test
+    public void storesIntegerTensorSamples() {
+        IntegerTensor first = IntegerTensor.create(new int[]{1, 2, 3}, 3);
+        IntegerTensor second = IntegerTensor.create(new int[]{4, 5, 6}, 3);
+        List<IntegerTensor> samples = SampleLists.newSampleList(first);
+
+        samples.add(first);
+        samples.add(second);
+
+        assertEquals(Arrays.asList(first, second), samples);
+    }
+
+    @Test
+    public void fallsBackToObjectsIfShapeChanges() {
+        DoubleTensor first = DoubleTensor.scalar(1.0);
+        DoubleTensor second = DoubleTensor.create(new double[]{2, 3}, 2);
+        List<DoubleTensor> samples = SampleLists.newSampleList(first);
+
+        samples.add(first);
+        samples.add(second);
+
+        assertEquals(Arrays.asList(first, second), samples);
+    }
+
+    @Test
+    public void storesLogProbs() {
+        List<Double> logProbs = SampleLists.newLogProbList();
+
+        logProbs.add(-1.5);
+        logProbs.add(-0.5);
+
+        assertEquals(Arrays.asList(-1.5, -0.5), logProbs);
+    }
+
+    @Test
+    public void viewsAreStridedAndComposable() {
+        List<Integer> samples = Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+
+        List<Integer> dropped = SampleLists.view(samples, 3, 1);
+        assertEquals(Arrays.asList(3, 4, 5, 6, 7, 8, 9), dropped);
+
+        List<Integer> droppedAndDownSampled = SampleLists.view(dropped, 0, 3);
+        assertEquals(Arrays.asList(3, 6, 9), droppedAndDownSampled);
+
+        assertEquals(Arrays.asList(6, 9), SampleLists.view(droppedAndDownSampled, 1, 1));
+    }
+}
@@ -0,0 +1,111 @@
+package io.improbable.keanu.algorithms.graphtraversal;
+
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CascadePlanTest {
+
+    @Test
+    public void planContainsDownstreamNonProbabilisticVerticesInTopologicalOrder() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = A.times(2.0);
+        DoubleVertex C = B.plus(1.0);
+        DoubleVertex D = A.plus(C);
+        DoubleVertex E = new GaussianVertex(D, 1.0);
+        DoubleVertex F = E.times(3.0);
+
+        List<Vertex> planned = A.getCascadePlan().getVertices();
+
+        assertEquals(Arrays.asList(A, B, C, D), planned);
+        assertFalse(planned.contains(E));
+        assertFalse(planned.contains(F));
+    }
+
+    @Test
+    public void planForManyVerticesContainsEachVertexOnce() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = new GaussianVertex(0.0, 1.0);
+        DoubleVertex C = A.plus(B);
+        DoubleVertex D = C.times(2.0);
+
+        List<Vertex> planned = CascadePlan.compile(Arrays.asList(B, A)).getVertices();
+
+        assertEquals(Arrays.asList(A, B, C, D), planned);
+    }
+
+    @Test
+    public void planIsReusedUntilTheGraphChanges() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = A.times(2.0);
+
+        CascadePlan plan = A.getCascadePlan();
+        assertTrue(plan.isValid());
+        assertSame(plan, A.getCascadePlan());
+
+        DoubleVertex C = A.plus(1.0);
+
+        assertFalse(plan.isValid());
+        CascadePlan recompiled = A.getCascadePlan();
+        assertNotSame(plan, recompiled);
+        assertEquals(Arrays.asList(A, B, C), recompiled.getVertices());
+    }
+
+    @Test
+    public void planIsNotInvalidatedByChangesToAnotherGraph() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = A.times(2.0);
+        CascadePlan plan = A.getCascadePlan();
+
+        DoubleVertex C = new GaussianVertex(0.0, 1.0);
+        DoubleVertex D = C.plus(1.0);
+
+        assertTrue(plan.isValid());
+        assertSame(plan, A.getCascadePlan());
+
+        DoubleVertex E = B.plus(D);
+
+        assertFalse(plan.isValid());
+        assertEquals(Arrays.asList(A, B, E), A.getCascadePlan().getVertices());
+    }
+
+    @Test
+    public void planForManyVerticesIsReusedUntilTheGraphChanges() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = new GaussianVertex(0.0, 1.0);
+        DoubleVertex C = A.plus(B);
+
+        CascadePlan plan = CascadePlan.compile(Arrays.asList(A, B));
+        assertSame(plan, CascadePlan.compile(Arrays.asList(A, B)));
+
+        DoubleVertex D = B.times(2.0);
+
+        assertFalse(plan.isValid());
+        CascadePlan recompiled = CascadePlan.compile(Arrays.asList(A, B));
+        assertNotSame(plan, recompiled);
+        assertEquals(Arrays.asList(A, B, C, D), recompiled.getVertices());
+    }
+
+    @Test
+    public void cascadeUpdatesDownstreamValues() {
+        DoubleVertex A = new GaussianVertex(0.0, 1.0);
+        DoubleVertex B = A.times(2.0);
+        DoubleVertex C = B.plus(1.0);
+
+        A.setValue(3.0);
+        A.getCascadePlan().cascade();
+
+        assertEquals(6.0, B.getValue().scalar(), 0.0);
+        assertEquals(7.0, C.getValue().scalar(), 0.0);
+    }
+}
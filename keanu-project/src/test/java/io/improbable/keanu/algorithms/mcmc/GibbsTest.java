@@ -0,0 +1,130 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.BetaVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.DirichletVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GammaVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.generic.probabilistic.discrete.CategoricalVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class GibbsTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    @Test
+    public void samplesGaussianMeanFromItsConjugatePosterior() {
+        GaussianVertex mu = new GaussianVertex(1.0, 2.0);
+        GaussianVertex A = new GaussianVertex(mu, 1.0);
+        GaussianVertex B = new GaussianVertex(new long[]{4}, mu, 0.5);
+        A.observe(3.0);
+        B.observe(DoubleTensor.create(1.0, 2.0, 3.0, 4.0));
+
+        BayesianNetwork network = new BayesianNetwork(mu.getConnectedGraph());
+        NetworkSamples samples = Gibbs.withDefaultConfig()
+            .generatePosteriorSamples(network, Arrays.asList(mu))
+            .dropCount(100)
+            .downSampleInterval(2)
+            .generate(10000);
+
+        double precision = 1 / 4.0 + 1 + 4 * 4;
+        double mean = (1 / 4.0 + 3.0 + 4 * 10.0) / precision;
+
+        assertEquals(4950, samples.size());
+        assertEquals(mean, samples.getDoubleTensorSamples(mu).getAverages().scalar(), 0.01);
+        assertEquals(1 / precision, samples.getDoubleTensorSamples(mu).getVariances().scalar(), 0.005);
+    }
+
+    @Test
+    public void samplesGammaPrecisionOfGaussiansFromItsConjugatePosterior() {
+        GammaVertex precision = new GammaVertex(1.0, 2.0);
+        GaussianVertex A = new GaussianVertex(new long[]{6}, 0.0, precision.pow(-0.5));
+        A.observe(DoubleTensor.create(0.5, -1.0, 1.5, -0.5, 1.0, 0.0));
+
+        BayesianNetwork network = new BayesianNetwork(precision.getConnectedGraph());
+        NetworkSamples samples = Gibbs.withDefaultConfig().getPosteriorSamples(network, precision, 5000);
+
+        double k = 2.0 + 6 / 2.0;
+        double rate = 1.0 + (0.25 + 1.0 + 2.25 + 0.25 + 1.0) / 2;
+
+        assertEquals(k / rate, samples.getDoubleTensorSamples(precision).getAverages().scalar(), 0.03);
+    }
+
+    @Test
+    public void samplesBetaProbabilityOfBernoullisFromItsConjugatePosterior() {
+        BetaVertex p = new BetaVertex(2.0, 2.0);
+        BernoulliVertex A = new BernoulliVertex(new long[]{10}, p);
+        A.observe(BooleanTensor.create(true, true, false, true, true, false, true, true, false, true));
+
+        BayesianNetwork network = new BayesianNetwork(p.getConnectedGraph());
+        NetworkSamples samples = Gibbs.withDefaultConfig().getPosteriorSamples(network, p, 5000);
+
+        assertEquals(9.0 / 14.0, samples.getDoubleTensorSamples(p).getAverages().scalar(), 0.01);
+    }
+
+    @Test
+    public void samplesGammaRateOfPoissonsFromItsConjugatePosterior() {
+        GammaVertex rate = new GammaVertex(1.0, 2.0);
+        PoissonVertex A = new PoissonVertex(new long[]{5}, rate);
+        A.observe(IntegerTensor.create(1, 3, 2, 4, 5));
+
+        BayesianNetwork network = new BayesianNetwork(rate.getConnectedGraph());
+        NetworkSamples samples = Gibbs.withDefaultConfig().getPosteriorSamples(network, rate, 5000);
+
+        assertEquals(17.0 / 6.0, samples.getDoubleTensorSamples(rate).getAverages().scalar(), 0.05);
+    }
+
+    @Test
+    public void samplesDirichletProbabilitiesOfCategoricalsFromItsConjugatePosterior() {
+        DirichletVertex probabilities = new DirichletVertex(1.0, 1.0, 1.0);
+        for (int category : new int[]{0, 0, 1, 2, 0}) {
+            CategoricalVertex<Integer, IntegerTensor> observation = CategoricalVertex.of(probabilities);
+            observation.observe(IntegerTensor.scalar(category));
+        }
+
+        BayesianNetwork network = new BayesianNetwork(probabilities.getConnectedGraph());
+        NetworkSamples samples = Gibbs.withDefaultConfig().getPosteriorSamples(network, probabilities, 5000);
+
+        DoubleTensor averages = samples.getDoubleTensorSamples(probabilities).getAverages();
+        assertEquals(0.5, averages.getValue(0), 0.01);
+        assertEquals(0.25, averages.getValue(1), 0.01);
+        assertEquals(0.25, averages.getValue(2), 0.01);
+    }
+
+    @Test
+    public void fallsBackToMetropolisHastingsForVerticesWithoutAConjugateUpdate() {
+        GaussianVertex conjugate = new GaussianVertex(0.0, 1.0);
+        GaussianVertex A = new GaussianVertex(conjugate, 1.0);
+        A.observe(2.0);
+
+        GaussianVertex notConjugate = new GaussianVertex(0.0, 1.0);
+        notConjugate.setValue(0.0);
+        GaussianVertex B = new GaussianVertex(notConjugate.times(2.0), 1.0);
+        B.observe(2.0);
+
+        BayesianNetwork network = new BayesianNetwork(Stream.concat(
+            conjugate.getConnectedGraph().stream(),
+            notConjugate.getConnectedGraph().stream()
+        ).collect(Collectors.toList()));
+        NetworkSamples samples = Gibbs.withDefaultConfig()
+            .getPosteriorSamples(network, Arrays.asList(conjugate, notConjugate), 20000);
+
+        assertEquals(1.0, samples.getDoubleTensorSamples(conjugate).getAverages().scalar(), 0.02);
+        assertEquals(0.8, samples.getDoubleTensorSamples(notConjugate).getAverages().scalar(), 0.05);
+    }
+}
@@ -12,14 +12,18 @@ import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.KeanuRandom;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.UniformVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
 import lombok.AllArgsConstructor;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -130,6 +134,123 @@ public class MetropolisHastingsStepTest {
         assertEquals(0.5, A.getValue(0), 1e-10);
     }
 
+    @Test
+    public void doesNotRecalculateLogProbOfVerticesThatHaveNotChanged() {
+        AtomicInteger logProbCalculations = new AtomicInteger(0);
+
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        DoubleVertex B = A.times(2);
+        DoubleVertex C = new GaussianVertex(B, 1) {
+            @Override
+            public double logProb(DoubleTensor value) {
+                logProbCalculations.incrementAndGet();
+                return super.logProb(value);
+            }
+        };
+        C.observe(5.0);
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+
+        MetropolisHastingsStep mhStep = stepFunctionWithConstantProposal(network, 10, alwaysReject);
+        double logProbBeforeStep = network.getLogOfMasterP();
+        logProbCalculations.set(0);
+
+        mhStep.step(Collections.singleton(A), logProbBeforeStep);
+        assertEquals(2, logProbCalculations.get());
+
+        mhStep.step(Collections.singleton(A), logProbBeforeStep);
+        assertEquals(3, logProbCalculations.get());
+    }
+
+    @Test
+    public void doesRecalculateLogProbWhenAValueIsChangedInPlaceAndSetAgain() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        DoubleVertex B = new GaussianVertex(A, 1);
+        B.observe(5.0);
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+
+        MetropolisHastingsStep mhStep = stepFunctionWithConstantProposal(network, 10, alwaysAccept);
+        mhStep.step(Collections.singleton(A), network.getLogOfMasterP());
+
+        DoubleTensor value = A.getValue();
+        A.setAndCascade(value.plusInPlace(1.0));
+
+        MetropolisHastingsStep.StepResult result = mhStep.step(
+            Collections.singleton(A),
+            network.getLogOfMasterP()
+        );
+
+        assertTrue(result.isAccepted());
+        assertEquals(network.getLogOfMasterP(), result.getLogProbabilityAfterStep(), 1e-10);
+    }
+
+    @Test
+    public void doesRestoreOverlappingAffectedVerticesOnRejection() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        DoubleVertex B = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        B.setValue(1.5);
+        DoubleVertex C = A.plus(B);
+        DoubleVertex D = new GaussianVertex(C, 1);
+        D.observe(5.0);
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+        network.cascadeObservations();
+        C.eval();
+
+        MetropolisHastingsStep mhStep = stepFunctionWithConstantProposal(network, 10, alwaysReject);
+
+        MetropolisHastingsStep.StepResult result = mhStep.step(
+            new HashSet<>(Arrays.asList(A, B)),
+            network.getLogOfMasterP()
+        );
+
+        assertFalse(result.isAccepted());
+        assertEquals(0.5, A.getValue(0), 1e-10);
+        assertEquals(1.5, B.getValue(0), 1e-10);
+        assertEquals(2.0, C.getValue(0), 1e-10);
+    }
+
+    @Test
+    public void doesCalculateCorrectLogProbOfManyBatchedVerticesAfterAcceptingAndRejectingSteps() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        DoubleVertex rate = A.times(A).plus(1);
+        for (int i = 0; i < 50; i++) {
+            GaussianVertex gaussian = new GaussianVertex(A, new UniformVertex(1, 2));
+            gaussian.observe(i / 10.0);
+
+            PoissonVertex poisson = new PoissonVertex(rate);
+            poisson.observe(i % 5);
+        }
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+        network.getLatentVertices().stream()
+            .filter(vertex -> vertex != A)
+            .forEach(vertex -> ((DoubleVertex) vertex).setValue(1.5));
+        network.cascadeObservations();
+        rate.eval();
+
+        MetropolisHastingsStep acceptingStep = stepFunctionWithConstantProposal(network, 2.5, alwaysAccept);
+        MetropolisHastingsStep.StepResult accepted = acceptingStep.step(
+            Collections.singleton(A),
+            network.getLogOfMasterP()
+        );
+
+        assertTrue(accepted.isAccepted());
+        assertEquals(network.getLogOfMasterP(), accepted.getLogProbabilityAfterStep(), 1e-10);
+
+        double logProbBeforeRejection = network.getLogOfMasterP();
+        MetropolisHastingsStep rejectingStep = stepFunctionWithConstantProposal(network, 10, alwaysReject);
+        MetropolisHastingsStep.StepResult rejected = rejectingStep.step(
+            Collections.singleton(A),
+            logProbBeforeRejection
+        );
+
+        assertFalse(rejected.isAccepted());
+        assertEquals(logProbBeforeRejection, rejected.getLogProbabilityAfterStep(), 1e-10);
+        assertEquals(logProbBeforeRejection, network.getLogOfMasterP(), 1e-10);
+    }
+
     private MetropolisHastingsStep stepFunctionWithConstantProposal(BayesianNetwork network, double constant, KeanuRandom random) {
         return new MetropolisHastingsStep(
             network.getLatentVertices(),
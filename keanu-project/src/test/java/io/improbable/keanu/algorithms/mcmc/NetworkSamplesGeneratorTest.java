@@ -1,9 +1,17 @@
 package io.improbable.keanu.algorithms.mcmc;
 
+import com.google.common.collect.ImmutableList;
 import io.improbable.keanu.algorithms.NetworkSample;
 import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.NetworkSamplesSink;
+import io.improbable.keanu.algorithms.PosteriorSamplingAlgorithm;
+import io.improbable.keanu.algorithms.mcmc.nuts.NUTS;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.util.ProgressBar;
 import io.improbable.keanu.vertices.VertexId;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import lombok.Value;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -12,6 +20,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -43,6 +52,79 @@ public class NetworkSamplesGeneratorTest {
         assertEquals(expectedCollected, samples.size());
     }
 
+    @Test
+    public void dropsAndSamplesExpectedNumberOfStepsWhenGeneratingIntoASink() {
+
+        AtomicInteger stepCount = new AtomicInteger(0);
+        AtomicInteger sampleCount = new AtomicInteger(0);
+
+        TestSamplingAlgorithm algorithm = new TestSamplingAlgorithm(stepCount, sampleCount);
+        NetworkSamplesGenerator unitUnderTest = new NetworkSamplesGenerator(algorithm, ProgressBar::new);
+
+        int totalGenerated = 12;
+        int dropCount = 3;
+        int downSampleInterval = 2;
+        unitUnderTest.dropCount(dropCount).downSampleInterval(downSampleInterval);
+
+        AtomicInteger sunkCount = new AtomicInteger(0);
+        int sampleCountReturned = unitUnderTest.generate(totalGenerated, (sample, logOfMasterP) -> sunkCount.incrementAndGet());
+
+        int expectedCollected = (int) Math.ceil((totalGenerated - dropCount) / (double) downSampleInterval);
+        assertEquals(totalGenerated, algorithm.stepCount.get() + algorithm.sampleCount.get());
+        assertEquals(expectedCollected, sampleCountReturned);
+        assertEquals(expectedCollected, sunkCount.get());
+    }
+
+    @Test
+    public void generatingIntoASinkGivesTheSameSamplesAsGeneratingInMemory() {
+        assertSinkGivesTheSameSamplesAsInMemory(() -> MetropolisHastings.withDefaultConfig(new KeanuRandom(1)));
+    }
+
+    @Test
+    public void generatingHamiltonianSamplesIntoASinkGivesTheSameSamplesAsGeneratingInMemory() {
+        //a step size this large rejects some of the leapfrogs, so both the accepted and rejected samples are sunk
+        assertSinkGivesTheSameSamplesAsInMemory(() -> Hamiltonian.builder()
+            .random(new KeanuRandom(1))
+            .stepSize(1.0)
+            .leapFrogCount(5)
+            .build()
+        );
+    }
+
+    @Test
+    public void generatingNUTSSamplesIntoASinkGivesTheSameSamplesAsGeneratingInMemory() {
+        assertSinkGivesTheSameSamplesAsInMemory(() -> NUTS.withDefaultConfig(new KeanuRandom(1)));
+    }
+
+    private static void assertSinkGivesTheSameSamplesAsInMemory(Supplier<PosteriorSamplingAlgorithm> algorithm) {
+        GaussianVertex inMemoryVertex = new GaussianVertex(new long[]{2}, 0, 1);
+        NetworkSamples inMemory = generator(algorithm.get(), inMemoryVertex).generate(50);
+
+        GaussianVertex sunkVertex = new GaussianVertex(new long[]{2}, 0, 1);
+        NetworkSamplesSink sink = new NetworkSamplesSink(ImmutableList.of(sunkVertex));
+        generator(algorithm.get(), sunkVertex).generate(50, sink);
+        NetworkSamples sunk = sink.getSamples();
+
+        assertEquals(inMemory.size(), sunk.size());
+        for (int i = 0; i < inMemory.size(); i++) {
+            assertEquals(inMemory.getLogOfMasterP(i), sunk.getLogOfMasterP(i), 0.0);
+            assertEquals(inMemory.get(inMemoryVertex).asList().get(i), sunk.get(sunkVertex).asList().get(i));
+        }
+    }
+
+    private static NetworkSamplesGenerator metropolisHastingsGenerator(GaussianVertex latent) {
+        return generator(MetropolisHastings.withDefaultConfig(new KeanuRandom(1)), latent);
+    }
+
+    private static NetworkSamplesGenerator generator(PosteriorSamplingAlgorithm algorithm, GaussianVertex latent) {
+        latent.setValue(DoubleTensor.create(new double[]{0.5, -0.5}, 2));
+        GaussianVertex observed = new GaussianVertex(latent, 1);
+        observed.observe(DoubleTensor.create(new double[]{1.0, 2.0}, 2));
+
+        BayesianNetwork network = new BayesianNetwork(latent.getConnectedGraph());
+        return algorithm.generatePosteriorSamples(network, ImmutableList.of(latent));
+    }
+
     @Test
     public void streamsExpectedNumberOfSamples() {
 
@@ -66,6 +148,26 @@ public class NetworkSamplesGeneratorTest {
         assertEquals(totalCollected, algorithm.sampleCount.get());
     }
 
+    @Test
+    public void streamsTheSameSamplesInBatches() {
+        GaussianVertex streamedVertex = new GaussianVertex(new long[]{2}, 0, 1);
+        List<NetworkSample> streamed = metropolisHastingsGenerator(streamedVertex).stream()
+            .limit(10)
+            .collect(Collectors.toList());
+
+        GaussianVertex batchedVertex = new GaussianVertex(new long[]{2}, 0, 1);
+        List<NetworkSamples> batches = metropolisHastingsGenerator(batchedVertex).streamBatches(5)
+            .limit(2)
+            .collect(Collectors.toList());
+
+        for (int i = 0; i < streamed.size(); i++) {
+            NetworkSamples batch = batches.get(i / 5);
+            assertEquals(5, batch.size());
+            assertEquals(streamed.get(i).getLogOfMasterP(), batch.getLogOfMasterP(i % 5), 0.0);
+            assertEquals(streamed.get(i).get(streamedVertex), batch.get(batchedVertex).asList().get(i % 5));
+        }
+    }
+
     @Test
     public void doesUpdateProgressAndFinishProgressOnGeneration() {
         AtomicInteger stepCount = new AtomicInteger(0);
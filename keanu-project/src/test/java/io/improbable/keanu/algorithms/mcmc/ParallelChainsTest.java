@@ -0,0 +1,91 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.algorithms.MultiChainSamples;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.VertexLabel;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class ParallelChainsTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    private static final VertexLabel A_LABEL = new VertexLabel("A");
+
+    private static BayesianNetwork buildNetwork() {
+        DoubleVertex A = new GaussianVertex(20.0, 1.0).setLabel(A_LABEL);
+        A.setValue(20.0);
+        DoubleVertex observed = new GaussianVertex(A, 1.0);
+        observed.observe(22.0);
+        return new BayesianNetwork(A.getConnectedGraph());
+    }
+
+    @Test
+    public void runsEachChainAgainstItsOwnNetwork() {
+        MultiChainSamples samples = ParallelChains.builder()
+            .chainCount(3)
+            .build()
+            .getPosteriorSamples(ParallelChainsTest::buildNetwork, 100);
+
+        assertEquals(3, samples.getChainCount());
+        assertNotSame(samples.getNetwork(0), samples.getNetwork(1));
+        for (int i = 0; i < samples.getChainCount(); i++) {
+            assertEquals(100, samples.getChain(i).size());
+        }
+    }
+
+    @Test
+    public void chainsUseDifferentRandoms() {
+        MultiChainSamples samples = ParallelChains.builder()
+            .chainCount(2)
+            .build()
+            .getPosteriorSamples(ParallelChainsTest::buildNetwork, 50);
+
+        List<DoubleTensor> chainZero = samples.getChain(0).getDoubleTensorSamples(samples.getNetwork(0).getVertexByLabel(A_LABEL)).asList();
+        List<DoubleTensor> chainOne = samples.getChain(1).getDoubleTensorSamples(samples.getNetwork(1).getVertexByLabel(A_LABEL)).asList();
+
+        assertNotEquals(chainZero, chainOne);
+    }
+
+    @Test
+    public void isReproducibleForAGivenRootSeed() {
+        List<Double> first = pooledSamplesOfA(ParallelChains.withDefaultConfig(new KeanuRandom(42))
+            .getPosteriorSamples(ParallelChainsTest::buildNetwork, 50));
+        List<Double> second = pooledSamplesOfA(ParallelChains.withDefaultConfig(new KeanuRandom(42))
+            .getPosteriorSamples(ParallelChainsTest::buildNetwork, 50));
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void poolsSamplesAcrossChainsByLabel() {
+        MultiChainSamples samples = ParallelChains.builder()
+            .chainCount(4)
+            .dropCount(500)
+            .build()
+            .getPosteriorSamples(ParallelChainsTest::buildNetwork, 2500);
+
+        assertEquals(4, samples.get(A_LABEL).size());
+        //posterior of A is N(21, 0.5)
+        assertEquals(21.0, samples.getPooledDoubleTensorSamples(A_LABEL).getAverages().scalar(), 0.1);
+    }
+
+    private static List<Double> pooledSamplesOfA(MultiChainSamples samples) {
+        return samples.getPooledDoubleTensorSamples(A_LABEL).asList().stream()
+            .map(DoubleTensor::scalar)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,163 @@
+package io.improbable.keanu.algorithms.mcmc;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.variational.optimizer.gradient.MiniBatchSelector;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertexSamples;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class StochasticGradientMCMCTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    private static final double[] DATA = new double[]{1.0, 3.0, 2.5, 1.5, 2.0, 2.0, 3.5, 0.5, 2.5, 3.5};
+
+    //With a standard gaussian prior and unit variance observations, the posterior of the mean is gaussian
+    private static final double POSTERIOR_MEAN = Arrays.stream(DATA).sum() / (DATA.length + 1);
+    private static final double POSTERIOR_VARIANCE = 1.0 / (DATA.length + 1);
+
+    private static DoubleVertex buildModelWithAnObservationPerDataPoint() {
+        DoubleVertex mean = new GaussianVertex(0, 1);
+        mean.setValue(0.0);
+        for (double data : DATA) {
+            new GaussianVertex(mean, 1).observe(data);
+        }
+        return mean;
+    }
+
+    @Test
+    public void samplesThePosteriorWithLangevinDynamicsOnAllOfTheData() {
+        DoubleVertex mean = buildModelWithAnObservationPerDataPoint();
+
+        StochasticGradientMCMC algorithm = StochasticGradientMCMC.builder()
+            .random(new KeanuRandom(1))
+            .stepSize(0.01)
+            .build();
+
+        DoubleVertexSamples samples = sample(algorithm, mean);
+
+        assertEquals(POSTERIOR_MEAN, samples.getAverages().scalar(), 0.05);
+        assertEquals(POSTERIOR_VARIANCE, samples.getVariances().scalar(), 0.02);
+    }
+
+    @Test
+    public void samplesThePosteriorWithLangevinDynamicsOnBatchesOfObservedVertices() {
+        DoubleVertex mean = buildModelWithAnObservationPerDataPoint();
+
+        StochasticGradientMCMC algorithm = StochasticGradientMCMC.builder()
+            .random(new KeanuRandom(1))
+            .stepSize(0.005)
+            .observedBatchSize(2)
+            .build();
+
+        DoubleVertexSamples samples = sample(algorithm, mean);
+
+        assertEquals(POSTERIOR_MEAN, samples.getAverages().scalar(), 0.05);
+    }
+
+    @Test
+    public void samplesThePosteriorWithHamiltonianDynamicsOnBatchesOfObservedVertices() {
+        DoubleVertex mean = buildModelWithAnObservationPerDataPoint();
+
+        StochasticGradientMCMC algorithm = StochasticGradientMCMC.builder()
+            .random(new KeanuRandom(1))
+            .dynamics(StochasticGradientMCMC.Dynamics.HAMILTONIAN)
+            .stepSize(0.05)
+            .friction(5.0)
+            .observedBatchSize(5)
+            .build();
+
+        DoubleVertexSamples samples = sample(algorithm, mean);
+
+        assertEquals(POSTERIOR_MEAN, samples.getAverages().scalar(), 0.05);
+    }
+
+    @Test
+    public void samplesThePosteriorOnRowSlicesOfATensorObservation() {
+        int dataSize = 1000;
+        int batchSize = 100;
+
+        KeanuRandom random = new KeanuRandom(1);
+        double[] x = random.nextGaussian(new long[]{dataSize}).asFlatDoubleArray();
+        double[] y = new double[dataSize];
+        for (int i = 0; i < dataSize; i++) {
+            y[i] = 2.0 * x[i] + random.nextGaussian();
+        }
+
+        DoubleVertex slope = new GaussianVertex(0, 10);
+        slope.setValue(0.0);
+        ConstantDoubleVertex xBatch = new ConstantDoubleVertex(DoubleTensor.zeros(batchSize));
+        DoubleVertex yBatch = new GaussianVertex(xBatch.times(slope), 1.0);
+        yBatch.observe(DoubleTensor.zeros(batchSize));
+
+        MiniBatchSelector rowSlices = new MiniBatchSelector() {
+            @Override
+            public void selectBatch(int step) {
+                int start = (step % (dataSize / batchSize)) * batchSize;
+                xBatch.setValue(DoubleTensor.create(Arrays.copyOfRange(x, start, start + batchSize)));
+                yBatch.observe(DoubleTensor.create(Arrays.copyOfRange(y, start, start + batchSize)));
+            }
+
+            @Override
+            public double getLikelihoodScale() {
+                return dataSize / (double) batchSize;
+            }
+        };
+
+        StochasticGradientMCMC algorithm = StochasticGradientMCMC.builder()
+            .random(new KeanuRandom(1))
+            .stepSize(1e-4)
+            .miniBatchSelector(rowSlices)
+            .build();
+
+        DoubleVertexSamples samples = sample(algorithm, slope);
+
+        double sumOfXY = 0.0;
+        double sumOfXX = 0.0;
+        for (int i = 0; i < dataSize; i++) {
+            sumOfXY += x[i] * y[i];
+            sumOfXX += x[i] * x[i];
+        }
+        assertEquals(sumOfXY / (sumOfXX + 0.01), samples.getAverages().scalar(), 0.02);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotBatchObservedVerticesAndUseASelector() {
+        DoubleVertex mean = buildModelWithAnObservationPerDataPoint();
+
+        StochasticGradientMCMC.builder()
+            .observedBatchSize(2)
+            .miniBatchSelector(new MiniBatchSelector() {
+                @Override
+                public void selectBatch(int step) {
+                }
+
+                @Override
+                public double getLikelihoodScale() {
+                    return 1.0;
+                }
+            })
+            .build()
+            .generatePosteriorSamples(new BayesianNetwork(mean.getConnectedGraph()), Arrays.asList(mean));
+    }
+
+    private static DoubleVertexSamples sample(StochasticGradientMCMC algorithm, DoubleVertex latent) {
+        NetworkSamples samples = algorithm
+            .generatePosteriorSamples(new BayesianNetwork(latent.getConnectedGraph()), Arrays.asList(latent))
+            .dropCount(1000)
+            .generate(21000);
+        return samples.getDoubleTensorSamples(latent);
+    }
+}
@@ -0,0 +1,82 @@
+package io.improbable.keanu.algorithms.mcmc.conjugate;
+
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.TakeVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.DirichletVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GammaVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.generic.probabilistic.discrete.CategoricalVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConjugateUpdatesTest {
+
+    @Test
+    public void findsAnUpdateWhenAllChildrenAreConjugateLikelihoods() {
+        GaussianVertex mu = new GaussianVertex(0, 1);
+        new GaussianVertex(mu, 1).observe(1.0);
+        new GaussianVertex(mu, new GammaVertex(1, 1)).observe(2.0);
+
+        GammaVertex rate = new GammaVertex(1, 1);
+        new PoissonVertex(rate).observe(3);
+
+        GammaVertex precision = new GammaVertex(1, 1);
+        new GaussianVertex(mu, precision.pow(-0.5));
+
+        assertTrue(hasConjugateUpdate(mu));
+        assertTrue(hasConjugateUpdate(rate));
+        assertTrue(hasConjugateUpdate(precision));
+    }
+
+    @Test
+    public void doesNotFindAnUpdateWhenAChildDependsOnTheLatentThroughAnotherVertex() {
+        GaussianVertex mu = new GaussianVertex(0, 1);
+        new GaussianVertex(mu, 1).observe(1.0);
+        new GaussianVertex(mu.times(2.0), 1).observe(2.0);
+
+        assertFalse(hasConjugateUpdate(mu));
+    }
+
+    @Test
+    public void doesNotFindAnUpdateWhenTheLatentIsUsedAsAnotherParameter() {
+        GaussianVertex mu = new GaussianVertex(1, 0.1);
+        new GaussianVertex(mu, mu).observe(1.0);
+
+        GammaVertex rate = new GammaVertex(1, 1);
+        new GaussianVertex(rate, 1).observe(1.0);
+
+        assertFalse(hasConjugateUpdate(mu));
+        assertFalse(hasConjugateUpdate(rate));
+    }
+
+    @Test
+    public void doesNotFindAnUpdateWhenTheLatentHasNoChildren() {
+        assertFalse(hasConjugateUpdate(new GaussianVertex(0, 1)));
+    }
+
+    @Test
+    public void onlyFindsADirichletUpdateWhenEachCategoryUsesADifferentElement() {
+        DirichletVertex probabilities = new DirichletVertex(1, 1, 1);
+        CategoricalVertex.of(probabilities).observe(IntegerTensor.scalar(1));
+        assertTrue(hasConjugateUpdate(probabilities));
+
+        DirichletVertex subset = new DirichletVertex(1, 1, 1);
+        Map<Integer, DoubleVertex> twoOfThree = new HashMap<>();
+        twoOfThree.put(0, new TakeVertex(subset, 0));
+        twoOfThree.put(1, new TakeVertex(subset, 1));
+        new CategoricalVertex<Integer, IntegerTensor>(twoOfThree).observe(IntegerTensor.scalar(0));
+        assertFalse(hasConjugateUpdate(subset));
+    }
+
+    private static boolean hasConjugateUpdate(Vertex<?> latent) {
+        return ConjugateUpdates.find(latent, ConjugateUpdates.defaults()).isPresent();
+    }
+}
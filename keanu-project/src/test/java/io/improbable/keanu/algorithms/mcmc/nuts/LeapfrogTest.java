@@ -1,22 +1,18 @@
 package io.improbable.keanu.algorithms.mcmc.nuts;
 
+import io.improbable.keanu.algorithms.mcmc.LatentLayout;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.Vertex;
-import io.improbable.keanu.vertices.VertexId;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
-import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -24,27 +20,27 @@ public class LeapfrogTest {
 
     private static final double EPSILON = 1.0;
 
+    private static final int A = 0;
+    private static final int B = 1;
+
     private DoubleVertex vertexA = new GaussianVertex(0, 1);;
     private DoubleVertex vertexB = new GaussianVertex(0, 1);;
 
-    private VertexId aID = vertexA.getId();;
-    private VertexId bID = vertexB.getId();
-
     private List<Vertex<DoubleTensor>> vertices = Arrays.asList(vertexA, vertexB);
-    private List<VertexId> ids = Arrays.asList(aID, bID);
+    private LatentLayout latents = new LatentLayout(vertices);
 
-    private Map<VertexId, DoubleTensor> position = new HashMap<>();
-    private Map<VertexId, DoubleTensor> momentum = new HashMap<>();
-    private Map<VertexId, DoubleTensor> gradient = new HashMap<>();
+    private double[] position = latents.newArray();
+    private double[] momentum = latents.newArray();
+    private double[] gradient = latents.newArray();
 
     private LogProbGradientCalculator mockedGradientCalculator;
     private LogProbGradientCalculator mockedReverseGradientCalculator;
 
     @Before
     public void setupGraphForLeapfrog() {
-        fillMap(position, DoubleTensor.scalar(0.0));
-        fillMap(momentum, DoubleTensor.scalar(1.0));
-        fillMap(gradient, DoubleTensor.scalar(2.0));
+        Arrays.fill(position, 0.0);
+        Arrays.fill(momentum, 1.0);
+        Arrays.fill(gradient, 2.0);
     }
 
     @Before
@@ -54,12 +50,10 @@ public class LeapfrogTest {
     }
 
     private LogProbGradientCalculator setUpMock(double aValue, double bValue) {
-        Map<VertexId, DoubleTensor> gradient = new HashMap<>();
-        gradient.put(aID, DoubleTensor.scalar(aValue));
-        gradient.put(bID, DoubleTensor.scalar(bValue));
+        DoubleTensor[] gradient = new DoubleTensor[]{DoubleTensor.scalar(aValue), DoubleTensor.scalar(bValue)};
 
         LogProbGradientCalculator mock = mock(LogProbGradientCalculator.class);
-        when(mock.getJointLogProbGradientWrtLatents()).thenAnswer(
+        when(mock.getJointLogProbGradientWrtLatentsInOrder()).thenAnswer(
             invocation -> gradient
         );
         return mock;
@@ -68,45 +62,49 @@ public class LeapfrogTest {
     @Test
     public void canLeapForward() {
         Leapfrog start = new Leapfrog(position, momentum, gradient);
-        Leapfrog leap = start.step(vertices, mockedGradientCalculator, EPSILON);
+        Leapfrog leap = start.step(latents, mockedGradientCalculator, EPSILON);
 
-        Assert.assertEquals(1.0, leap.getPosition().get(aID).scalar(), 1e-6);
-        Assert.assertEquals(1.0, leap.getPosition().get(bID).scalar(), 1e-6);
+        Assert.assertEquals(1.0, leap.getPosition()[A], 1e-6);
+        Assert.assertEquals(1.0, leap.getPosition()[B], 1e-6);
 
-        Assert.assertEquals(2.5, leap.getMomentum().get(aID).scalar(), 1e-6);
-        Assert.assertEquals(1.5, leap.getMomentum().get(bID).scalar(), 1e-6);
+        Assert.assertEquals(2.5, leap.getMomentum()[A], 1e-6);
+        Assert.assertEquals(1.5, leap.getMomentum()[B], 1e-6);
 
-        Assert.assertEquals(1.0, leap.getGradient().get(aID).scalar(), 1e-6);
-        Assert.assertEquals(-1.0, leap.getGradient().get(bID).scalar(), 1e-6);
+        Assert.assertEquals(1.0, leap.getGradient()[A], 1e-6);
+        Assert.assertEquals(-1.0, leap.getGradient()[B], 1e-6);
     }
 
     @Test
     public void canLeapForwardAndBackToOriginalPosition() {
         Leapfrog start = new Leapfrog(position, momentum, gradient);
-        Leapfrog leapForward = start.step(vertices, mockedGradientCalculator, EPSILON);
+        Leapfrog leapForward = start.step(latents, mockedGradientCalculator, EPSILON);
 
-        Map<VertexId, DoubleTensor> momentum = new HashMap<>(leapForward.getMomentum());
+        double[] momentum = leapForward.getMomentum().clone();
 
-        fillMap(leapForward.getMomentum(), DoubleTensor.scalar(-1.0));
-        fillMap(leapForward.getGradient(), DoubleTensor.scalar(-2.0));
+        Arrays.fill(leapForward.getMomentum(), -1.0);
+        Arrays.fill(leapForward.getGradient(), -2.0);
 
-        Leapfrog leapBackToStart = leapForward.step(vertices, mockedReverseGradientCalculator, EPSILON);
+        Leapfrog leapBackToStart = leapForward.step(latents, mockedReverseGradientCalculator, EPSILON);
 
-        assertThat(start.getPosition(), Matchers.equalTo(leapBackToStart.getPosition()));
-        assertThat(momentum, Matchers.equalTo(revertDirectionOfMap(leapBackToStart.getMomentum())));
+        Assert.assertArrayEquals(start.getPosition(), leapBackToStart.getPosition(), 1e-6);
+        Assert.assertArrayEquals(momentum, revertDirection(leapBackToStart.getMomentum()), 1e-6);
     }
 
-    private void fillMap(Map<VertexId, DoubleTensor> map, DoubleTensor value) {
-        for (VertexId id : ids) {
-            map.put(id, value);
-        }
+    @Test
+    public void doesNotChangeThePreviousLeapfrog() {
+        Leapfrog start = new Leapfrog(position, momentum, gradient);
+        start.step(latents, mockedGradientCalculator, EPSILON);
+
+        Assert.assertArrayEquals(new double[]{0.0, 0.0}, start.getPosition(), 0.0);
+        Assert.assertArrayEquals(new double[]{1.0, 1.0}, start.getMomentum(), 0.0);
+        Assert.assertArrayEquals(new double[]{2.0, 2.0}, start.getGradient(), 0.0);
     }
 
-    private Map<VertexId, DoubleTensor> revertDirectionOfMap(Map<VertexId, DoubleTensor> map) {
-        for (DoubleTensor tensor : map.values()) {
-            tensor.timesInPlace(-1.);
+    private double[] revertDirection(double[] momentum) {
+        for (int i = 0; i < momentum.length; i++) {
+            momentum[i] *= -1.;
         }
-        return map;
+        return momentum;
     }
 
-}
\ No newline at end of file
+}
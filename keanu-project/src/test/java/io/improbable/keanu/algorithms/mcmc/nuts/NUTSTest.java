@@ -14,6 +14,7 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -23,6 +24,7 @@ import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 
@@ -164,4 +166,26 @@ public class NUTSTest {
 
         assertFalse(posteriorSamples.get(A).asList().isEmpty());
     }
+
+    @Test
+    public void compiledGradientTakesTheSameSamplesAsTheUncompiledGradient() {
+        List<Double> uncompiled = sampleSimpleGaussian(false);
+        List<Double> compiled = sampleSimpleGaussian(true);
+
+        assertEquals(uncompiled, compiled);
+    }
+
+    private List<Double> sampleSimpleGaussian(boolean compileGradient) {
+        BayesianNetwork simpleGaussian = MCMCTestDistributions.createSimpleGaussian(0.0, 1.0, 3, new KeanuRandom(1));
+        Vertex<DoubleTensor> A = simpleGaussian.getContinuousLatentVertices().get(0);
+
+        NUTS nuts = NUTS.builder()
+            .adaptCount(10)
+            .random(new KeanuRandom(1))
+            .compileGradient(compileGradient)
+            .build();
+
+        NetworkSamples samples = nuts.getPosteriorSamples(simpleGaussian, simpleGaussian.getLatentVertices(), 20);
+        return samples.getDoubleTensorSamples(A).asList().stream().map(DoubleTensor::scalar).collect(Collectors.toList());
+    }
 }
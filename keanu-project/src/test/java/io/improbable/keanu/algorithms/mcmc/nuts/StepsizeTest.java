@@ -1,9 +1,9 @@
 package io.improbable.keanu.algorithms.mcmc.nuts;
 
+import io.improbable.keanu.algorithms.mcmc.LatentLayout;
 import io.improbable.keanu.network.BayesianNetwork;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.ProbabilityCalculator;
-import io.improbable.keanu.vertices.VertexId;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.KeanuRandom;
 import io.improbable.keanu.vertices.dbl.nonprobabilistic.diff.LogProbGradientCalculator;
@@ -15,7 +15,6 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -44,17 +43,17 @@ public class StepsizeTest {
         List<DoubleVertex> vertices = Arrays.asList(vertex);
         BayesianNetwork bayesianNetwork = new BayesianNetwork(vertex.getConnectedGraph());
 
-        VertexId vertexId = vertex.getId();
+        LatentLayout latents = new LatentLayout(Collections.singletonList(vertex));
 
         LogProbGradientCalculator logProbGradientCalculator = new LogProbGradientCalculator(bayesianNetwork.getLatentOrObservedVertices(), vertices);
         vertex.setValue(DoubleTensor.scalar(startingValue));
-        Map<VertexId, DoubleTensor> position = Collections.singletonMap(vertexId, vertex.getValue());
-        Map<VertexId, DoubleTensor> gradient = logProbGradientCalculator.getJointLogProbGradientWrtLatents();
+        double[] position = latents.gatherValues(latents.newArray());
+        double[] gradient = latents.gatherGradient(logProbGradientCalculator, latents.newArray());
 
         return Stepsize.findStartingStepSize(
             position,
             gradient,
-            Collections.singletonList(vertex),
+            latents,
             bayesianNetwork.getLatentVertices(),
             logProbGradientCalculator,
             ProbabilityCalculator.calculateLogProbFor(vertices),
@@ -1,6 +1,10 @@
 package io.improbable.keanu.algorithms.particlefiltering;
 
 import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.algorithms.graphtraversal.VertexValuePropagation;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import io.improbable.keanu.vertices.dbl.probabilistic.UniformVertex;
@@ -8,6 +12,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 @Slf4j
@@ -56,4 +63,57 @@ public class ParticleFilteringTest {
         assertTrue(estimatedTemp > 18.0);
         assertTrue(estimatedTemp < 22.0);
     }
+
+    @Test
+    public void particleLogProbIsTheJointLogProbOfItsValues() {
+        BayesianNetwork timeSeries = createTimeSeries(6);
+
+        ParticleFilter particleFilter = ParticleFilter.ofGraph(timeSeries.getAllVertices())
+            .withNumParticles(50)
+            .build();
+
+        assertParticleLogProbsAreJointLogProbs(timeSeries, particleFilter.getMostProbableParticles());
+    }
+
+    @Test
+    public void canPropagateParticlesInParallel() {
+        BayesianNetwork timeSeries = createTimeSeries(20);
+
+        ParticleFilter particleFilter = ParticleFilter.ofGraph(timeSeries.getAllVertices())
+            .withNumParticles(200)
+            .withResamplingThreshold(0.5)
+            .withParallelPropagation(() -> createTimeSeries(20), 4)
+            .build();
+
+        assertEquals(200, particleFilter.getMostProbableParticles().size());
+        assertParticleLogProbsAreJointLogProbs(timeSeries, particleFilter.getMostProbableParticles());
+    }
+
+    private static BayesianNetwork createTimeSeries(int length) {
+        DoubleVertex state = new GaussianVertex(0.0, 1.0);
+        for (int i = 0; i < length; i++) {
+            state = new GaussianVertex(state.times(0.9), 1.0);
+
+            DoubleVertex observation = new GaussianVertex(state.plus(1.0), 0.5);
+            observation.observe(1.0 + (i % 4) * 0.5);
+        }
+        return new BayesianNetwork(state.getConnectedGraph());
+    }
+
+    private static void assertParticleLogProbsAreJointLogProbs(BayesianNetwork network, List<Particle> particles) {
+        List<Vertex> latents = network.getLatentVertices();
+        List<Vertex> observations = network.getObservedVertices();
+
+        for (Particle particle : particles) {
+            for (Vertex latent : latents) {
+                latent.setValue(particle.getValueOfVertex(latent));
+            }
+            VertexValuePropagation.cascadeUpdate(latents);
+
+            double expectedLogProb = ProbabilityCalculator.calculateLogProbFor(latents)
+                + ProbabilityCalculator.calculateLogProbFor(observations);
+
+            assertEquals(expectedLogProb, particle.logProb(), 1e-8);
+        }
+    }
 }
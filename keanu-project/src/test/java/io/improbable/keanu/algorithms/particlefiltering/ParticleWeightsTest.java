@@ -0,0 +1,68 @@
+package io.improbable.keanu.algorithms.particlefiltering;
+
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ParticleWeightsTest {
+
+    @Test
+    public void doesNotUnderflowForVeryUnlikelyParticles() {
+        ParticleWeights weights = new ParticleWeights(particlesWithLogProbs(-5000.0, -5000.0 + Math.log(3.0)));
+
+        assertEquals(1.6, weights.getEffectiveSampleSize(), 1e-10);
+        int[] drawn = weights.sampleSystematically(4, new KeanuRandom(1));
+        assertArrayEquals(new int[]{0, 1, 1, 1}, drawn);
+    }
+
+    @Test
+    public void treatsParticlesAsEquallyLikelyIfAllAreImpossible() {
+        ParticleWeights weights = new ParticleWeights(particlesWithLogProbs(
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY
+        ));
+
+        assertEquals(2.0, weights.getEffectiveSampleSize(), 1e-10);
+        assertArrayEquals(new int[]{0, 1}, weights.sampleSystematically(2, new KeanuRandom(1)));
+    }
+
+    @Test
+    public void neverDrawsImpossibleParticles() {
+        ParticleWeights weights = new ParticleWeights(particlesWithLogProbs(
+            Double.NEGATIVE_INFINITY, -1.0, Double.NEGATIVE_INFINITY, -1.0, Double.NEGATIVE_INFINITY
+        ));
+
+        assertEquals(2.0, weights.getEffectiveSampleSize(), 1e-10);
+        for (int index : weights.sampleSystematically(100, new KeanuRandom(1))) {
+            assertEquals(1, index % 2);
+        }
+    }
+
+    @Test
+    public void drawsEachParticleInProportionToItsWeight() {
+        ParticleWeights weights = new ParticleWeights(particlesWithLogProbs(
+            Math.log(0.1), Math.log(0.2), Math.log(0.3), Math.log(0.4)
+        ));
+
+        int[] counts = new int[4];
+        for (int index : weights.sampleSystematically(1000, new KeanuRandom(1))) {
+            counts[index]++;
+        }
+
+        assertArrayEquals(new int[]{100, 200, 300, 400}, counts);
+    }
+
+    private static List<Particle> particlesWithLogProbs(double... logProbs) {
+        List<Particle> particles = new ArrayList<>();
+        for (double logProb : logProbs) {
+            Particle particle = new Particle();
+            particle.addToSumLogPOfSubgraph(logProb);
+            particles.add(particle);
+        }
+        return particles;
+    }
+}
@@ -0,0 +1,106 @@
+package io.improbable.keanu.algorithms.variational.optimizer;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.VertexLabel;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class MultiStartOptimizerTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    private static final VertexLabel A_LABEL = new VertexLabel("A");
+
+    private static BayesianNetwork buildBimodalNetwork() {
+        return buildBimodalNetwork(new long[0]);
+    }
+
+    private static BayesianNetwork buildBimodalNetwork(long[] shape) {
+        DoubleVertex A = new GaussianVertex(shape, 0.0, 3.0).setLabel(A_LABEL);
+        A.setValue(DoubleTensor.create(0.5, shape));
+        DoubleVertex C = new GaussianVertex(A.multiply(A), 1.0);
+        C.observe(DoubleTensor.create(4.0, shape));
+        return new BayesianNetwork(A.getConnectedGraph());
+    }
+
+    @Test
+    public void findsBothModesWithTheGradientOptimizer() {
+        List<MultiStartOptimizer.Optimum> optima = MultiStartOptimizer.builder()
+            .startCount(10)
+            .random(new KeanuRandom(1))
+            .build()
+            .maxAPosteriori(MultiStartOptimizerTest::buildBimodalNetwork);
+
+        assertFindsBothModes(optima);
+    }
+
+    @Test
+    public void findsBothModesWithTheNonGradientOptimizer() {
+        List<MultiStartOptimizer.Optimum> optima = MultiStartOptimizer.builder()
+            .startCount(10)
+            .random(new KeanuRandom(1))
+            .optimizer(KeanuOptimizer.NonGradient::of)
+            .build()
+            .maxLikelihood(() -> buildBimodalNetwork(new long[]{2}));
+
+        assertFindsBothModes(optima);
+    }
+
+    @Test
+    public void ranksTheOptimaFromFittestToLeastFit() {
+        List<MultiStartOptimizer.Optimum> optima = MultiStartOptimizer.builder()
+            .startCount(6)
+            .threadCount(2)
+            .build()
+            .maxAPosteriori(MultiStartOptimizerTest::buildBimodalNetwork);
+
+        assertEquals(6, optima.size());
+        assertNotSame(optima.get(0).getNetwork(), optima.get(1).getNetwork());
+        for (int i = 1; i < optima.size(); i++) {
+            assertTrue(optima.get(i - 1).getFitness() >= optima.get(i).getFitness());
+        }
+        for (MultiStartOptimizer.Optimum optimum : optima) {
+            assertEquals(optimum.getNetwork().getLogOfMasterP(), optimum.getFitness(), 1e-6);
+        }
+    }
+
+    @Test
+    public void isReproducibleForAGivenRootSeed() {
+        List<Double> first = modesOfA(MultiStartOptimizer.withDefaultConfig(new KeanuRandom(42))
+            .maxAPosteriori(MultiStartOptimizerTest::buildBimodalNetwork));
+        List<Double> second = modesOfA(MultiStartOptimizer.withDefaultConfig(new KeanuRandom(42))
+            .maxAPosteriori(MultiStartOptimizerTest::buildBimodalNetwork));
+
+        assertEquals(first, second);
+    }
+
+    private static void assertFindsBothModes(List<MultiStartOptimizer.Optimum> optima) {
+        List<Double> modes = modesOfA(optima);
+
+        assertTrue(modes.stream().anyMatch(a -> Math.abs(a + 2) < 0.05));
+        assertTrue(modes.stream().anyMatch(a -> Math.abs(a - 2) < 0.05));
+    }
+
+    private static List<Double> modesOfA(List<MultiStartOptimizer.Optimum> optima) {
+        return optima.stream()
+            .map(optimum -> {
+                Vertex<DoubleTensor> A = optimum.getNetwork().getVertexByLabel(A_LABEL);
+                return optimum.getState().get(A).getValue(0);
+            })
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,120 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.algorithms.variational.optimizer.KeanuOptimizer;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdamOptimizerTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    @Test
+    public void findsTheMaxAPosteriori() {
+        GaussianVertex A = new GaussianVertex(0, 1);
+        GaussianVertex B = new GaussianVertex(A, 1);
+        B.observe(2.0);
+
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+        AdamOptimizer optimizer = KeanuOptimizer.Gradient.adamBuilderFor(network)
+            .learningRate(0.05)
+            .build();
+        double fitness = optimizer.maxAPosteriori();
+
+        assertEquals(1.0, A.getValue().scalar(), 1e-3);
+        assertEquals(network.getLogOfMasterP(), fitness, 1e-10);
+    }
+
+    @Test
+    public void canOptimizeOnMiniBatches() {
+        int dataSize = 1000;
+        int batchSize = 100;
+
+        KeanuRandom random = new KeanuRandom(1);
+        DoubleTensor x = random.nextGaussian(new long[]{dataSize});
+        DoubleTensor y = x.times(2.0).plusInPlace(1.0).plusInPlace(random.nextGaussian(new long[]{dataSize}).timesInPlace(0.1));
+
+        DoubleVertex slope = new GaussianVertex(0, 10);
+        DoubleVertex intercept = new GaussianVertex(0, 10);
+        ConstantDoubleVertex xBatch = new ConstantDoubleVertex(DoubleTensor.zeros(batchSize));
+        DoubleVertex yBatch = new GaussianVertex(xBatch.times(slope).plus(intercept), 0.1);
+        yBatch.observe(DoubleTensor.zeros(batchSize));
+
+        AtomicInteger batchesSelected = new AtomicInteger(0);
+        MiniBatchSelector selector = new MiniBatchSelector() {
+            @Override
+            public void selectBatch(int step) {
+                int start = (step % (dataSize / batchSize)) * batchSize;
+                xBatch.setAndCascade(DoubleTensor.create(Arrays.copyOfRange(x.asFlatDoubleArray(), start, start + batchSize)));
+                yBatch.observe(DoubleTensor.create(Arrays.copyOfRange(y.asFlatDoubleArray(), start, start + batchSize)));
+                batchesSelected.incrementAndGet();
+            }
+
+            @Override
+            public double getLikelihoodScale() {
+                return dataSize / (double) batchSize;
+            }
+        };
+
+        AdamOptimizer optimizer = KeanuOptimizer.Gradient.adamBuilderFor(new BayesianNetwork(slope.getConnectedGraph()))
+            .learningRate(0.05)
+            .maxIterations(2000)
+            .miniBatchSelector(selector)
+            .build();
+        optimizer.maxAPosteriori();
+
+        assertEquals(2001, batchesSelected.get());
+        assertEquals(2.0, slope.getValue().scalar(), 0.05);
+        assertEquals(1.0, intercept.getValue().scalar(), 0.05);
+    }
+
+    @Test
+    public void selectsTheBatchAfterTheLastStepTakenWhenItConvergesEarly() {
+        GaussianVertex A = new GaussianVertex(0, 1);
+        GaussianVertex B = new GaussianVertex(A, 1);
+        B.observe(2.0);
+
+        List<Integer> selectedSteps = new ArrayList<>();
+        MiniBatchSelector selector = new MiniBatchSelector() {
+            @Override
+            public void selectBatch(int step) {
+                selectedSteps.add(step);
+            }
+
+            @Override
+            public double getLikelihoodScale() {
+                return 1.0;
+            }
+        };
+
+        int maxIterations = 10000;
+        AdamOptimizer optimizer = KeanuOptimizer.Gradient.adamBuilderFor(new BayesianNetwork(A.getConnectedGraph()))
+            .learningRate(0.05)
+            .maxIterations(maxIterations)
+            .convergenceThreshold(1e-3)
+            .miniBatchSelector(selector)
+            .build();
+        optimizer.maxAPosteriori();
+
+        int lastStep = selectedSteps.get(selectedSteps.size() - 1);
+        assertTrue(lastStep < maxIterations);
+        for (int i = 0; i < selectedSteps.size(); i++) {
+            assertEquals(i, selectedSteps.get(i).intValue());
+        }
+    }
+}
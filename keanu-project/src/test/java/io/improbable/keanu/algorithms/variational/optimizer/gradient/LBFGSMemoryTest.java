@@ -0,0 +1,82 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LBFGSMemoryTest {
+
+    private static final double[] GRADIENT = new double[]{0.3, -1.2};
+
+    private static LBFGSMemory fullMemory() {
+        LBFGSMemory memory = new LBFGSMemory(2, 2);
+        assertTrue(memory.remember(new double[]{0, 0}, new double[]{1, 1}, new double[]{1, 0}, new double[]{-1, 0.5}));
+        assertTrue(memory.remember(new double[]{1, 0}, new double[]{-1, 0.5}, new double[]{1, 2}, new double[]{-0.5, -2}));
+        assertEquals(2, memory.size());
+        return memory;
+    }
+
+    @Test
+    public void remembersStepsWithPositiveCurvature() {
+        LBFGSMemory memory = new LBFGSMemory(2, 2);
+
+        assertTrue(memory.remember(new double[]{0, 0}, new double[]{1, 1}, new double[]{1, 0}, new double[]{-1, 0.5}));
+
+        assertEquals(1, memory.size());
+    }
+
+    @Test
+    public void aStepWithNonPositiveCurvatureAfterTheMemoryHasFilledLeavesItUnchanged() {
+        LBFGSMemory memory = fullMemory();
+        double[] directionBefore = new double[2];
+        memory.ascentDirection(GRADIENT, directionBefore);
+
+        //the gradient increases along the step, so the curvature is negative
+        assertFalse(memory.remember(new double[]{1, 2}, new double[]{-0.5, -2}, new double[]{2, 2}, new double[]{1, -2}));
+        //the gradient doesn't change along the step, so the curvature is zero
+        assertFalse(memory.remember(new double[]{1, 2}, new double[]{-0.5, -2}, new double[]{1, 3}, new double[]{-0.5, -2}));
+
+        double[] directionAfter = new double[2];
+        memory.ascentDirection(GRADIENT, directionAfter);
+
+        double[] directionOfFreshMemory = new double[2];
+        fullMemory().ascentDirection(GRADIENT, directionOfFreshMemory);
+
+        assertEquals(2, memory.size());
+        assertArrayEquals(directionBefore, directionAfter, 0.0);
+        assertArrayEquals(directionOfFreshMemory, directionAfter, 0.0);
+    }
+
+    @Test
+    public void forgetsTheOldestStepOnceFull() {
+        LBFGSMemory memory = fullMemory();
+        assertTrue(memory.remember(new double[]{1, 2}, new double[]{-0.5, -2}, new double[]{2, 2}, new double[]{-1, -2}));
+
+        LBFGSMemory lastTwoSteps = new LBFGSMemory(2, 2);
+        lastTwoSteps.remember(new double[]{1, 0}, new double[]{-1, 0.5}, new double[]{1, 2}, new double[]{-0.5, -2});
+        lastTwoSteps.remember(new double[]{1, 2}, new double[]{-0.5, -2}, new double[]{2, 2}, new double[]{-1, -2});
+
+        double[] direction = new double[2];
+        memory.ascentDirection(GRADIENT, direction);
+        double[] expected = new double[2];
+        lastTwoSteps.ascentDirection(GRADIENT, expected);
+
+        assertEquals(2, memory.size());
+        assertArrayEquals(expected, direction, 0.0);
+    }
+
+    @Test
+    public void isTheUnitGradientWhenEmpty() {
+        LBFGSMemory memory = fullMemory();
+        memory.clear();
+
+        double[] direction = new double[2];
+        memory.ascentDirection(new double[]{3, 4}, direction);
+
+        assertEquals(0, memory.size());
+        assertArrayEquals(new double[]{0.6, 0.8}, direction, 1e-15);
+    }
+}
@@ -0,0 +1,84 @@
+package io.improbable.keanu.algorithms.variational.optimizer.gradient;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.algorithms.variational.optimizer.KeanuOptimizer;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.ConstantDoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LBFGSOptimizerTest {
+
+    @Rule
+    public DeterministicRule rule = new DeterministicRule();
+
+    private static final double[] TRUE_WEIGHTS = new double[]{2.0, -1.0, 0.5};
+
+    private static DoubleVertex buildRegression() {
+        KeanuRandom random = new KeanuRandom(1);
+        DoubleTensor x = random.nextGaussian(new long[]{200, 3});
+        DoubleTensor y = x.matrixMultiply(DoubleTensor.create(TRUE_WEIGHTS, 3, 1))
+            .plusInPlace(random.nextGaussian(new long[]{200, 1}).timesInPlace(0.1));
+
+        DoubleVertex weights = new GaussianVertex(new long[]{3, 1}, 0.0, 10.0);
+        weights.setValue(DoubleTensor.zeros(3, 1));
+        DoubleVertex observed = new GaussianVertex(new ConstantDoubleVertex(x).matrixMultiply(weights), 0.1);
+        observed.observe(y);
+        return weights;
+    }
+
+    @Test
+    public void findsTheSameMaxAPosterioriAsConjugateGradientInFewerEvaluations() {
+        DoubleVertex cgWeights = buildRegression();
+        GradientOptimizer conjugateGradient = KeanuOptimizer.Gradient.ofConnectedGraph(cgWeights);
+        AtomicInteger cgEvaluations = new AtomicInteger(0);
+        conjugateGradient.addFitnessCalculationHandler((point, fitness) -> cgEvaluations.incrementAndGet());
+        double cgFitness = conjugateGradient.maxAPosteriori();
+
+        DoubleVertex lbfgsWeights = buildRegression();
+        LBFGSOptimizer lbfgs = KeanuOptimizer.Gradient.lbfgsBuilderFor(new BayesianNetwork(lbfgsWeights.getConnectedGraph())).build();
+        AtomicInteger lbfgsEvaluations = new AtomicInteger(0);
+        lbfgs.addFitnessCalculationHandler((point, fitness) -> lbfgsEvaluations.incrementAndGet());
+        double lbfgsFitness = lbfgs.maxAPosteriori();
+
+        assertEquals(cgFitness, lbfgsFitness, 1e-6);
+        assertArrayEquals(cgWeights.getValue().asFlatDoubleArray(), lbfgsWeights.getValue().asFlatDoubleArray(), 1e-4);
+        assertArrayEquals(TRUE_WEIGHTS, lbfgsWeights.getValue().asFlatDoubleArray(), 0.05);
+        assertTrue(lbfgsEvaluations.get() < cgEvaluations.get());
+    }
+
+    @Test
+    public void findsTheMaxLikelihood() {
+        GaussianVertex A = new GaussianVertex(0, 1);
+        GaussianVertex B = new GaussianVertex(A, 1);
+        B.observe(3.0);
+
+        LBFGSOptimizer optimizer = KeanuOptimizer.Gradient.lbfgsBuilderFor(new BayesianNetwork(A.getConnectedGraph())).build();
+        optimizer.maxLikelihood();
+
+        assertEquals(3.0, A.getValue().scalar(), 1e-5);
+    }
+
+    @Test
+    public void leavesTheNetworkAtTheReturnedOptimum() {
+        GaussianVertex A = new GaussianVertex(0, 1);
+        GaussianVertex B = new GaussianVertex(A.times(A), 1);
+        B.observe(4.0);
+        A.setValue(0.5);
+
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+        double fitness = KeanuOptimizer.Gradient.lbfgsBuilderFor(network).maxEvaluations(5).build().maxAPosteriori();
+
+        assertEquals(network.getLogOfMasterP(), fitness, 1e-10);
+    }
+}
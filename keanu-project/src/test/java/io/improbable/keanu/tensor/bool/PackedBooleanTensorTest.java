@@ -0,0 +1,123 @@
+package io.improbable.keanu.tensor.bool;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PackedBooleanTensorTest {
+
+    private static final int LENGTH = 150;
+
+    private boolean[] everyThird;
+    private boolean[] everyFifth;
+
+    @Before
+    public void setup() {
+        everyThird = new boolean[LENGTH];
+        everyFifth = new boolean[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            everyThird[i] = i % 3 == 0;
+            everyFifth[i] = i % 5 == 0;
+        }
+    }
+
+    @Test
+    public void isCreatedByBooleanTensorCreate() {
+        assertTrue(BooleanTensor.create(everyThird, LENGTH) instanceof PackedBooleanTensor);
+        assertTrue(BooleanTensor.trues(2, 2) instanceof PackedBooleanTensor);
+        assertTrue(DoubleTensor.create(new double[]{1, 2, 3}).greaterThan(1.5) instanceof PackedBooleanTensor);
+    }
+
+    @Test
+    public void logicalOperationsMatchTheSimpleTensorAcrossWords() {
+        BooleanTensor packedThird = PackedBooleanTensor.create(everyThird, new long[]{LENGTH});
+        BooleanTensor packedFifth = PackedBooleanTensor.create(everyFifth, new long[]{LENGTH});
+        BooleanTensor simpleThird = SimpleBooleanTensor.create(everyThird, new long[]{LENGTH});
+        BooleanTensor simpleFifth = SimpleBooleanTensor.create(everyFifth, new long[]{LENGTH});
+
+        assertArrayEquals(simpleThird.and(simpleFifth).asFlatArray(), packedThird.and(packedFifth).asFlatArray());
+        assertArrayEquals(simpleThird.or(simpleFifth).asFlatArray(), packedThird.or(packedFifth).asFlatArray());
+        assertArrayEquals(simpleThird.xor(simpleFifth).asFlatArray(), packedThird.xor(packedFifth).asFlatArray());
+        assertArrayEquals(simpleThird.not().asFlatArray(), packedThird.not().asFlatArray());
+        assertArrayEquals(simpleThird.and(simpleFifth).asFlatArray(), packedThird.and(simpleFifth).asFlatArray());
+    }
+
+    @Test
+    public void countsTheTrueElements() {
+        BooleanTensor packedThird = PackedBooleanTensor.create(everyThird, new long[]{LENGTH});
+
+        assertEquals(50, packedThird.countTrue());
+        assertEquals(100, packedThird.not().countTrue());
+        assertEquals(LENGTH, BooleanTensor.trues(LENGTH).countTrue());
+        assertEquals(0, BooleanTensor.falses(LENGTH).countTrue());
+    }
+
+    @Test
+    public void notNeverSetsBitsPastTheEnd() {
+        BooleanTensor falses = BooleanTensor.falses(LENGTH);
+
+        assertTrue(falses.not().allTrue());
+        assertTrue(falses.not().not().allFalse());
+        assertEquals(BooleanTensor.trues(LENGTH), falses.not());
+    }
+
+    @Test
+    public void canCombineWithALengthOneTensor() {
+        BooleanTensor packedThird = PackedBooleanTensor.create(everyThird, new long[]{LENGTH});
+
+        assertEquals(packedThird, packedThird.and(true));
+        assertTrue(packedThird.and(false).allFalse());
+        assertTrue(packedThird.or(true).allTrue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotCombineWithATensorOfADifferentLength() {
+        BooleanTensor packedThird = PackedBooleanTensor.create(everyThird, new long[]{LENGTH});
+
+        packedThird.andInPlace(BooleanTensor.trues(LENGTH / 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotCombineWithATensorOfADifferentShape() {
+        BooleanTensor matrix = PackedBooleanTensor.create(new boolean[]{true, false, true, false, false, true}, new long[]{2, 3});
+
+        matrix.orInPlace(BooleanTensor.trues(3, 2));
+    }
+
+    @Test
+    public void canBeCreatedFromAMask() {
+        BooleanTensor fromMask = PackedBooleanTensor.fromMask(new double[]{0.0, 1.0, 1.0, 0.0, 0.0, 0.0}, new long[]{2, 3});
+
+        assertArrayEquals(new long[]{2, 3}, fromMask.getShape());
+        assertArrayEquals(new Boolean[]{false, true, true, false, false, false}, fromMask.asFlatArray());
+        assertArrayEquals(new double[]{0.0, 1.0, 1.0, 0.0, 0.0, 0.0}, fromMask.toDoubleMask().asFlatDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void canSliceAndSetValues() {
+        BooleanTensor matrix = PackedBooleanTensor.create(new boolean[]{true, false, true, false, false, true}, new long[]{2, 3});
+
+        assertArrayEquals(new Boolean[]{false, false, true}, matrix.slice(0, 1).asFlatArray());
+        assertArrayEquals(new Boolean[]{true, true}, matrix.slice(1, 2).asFlatArray());
+
+        matrix.setValue(true, 1, 0);
+        assertTrue(matrix.getValue(1, 0));
+        assertFalse(matrix.getValue(0, 1));
+    }
+
+    @Test
+    public void isEqualToASimpleTensorWithTheSameValues() {
+        BooleanTensor packed = PackedBooleanTensor.create(everyThird, new long[]{LENGTH});
+        BooleanTensor simple = SimpleBooleanTensor.create(everyThird, new long[]{LENGTH});
+
+        assertEquals(simple, packed);
+        assertEquals(packed, simple);
+        assertEquals(simple.hashCode(), packed.hashCode());
+        assertFalse(packed.equals(packed.not()));
+    }
+}
@@ -0,0 +1,219 @@
+package io.improbable.keanu.tensor.dbl;
+
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class JvmDoubleTensorTest {
+
+    private static final double[] MATRIX = new double[]{1.5, -2.5, 3.0, 0.5, -0.5, 2.0};
+
+    private final int maxLength = JvmDoubleTensor.getMaxLength();
+
+    @After
+    public void resetMaxLength() {
+        JvmDoubleTensor.setMaxLength(maxLength);
+    }
+
+    @Test
+    public void tensorsAreCreatedWithNd4jByDefault() {
+        assumeTrue(System.getProperty("io.improbable.keanu.tensor.dbl.JvmDoubleTensor.maxLength") == null);
+
+        assertEquals(0, JvmDoubleTensor.getMaxLength());
+        assertTrue(DoubleTensor.create(new double[]{1, 2, 3, 4}, 2, 2) instanceof Nd4jDoubleTensor);
+        assertTrue(DoubleTensor.zeros(4) instanceof Nd4jDoubleTensor);
+    }
+
+    @Test
+    public void smallTensorsAreCreatedOnTheJvm() {
+        JvmDoubleTensor.setMaxLength(4);
+
+        assertTrue(DoubleTensor.create(new double[]{1, 2, 3, 4}, 2, 2) instanceof JvmDoubleTensor);
+        assertTrue(DoubleTensor.zeros(4) instanceof JvmDoubleTensor);
+        assertTrue(DoubleTensor.eye(2) instanceof JvmDoubleTensor);
+        assertTrue(DoubleTensor.scalar(1.0) instanceof ScalarDoubleTensor);
+        assertTrue(DoubleTensor.ones(5) instanceof Nd4jDoubleTensor);
+    }
+
+    @Test
+    public void matchesNd4jForUnaryOperations() {
+        assertMatchesNd4j(DoubleTensor::exp);
+        assertMatchesNd4j(DoubleTensor::abs);
+        assertMatchesNd4j(DoubleTensor::sin);
+        assertMatchesNd4j(DoubleTensor::sigmoid);
+        assertMatchesNd4j(DoubleTensor::round);
+        assertMatchesNd4j(DoubleTensor::unaryMinus);
+        assertMatchesNd4j(t -> t.abs().log());
+        assertMatchesNd4j(t -> t.abs().logGamma());
+        assertMatchesNd4j(t -> t.pow(2.0));
+        assertMatchesNd4j(t -> t.reciprocal().plus(1.0).times(2.0));
+        assertMatchesNd4j(DoubleTensor::standardize);
+    }
+
+    @Test
+    public void matchesNd4jForShapeOperations() {
+        assertMatchesNd4j(DoubleTensor::transpose);
+        assertMatchesNd4j(t -> t.reshape(3, 2));
+        assertMatchesNd4j(t -> t.reshape(-1, 2));
+        assertMatchesNd4j(t -> t.reshape(1, 2, 3).permute(2, 0, 1));
+        assertMatchesNd4j(t -> t.slice(0, 1));
+        assertMatchesNd4j(t -> t.slice(1, 2));
+        assertMatchesNd4j(t -> t.sum(0));
+        assertMatchesNd4j(t -> t.sum(1));
+        assertMatchesNd4j(t -> t.sum(0, 1));
+        assertMatchesNd4j(t -> t.reshape(6).diag());
+        assertMatchesNd4j(t -> t.reshape(6).diag().diag());
+    }
+
+    @Test
+    public void matchesNd4jForBroadcastOperations() {
+        DoubleTensor row = DoubleTensor.create(new double[]{1, 2, 3}, 1, 3);
+        DoubleTensor column = DoubleTensor.create(new double[]{4, 5}, 2, 1);
+        DoubleTensor same = DoubleTensor.create(new double[]{6, 5, 4, 3, 2, 1}, 2, 3);
+        DoubleTensor lengthOne = DoubleTensor.create(new double[]{2}, 1, 1, 1);
+
+        for (DoubleTensor other : new DoubleTensor[]{row, column, same, lengthOne}) {
+            assertMatchesNd4j(t -> t.plus(other));
+            assertMatchesNd4j(t -> t.minus(other));
+            assertMatchesNd4j(t -> t.times(other));
+            assertMatchesNd4j(t -> t.div(other));
+        }
+
+        assertMatchesNd4j(t -> t.getGreaterThanMask(same));
+        assertMatchesNd4j(t -> t.clamp(DoubleTensor.scalar(-1.0), DoubleTensor.scalar(1.0)));
+    }
+
+    @Test
+    public void canBroadcastInPlaceToALargerShape() {
+        DoubleTensor row = JvmDoubleTensor.create(new double[]{1, 2, 3}, new long[]{3});
+        DoubleTensor column = JvmDoubleTensor.create(new double[]{10, 20}, new long[]{2, 1});
+
+        DoubleTensor result = row.plusInPlace(column);
+
+        assertArrayEquals(new long[]{2, 3}, result.getShape());
+        assertArrayEquals(new double[]{11, 12, 13, 21, 22, 23}, result.asFlatDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void matchesNd4jForLinearAlgebra() {
+        DoubleTensor square = DoubleTensor.create(new double[]{4, 2, 0.5, 2, 3, 1, 0.5, 1, 5}, 3, 3);
+        DoubleTensor vector = DoubleTensor.create(new double[]{1, -1, 2}, 3);
+
+        assertMatchesNd4j(t -> t.matrixMultiply(square));
+        assertMatchesNd4j(t -> t.matrixMultiply(vector));
+        assertMatchesNd4j(t -> t.matrixMultiply(t.transpose()).matrixInverse());
+        assertMatchesNd4j(t -> t.matrixMultiply(t.transpose()).choleskyDecomposition());
+    }
+
+    @Test
+    public void matchesNd4jForReductions() {
+        DoubleTensor jvm = JvmDoubleTensor.create(MATRIX, new long[]{2, 3});
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(MATRIX, new long[]{2, 3});
+
+        assertEquals(nd4j.sum(), jvm.sum(), 1e-10);
+        assertEquals(nd4j.product(), jvm.product(), 1e-10);
+        assertEquals(nd4j.average(), jvm.average(), 1e-10);
+        assertEquals(nd4j.standardDeviation(), jvm.standardDeviation(), 1e-10);
+        assertEquals(nd4j.max(), jvm.max(), 0.0);
+        assertEquals(nd4j.min(), jvm.min(), 0.0);
+        assertEquals(nd4j.argMax(), jvm.argMax());
+        assertEquals(nd4j.matrixMultiply(nd4j.transpose()).determinant(), jvm.matrixMultiply(jvm.transpose()).determinant(), 1e-10);
+
+        assertEquals(nd4j.argMax(0), jvm.argMax(0));
+        assertEquals(nd4j.argMax(1), jvm.argMax(1));
+    }
+
+    @Test
+    public void canSplitLikeNd4j() {
+        DoubleTensor jvm = JvmDoubleTensor.create(MATRIX, new long[]{2, 3});
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(MATRIX, new long[]{2, 3});
+
+        List<DoubleTensor> jvmSplits = jvm.split(1, 1, 3);
+        List<DoubleTensor> nd4jSplits = nd4j.split(1, 1, 3);
+
+        assertEquals(nd4jSplits.size(), jvmSplits.size());
+        for (int i = 0; i < jvmSplits.size(); i++) {
+            assertArrayEquals(nd4jSplits.get(i).getShape(), jvmSplits.get(i).getShape());
+            assertArrayEquals(nd4jSplits.get(i).asFlatDoubleArray(), jvmSplits.get(i).asFlatDoubleArray(), 0.0);
+        }
+    }
+
+    @Test
+    public void canCompareElementwise() {
+        DoubleTensor jvm = JvmDoubleTensor.create(MATRIX, new long[]{2, 3});
+
+        BooleanTensor greaterThanZero = jvm.greaterThan(0.0);
+        IntegerTensor asIntegers = jvm.toInteger();
+
+        assertArrayEquals(new Boolean[]{true, false, true, true, false, true}, greaterThanZero.asFlatArray());
+        assertArrayEquals(new int[]{1, -2, 3, 0, 0, 2}, asIntegers.asFlatIntegerArray());
+        assertTrue(jvm.elementwiseEquals(jvm.duplicate()).allTrue());
+    }
+
+    @Test
+    public void isEqualToAnNd4jTensorWithTheSameValues() {
+        DoubleTensor jvm = JvmDoubleTensor.create(MATRIX, new long[]{2, 3});
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(MATRIX, new long[]{2, 3});
+
+        assertEquals(nd4j, jvm);
+        assertEquals(jvm, nd4j);
+        assertFalse(jvm.equals(nd4j.plus(1.0)));
+        assertFalse(jvm.equals(nd4j.reshape(3, 2)));
+    }
+
+    @Test
+    public void hasTheSameHashCodeAsAnEqualNd4jTensor() {
+        DoubleTensor jvmMatrix = JvmDoubleTensor.create(MATRIX, new long[]{2, 3});
+        DoubleTensor nd4jMatrix = Nd4jDoubleTensor.create(MATRIX, new long[]{2, 3});
+        DoubleTensor jvmRow = JvmDoubleTensor.create(MATRIX, new long[]{1, 6});
+        DoubleTensor nd4jColumn = Nd4jDoubleTensor.create(MATRIX, new long[]{6, 1});
+
+        assertEquals(jvmMatrix, nd4jMatrix);
+        assertEquals(nd4jMatrix.hashCode(), jvmMatrix.hashCode());
+        assertEquals(jvmRow, nd4jColumn);
+        assertEquals(nd4jColumn.hashCode(), jvmRow.hashCode());
+
+        Set<DoubleTensor> tensors = new HashSet<>(Arrays.asList(nd4jMatrix, nd4jColumn));
+        assertTrue(tensors.contains(jvmMatrix));
+        assertTrue(tensors.contains(jvmRow));
+    }
+
+    @Test
+    public void hashCodeDependsOnTheValues() {
+        DoubleTensor jvmMatrix = JvmDoubleTensor.create(MATRIX, new long[]{2, 3});
+        DoubleTensor nd4jMatrix = Nd4jDoubleTensor.create(MATRIX, new long[]{2, 3});
+
+        assertNotEquals(jvmMatrix.hashCode(), jvmMatrix.plus(1.0).hashCode());
+        assertNotEquals(nd4jMatrix.hashCode(), nd4jMatrix.plus(1.0).hashCode());
+    }
+
+    @Test
+    public void negativeZeroAndNaNHashTheSameAcrossBackends() {
+        DoubleTensor jvm = JvmDoubleTensor.create(new double[]{-0.0, Double.NaN}, new long[]{2});
+        DoubleTensor nd4j = Nd4jDoubleTensor.create(new double[]{0.0, Double.longBitsToDouble(0x7ff8000000000001L)}, new long[]{2});
+
+        assertEquals(nd4j.hashCode(), jvm.hashCode());
+    }
+
+    private static void assertMatchesNd4j(Function<DoubleTensor, DoubleTensor> operation) {
+        DoubleTensor expected = operation.apply(Nd4jDoubleTensor.create(MATRIX, new long[]{2, 3}));
+        DoubleTensor actual = operation.apply(JvmDoubleTensor.create(MATRIX, new long[]{2, 3}));
+
+        assertArrayEquals(expected.getShape(), actual.getShape());
+        assertArrayEquals(expected.asFlatDoubleArray(), actual.asFlatDoubleArray(), 1e-10);
+    }
+}
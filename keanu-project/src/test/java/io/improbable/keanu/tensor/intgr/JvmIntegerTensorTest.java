@@ -0,0 +1,199 @@
+package io.improbable.keanu.tensor.intgr;
+
+import io.improbable.keanu.tensor.bool.BooleanTensor;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JvmIntegerTensorTest {
+
+    private static final int[] MATRIX = new int[]{3, -5, 6, 1, -1, 4};
+
+    private final int maxLength = JvmIntegerTensor.getMaxLength();
+
+    @After
+    public void resetMaxLength() {
+        JvmIntegerTensor.setMaxLength(maxLength);
+    }
+
+    @Test
+    public void nonScalarTensorsAreCreatedOnTheJvmByDefault() {
+        assertTrue(IntegerTensor.create(new int[]{1, 2, 3, 4}, 2, 2) instanceof JvmIntegerTensor);
+        assertTrue(IntegerTensor.zeros(100000) instanceof JvmIntegerTensor);
+        assertTrue(IntegerTensor.eye(2) instanceof JvmIntegerTensor);
+        assertTrue(IntegerTensor.scalar(1) instanceof ScalarIntegerTensor);
+    }
+
+    @Test
+    public void longerTensorsThanTheMaxLengthAreCreatedWithNd4j() {
+        JvmIntegerTensor.setMaxLength(4);
+
+        assertTrue(IntegerTensor.ones(4) instanceof JvmIntegerTensor);
+        assertTrue(IntegerTensor.ones(5) instanceof Nd4jIntegerTensor);
+    }
+
+    @Test
+    public void matchesNd4jForUnaryOperations() {
+        assertMatchesNd4j(IntegerTensor::abs);
+        assertMatchesNd4j(IntegerTensor::unaryMinus);
+        assertMatchesNd4j(t -> t.plus(2).times(3).minus(1));
+        assertMatchesNd4j(t -> t.div(2));
+        assertMatchesNd4j(t -> t.pow(2));
+        assertMatchesNd4j(t -> t.apply(x -> x * x));
+    }
+
+    @Test
+    public void matchesNd4jForShapeOperations() {
+        assertMatchesNd4j(IntegerTensor::transpose);
+        assertMatchesNd4j(t -> t.reshape(3, 2));
+        assertMatchesNd4j(t -> t.reshape(-1, 2));
+        assertMatchesNd4j(t -> t.slice(0, 1));
+        assertMatchesNd4j(t -> t.slice(1, 2));
+        assertMatchesNd4j(t -> t.sum(0));
+        assertMatchesNd4j(t -> t.sum(1));
+        assertMatchesNd4j(t -> t.sum(0, 1));
+        assertMatchesNd4j(t -> t.reshape(6).diag());
+        assertMatchesNd4j(t -> t.reshape(6).diag().diag());
+        assertMatchesNd4j(t -> t.argMax(0));
+        assertMatchesNd4j(t -> t.argMax(1));
+    }
+
+    @Test
+    public void matchesNd4jForBroadcastOperations() {
+        IntegerTensor row = IntegerTensor.create(new int[]{1, 2, 3}, 1, 3);
+        IntegerTensor column = IntegerTensor.create(new int[]{4, -5}, 2, 1);
+        IntegerTensor same = IntegerTensor.create(new int[]{6, 5, 4, 3, 2, 1}, 2, 3);
+        IntegerTensor lengthOne = IntegerTensor.create(new int[]{2}, 1, 1, 1);
+
+        for (IntegerTensor other : new IntegerTensor[]{row, column, same, lengthOne}) {
+            assertMatchesNd4j(t -> t.plus(other));
+            assertMatchesNd4j(t -> t.minus(other));
+            assertMatchesNd4j(t -> t.times(other));
+            assertMatchesNd4j(t -> t.div(other));
+        }
+
+        assertMatchesNd4j(t -> t.getGreaterThanMask(same));
+        assertMatchesNd4j(t -> t.getLessThanOrEqualToMask(same));
+        assertMatchesNd4j(t -> t.setWithMask(t.getLessThanMask(same), 0));
+        assertMatchesNd4j(t -> t.minInPlace(same).maxInPlace(IntegerTensor.scalar(2)));
+    }
+
+    @Test
+    public void canBroadcastInPlaceToALargerShape() {
+        IntegerTensor row = JvmIntegerTensor.create(new int[]{1, 2, 3}, new long[]{3});
+        IntegerTensor column = JvmIntegerTensor.create(new int[]{10, 20}, new long[]{2, 1});
+
+        IntegerTensor result = row.plusInPlace(column);
+
+        assertArrayEquals(new long[]{2, 3}, result.getShape());
+        assertArrayEquals(new int[]{11, 12, 13, 21, 22, 23}, result.asFlatIntegerArray());
+    }
+
+    @Test
+    public void matchesNd4jForMatrixMultiply() {
+        IntegerTensor square = IntegerTensor.create(new int[]{4, 2, 0, 2, 3, 1, 0, 1, 5}, 3, 3);
+        IntegerTensor vector = IntegerTensor.create(new int[]{1, -1, 2}, 3);
+
+        assertMatchesNd4j(t -> t.matrixMultiply(square));
+        assertMatchesNd4j(t -> t.matrixMultiply(vector));
+        assertMatchesNd4j(t -> t.tensorMultiply(square, new int[]{1}, new int[]{0}));
+    }
+
+    @Test
+    public void matchesNd4jForReductions() {
+        IntegerTensor jvm = JvmIntegerTensor.create(MATRIX, new long[]{2, 3});
+        IntegerTensor nd4j = Nd4jIntegerTensor.create(MATRIX, new long[]{2, 3});
+
+        assertEquals(nd4j.sum(), jvm.sum());
+        assertEquals(nd4j.max(), jvm.max());
+        assertEquals(nd4j.min(), jvm.min());
+        assertEquals(nd4j.argMax(), jvm.argMax());
+    }
+
+    @Test
+    public void matchesNd4jForComparisons() {
+        IntegerTensor jvm = JvmIntegerTensor.create(MATRIX, new long[]{2, 3});
+        IntegerTensor nd4j = Nd4jIntegerTensor.create(MATRIX, new long[]{2, 3});
+        IntegerTensor same = IntegerTensor.create(new int[]{1, -1, 6, 1, -1, 6}, 2, 3);
+
+        assertEquals(nd4j.greaterThan(0), jvm.greaterThan(0));
+        assertEquals(nd4j.lessThanOrEqual(1), jvm.lessThanOrEqual(1));
+        assertEquals(nd4j.greaterThanOrEqual(same), jvm.greaterThanOrEqual(same));
+        assertEquals(nd4j.lessThan(same), jvm.lessThan(same));
+        assertEquals(nd4j.elementwiseEquals(4), jvm.elementwiseEquals(4));
+    }
+
+    @Test
+    public void canCompareWithBroadcasting() {
+        IntegerTensor jvm = JvmIntegerTensor.create(MATRIX, new long[]{2, 3});
+        IntegerTensor row = IntegerTensor.create(new int[]{1, -1, 6}, 3);
+
+        BooleanTensor equalToRow = jvm.elementwiseEquals(row);
+        BooleanTensor lessThanRow = jvm.lessThan(row);
+
+        assertArrayEquals(new long[]{2, 3}, equalToRow.getShape());
+        assertArrayEquals(new Boolean[]{false, false, true, true, true, false}, equalToRow.asFlatArray());
+        assertArrayEquals(new Boolean[]{false, true, false, false, false, true}, lessThanRow.asFlatArray());
+    }
+
+    @Test
+    public void isEqualToAnNd4jTensorWithTheSameValues() {
+        IntegerTensor jvm = JvmIntegerTensor.create(MATRIX, new long[]{2, 3});
+        IntegerTensor nd4j = Nd4jIntegerTensor.create(MATRIX, new long[]{2, 3});
+
+        assertEquals(nd4j, jvm);
+        assertEquals(jvm, nd4j);
+        assertFalse(jvm.equals(nd4j.plus(1)));
+        assertFalse(jvm.equals(nd4j.reshape(3, 2)));
+    }
+
+    @Test
+    public void hasTheSameHashCodeAsAnEqualNd4jTensor() {
+        IntegerTensor jvmMatrix = JvmIntegerTensor.create(MATRIX, new long[]{2, 3});
+        IntegerTensor nd4jMatrix = Nd4jIntegerTensor.create(MATRIX, new long[]{2, 3});
+        IntegerTensor jvmRow = JvmIntegerTensor.create(MATRIX, new long[]{1, 6});
+        IntegerTensor nd4jColumn = Nd4jIntegerTensor.create(MATRIX, new long[]{6, 1});
+
+        assertEquals(jvmMatrix, nd4jMatrix);
+        assertEquals(nd4jMatrix.hashCode(), jvmMatrix.hashCode());
+        assertEquals(jvmRow, nd4jColumn);
+        assertEquals(nd4jColumn.hashCode(), jvmRow.hashCode());
+
+        Set<IntegerTensor> tensors = new HashSet<>(Arrays.asList(nd4jMatrix, nd4jColumn));
+        assertTrue(tensors.contains(jvmMatrix));
+        assertTrue(tensors.contains(jvmRow));
+    }
+
+    @Test
+    public void canObserveALargeCountDataset() {
+        int[] counts = new int[100000];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = i % 7;
+        }
+
+        PoissonVertex poisson = new PoissonVertex(new long[]{counts.length}, 3.0);
+        poisson.observe(IntegerTensor.create(counts, counts.length));
+
+        IntegerTensor nd4jCounts = Nd4jIntegerTensor.create(counts, new long[]{counts.length});
+        assertTrue(poisson.getValue() instanceof JvmIntegerTensor);
+        assertEquals(poisson.logProb(nd4jCounts), poisson.logProb(poisson.getValue()), 1e-6);
+    }
+
+    private static void assertMatchesNd4j(Function<IntegerTensor, IntegerTensor> operation) {
+        IntegerTensor expected = operation.apply(Nd4jIntegerTensor.create(MATRIX, new long[]{2, 3}));
+        IntegerTensor actual = operation.apply(JvmIntegerTensor.create(MATRIX, new long[]{2, 3}));
+
+        assertArrayEquals(expected.getShape(), actual.getShape());
+        assertArrayEquals(expected.asFlatIntegerArray(), actual.asFlatIntegerArray());
+    }
+}
@@ -0,0 +1,175 @@
+package io.improbable.keanu.util.csv;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.tensor.intgr.IntegerTensor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CsvColumnReaderTest {
+
+    @Test
+    public void readsTheSameValuesAsParseDoubleAcrossManyChunks() throws IOException {
+        Random random = new Random(1);
+        int rowCount = 2000;
+        double[] expectedX = new double[rowCount];
+        int[] expectedCount = new int[rowCount];
+
+        StringBuilder csv = new StringBuilder("id, x ,label,count\n");
+        for (int i = 0; i < rowCount; i++) {
+            String x = randomDouble(random, i);
+            expectedX[i] = Double.parseDouble(x);
+            expectedCount[i] = random.nextInt() / 3;
+            csv.append(i).append(",").append(x).append(", text ,").append(expectedCount[i]).append("\n");
+        }
+
+        CsvColumns columns = ReadCsv.columnsFromFile(write(csv.toString()))
+            .withChunkSize(256)
+            .withThreadCount(3)
+            .doubleColumns("x")
+            .integerColumns("count", "id")
+            .readColumns();
+
+        assertEquals(rowCount, columns.getRowCount());
+        assertArrayEquals(expectedX, columns.getDoubleColumn("x").asFlatDoubleArray(), 0.0);
+        assertArrayEquals(expectedCount, columns.getIntegerColumn("count").asFlatIntegerArray());
+        assertArrayEquals(IntStream.range(0, rowCount).toArray(), columns.getIntegerColumn("id").asFlatIntegerArray());
+    }
+
+    @Test
+    public void canReadWithoutHeaderAndWithOtherLineEndings() throws IOException {
+        Path file = write("1;2.5\r\n\r\n3; -4e-3\r\n  \n5;6");
+
+        CsvColumnReader reader = ReadCsv.columnsFromFile(file)
+            .expectHeader(false)
+            .withDelimiter(';')
+            .withChunkSize(4)
+            .doubleColumns("1")
+            .integerColumns("0");
+
+        CsvColumns columns = reader.readColumns();
+
+        assertTrue(reader.getHeader().isEmpty());
+        assertEquals(DoubleTensor.create(2.5, -4e-3, 6), columns.getDoubleColumn("1"));
+        assertEquals(IntegerTensor.create(1, 3, 5), columns.getIntegerColumn("0"));
+    }
+
+    @Test
+    public void streamsChunksInFileOrder() throws IOException {
+        StringBuilder csv = new StringBuilder("a\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append(i).append("\n");
+        }
+
+        try (Stream<CsvColumns> chunks = ReadCsv.columnsFromFile(write(csv.toString())).withChunkSize(10).integerColumns("a").streamColumns()) {
+            List<CsvColumns> read = chunks.collect(Collectors.toList());
+
+            assertTrue(read.size() > 1);
+            int[] values = read.stream()
+                .flatMapToInt(chunk -> Arrays.stream(chunk.getIntegerColumn("a").asFlatIntegerArray()))
+                .toArray();
+            assertArrayEquals(IntStream.range(0, 100).toArray(), values);
+        }
+    }
+
+    @Test
+    public void readsAFileWithOnlyAHeaderAsEmptyColumns() throws IOException {
+        CsvColumns columns = ReadCsv.columnsFromFile(write("a,b\n")).doubleColumns("b").readColumns();
+
+        assertEquals(0, columns.getRowCount());
+        assertArrayEquals(new long[]{0}, columns.getDoubleColumn("b").getShape());
+    }
+
+    @Test
+    public void canGetHeader() throws IOException {
+        assertEquals(Arrays.asList("a", "b", "c"), ReadCsv.columnsFromFile(write("a, b,c\n1,2,3")).getHeader());
+    }
+
+    @Test
+    public void canReadAFileWithADelimiterThatIsSpecialInARegex() throws IOException {
+        CsvColumnReader reader = ReadCsv.columnsFromFile(write("a|b.c|d\n1|2.5|3\n4|-1|6"))
+            .withDelimiter('|')
+            .doubleColumns("b.c")
+            .integerColumns("d");
+
+        CsvColumns columns = reader.readColumns();
+
+        assertEquals(Arrays.asList("a", "b.c", "d"), reader.getHeader());
+        assertEquals(DoubleTensor.create(2.5, -1), columns.getDoubleColumn("b.c"));
+        assertEquals(IntegerTensor.create(3, 6), columns.getIntegerColumn("d"));
+    }
+
+    @Test
+    public void throwsTheExceptionOfAFailedChunkWhenReadingInParallel() {
+        StringBuilder csv = new StringBuilder("a\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append(i == 77 ? "x" : Integer.toString(i)).append("\n");
+        }
+
+        try {
+            ReadCsv.columnsFromFile(write(csv.toString())).withChunkSize(10).withThreadCount(4).integerColumns("a").readColumns();
+            fail("Expected the unparseable value to throw");
+        } catch (NumberFormatException e) {
+            assertTrue(e.getMessage().contains("\"x\""));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void throwsIfAValueIsNotANumber() throws IOException {
+        ReadCsv.columnsFromFile(write("a,b\n1,2\n3,x")).doubleColumns("b").readColumns();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void throwsIfAnIntegerColumnHasADecimal() throws IOException {
+        ReadCsv.columnsFromFile(write("a\n1.5")).integerColumns("a").readColumns();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsIfARowIsMissingARequestedColumn() throws IOException {
+        ReadCsv.columnsFromFile(write("a,b\n1,2\n3")).doubleColumns("b").readColumns();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsIfAColumnIsNotInTheHeader() throws IOException {
+        ReadCsv.columnsFromFile(write("a,b\n1,2")).doubleColumns("c").readColumns();
+    }
+
+    private static String randomDouble(Random random, int i) {
+        switch (i % 5) {
+            case 0:
+                return Double.toString(random.nextGaussian());
+            case 1:
+                return Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(600) - 300));
+            case 2:
+                return String.format(Locale.ROOT, "%.3f", random.nextGaussian() * 1000);
+            case 3:
+                return (random.nextInt(2000) - 1000) + "e" + (random.nextInt(40) - 20);
+            default:
+                return "0.1234567890123456789";
+        }
+    }
+
+    private static Path write(String csv) throws IOException {
+        Path temp = Files.createTempFile("columns", ".csv");
+        Files.write(temp, csv.getBytes());
+        temp.toFile().deleteOnExit();
+        return temp;
+    }
+}
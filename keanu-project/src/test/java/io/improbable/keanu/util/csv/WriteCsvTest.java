@@ -13,12 +13,18 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class WriteCsvTest {
@@ -223,6 +229,103 @@ public class WriteCsvTest {
         file.delete();
     }
 
+    @Test
+    public void writeManySamplesOfMixedTypesToCsv() throws IOException {
+        int sampleCount = 20000;
+        GaussianVertex gaussian = new GaussianVertex(new long[]{2}, 0, 1);
+        ConstantIntegerVertex integer = new ConstantIntegerVertex(new int[]{0});
+
+        List<DoubleTensor> gaussianSamples = new ArrayList<>();
+        List<IntegerTensor> integerSamples = new ArrayList<>();
+        for (int i = 0; i < sampleCount; i++) {
+            gaussianSamples.add(DoubleTensor.create(i * 0.1, -i / 3.0));
+            integerSamples.add(IntegerTensor.create(new int[]{i}));
+        }
+
+        Map<VertexId, List<?>> networkSamples = new HashMap<>();
+        networkSamples.put(gaussian.getId(), gaussianSamples);
+        networkSamples.put(integer.getId(), integerSamples);
+        NetworkSamples manySamples = new NetworkSamples(networkSamples, new ArrayList<>(), sampleCount);
+
+        File file = WriteCsv.asSamples(manySamples, Arrays.asList(gaussian, integer))
+            .withDefaultHeader()
+            .toFile(File.createTempFile("test", ".csv"));
+
+        CsvReader reader = ReadCsv.fromFile(file).expectHeader(true);
+        List<List<String>> lines = reader.readLines();
+
+        assertEquals(3, reader.getHeader().size());
+        assertEquals(sampleCount, lines.size());
+        for (int i = 0; i < sampleCount; i++) {
+            assertEquals(
+                Arrays.asList(Double.toString(i * 0.1), Double.toString(-i / 3.0), Integer.toString(i)),
+                lines.get(i)
+            );
+        }
+
+        file.delete();
+    }
+
+    @Test
+    public void writeSamplesToNpy() throws IOException {
+        File directory = Files.createTempDirectory("samples").toFile();
+
+        List<File> files = WriteCsv.asSamples(samples, rowTensors).toNpy(directory);
+
+        assertEquals(2, files.size());
+        ByteBuffer npy = ByteBuffer.wrap(Files.readAllBytes(files.get(0).toPath())).order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] magic = new byte[8];
+        npy.get(magic);
+        assertArrayEquals(new byte[]{(byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0}, magic);
+
+        byte[] header = new byte[npy.getShort()];
+        npy.get(header);
+        assertEquals(0, npy.position() % 64);
+        assertEquals(
+            "{'descr': '<f8', 'fortran_order': False, 'shape': (2, 5), }",
+            new String(header, StandardCharsets.US_ASCII).trim()
+        );
+
+        double[] data = new double[10];
+        npy.asDoubleBuffer().get(data);
+        assertArrayEquals(new double[]{1, 2, 3, 4, 5, 2, 4, 6, 8, 10}, data, 0.0);
+
+        for (File file : files) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void writeNoSamplesToNpy() throws IOException {
+        File directory = Files.createTempDirectory("samples").toFile();
+
+        Map<VertexId, List<DoubleTensor>> noSamples = new HashMap<>();
+        for (Vertex<DoubleTensor> vertex : rowTensors) {
+            noSamples.put(vertex.getId(), new ArrayList<>());
+        }
+
+        List<File> files = WriteCsv.asSamples(new NetworkSamples(noSamples, new ArrayList<>(), 0), rowTensors).toNpy(directory);
+
+        assertEquals(2, files.size());
+        ByteBuffer npy = ByteBuffer.wrap(Files.readAllBytes(files.get(1).toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        npy.position(8);
+
+        byte[] header = new byte[npy.getShort()];
+        npy.get(header);
+        assertEquals(
+            "{'descr': '<f8', 'fortran_order': False, 'shape': (0, 4), }",
+            new String(header, StandardCharsets.US_ASCII).trim()
+        );
+        assertEquals(0, npy.remaining());
+
+        for (File file : files) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
     @Test
     public void writeRowOfScalarsToCsvWithCustomHeader() throws IOException {
         String[] customHeader = new String[]{"Temperature", "Humidity"};
@@ -0,0 +1,123 @@
+package io.improbable.keanu.util.io;
+
+import com.google.common.collect.ImmutableList;
+import io.improbable.keanu.algorithms.NetworkSamples;
+import io.improbable.keanu.algorithms.NetworkSamplesSink;
+import io.improbable.keanu.algorithms.mcmc.MetropolisHastings;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.Tensor;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.bool.probabilistic.BernoulliVertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkedBinarySampleSinkTest {
+
+    private GaussianVertex gaussian;
+    private List<Vertex<? extends Tensor>> vertices;
+    private BayesianNetwork network;
+
+    @Before
+    public void setup() {
+        gaussian = new GaussianVertex(new long[]{2}, 0, 1);
+        PoissonVertex poisson = new PoissonVertex(3);
+        BernoulliVertex bernoulli = new BernoulliVertex(0.3);
+
+        GaussianVertex observed = new GaussianVertex(gaussian.plus(poisson.toDouble()), 1);
+        observed.observe(DoubleTensor.create(new double[]{3.0, 4.0}, 2));
+
+        vertices = ImmutableList.of(gaussian, poisson, bernoulli);
+        network = new BayesianNetwork(ImmutableList.of(gaussian, poisson, bernoulli, observed));
+    }
+
+    @Test
+    public void canReadBackTheSamplesThatWereWritten() throws IOException {
+        File file = File.createTempFile("samples", ".bin");
+        NetworkSamplesSink expected = new NetworkSamplesSink(vertices);
+
+        try (ChunkedBinarySampleSink sink = new ChunkedBinarySampleSink(file, vertices, 16)) {
+            MetropolisHastings.withDefaultConfig(new KeanuRandom(1))
+                .generatePosteriorSamples(network, vertices)
+                .generate(100, (sample, logOfMasterP) -> {
+                    sink.accept(sample, logOfMasterP);
+                    expected.accept(sample, logOfMasterP);
+                });
+        }
+
+        NetworkSamplesSink actual = new NetworkSamplesSink(vertices);
+        int sampleCount = ChunkedBinarySampleSink.read(file, vertices, actual);
+
+        assertEquals(100, sampleCount);
+        assertSamplesEqual(expected.getSamples(), actual.getSamples());
+    }
+
+    @Test
+    public void canResumeFromTheLastSampleWritten() throws IOException {
+        File file = File.createTempFile("samples", ".bin");
+
+        try (ChunkedBinarySampleSink sink = new ChunkedBinarySampleSink(file, vertices)) {
+            MetropolisHastings.withDefaultConfig(new KeanuRandom(1))
+                .generatePosteriorSamples(network, vertices)
+                .generate(20, sink);
+        }
+        List<Tensor> lastValues = ImmutableList.of(vertices.get(0).getValue(), vertices.get(1).getValue(), vertices.get(2).getValue());
+
+        gaussian.setValue(DoubleTensor.create(new double[]{100, 100}, 2));
+
+        NetworkSamplesSink read = new NetworkSamplesSink(vertices);
+        ChunkedBinarySampleSink.read(file, vertices, read);
+        NetworkSamples samples = read.getSamples();
+        for (Vertex<? extends Tensor> vertex : vertices) {
+            resumeFrom(vertex, samples);
+        }
+
+        for (int i = 0; i < vertices.size(); i++) {
+            assertEquals(lastValues.get(i), vertices.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void ignoresAPartlyWrittenChunk() throws IOException {
+        File file = File.createTempFile("samples", ".bin");
+
+        try (ChunkedBinarySampleSink sink = new ChunkedBinarySampleSink(file, vertices, 16)) {
+            MetropolisHastings.withDefaultConfig(new KeanuRandom(1))
+                .generatePosteriorSamples(network, vertices)
+                .generate(40, sink);
+        }
+
+        try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+            truncated.setLength(truncated.length() - 1);
+        }
+
+        int sampleCount = ChunkedBinarySampleSink.read(file, vertices, (sample, logOfMasterP) -> {
+        });
+
+        assertEquals(32, sampleCount);
+    }
+
+    private static <T> void resumeFrom(Vertex<T> vertex, NetworkSamples samples) {
+        vertex.setValue(samples.getNetworkState(samples.size() - 1).get(vertex));
+    }
+
+    private void assertSamplesEqual(NetworkSamples expected, NetworkSamples actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getLogOfMasterP(i), actual.getLogOfMasterP(i), 0.0);
+            for (Vertex<? extends Tensor> vertex : vertices) {
+                assertEquals(expected.get(vertex).asList().get(i), actual.get(vertex).asList().get(i));
+            }
+        }
+    }
+}
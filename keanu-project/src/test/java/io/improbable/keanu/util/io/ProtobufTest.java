@@ -125,6 +125,53 @@ public class ProtobufTest {
         assertThat(vertexToShapeCheck.getShape(), is(shape2));
     }
 
+    @Test
+    public void manyVerticesOfTheSameTypeAreLoadedWithTheirOwnValues() throws IOException {
+        int vertexCount = 500;
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < vertexCount; i++) {
+            GaussianVertex gaussian = new GaussianVertex(new long[]{2}, i, 1.0);
+            gaussian.setValue(DoubleTensor.create(i, -i));
+            gaussian.setLabel("Gaussian" + i);
+            vertices.addAll(gaussian.getConnectedGraph());
+        }
+        BayesianNetwork net = new BayesianNetwork(vertices);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ProtobufSaver(net).save(output, true);
+
+        ProtobufLoader loader = new ProtobufLoader();
+        BayesianNetwork readNet = loader.loadNetwork(new ByteArrayInputStream(output.toByteArray()));
+
+        for (int i = 0; i < vertexCount; i++) {
+            GaussianVertex gaussian = (GaussianVertex) readNet.getVertexByLabel(new VertexLabel("Gaussian" + i));
+            assertThat(gaussian.getMu().getValue().scalar(), closeTo(i, 1e-10));
+            assertThat(gaussian.getValue(), equalTo(DoubleTensor.create(i, -i)));
+        }
+    }
+
+    @Test
+    public void loaderReportsHowLongEachStageTook() throws IOException {
+        KeanuSavedBayesNet.Model savedModel = createBasicNetworkProtobufWithValue(
+            GAUSS_LABEL, GAUSS_ID, GAUSS_VALUE);
+        ByteArrayOutputStream writer = new ByteArrayOutputStream();
+        savedModel.writeTo(writer);
+
+        ProtobufLoader loader = new ProtobufLoader();
+        loader.loadNetwork(new ByteArrayInputStream(writer.toByteArray()));
+        ProtobufLoader.LoadTimings timings = loader.getLastLoadTimings();
+
+        assertThat(timings.getTotal(), equalTo(timings.getParsing()
+            .plus(timings.getTensorDecoding())
+            .plus(timings.getVertexCreation())
+            .plus(timings.getNetworkCreation())
+            .plus(timings.getValueLoading())));
+        assertThat(timings.getTotal().isNegative(), is(false));
+
+        loader.loadNetwork(savedModel);
+        assertThat(loader.getLastLoadTimings().getParsing().isZero(), is(true));
+    }
+
     @Test
     public void saveLoadGradientTest() throws IOException {
         BayesianNetwork complexNet = createComplexNet();
@@ -0,0 +1,129 @@
+package io.improbable.keanu.vertices;
+
+import io.improbable.keanu.DeterministicRule;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.KeanuRandom;
+import io.improbable.keanu.vertices.dbl.probabilistic.GammaVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import io.improbable.keanu.vertices.intgr.probabilistic.PoissonVertex;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProbabilityCalculatorTest {
+
+    @Rule
+    public DeterministicRule deterministicRule = new DeterministicRule();
+
+    private final KeanuRandom random = new KeanuRandom(1);
+
+    @Test
+    public void batchedLogProbIsExactlyTheSumOfEachVertexLogProb() {
+        DoubleVertex mu = new GaussianVertex(0, 10);
+        DoubleVertex sigma = new GammaVertex(2, 2);
+        DoubleVertex poissonMu = sigma.times(3);
+
+        List<Vertex> vertices = new ArrayList<>();
+        vertices.add(mu);
+        vertices.add(sigma);
+        vertices.add(poissonMu);
+        for (int i = 0; i < 100; i++) {
+            GaussianVertex gaussian = new GaussianVertex(mu, sigma);
+            gaussian.observe(random.nextGaussian() * 5);
+            vertices.add(gaussian);
+
+            PoissonVertex poisson = new PoissonVertex(poissonMu);
+            poisson.observe(random.nextInt(10));
+            vertices.add(poisson);
+        }
+        vertices.add(new GaussianVertex(new long[]{2, 2}, mu, sigma));
+
+        assertEquals(sumOfEachLogProb(vertices), ProbabilityCalculator.calculateLogProbFor(vertices), 0.0);
+    }
+
+    @Test
+    public void batchedLogProbIsExactlyTheSumOfEachVertexLogProbWhenEachVertexHasItsOwnParents() {
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            DoubleVertex mu = new GaussianVertex(0, 10);
+            DoubleVertex sigma = new GammaVertex(2, 2);
+            GaussianVertex gaussian = new GaussianVertex(mu, sigma);
+            gaussian.observe(random.nextGaussian() * 5);
+            vertices.add(mu);
+            vertices.add(sigma);
+            vertices.add(gaussian);
+
+            DoubleVertex poissonMu = new GammaVertex(2, 2);
+            PoissonVertex poisson = new PoissonVertex(poissonMu);
+            poisson.observe(random.nextInt(10));
+            vertices.add(poissonMu);
+            vertices.add(poisson);
+        }
+
+        assertEquals(sumOfEachLogProb(vertices), ProbabilityCalculator.calculateLogProbFor(vertices), 0.0);
+    }
+
+    @Test
+    public void batchOnlyCalculatesTheSelectedVertices() {
+        DoubleVertex mu = new GaussianVertex(0, 1);
+        List<Probabilistic<?>> vertices = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            GaussianVertex gaussian = new GaussianVertex(mu, 1);
+            gaussian.observe(i);
+            vertices.add(gaussian);
+        }
+
+        double[] logProbs = new double[]{1.0, 1.0, 1.0, 1.0};
+        new ScalarLogProbBatch(vertices).calculate(new boolean[]{false, true, false, true}, logProbs);
+
+        assertEquals(1.0, logProbs[0], 0.0);
+        assertEquals(vertices.get(1).logProbAtValue(), logProbs[1], 0.0);
+        assertEquals(1.0, logProbs[2], 0.0);
+        assertEquals(vertices.get(3).logProbAtValue(), logProbs[3], 0.0);
+    }
+
+    @Test
+    public void doesUseTheVertexLogProbForSubclasses() {
+        GaussianVertex subclassed = new ConstantLogProbGaussianVertex(42.0);
+        subclassed.setValue(0.5);
+
+        GaussianVertex plain = new GaussianVertex(0, 1);
+        plain.setValue(0.5);
+
+        List<Vertex> vertices = new ArrayList<>();
+        vertices.add(subclassed);
+        vertices.add(plain);
+
+        assertEquals(42.0 + plain.logProbAtValue(), ProbabilityCalculator.calculateLogProbFor(vertices), 0.0);
+    }
+
+    private static class ConstantLogProbGaussianVertex extends GaussianVertex implements NonSaveableVertex {
+
+        private final double logProb;
+
+        ConstantLogProbGaussianVertex(double logProb) {
+            super(0, 1);
+            this.logProb = logProb;
+        }
+
+        @Override
+        public double logProb(DoubleTensor value) {
+            return logProb;
+        }
+    }
+
+    private static double sumOfEachLogProb(List<Vertex> vertices) {
+        double sum = 0.0;
+        for (Vertex vertex : vertices) {
+            if (vertex instanceof Probabilistic) {
+                sum += ((Probabilistic) vertex).logProbAtValue();
+            }
+        }
+        return sum;
+    }
+}
@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableList;
 import io.improbable.keanu.DeterministicRule;
 import io.improbable.keanu.algorithms.variational.optimizer.KeanuOptimizer;
 import io.improbable.keanu.algorithms.variational.optimizer.gradient.GradientOptimizer;
+import io.improbable.keanu.distributions.discrete.Bernoulli;
 import io.improbable.keanu.network.BayesianNetwork;
 import io.improbable.keanu.tensor.bool.BooleanTensor;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
@@ -43,6 +44,27 @@ public class BernoulliVertexTest {
         assertEquals(expectedLogPmf, actualLogPmf, 1e-10);
     }
 
+    @Test
+    public void logProbOfManyValuesWithOneProbabilityMatchesTheElementwiseLogProb() {
+        long[] shape = new long[]{1000};
+        BernoulliVertex bernoulliVertex = new BernoulliVertex(shape, 0.3);
+        BooleanTensor values = bernoulliVertex.sample();
+
+        double expected = Bernoulli.withParameters(DoubleTensor.scalar(0.3)).logProb(values).sum();
+
+        assertEquals(expected, bernoulliVertex.logProb(values), 1e-8);
+    }
+
+    @Test
+    public void logProbIsZeroWhenEveryValueIsCertain() {
+        BernoulliVertex alwaysTrue = new BernoulliVertex(new long[]{3}, 1.0);
+        BernoulliVertex alwaysFalse = new BernoulliVertex(new long[]{3}, 0.0);
+
+        assertEquals(0.0, alwaysTrue.logProb(BooleanTensor.trues(3)), 0.0);
+        assertEquals(0.0, alwaysFalse.logProb(BooleanTensor.falses(3)), 0.0);
+        assertEquals(Double.NEGATIVE_INFINITY, alwaysTrue.logProb(BooleanTensor.create(true, false, true)), 0.0);
+    }
+
     @Test
     public void doesCalculateDiffLogProbWithRespectToHyperParamHandCalculated() {
 
@@ -6,6 +6,8 @@ import io.improbable.keanu.distributions.continuous.Gaussian;
 import io.improbable.keanu.distributions.hyperparam.Diffs;
 import io.improbable.keanu.tensor.dbl.DoubleTensor;
 import io.improbable.keanu.vertices.ConstantVertex;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
 import io.improbable.keanu.vertices.VertexId;
 import io.improbable.keanu.vertices.dbl.Differentiator;
 import io.improbable.keanu.vertices.dbl.DoubleVertex;
@@ -13,6 +15,8 @@ import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.SumVert
 import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -162,4 +166,85 @@ public class LogProbGradientCalculatorTest {
         assertEquals(expectedDJLogProbWrtBValue, dJLogProbWrtBValue);
     }
 
+    @Test
+    public void fusedGradientIsTheSumOfTheGradientOfEachProbabilisticVertex() {
+        DoubleVertex A = new GaussianVertex(new long[]{2}, 0, 1);
+        DoubleVertex B = new GaussianVertex(0, 1);
+        A.setValue(DoubleTensor.create(0.5, -0.25));
+        B.setValue(1.5);
+
+        DoubleVertex shared = A.times(B).minus(A.exp().div(B)).sin();
+        List<Vertex> ofVertices = new ArrayList<>();
+        ofVertices.add(A);
+        ofVertices.add(B);
+        for (int i = 0; i < 5; i++) {
+            GaussianVertex observed = new GaussianVertex(shared.times(i), B.times(B).plus(1));
+            observed.observe(DoubleTensor.create(i * 0.3, -i * 0.2));
+            ofVertices.add(observed);
+        }
+        List<Vertex<?>> wrtVertices = ImmutableList.of(A, B);
+
+        DoubleTensor[] fused = new LogProbGradientCalculator(ofVertices, wrtVertices).getJointLogProbGradientWrtLatentsInOrder();
+
+        DoubleTensor[] summed = new DoubleTensor[]{DoubleTensor.zeros(new long[]{2}), DoubleTensor.scalar(0.0)};
+        for (Vertex ofVertex : ofVertices) {
+            DoubleTensor[] gradient = new LogProbGradientCalculator(ImmutableList.of(ofVertex), wrtVertices).getJointLogProbGradientWrtLatentsInOrder();
+            for (int i = 0; i < gradient.length; i++) {
+                if (gradient[i] != null) {
+                    summed[i] = summed[i].plus(gradient[i]);
+                }
+            }
+        }
+
+        DoubleTensor[] compiled = LogProbGradientCalculator.compiled(ofVertices, wrtVertices).getJointLogProbGradientWrtLatentsInOrder();
+
+        for (int i = 0; i < wrtVertices.size(); i++) {
+            assertArrayEquals(summed[i].asFlatDoubleArray(), fused[i].asFlatDoubleArray(), 1e-10);
+            assertArrayEquals(compiled[i].asFlatDoubleArray(), fused[i].asFlatDoubleArray(), 1e-10);
+        }
+    }
+
+    @Test
+    public void fusedGradientMatchesFiniteDifferences() {
+        DoubleVertex A = new GaussianVertex(new long[]{2, 2}, 0, 1);
+        DoubleVertex B = new GaussianVertex(0, 1);
+        A.setValue(DoubleTensor.create(new double[]{0.1, -0.2, 0.3, -0.4}, 2, 2));
+        B.setValue(0.7);
+
+        DoubleVertex shared = A.matrixMultiply(A).plus(B).cos();
+        List<Vertex> ofVertices = new ArrayList<>();
+        ofVertices.add(A);
+        ofVertices.add(B);
+        for (int i = 0; i < 3; i++) {
+            GaussianVertex observed = new GaussianVertex(shared.times(B), B.exp());
+            observed.observe(DoubleTensor.create(new double[]{i, -i, 0.5 * i, 1}, 2, 2));
+            ofVertices.add(observed);
+        }
+        List<DoubleVertex> wrtVertices = ImmutableList.of(A, B);
+
+        DoubleTensor[] gradient = new LogProbGradientCalculator(ofVertices, wrtVertices).getJointLogProbGradientWrtLatentsInOrder();
+
+        double delta = 1e-6;
+        for (int i = 0; i < wrtVertices.size(); i++) {
+            DoubleVertex wrt = wrtVertices.get(i);
+            DoubleTensor value = wrt.getValue();
+
+            for (int j = 0; j < value.getLength(); j++) {
+                double logProbUp = logProbWithElementShifted(ofVertices, wrt, value, j, delta);
+                double logProbDown = logProbWithElementShifted(ofVertices, wrt, value, j, -delta);
+                double expected = (logProbUp - logProbDown) / (2 * delta);
+
+                assertEquals(expected, gradient[i].getFlattenedView().getOrScalar(j), 1e-5);
+            }
+
+            wrt.setAndCascade(value);
+        }
+    }
+
+    private static double logProbWithElementShifted(List<Vertex> ofVertices, DoubleVertex wrt, DoubleTensor value, int index, double shift) {
+        DoubleTensor shifted = value.duplicate();
+        shifted.getFlattenedView().set(index, value.getFlattenedView().getOrScalar(index) + shift);
+        wrt.setAndCascade(shifted);
+        return ProbabilityCalculator.calculateLogProbFor(ofVertices);
+    }
 }
@@ -0,0 +1,219 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.diff;
+
+import com.google.common.collect.ImmutableList;
+import io.improbable.keanu.network.BayesianNetwork;
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.ProbabilityCalculator;
+import io.improbable.keanu.vertices.Vertex;
+import io.improbable.keanu.vertices.dbl.Differentiator;
+import io.improbable.keanu.vertices.dbl.DoubleVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LogProbTapeTest {
+
+    @Test
+    public void matchesFiniteDifferencesWithSharedUpstreamVertices() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        DoubleVertex B = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        B.setValue(-1.5);
+
+        DoubleVertex shared = A.times(B).plus(A.sin());
+        for (int i = 0; i < 5; i++) {
+            DoubleVertex observed = new GaussianVertex(shared.times(i), B.exp());
+            observed.observe(i * 0.3);
+        }
+
+        assertTapeMatchesFiniteDifferences(new BayesianNetwork(A.getConnectedGraph()));
+    }
+
+    @Test
+    public void matchesFiniteDifferencesWithBroadcastLatents() {
+        DoubleVertex mu = new GaussianVertex(0, 1);
+        DoubleVertex sigma = new GaussianVertex(new long[]{2, 3}, 0, 1);
+        mu.setValue(0.25);
+        sigma.setValue(DoubleTensor.create(new double[]{0.1, 0.2, 0.3, 0.4, 0.5, 0.6}, 2, 3));
+
+        DoubleVertex observed = new GaussianVertex(mu.plus(sigma), sigma.exp());
+        observed.observe(DoubleTensor.create(new double[]{1, 2, 3, 4, 5, 6}, 2, 3));
+
+        DoubleVertex C = new GaussianVertex(mu.times(2.0), 1.0);
+        C.setValue(0.8);
+
+        assertTapeMatchesFiniteDifferences(new BayesianNetwork(mu.getConnectedGraph()));
+    }
+
+    @Test
+    public void matchesFiniteDifferencesThroughBroadcastArithmeticAndMatrixMultiply() {
+        DoubleVertex A = new GaussianVertex(new long[]{2, 3}, 0, 1);
+        DoubleVertex B = new GaussianVertex(new long[]{3, 2}, 0, 1);
+        DoubleVertex scale = new GaussianVertex(0, 1);
+        DoubleVertex shift = new GaussianVertex(new long[]{2}, 0, 1);
+        A.setValue(DoubleTensor.create(new double[]{0.1, -0.2, 0.3, -0.4, 0.5, -0.6}, 2, 3));
+        B.setValue(DoubleTensor.create(new double[]{0.7, 0.8, -0.9, 1.0, 1.1, -1.2}, 3, 2));
+        scale.setValue(1.5);
+        shift.setValue(DoubleTensor.create(0.25, -0.75));
+
+        DoubleVertex product = A.matrixMultiply(B);
+        DoubleVertex observed = new GaussianVertex(product.div(scale).minus(shift).times(shift), scale.times(scale));
+        observed.observe(DoubleTensor.create(new double[]{1, -1, 2, -2}, 2, 2));
+
+        assertTapeMatchesFiniteDifferences(new BayesianNetwork(A.getConnectedGraph()));
+    }
+
+    @Test
+    public void matchesFiniteDifferencesWhenBothOperandsAreTheSameVertex() {
+        DoubleVertex A = new GaussianVertex(new long[]{2}, 0, 1);
+        A.setValue(DoubleTensor.create(0.5, -1.5));
+
+        DoubleVertex observed = new GaussianVertex(A.times(A).plus(A.plus(A)).minus(A.div(A.exp())), 1);
+        observed.observe(DoubleTensor.create(1.0, 2.0));
+
+        assertTapeMatchesFiniteDifferences(new BayesianNetwork(A.getConnectedGraph()));
+    }
+
+    @Test
+    public void matchesReverseModeAutoDiffWhenBothOperandsAreTheSameVertex() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.7);
+
+        List<DoubleVertex> outputs = ImmutableList.of(
+            A.plus(A),
+            A.minus(A),
+            A.times(A),
+            A.div(A.exp()).div(A),
+            A.pow(A),
+            A.atan2(A),
+            DoubleVertex.max(A, A.times(A)).times(DoubleVertex.max(A, A))
+        );
+
+        for (DoubleVertex output : outputs) {
+            GaussianVertex observed = new GaussianVertex(output, 1);
+            observed.observe(0.3);
+
+            double dLogProbWrtOutput = observed.dLogProbAtValue(output).get(output).scalar();
+            double dOutputWrtA = Differentiator.reverseModeAutoDiff(output, A).withRespectTo(A).scalar();
+
+            LogProbTape tape = LogProbTape.compile(ImmutableList.of(observed), ImmutableList.of(A));
+            assertEquals(dLogProbWrtOutput * dOutputWrtA, tape.gradient()[0].scalar(), 1e-10);
+        }
+    }
+
+    @Test
+    public void matchesTheUncompiledGradientCalculator() {
+        DoubleVertex A = new GaussianVertex(new long[]{2}, 0, 1);
+        DoubleVertex B = new GaussianVertex(0, 1);
+        A.setValue(DoubleTensor.create(0.5, -0.25));
+        B.setValue(1.5);
+
+        DoubleVertex shared = A.times(B).minus(A.exp().div(B)).plus(A.log().abs()).cos();
+        for (int i = 0; i < 5; i++) {
+            DoubleVertex observed = new GaussianVertex(shared.times(i), B.times(B).plus(1));
+            observed.observe(DoubleTensor.create(i * 0.3, -i * 0.2));
+        }
+
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+        List<Vertex> ofVertices = network.getLatentOrObservedVertices();
+        List<Vertex<DoubleTensor>> wrtVertices = network.getContinuousLatentVertices();
+
+        DoubleTensor[] expected = new LogProbGradientCalculator(ofVertices, wrtVertices).getJointLogProbGradientWrtLatentsInOrder();
+        DoubleTensor[] actual = LogProbTape.compile(ofVertices, wrtVertices).gradient();
+
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i].asFlatDoubleArray(), actual[i].asFlatDoubleArray(), 1e-10);
+        }
+    }
+
+    @Test
+    public void gradientIsNullForVerticesTheLogProbDoesNotDependOn() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        DoubleVertex B = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        B.setValue(0.5);
+        GaussianVertex C = new GaussianVertex(A, 1);
+        C.observe(2.0);
+
+        LogProbTape tape = LogProbTape.compile(ImmutableList.of(C), ImmutableList.of(A, B));
+        DoubleTensor[] gradient = tape.gradient();
+
+        assertEquals(C.dLogProbAtValue(A).get(A).scalar(), gradient[0].scalar(), 1e-10);
+        assertNull(gradient[1]);
+    }
+
+    @Test
+    public void forwardUpdatesDownstreamValuesAndLogProb() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        DoubleVertex B = A.times(2.0);
+        DoubleVertex C = new GaussianVertex(B, 1);
+        C.observe(2.0);
+
+        BayesianNetwork network = new BayesianNetwork(A.getConnectedGraph());
+        LogProbTape tape = LogProbTape.compile(network.getLatentOrObservedVertices(), ImmutableList.of(A));
+
+        A.setValue(1.0);
+        tape.forward();
+
+        assertEquals(2.0, B.getValue().scalar(), 0.0);
+        assertEquals(network.getLogOfMasterP(), tape.logProb(), 1e-10);
+    }
+
+    @Test
+    public void recompilesWhenTheGraphChanges() {
+        DoubleVertex A = new GaussianVertex(0, 1);
+        A.setValue(0.5);
+        DoubleVertex B = new GaussianVertex(A, 1);
+        B.observe(2.0);
+
+        LogProbTape tape = LogProbTape.compile(ImmutableList.of(B), ImmutableList.of(A));
+        double before = tape.gradient()[0].scalar();
+
+        A.times(3.0);
+
+        assertEquals(before, tape.gradient()[0].scalar(), 1e-10);
+    }
+
+    private static void assertTapeMatchesFiniteDifferences(BayesianNetwork network) {
+        List<Vertex> ofVertices = network.getLatentOrObservedVertices();
+        List<Vertex<DoubleTensor>> wrtVertices = network.getContinuousLatentVertices();
+
+        LogProbTape tape = LogProbTape.compile(ofVertices, wrtVertices);
+        DoubleTensor[] gradient = tape.gradient();
+
+        assertEquals(ProbabilityCalculator.calculateLogProbFor(ofVertices), tape.logProb(), 0.0);
+
+        double delta = 1e-6;
+        for (int i = 0; i < wrtVertices.size(); i++) {
+            Vertex<DoubleTensor> wrt = wrtVertices.get(i);
+            DoubleTensor value = wrt.getValue();
+
+            for (int j = 0; j < value.getLength(); j++) {
+                double logProbUp = logProbWithElementShifted(tape, wrt, value, j, delta);
+                double logProbDown = logProbWithElementShifted(tape, wrt, value, j, -delta);
+                double expected = (logProbUp - logProbDown) / (2 * delta);
+
+                double actual = gradient[i] == null ? 0.0 : gradient[i].getFlattenedView().getOrScalar(j);
+                assertEquals(expected, actual, 1e-5);
+            }
+
+            wrt.setValue(value);
+            tape.forward();
+        }
+    }
+
+    private static double logProbWithElementShifted(LogProbTape tape, Vertex<DoubleTensor> wrt, DoubleTensor value, int index, double shift) {
+        DoubleTensor shifted = value.duplicate();
+        shifted.getFlattenedView().set(index, value.getFlattenedView().getOrScalar(index) + shift);
+        wrt.setValue(shifted);
+        tape.forward();
+        return tape.logProb();
+    }
+}
@@ -0,0 +1,104 @@
+package io.improbable.keanu.vertices.dbl.nonprobabilistic.diff;
+
+import io.improbable.keanu.tensor.dbl.DoubleTensor;
+import io.improbable.keanu.vertices.dbl.Differentiator;
+import io.improbable.keanu.vertices.dbl.nonprobabilistic.operators.unary.SumVertex;
+import io.improbable.keanu.vertices.dbl.probabilistic.GaussianVertex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PartialDerivativeTest {
+
+    private final DoubleTensor diagonal = DoubleTensor.create(new double[]{1, 2, 3, 4, 5, 6}, 2, 3);
+    private final DoubleTensor multiplier = DoubleTensor.create(new double[]{2, 3, 5, 7, 11, 13}, 2, 3);
+
+    @Test
+    public void identityIsTheReshapedEye() {
+        PartialDerivative identity = PartialDerivative.identity(new long[]{2, 3});
+
+        assertTrue(identity.isDiagonal());
+        assertEquals(DoubleTensor.eye(6).reshape(2, 3, 2, 3), identity.get());
+        assertArrayEquals(new long[]{2, 3, 2, 3}, identity.getShape());
+    }
+
+    @Test
+    public void elementWiseOperationsKeepThePartialDiagonal() {
+        PartialDerivative structured = PartialDerivative.diagonal(diagonal);
+        PartialDerivative dense = new PartialDerivative(PartialDerivative.diagonal(diagonal).get());
+
+        assertStructuredMatchesDense(
+            structured.multiplyAlongOfDimensions(multiplier),
+            dense.multiplyAlongOfDimensions(multiplier)
+        );
+        assertStructuredMatchesDense(
+            structured.multiplyAlongWrtDimensions(multiplier),
+            dense.multiplyAlongWrtDimensions(multiplier)
+        );
+        assertStructuredMatchesDense(
+            structured.divideByAlongOfDimensions(multiplier),
+            dense.divideByAlongOfDimensions(multiplier)
+        );
+        assertStructuredMatchesDense(
+            structured.multiplyAlongOfDimensions(DoubleTensor.create(2, 3, 5), 2),
+            dense.multiplyAlongOfDimensions(DoubleTensor.create(2, 3, 5), 2)
+        );
+        assertStructuredMatchesDense(
+            structured.multiplyBy(3.0),
+            dense.multiplyBy(3.0)
+        );
+        assertStructuredMatchesDense(
+            structured.add(PartialDerivative.diagonal(multiplier)),
+            dense.add(PartialDerivative.diagonal(multiplier))
+        );
+        assertStructuredMatchesDense(
+            PartialDerivative.EMPTY.subtract(structured),
+            PartialDerivative.EMPTY.subtract(dense)
+        );
+    }
+
+    @Test
+    public void summingADiagonalOverAllOfItsOfDimensionsLeavesTheDiagonal() {
+        PartialDerivative structured = PartialDerivative.diagonal(diagonal);
+        PartialDerivative dense = new PartialDerivative(PartialDerivative.diagonal(diagonal).get());
+
+        PartialDerivative sum = structured.sumOverOfDimensions(new int[]{0, 1});
+
+        assertEquals(diagonal, sum.get());
+        assertEquals(dense.sumOverOfDimensions(new int[]{0, 1}).get(), sum.get());
+    }
+
+    @Test
+    public void nonElementWiseOperationsMakeTheDensePartial() {
+        PartialDerivative structured = PartialDerivative.diagonal(diagonal);
+        PartialDerivative dense = new PartialDerivative(PartialDerivative.diagonal(diagonal).get());
+
+        PartialDerivative sumOverOneDimension = structured.sumOverOfDimensions(new int[]{0});
+        assertFalse(sumOverOneDimension.isDiagonal());
+        assertEquals(dense.get().sum(0), sumOverOneDimension.get());
+
+        PartialDerivative addedToDense = structured.add(dense);
+        assertFalse(addedToDense.isDiagonal());
+        assertEquals(dense.get().times(2.0), addedToDense.get());
+    }
+
+    @Test
+    public void forwardModeGradientOfALongVectorDoesNotMakeItsIdentity() {
+        int length = 100_000;
+        GaussianVertex x = new GaussianVertex(new long[]{length}, 0, 1);
+        x.setValue(DoubleTensor.linspace(0, 1, length));
+        SumVertex sumOfSquares = x.times(x).sum();
+
+        DoubleTensor gradient = Differentiator.forwardModeAutoDiff(x, sumOfSquares).of(sumOfSquares);
+
+        assertEquals(x.getValue().times(2.0), gradient);
+    }
+
+    private static void assertStructuredMatchesDense(PartialDerivative structured, PartialDerivative dense) {
+        assertTrue(structured.isDiagonal());
+        assertEquals(dense.get(), structured.get());
+    }
+}
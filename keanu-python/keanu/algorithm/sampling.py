@@ -103,9 +103,9 @@ def sample(net: BayesNet,
         net.unwrap(), vertices_unwrapped, draws).drop(drop).downSample(down_sample_interval)
 
     vertex_samples = {
-        Vertex._get_python_label(vertex_unwrapped): list(
-            map(Tensor._to_ndarray,
-                network_samples.get(vertex_unwrapped).asList())) for vertex_unwrapped in vertices_unwrapped
+        Vertex._get_python_label(vertex_unwrapped): _split_samples(
+            Tensor._samples_to_ndarray(network_samples.get(vertex_unwrapped).flatten()))
+        for vertex_unwrapped in vertices_unwrapped
     }
 
     if plot:
@@ -121,7 +121,8 @@ def generate_samples(net: BayesNet,
                      down_sample_interval: int = 1,
                      live_plot: bool = False,
                      refresh_every: int = 100,
-                     ax: Any = None) -> sample_generator_types:
+                     ax: Any = None,
+                     batch_size: int = 100) -> sample_generator_types:
 
     if sampling_algorithm is None:
         sampling_algorithm = MetropolisHastingsSampler()
@@ -130,23 +131,34 @@ def generate_samples(net: BayesNet,
 
     samples: JavaObject = sampling_algorithm.get_sampler().generatePosteriorSamples(net.unwrap(), vertices_unwrapped)
     samples = samples.dropCount(drop).downSampleInterval(down_sample_interval)
-    sample_iterator: JavaObject = samples.stream().iterator()
+    batch_iterator: JavaObject = samples.streamBatches(batch_size).iterator()
 
     return _samples_generator(
-        sample_iterator, vertices_unwrapped, live_plot=live_plot, refresh_every=refresh_every, ax=ax)
+        batch_iterator, vertices_unwrapped, live_plot=live_plot, refresh_every=refresh_every, ax=ax)
 
 
-def _samples_generator(sample_iterator: JavaObject, vertices_unwrapped: JavaList, live_plot: bool, refresh_every: int,
-                       ax: Any) -> sample_generator_types:
-    traces = []
-    x0 = 0
+def _split_samples(samples: numpy_types) -> List[numpy_types]:
+    return [samples[i, ...] for i in range(samples.shape[0])]
+
+
+def _batch_generator(batch_iterator: JavaObject,
+                     vertices_unwrapped: JavaList) -> Generator[Dict[str, numpy_types], None, None]:
+    labels = [Vertex._get_python_label(vertex_unwrapped) for vertex_unwrapped in vertices_unwrapped]
     while (True):
-        network_sample = sample_iterator.next()
-        sample = {
-            Vertex._get_python_label(vertex_unwrapped): Tensor._to_ndarray(network_sample.get(vertex_unwrapped))
-            for vertex_unwrapped in vertices_unwrapped
+        network_samples = batch_iterator.next()
+        batch = {
+            label: Tensor._samples_to_ndarray(network_samples.get(vertex_unwrapped).flatten())
+            for label, vertex_unwrapped in zip(labels, vertices_unwrapped)
         }
+        for i in range(network_samples.size()):
+            yield {label: samples[i, ...] for label, samples in batch.items()}
 
+
+def _samples_generator(batch_iterator: JavaObject, vertices_unwrapped: JavaList, live_plot: bool, refresh_every: int,
+                       ax: Any) -> sample_generator_types:
+    traces = []
+    x0 = 0
+    for sample in _batch_generator(batch_iterator, vertices_unwrapped):
         if live_plot:
             traces.append(sample)
             if len(traces) % refresh_every == 0:
@@ -1,3 +1,4 @@
+import os
 from typing import Any
 
 import numpy as np
@@ -11,6 +12,12 @@ from .vartypes import (numpy_types, tensor_arg_types, primitive_types, runtime_i
 
 k = KeanuContext()
 
+# Samples bigger than this are passed through a temporary file rather than as a byte array over the gateway
+_MAX_SAMPLE_BYTES_OVER_GATEWAY = 64 * 1024 * 1024
+
+# Match the types that _to_ndarray produces for each of the dtypes that samples are flattened to on the Java side
+_SAMPLE_DTYPES = {"<f8": float, "<i4": int, "|b1": bool}
+
 java_import(k.jvm_view(), "io.improbable.keanu.tensor.dbl.DoubleTensor")
 java_import(k.jvm_view(), "io.improbable.keanu.tensor.bool.BooleanTensor")
 java_import(k.jvm_view(), "io.improbable.keanu.tensor.intgr.IntegerTensor")
@@ -77,3 +84,19 @@ class Tensor(JavaObjectWrapper):
             return np.array(java_tensor.scalar())
         else:
             return np.array(list(java_tensor.asFlatArray())).reshape(java_tensor.getShape())
+
+    @staticmethod
+    def _samples_to_ndarray(flattened_samples: JavaObject) -> numpy_types:
+        dtype = flattened_samples.getDType()
+        shape = tuple(flattened_samples.getShape())
+
+        if flattened_samples.getByteLength() > _MAX_SAMPLE_BYTES_OVER_GATEWAY:
+            path = flattened_samples.toTempFile().getAbsolutePath()
+            try:
+                values = np.fromfile(path, dtype=dtype)
+            finally:
+                os.remove(path)
+        else:
+            values = np.frombuffer(flattened_samples.toByteArray(), dtype=dtype)
+
+        return values.astype(_SAMPLE_DTYPES[dtype]).reshape(shape)
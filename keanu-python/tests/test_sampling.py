@@ -114,6 +114,42 @@ def test_iter_returns_same_result_as_sample(algo: Callable) -> None:
         np.testing.assert_almost_equal(samples_dataframe[vertex_label].mean(), np.average(samples[vertex_label]))
 
 
+@pytest.mark.parametrize("batch_size", [1, 7, 100])
+def test_iter_returns_the_same_samples_for_any_batch_size(batch_size: int) -> None:
+    draws = 20
+    model = thermometers.model()
+    net = BayesNet(model.temperature.get_connected_graph())
+
+    set_starting_state(model)
+    samples = sample(net=net, sample_from=net.get_latent_vertices(), draws=draws)
+
+    set_starting_state(model)
+    iter_samples = list(
+        islice(generate_samples(net=net, sample_from=net.get_latent_vertices(), batch_size=batch_size), draws))
+
+    assert len(iter_samples) == draws
+    for i, iter_sample in enumerate(iter_samples):
+        for vertex_label, value in iter_sample.items():
+            assert type(value) == np.ndarray
+            assert value.shape == ()
+            np.testing.assert_equal(value, samples[vertex_label][i])
+
+
+def test_iter_keeps_the_dtype_and_shape_of_each_sample() -> None:
+    with Model() as m:
+        m.bernoulli = Bernoulli(np.array([0.2, 0.8]))
+        m.gamma = Gamma(np.array([[1., 2.], [3., 4.]]), 1.)
+
+    net = m.to_bayes_net()
+    samples = generate_samples(net=net, sample_from=net.get_latent_vertices(), batch_size=3)
+
+    for iter_sample in islice(samples, 10):
+        assert iter_sample["bernoulli"].dtype == bool
+        assert iter_sample["bernoulli"].shape == (2,)
+        assert iter_sample["gamma"].dtype == float
+        assert iter_sample["gamma"].shape == (2, 2)
+
+
 def test_iter_with_live_plot(net: BayesNet) -> None:
     KeanuRandom.set_default_random_seed(1)
     _, ax = plt.subplots(3, 1, squeeze=False)
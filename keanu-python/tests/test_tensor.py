@@ -3,7 +3,9 @@ from typing import Union, List
 import numpy as np
 import pandas as pd
 import pytest
+from py4j.java_gateway import java_import
 
+from keanu.context import KeanuContext
 from keanu.tensor import Tensor
 from keanu.vartypes import primitive_types, numpy_types
 from keanu.vertex.base import JavaObjectWrapper
@@ -14,6 +16,13 @@ def generic():
     pass
 
 
+@pytest.fixture
+def jvm_view():
+    jvm_view = KeanuContext().jvm_view()
+    java_import(jvm_view, "io.improbable.keanu.algorithms.VertexSamples")
+    return jvm_view
+
+
 @pytest.mark.parametrize("num, expected_java_class", [(1, "ScalarIntegerTensor"),
                                                       (np.array([1])[0], "ScalarIntegerTensor"),
                                                       (1.3, "ScalarDoubleTensor"),
@@ -115,3 +124,23 @@ def test_you_can_apply_a_function_to_a_tensor(value, expected_result):
     result = t.apply(lambda x: x + 10)
     ndarray = Tensor._to_ndarray(result)
     assert (ndarray == expected_result).all()
+
+
+@pytest.mark.parametrize("values", [[1.5, -2., 0.25], [np.array([[1, 2], [3, 4]]), np.array([[5, 6], [7, 8]])],
+                                    [np.array([True, False]), np.array([False, False]), np.array([True, True])]])
+@pytest.mark.parametrize("through_temp_file", [False, True])
+def test_convert_java_samples_to_ndarray(jvm_view, monkeypatch, values: List[Union[primitive_types, numpy_types]],
+                                         through_temp_file: bool) -> None:
+    if through_temp_file:
+        monkeypatch.setattr("keanu.tensor._MAX_SAMPLE_BYTES_OVER_GATEWAY", 0)
+
+    java_samples = KeanuContext().to_java_object_list([Tensor(value).unwrap() for value in values])
+    ndarray = Tensor._samples_to_ndarray(jvm_view.VertexSamples(java_samples).flatten())
+
+    expected = [Tensor._to_ndarray(java_sample) for java_sample in java_samples]
+
+    assert type(ndarray) == np.ndarray
+    assert ndarray.shape == (len(values),) + expected[0].shape
+    assert ndarray.dtype == expected[0].dtype
+    for i in range(len(values)):
+        assert np.array_equal(ndarray[i, ...], expected[i])